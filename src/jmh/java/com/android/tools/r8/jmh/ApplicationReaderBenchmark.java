@@ -0,0 +1,59 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.jmh;
+
+import com.android.tools.r8.graph.DirectMappedDexApplication;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Parsing of class-file inputs (JarClassFileReader) and DEX inputs (DexParser). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class ApplicationReaderBenchmark {
+
+  private AndroidApp classFileApp;
+  private AndroidApp dexApp;
+  private ExecutorService executor;
+
+  @Setup
+  public void setup() throws Exception {
+    classFileApp = BenchmarkCorpus.getClassFileApp();
+    List<byte[]> dexFiles = BenchmarkCorpus.compileToDex();
+    dexApp = BenchmarkCorpus.getDexApp(dexFiles);
+    executor = ThreadUtils.getExecutorService(ThreadUtils.NOT_SPECIFIED);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public DirectMappedDexApplication readClassFiles() throws Exception {
+    return BenchmarkCorpus.read(classFileApp, BenchmarkCorpus.createD8Options(), executor);
+  }
+
+  @Benchmark
+  public DirectMappedDexApplication readDexFiles() throws Exception {
+    return BenchmarkCorpus.read(dexApp, BenchmarkCorpus.createD8Options(), executor);
+  }
+}
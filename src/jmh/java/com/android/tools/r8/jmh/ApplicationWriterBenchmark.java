@@ -0,0 +1,81 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.jmh;
+
+import com.android.tools.r8.dex.ApplicationWriter;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.GraphLens;
+import com.android.tools.r8.graph.InitClassLens;
+import com.android.tools.r8.naming.NamingLens;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Emission of DEX files (ApplicationWriter and FileWriter) for the corpus.
+ *
+ * <p>The input is the D8 compiled corpus such that the code objects are passed through and only
+ * the distribution of classes and the serialization of the DEX files is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class ApplicationWriterBenchmark {
+
+  private ExecutorService executor;
+  private AndroidApp dexApp;
+  private AppView<AppInfo> appView;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    executor = ThreadUtils.getExecutorService(ThreadUtils.NOT_SPECIFIED);
+    dexApp = BenchmarkCorpus.getDexApp(BenchmarkCorpus.compileToDex());
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdownExecutor() {
+    executor.shutdown();
+  }
+
+  // Writing mutates the application (e.g., attribute annotations are inserted), so the input is
+  // read again for each invocation.
+  @Setup(Level.Invocation)
+  public void read() throws Exception {
+    InternalOptions options = BenchmarkCorpus.createD8Options();
+    options.passthroughDexCode = true;
+    appView =
+        AppView.createForD8(
+            AppInfo.createInitialAppInfo(BenchmarkCorpus.read(dexApp, options, executor)));
+  }
+
+  @Benchmark
+  public void write() throws Exception {
+    new ApplicationWriter(
+            appView,
+            null,
+            GraphLens.getIdentityLens(),
+            InitClassLens.getDefault(),
+            NamingLens.getIdentityLens(),
+            null)
+        .write(executor);
+  }
+}
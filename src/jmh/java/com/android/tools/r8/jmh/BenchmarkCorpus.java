@@ -0,0 +1,118 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.jmh;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.CompilationMode;
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DirectMappedDexApplication;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.shaking.ProguardConfigurationParser;
+import com.android.tools.r8.shaking.ProguardConfigurationSourceStrings;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Reporter;
+import com.android.tools.r8.utils.Timing;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Fixed inputs for the JMH benchmarks.
+ *
+ * <p>All paths are relative to the repository root and are provided by the {@code downloadDeps}
+ * task.
+ */
+public class BenchmarkCorpus {
+
+  public static final Path PROGRAM = Paths.get("third_party", "r8", "r8.jar");
+  public static final AndroidApiLevel API_LEVEL = AndroidApiLevel.R;
+  public static final Path LIBRARY =
+      Paths.get("third_party", "android_jar", "lib-v" + API_LEVEL.getLevel(), "android.jar");
+
+  public static final List<String> KEEP_RULES =
+      ImmutableList.of(
+          "-keep public class com.android.tools.r8.D8 {",
+          "  public static void main(java.lang.String[]);",
+          "}",
+          "-keep public class com.android.tools.r8.R8 {",
+          "  public static void main(java.lang.String[]);",
+          "}",
+          "-dontoptimize",
+          "-ignorewarnings");
+
+  public static AndroidApp getClassFileApp() {
+    return AndroidApp.builder().addProgramFiles(PROGRAM).addLibraryFiles(LIBRARY).build();
+  }
+
+  public static AndroidApp getDexApp(List<byte[]> dexFiles) {
+    return AndroidApp.builder().addDexProgramData(dexFiles).addLibraryFiles(LIBRARY).build();
+  }
+
+  public static InternalOptions createD8Options() {
+    InternalOptions options = new InternalOptions(new DexItemFactory(), new Reporter());
+    options.minApiLevel = API_LEVEL.getLevel();
+    options.programConsumer = DexIndexedConsumer.emptyConsumer();
+    return options;
+  }
+
+  public static InternalOptions createR8Options() {
+    return createR8Options(KEEP_RULES);
+  }
+
+  public static InternalOptions createR8Options(List<String> keepRules) {
+    Reporter reporter = new Reporter();
+    ProguardConfigurationParser parser =
+        new ProguardConfigurationParser(new DexItemFactory(), reporter);
+    parser.parse(
+        new ProguardConfigurationSourceStrings(keepRules, Paths.get("."), Origin.unknown()));
+    InternalOptions options = new InternalOptions(parser.getConfig(), reporter);
+    options.minApiLevel = API_LEVEL.getLevel();
+    options.programConsumer = DexIndexedConsumer.emptyConsumer();
+    return options;
+  }
+
+  public static DirectMappedDexApplication read(
+      AndroidApp app, InternalOptions options, ExecutorService executor) throws IOException {
+    return new ApplicationReader(app, options, Timing.empty()).read(executor).toDirect();
+  }
+
+  /** Compiles the program corpus to DEX in memory using D8. */
+  public static List<byte[]> compileToDex() throws Exception {
+    List<byte[]> dexFiles = new ArrayList<>();
+    D8.run(
+        D8Command.builder()
+            .addProgramFiles(PROGRAM)
+            .addLibraryFiles(LIBRARY)
+            .setMinApiLevel(API_LEVEL.getLevel())
+            .setMode(CompilationMode.RELEASE)
+            .setProgramConsumer(
+                new DexIndexedConsumer.ForwardingConsumer(null) {
+                  @Override
+                  public synchronized void accept(
+                      int fileIndex,
+                      ByteDataView data,
+                      Set<String> descriptors,
+                      DiagnosticsHandler handler) {
+                    while (dexFiles.size() <= fileIndex) {
+                      dexFiles.add(null);
+                    }
+                    dexFiles.set(fileIndex, data.copyByteData());
+                  }
+                })
+            .build());
+    return dexFiles;
+  }
+}
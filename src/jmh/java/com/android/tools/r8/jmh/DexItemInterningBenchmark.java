@@ -0,0 +1,90 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.jmh;
+
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexItemInternTable;
+import com.android.tools.r8.graph.DexString;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Concurrent interning of strings with the {@link DexItemInternTable} used by {@link
+ * DexItemFactory} compared to the {@link ConcurrentHashMap} it replaced.
+ *
+ * <p>Each thread interns its own copies of the same strings, such that threads race to insert new
+ * strings and mostly hit existing entries after the first pass, as when reading an application.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Threads(32)
+@Fork(2)
+public class DexItemInterningBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Tables {
+
+    private ConcurrentHashMap<DexString, DexString> map;
+    private DexItemInternTable<DexString, DexString> table;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+      map = new ConcurrentHashMap<>();
+      table = DexItemInternTable.create();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Strings {
+
+    @Param({"100000"})
+    public int size;
+
+    private DexString[] strings;
+    private int index = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      // Use a factory per thread to get strings that are equal but not identical across threads.
+      DexItemFactory factory = new DexItemFactory();
+      strings = new DexString[size];
+      for (int i = 0; i < size; i++) {
+        strings[i] = factory.createString("Lcom/example/package" + (i % 100) + "/Class" + i + ";");
+      }
+    }
+
+    DexString next() {
+      DexString string = strings[index];
+      index = index + 1 == strings.length ? 0 : index + 1;
+      return string;
+    }
+  }
+
+  @Benchmark
+  public DexString concurrentHashMap(Tables tables, Strings strings) {
+    DexString string = strings.next();
+    DexString previous = tables.map.putIfAbsent(string, string);
+    return previous == null ? string : previous;
+  }
+
+  @Benchmark
+  public DexString dexItemInternTable(Tables tables, Strings strings) {
+    return tables.table.intern(strings.next());
+  }
+}
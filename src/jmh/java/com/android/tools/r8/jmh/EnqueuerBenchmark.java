@@ -0,0 +1,93 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.jmh;
+
+import com.android.tools.r8.graph.AppInfoWithClassHierarchy;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.SubtypingInfo;
+import com.android.tools.r8.shaking.AppInfoWithLiveness;
+import com.android.tools.r8.shaking.EnqueuerFactory;
+import com.android.tools.r8.shaking.RootSetUtils.RootSet;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.Timing;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Tree shaking (Enqueuer) of the corpus using a fixed set of keep rules. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(2)
+public class EnqueuerBenchmark {
+
+  private ExecutorService executor;
+  private AppView<AppInfoWithClassHierarchy> appView;
+  private SubtypingInfo subtypingInfo;
+
+  @Setup(Level.Trial)
+  public void createExecutor() {
+    executor = ThreadUtils.getExecutorService(ThreadUtils.NOT_SPECIFIED);
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdownExecutor() {
+    executor.shutdown();
+  }
+
+  // Tracing mutates the application, so it is read again for each invocation.
+  @Setup(Level.Invocation)
+  public void setup() throws Exception {
+    appView = createAppView(executor);
+    subtypingInfo = new SubtypingInfo(appView);
+    appView.setRootSet(
+        RootSet.builder(
+                appView,
+                subtypingInfo,
+                appView.options().getProguardConfiguration().getRules())
+            .build(executor));
+  }
+
+  static AppView<AppInfoWithClassHierarchy> createAppView(ExecutorService executor)
+      throws Exception {
+    return createAppView(BenchmarkCorpus.createR8Options(), executor);
+  }
+
+  static AppView<AppInfoWithClassHierarchy> createAppView(
+      InternalOptions options, ExecutorService executor) throws Exception {
+    return AppView.createForR8(
+        BenchmarkCorpus.read(BenchmarkCorpus.getClassFileApp(), options, executor));
+  }
+
+  static AppView<AppInfoWithLiveness> trace(
+      AppView<AppInfoWithClassHierarchy> appView,
+      SubtypingInfo subtypingInfo,
+      ExecutorService executor)
+      throws Exception {
+    AppInfoWithLiveness appInfoWithLiveness =
+        EnqueuerFactory.createForInitialTreeShaking(appView, executor, subtypingInfo)
+            .traceApplication(appView.rootSet(), executor, Timing.empty())
+            .getAppInfo();
+    return appView.setAppInfo(appInfoWithLiveness);
+  }
+
+  @Benchmark
+  public AppView<AppInfoWithLiveness> traceApplication() throws Exception {
+    return trace(appView, subtypingInfo, executor);
+  }
+}
@@ -0,0 +1,103 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.jmh;
+
+import com.android.tools.r8.graph.AppInfoWithClassHierarchy;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.SubtypingInfo;
+import com.android.tools.r8.shaking.AppInfoWithLiveness;
+import com.android.tools.r8.shaking.RootSetUtils.RootSet;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Tree shaking (Enqueuer) of the corpus with a synthetic configuration of 10k -if rules. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(2)
+public class IfRuleEnqueuerBenchmark {
+
+  private static final int NUMBER_OF_IF_RULES = 10000;
+
+  private ExecutorService executor;
+  private AppView<AppInfoWithClassHierarchy> appView;
+  private SubtypingInfo subtypingInfo;
+
+  @Setup(Level.Trial)
+  public void createExecutor() {
+    executor = ThreadUtils.getExecutorService(ThreadUtils.NOT_SPECIFIED);
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdownExecutor() {
+    executor.shutdown();
+  }
+
+  // Tracing mutates the application, so it is read again for each invocation.
+  @Setup(Level.Invocation)
+  public void setup() throws Exception {
+    appView =
+        EnqueuerBenchmark.createAppView(
+            BenchmarkCorpus.createR8Options(createKeepRules()), executor);
+    subtypingInfo = new SubtypingInfo(appView);
+    appView.setRootSet(
+        RootSet.builder(
+                appView,
+                subtypingInfo,
+                appView.options().getProguardConfiguration().getRules())
+            .build(executor));
+  }
+
+  private static List<String> createKeepRules() {
+    List<String> keepRules = new ArrayList<>(BenchmarkCorpus.KEEP_RULES);
+    for (int i = 0; i < NUMBER_OF_IF_RULES; i++) {
+      switch (i % 4) {
+        case 0:
+          // A precondition with a literal package prefix that does not match any class.
+          keepRules.add("-if class com.android.tools.r8.ir.**Rule" + i + " { void m" + i + "(); }");
+          keepRules.add("-keep class <1>Rule" + i + "Kept");
+          break;
+        case 1:
+          // A precondition that matches many classes but none of their members.
+          keepRules.add("-if class **$Builder { *** build" + i + "(...); }");
+          keepRules.add("-keep class <1>$Builder" + i);
+          break;
+        case 2:
+          // A precondition on a class annotation that is not present.
+          keepRules.add("-if @com.android.tools.r8.Keep" + i + " class *");
+          keepRules.add("-keep class <1>");
+          break;
+        default:
+          // A precondition that matches live classes. The sequent has a back reference, so the
+          // rule stays active for the entire fixpoint.
+          keepRules.add("-if class com.android.tools.r8.graph.Dex*");
+          keepRules.add("-keep class com.android.tools.r8.graph.Dex<1>Marker" + i);
+          break;
+      }
+    }
+    return keepRules;
+  }
+
+  @Benchmark
+  public AppView<AppInfoWithLiveness> traceApplication() throws Exception {
+    return EnqueuerBenchmark.trace(appView, subtypingInfo, executor);
+  }
+}
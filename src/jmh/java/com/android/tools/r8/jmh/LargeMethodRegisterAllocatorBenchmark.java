@@ -0,0 +1,156 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.jmh;
+
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DirectMappedDexApplication;
+import com.android.tools.r8.graph.ProgramMethod;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.regalloc.LinearScanRegisterAllocator;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Register allocation (LinearScanRegisterAllocator) of generated methods with more than 10k
+ * instructions and high register pressure.
+ *
+ * <p>Run with {@code -prof gc} to also measure the garbage produced by the allocator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class LargeMethodRegisterAllocatorBenchmark {
+
+  private static final String CLASS_NAME = "LargeMethods";
+
+  // Number of statements of the form l_a = l_b * l_c + i in each generated method.
+  @Param({"3500"})
+  public int statements;
+
+  // Number of int locals that are live throughout each generated method.
+  @Param({"300"})
+  public int locals;
+
+  @Param({"4"})
+  public int methodCount;
+
+  private AppView<AppInfo> appView;
+  private List<ProgramMethod> methods;
+  private List<IRCode> codes;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    AndroidApp app =
+        AndroidApp.builder()
+            .addClassProgramData(generateClass(methodCount, statements, locals), Origin.unknown())
+            .build();
+    ExecutorService executor = ThreadUtils.getExecutorService(ThreadUtils.NOT_SPECIFIED);
+    try {
+      DirectMappedDexApplication application =
+          BenchmarkCorpus.read(app, BenchmarkCorpus.createD8Options(), executor);
+      appView = AppView.createForD8(AppInfo.createInitialAppInfo(application));
+    } finally {
+      executor.shutdown();
+    }
+    methods = new ArrayList<>();
+    for (DexProgramClass clazz : appView.appInfo().classes()) {
+      clazz.forEachProgramMethodMatching(DexEncodedMethod::hasCode, methods::add);
+    }
+  }
+
+  // Register allocation mutates the IR, so fresh IR is built for each invocation.
+  @Setup(Level.Invocation)
+  public void buildIR() {
+    codes = new ArrayList<>(methods.size());
+    for (ProgramMethod method : methods) {
+      codes.add(method.buildIR(appView));
+    }
+  }
+
+  @Benchmark
+  public void allocateRegisters(Blackhole blackhole) {
+    for (IRCode code : codes) {
+      LinearScanRegisterAllocator allocator = new LinearScanRegisterAllocator(appView, code);
+      allocator.allocateRegisters();
+      blackhole.consume(allocator);
+    }
+  }
+
+  /**
+   * Generates a class with {@code methodCount} static methods {@code int m<i>(int)}. Each method
+   * initializes {@code locals} locals and then updates them in {@code statements} statements,
+   * with a conditional branch every 50 statements to introduce phis, and finally returns their sum.
+   */
+  public static byte[] generateClass(int methodCount, int statements, int locals) {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+    cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, CLASS_NAME, null, "java/lang/Object", null);
+    for (int m = 0; m < methodCount; m++) {
+      MethodVisitor mv =
+          cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "m" + m, "(I)I", null, null);
+      mv.visitCode();
+      // Local 0 is the argument.
+      for (int i = 1; i <= locals; i++) {
+        mv.visitVarInsn(Opcodes.ILOAD, 0);
+        mv.visitLdcInsn(i * (m + 1));
+        mv.visitInsn(Opcodes.IADD);
+        mv.visitVarInsn(Opcodes.ISTORE, i);
+      }
+      for (int i = 0; i < statements; i++) {
+        Label skip = null;
+        if (i % 50 == 0) {
+          skip = new Label();
+          mv.visitVarInsn(Opcodes.ILOAD, 1 + (i * 3) % locals);
+          mv.visitJumpInsn(Opcodes.IFLT, skip);
+        }
+        mv.visitVarInsn(Opcodes.ILOAD, 1 + (i * 7) % locals);
+        mv.visitVarInsn(Opcodes.ILOAD, 1 + (i * 13) % locals);
+        mv.visitInsn(Opcodes.IMUL);
+        mv.visitLdcInsn(i);
+        mv.visitInsn(Opcodes.IADD);
+        mv.visitVarInsn(Opcodes.ISTORE, 1 + (i * 11) % locals);
+        if (skip != null) {
+          mv.visitLabel(skip);
+        }
+      }
+      mv.visitInsn(Opcodes.ICONST_0);
+      for (int i = 1; i <= locals; i++) {
+        mv.visitVarInsn(Opcodes.ILOAD, i);
+        mv.visitInsn(Opcodes.IADD);
+      }
+      mv.visitInsn(Opcodes.IRETURN);
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+    }
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+}
@@ -0,0 +1,72 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.jmh;
+
+import com.android.tools.r8.graph.AppInfoWithClassHierarchy;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.SubtypingInfo;
+import com.android.tools.r8.naming.Minifier;
+import com.android.tools.r8.naming.NamingLens;
+import com.android.tools.r8.shaking.AppInfoWithLiveness;
+import com.android.tools.r8.shaking.RootSetUtils.RootSet;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.Timing;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Minification (class, method and field renaming) of the live part of the corpus. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(2)
+public class MinifierBenchmark {
+
+  private ExecutorService executor;
+  private AppView<AppInfoWithLiveness> appView;
+
+  @Setup(Level.Trial)
+  public void createExecutor() {
+    executor = ThreadUtils.getExecutorService(ThreadUtils.NOT_SPECIFIED);
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdownExecutor() {
+    executor.shutdown();
+  }
+
+  // Minification records state on the items in the application, so the application is read and
+  // traced again for each invocation.
+  @Setup(Level.Invocation)
+  public void setup() throws Exception {
+    AppView<AppInfoWithClassHierarchy> appViewWithClassHierarchy =
+        EnqueuerBenchmark.createAppView(executor);
+    SubtypingInfo subtypingInfo = new SubtypingInfo(appViewWithClassHierarchy);
+    appViewWithClassHierarchy.setRootSet(
+        RootSet.builder(
+                appViewWithClassHierarchy,
+                subtypingInfo,
+                appViewWithClassHierarchy.options().getProguardConfiguration().getRules())
+            .build(executor));
+    appView = EnqueuerBenchmark.trace(appViewWithClassHierarchy, subtypingInfo, executor);
+  }
+
+  @Benchmark
+  public NamingLens minify() throws Exception {
+    return new Minifier(appView).run(executor, Timing.empty());
+  }
+}
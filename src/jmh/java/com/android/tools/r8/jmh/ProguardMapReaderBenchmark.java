@@ -0,0 +1,130 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.jmh;
+
+import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.naming.ClassNameMapperReader;
+import com.android.tools.r8.utils.Reporter;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading of a mapping file, sequentially and with the member mappings parsed in parallel.
+ *
+ * <p>The mapping is read from the file given by the {@code mapping} parameter, for example {@code
+ * -p mapping=/path/to/mapping.txt}. Without a file a synthetic mapping of {@code sizeInMegabytes}
+ * is written to a temporary file. The allocated bytes per read are reported by the gc profiler,
+ * {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgsAppend = "-Xmx16g")
+public class ProguardMapReaderBenchmark {
+
+  @Param({""})
+  public String mapping;
+
+  @Param({"500"})
+  public int sizeInMegabytes;
+
+  private Path mappingFile;
+  private Path syntheticMappingFile;
+  private ExecutorService executor;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    if (mapping.isEmpty()) {
+      syntheticMappingFile = Files.createTempFile("mapping", ".txt");
+      writeSyntheticMapping(syntheticMappingFile, (long) sizeInMegabytes << 20);
+      mappingFile = syntheticMappingFile;
+    } else {
+      mappingFile = Paths.get(mapping);
+    }
+    executor = ThreadUtils.getExecutorService(ThreadUtils.NOT_SPECIFIED);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    executor.shutdown();
+    if (syntheticMappingFile != null) {
+      Files.delete(syntheticMappingFile);
+    }
+  }
+
+  // Writes a mapping in the format of R8 with classes of fields, methods and inlined frames.
+  private static void writeSyntheticMapping(Path path, long size) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      long written = 0;
+      for (int clazz = 0; written < size; clazz++) {
+        String originalClass = "com.example.package" + clazz % 100 + ".Class" + clazz;
+        StringBuilder builder = new StringBuilder();
+        builder.append(originalClass).append(" -> ").append(minifiedName(clazz)).append(":\n");
+        builder.append("# {\"id\":\"sourceFile\",\"fileName\":\"Class.kt\"}\n");
+        for (int field = 0; field < 3; field++) {
+          builder.append("    java.lang.String field").append(field);
+          builder.append(" -> ").append(minifiedName(field)).append('\n');
+        }
+        for (int method = 0; method < 10; method++) {
+          int line = method * 10 + 1;
+          builder.append("    ").append(line).append(':').append(line + 2);
+          builder.append(":void com.example.Util.inlinee(int):42:44 -> ");
+          builder.append(minifiedName(method)).append('\n');
+          builder.append("    ").append(line).append(':').append(line + 2);
+          builder.append(":java.util.List method").append(method);
+          builder.append("(java.lang.String,").append(originalClass).append("[],int):");
+          builder.append(100 + method).append(" -> ").append(minifiedName(method)).append('\n');
+        }
+        writer.write(builder.toString());
+        written += builder.length();
+      }
+    }
+  }
+
+  private static String minifiedName(int index) {
+    StringBuilder builder = new StringBuilder();
+    do {
+      builder.append((char) ('a' + index % 26));
+      index /= 26;
+    } while (index > 0);
+    return builder.toString();
+  }
+
+  @Benchmark
+  public ClassNameMapper sequential() throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(mappingFile, StandardCharsets.UTF_8)) {
+      return ClassNameMapperReader.read(reader, new Reporter(), false);
+    }
+  }
+
+  @Benchmark
+  public ClassNameMapper parallel() throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(mappingFile, StandardCharsets.UTF_8)) {
+      return ClassNameMapperReader.read(reader, new Reporter(), false, executor);
+    }
+  }
+}
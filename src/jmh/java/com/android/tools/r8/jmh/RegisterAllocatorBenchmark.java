@@ -0,0 +1,91 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.jmh;
+
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DirectMappedDexApplication;
+import com.android.tools.r8.graph.ProgramMethod;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.regalloc.LinearScanRegisterAllocator;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Register allocation (LinearScanRegisterAllocator) of the largest methods in the corpus. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class RegisterAllocatorBenchmark {
+
+  @Param({"500"})
+  public int methodCount;
+
+  private AppView<AppInfo> appView;
+  private List<ProgramMethod> methods;
+  private List<IRCode> codes;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    ExecutorService executor = ThreadUtils.getExecutorService(ThreadUtils.NOT_SPECIFIED);
+    try {
+      DirectMappedDexApplication application =
+          BenchmarkCorpus.read(
+              BenchmarkCorpus.getClassFileApp(), BenchmarkCorpus.createD8Options(), executor);
+      appView = AppView.createForD8(AppInfo.createInitialAppInfo(application));
+    } finally {
+      executor.shutdown();
+    }
+    List<ProgramMethod> allMethods = new ArrayList<>();
+    for (DexProgramClass clazz : appView.appInfo().classes()) {
+      clazz.forEachProgramMethodMatching(DexEncodedMethod::hasCode, allMethods::add);
+    }
+    allMethods.sort(
+        Comparator.comparingInt(
+                (ProgramMethod method) ->
+                    method.getDefinition().getCode().estimatedDexCodeSizeUpperBoundInBytes())
+            .reversed()
+            .thenComparing(ProgramMethod::getReference));
+    methods = allMethods.subList(0, Math.min(methodCount, allMethods.size()));
+  }
+
+  // Register allocation mutates the IR, so fresh IR is built for each invocation.
+  @Setup(Level.Invocation)
+  public void buildIR() {
+    codes = new ArrayList<>(methods.size());
+    for (ProgramMethod method : methods) {
+      codes.add(method.buildIR(appView));
+    }
+  }
+
+  @Benchmark
+  public void allocateRegisters(Blackhole blackhole) {
+    for (IRCode code : codes) {
+      LinearScanRegisterAllocator allocator = new LinearScanRegisterAllocator(appView, code);
+      allocator.allocateRegisters();
+      blackhole.consume(allocator);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.jmh;
+
+import com.android.tools.r8.retrace.internal.DefaultStackTraceLineParser;
+import com.android.tools.r8.retrace.internal.StackTraceElementStringProxy;
+import com.android.tools.r8.retrace.internal.StackTraceRegularExpressionParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing of stack trace lines with the default regular expression of retrace, by matching the
+ * regular expression and by scanning the lines.
+ *
+ * <p>The lines are read from the logcat dump given by the {@code logcat} parameter, for example
+ * {@code -p logcat=/path/to/logcat.txt}. Without a dump the lines are a synthetic logcat crash
+ * report.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(2)
+public class StackTraceLineParserBenchmark {
+
+  private static final String LOGCAT_PREFIX = "10-16 12:00:00.000  1234  1234 E AndroidRuntime: ";
+
+  @Param({""})
+  public String logcat;
+
+  private List<String> lines;
+  private StackTraceRegularExpressionParser regularExpressionParser;
+  private DefaultStackTraceLineParser defaultParser;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    lines =
+        logcat.isEmpty()
+            ? createSyntheticLogcat()
+            : Files.readAllLines(Paths.get(logcat), StandardCharsets.UTF_8);
+    regularExpressionParser =
+        new StackTraceRegularExpressionParser(
+            StackTraceRegularExpressionParser.DEFAULT_REGULAR_EXPRESSION);
+    defaultParser = new DefaultStackTraceLineParser();
+  }
+
+  private static List<String> createSyntheticLogcat() {
+    List<String> lines = new ArrayList<>();
+    for (int report = 0; report < 1000; report++) {
+      lines.add(LOGCAT_PREFIX + "FATAL EXCEPTION: main");
+      lines.add(LOGCAT_PREFIX + "Process: com.example.app, PID: 1234");
+      lines.add(LOGCAT_PREFIX + "java.lang.RuntimeException: Unable to start activity " + report);
+      for (int frame = 0; frame < 20; frame++) {
+        lines.add(
+            LOGCAT_PREFIX
+                + "\tat a.b.c"
+                + (report + frame) % 50
+                + ".a"
+                + frame % 7
+                + "(SourceFile:"
+                + (frame * 13 + report) % 400
+                + ")");
+      }
+      lines.add(LOGCAT_PREFIX + "Caused by: java.lang.NullPointerException: Attempt to invoke");
+      for (int frame = 0; frame < 10; frame++) {
+        lines.add(LOGCAT_PREFIX + "\tat android.app.Activity.performCreate(Activity.java:8000)");
+      }
+      lines.add(LOGCAT_PREFIX + "\t... 11 more");
+    }
+    return lines;
+  }
+
+  @Benchmark
+  public void regularExpression(Blackhole blackhole) {
+    for (String line : lines) {
+      StackTraceElementStringProxy proxy = regularExpressionParser.parse(line);
+      blackhole.consume(proxy);
+    }
+  }
+
+  @Benchmark
+  public void scanning(Blackhole blackhole) {
+    for (String line : lines) {
+      StackTraceElementStringProxy proxy = defaultParser.parse(line);
+      blackhole.consume(proxy);
+    }
+  }
+}
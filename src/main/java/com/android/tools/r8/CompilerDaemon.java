@@ -0,0 +1,329 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+import static com.android.tools.r8.utils.FileUtils.isArchive;
+
+import com.android.tools.r8.D8CommandParser.OrderedClassFileResourceProvider;
+import com.android.tools.r8.origin.CommandLineOrigin;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.origin.PathOrigin;
+import com.android.tools.r8.position.Position;
+import com.android.tools.r8.utils.ArchiveClassFileProviderCache;
+import com.android.tools.r8.utils.ExceptionDiagnostic;
+import com.android.tools.r8.utils.FlagFile;
+import com.android.tools.r8.utils.PoolingByteBufferProvider;
+import com.android.tools.r8.utils.StringDiagnostic;
+import com.android.tools.r8.utils.StringUtils;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Long-lived compilation service that runs D8 and R8 compilations in the same process.
+ *
+ * <p>Running repeated compilations in one process avoids the JVM startup and JIT warm-up of each
+ * compilation. In addition, library and classpath archives given with {@code --lib} and {@code
+ * --classpath} are read through an {@link ArchiveClassFileProviderCache}, such that the archive
+ * index and the bytes of the classes used are only read once for all compilations. Each
+ * compilation still parses the classes it uses, as the compiler mutates the definitions of library
+ * and classpath classes and the item factory during a compilation. The dex output buffers of
+ * compilations that write to files are taken from a {@link PoolingByteBufferProvider} that is
+ * shared by all compilations of the service.
+ *
+ * <p>The service can be used in process through {@link #compile} or as a local server through
+ * {@link #main}. The server accepts connections on the loopback interface. A client sends the tool
+ * name, {@code d8} or {@code r8}, and then the command-line arguments for the tool, one per line,
+ * followed by an empty line. The server responds with the diagnostics of the compilation, one per
+ * line, followed by a line with either {@code OK} or {@code FAILED}. Sending the tool name {@code
+ * shutdown} stops the server.
+ */
+public class CompilerDaemon {
+
+  public enum Tool {
+    D8,
+    R8
+  }
+
+  private static final String USAGE_MESSAGE =
+      StringUtils.lines("Usage: daemon [--port <port>]", "  Default port is 0, any free port.");
+
+  private static final String OK = "OK";
+  private static final String FAILED = "FAILED";
+  private static final String SHUTDOWN = "shutdown";
+
+  private final ArchiveClassFileProviderCache archiveCache = new ArchiveClassFileProviderCache();
+  private final PoolingByteBufferProvider byteBufferPool =
+      PoolingByteBufferProvider.createDefault();
+
+  /** Runs {@code tool} with command-line arguments {@code args}. */
+  public void compile(Tool tool, String[] args, DiagnosticsHandler handler)
+      throws CompilationFailedException {
+    Origin origin = CommandLineOrigin.INSTANCE;
+    String[] expandedArgs =
+        FlagFile.expandFlagFiles(args, diagnostic -> handler.error(diagnostic));
+    List<String> remainingArgs = new ArrayList<>();
+    List<String> libraryArgs = new ArrayList<>();
+    List<Path> classpathFiles = new ArrayList<>();
+    for (int i = 0; i < expandedArgs.length; i++) {
+      String arg = expandedArgs[i].trim();
+      if (arg.equals("--lib") && i + 1 < expandedArgs.length) {
+        libraryArgs.add(expandedArgs[++i]);
+      } else if (arg.equals("--classpath") && i + 1 < expandedArgs.length) {
+        classpathFiles.add(Paths.get(expandedArgs[++i]));
+      } else {
+        remainingArgs.add(expandedArgs[i]);
+      }
+    }
+    String[] toolArgs = remainingArgs.toArray(new String[0]);
+    if (tool == Tool.D8) {
+      D8Command.Builder builder = D8Command.parse(toolArgs, origin, handler);
+      addLibrary(builder, origin, libraryArgs);
+      addOrderedClasspath(builder, classpathFiles);
+      poolOutputBuffers(builder);
+      D8.run(builder.build());
+    } else {
+      R8Command.Builder builder = R8Command.parse(toolArgs, origin, handler);
+      addLibrary(builder, origin, libraryArgs);
+      addClasspath(builder, classpathFiles);
+      poolOutputBuffers(builder);
+      R8.run(builder.build());
+    }
+  }
+
+  private boolean isCachedArchive(Path path) {
+    return isArchive(path) && Files.isRegularFile(path);
+  }
+
+  // The library and classpath entries are added in the order of the command line, as the first
+  // definition of a class takes precedence. Archives are read through the cache, and all other
+  // entries are handled as by the command-line parsers.
+  private void addLibrary(BaseCommand.Builder<?, ?> builder, Origin origin, List<String> args) {
+    for (String arg : args) {
+      Path path = Paths.get(arg);
+      if (isCachedArchive(path)) {
+        try {
+          builder.addLibraryResourceProvider(archiveCache.getProvider(path));
+        } catch (IOException e) {
+          builder.error(new ExceptionDiagnostic(e, new PathOrigin(path)));
+        }
+      } else {
+        BaseCompilerCommandParser.addLibraryArgument(builder, origin, arg);
+      }
+    }
+  }
+
+  // D8 resolves classes on the classpath through a single provider in the order given.
+  private void addOrderedClasspath(D8Command.Builder builder, List<Path> files) {
+    OrderedClassFileResourceProvider.Builder classpathBuilder =
+        OrderedClassFileResourceProvider.builder();
+    for (Path file : files) {
+      try {
+        if (isCachedArchive(file)) {
+          classpathBuilder.addClassFileResourceProvider(archiveCache.getProvider(file));
+        } else if (!Files.exists(file)) {
+          throw new NoSuchFileException(file.toString());
+        } else if (isArchive(file)) {
+          classpathBuilder.addClassFileResourceProvider(new ArchiveClassFileProvider(file));
+        } else if (Files.isDirectory(file)) {
+          classpathBuilder.addClassFileResourceProvider(
+              DirectoryClassFileProvider.fromDirectory(file));
+        } else {
+          builder.error(
+              new StringDiagnostic("Unsupported classpath file type", new PathOrigin(file)));
+        }
+      } catch (IOException e) {
+        builder.error(new ExceptionDiagnostic(e, new PathOrigin(file)));
+      }
+    }
+    if (!classpathBuilder.isEmpty()) {
+      builder.addClasspathResourceProvider(classpathBuilder.build());
+    }
+  }
+
+  private void addClasspath(R8Command.Builder builder, List<Path> files) {
+    for (Path file : files) {
+      if (isCachedArchive(file)) {
+        try {
+          builder.addClasspathResourceProvider(archiveCache.getProvider(file));
+        } catch (IOException e) {
+          builder.error(new ExceptionDiagnostic(e, new PathOrigin(file)));
+        }
+      } else {
+        builder.addClasspathFiles(file);
+      }
+    }
+  }
+
+  // Let the dex output of the compilation take its buffers from the pool of the service. Consumers
+  // that manage their own buffers are left as is.
+  private void poolOutputBuffers(BaseCompilerCommand.Builder<?, ?> builder) {
+    ProgramConsumer consumer = builder.getProgramConsumer();
+    if (!(consumer instanceof ByteBufferProvider)
+        || !PoolingByteBufferProvider.usesDefaultAllocation((ByteBufferProvider) consumer)) {
+      return;
+    }
+    if (consumer instanceof DexIndexedConsumer) {
+      builder.setProgramConsumer(
+          new DexIndexedConsumer.ForwardingConsumer((DexIndexedConsumer) consumer) {
+            @Override
+            public ByteBuffer acquireByteBuffer(int capacity) {
+              return byteBufferPool.acquireByteBuffer(capacity);
+            }
+
+            @Override
+            public void releaseByteBuffer(ByteBuffer buffer) {
+              byteBufferPool.releaseByteBuffer(buffer);
+            }
+          });
+    } else if (consumer instanceof DexFilePerClassFileConsumer) {
+      builder.setProgramConsumer(
+          new DexFilePerClassFileConsumer.ForwardingConsumer(
+              (DexFilePerClassFileConsumer) consumer) {
+            @Override
+            public ByteBuffer acquireByteBuffer(int capacity) {
+              return byteBufferPool.acquireByteBuffer(capacity);
+            }
+
+            @Override
+            public void releaseByteBuffer(ByteBuffer buffer) {
+              byteBufferPool.releaseByteBuffer(buffer);
+            }
+          });
+    }
+  }
+
+  PoolingByteBufferProvider getByteBufferPool() {
+    return byteBufferPool;
+  }
+
+  /**
+   * Closes the archives held by the cache and drops the cached content and the pooled output
+   * buffers.
+   */
+  public void clearCache() throws IOException {
+    archiveCache.clear();
+    byteBufferPool.clear();
+  }
+
+  private void serve(ServerSocket serverSocket) throws IOException {
+    while (true) {
+      try (Socket socket = serverSocket.accept();
+          BufferedReader reader =
+              new BufferedReader(
+                  new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+          PrintWriter writer =
+              new PrintWriter(
+                  new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+        String toolName = reader.readLine();
+        if (toolName == null) {
+          continue;
+        }
+        if (toolName.equals(SHUTDOWN)) {
+          writer.println(OK);
+          return;
+        }
+        List<String> args = new ArrayList<>();
+        for (String line = reader.readLine(); line != null && !line.isEmpty(); ) {
+          args.add(line);
+          line = reader.readLine();
+        }
+        writer.println(handleRequest(toolName, args.toArray(new String[0]), writer));
+      }
+    }
+  }
+
+  private String handleRequest(String toolName, String[] args, PrintWriter writer) {
+    Tool tool;
+    switch (toolName) {
+      case "d8":
+        tool = Tool.D8;
+        break;
+      case "r8":
+        tool = Tool.R8;
+        break;
+      default:
+        writer.println("Error: Unknown tool " + toolName);
+        return FAILED;
+    }
+    try {
+      compile(tool, args, new PrintingDiagnosticsHandler(writer));
+      return OK;
+    } catch (CompilationFailedException e) {
+      return FAILED;
+    } catch (RuntimeException e) {
+      writer.println("Error: " + e);
+      return FAILED;
+    }
+  }
+
+  private static class PrintingDiagnosticsHandler implements DiagnosticsHandler {
+
+    private final PrintWriter writer;
+
+    private PrintingDiagnosticsHandler(PrintWriter writer) {
+      this.writer = writer;
+    }
+
+    private void print(String kind, Diagnostic diagnostic) {
+      StringBuilder builder = new StringBuilder(kind);
+      if (diagnostic.getOrigin() != Origin.unknown()) {
+        builder.append(" in ").append(diagnostic.getOrigin());
+        if (diagnostic.getPosition() != Position.UNKNOWN) {
+          builder.append(" at ").append(diagnostic.getPosition().getDescription());
+        }
+      }
+      builder.append(": ").append(diagnostic.getDiagnosticMessage());
+      // Keep each diagnostic on a single line of the response.
+      synchronized (writer) {
+        writer.println(builder.toString().replace('\n', ' '));
+      }
+    }
+
+    @Override
+    public void error(Diagnostic error) {
+      print("Error", error);
+    }
+
+    @Override
+    public void warning(Diagnostic warning) {
+      print("Warning", warning);
+    }
+
+    @Override
+    public void info(Diagnostic info) {
+      print("Info", info);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    int port = 0;
+    if (args.length == 2 && args[0].equals("--port")) {
+      port = Integer.parseInt(args[1]);
+    } else if (args.length != 0) {
+      System.out.print(USAGE_MESSAGE);
+      return;
+    }
+    CompilerDaemon daemon = new CompilerDaemon();
+    try (ServerSocket serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+      System.out.println("Listening on port " + serverSocket.getLocalPort());
+      daemon.serve(serverSocket);
+    } finally {
+      daemon.clearCache();
+    }
+  }
+}
@@ -8,6 +8,7 @@ import static com.android.tools.r8.utils.ExceptionUtils.unwrapExecutionException
 
 import com.android.tools.r8.dex.ApplicationReader;
 import com.android.tools.r8.dex.ApplicationWriter;
+import com.android.tools.r8.dex.DexPerClassFileCache;
 import com.android.tools.r8.dex.Marker;
 import com.android.tools.r8.dex.Marker.Tool;
 import com.android.tools.r8.graph.AppInfo;
@@ -182,6 +183,12 @@ public final class D8 {
       // Disable global optimizations.
       options.disableGlobalOptimizations();
 
+      if (DexPerClassFileCache.isApplicable(options)) {
+        timing.begin("Apply per-class DEX cache");
+        inputApp = options.dexPerClassFileCache.applyCachedOutputs(inputApp, options);
+        timing.end();
+      }
+
       AppView<AppInfo> appView = readApp(inputApp, options, executor, timing);
       SyntheticItems.collectSyntheticInputs(appView);
 
@@ -329,6 +336,7 @@ public final class D8 {
       throw unwrapExecutionException(e);
     } finally {
       options.signalFinishedToConsumers();
+      options.getMetrics().finished("D8", options.reporter);
       // Dump timings.
       if (options.printTimes) {
         timing.report();
@@ -6,6 +6,7 @@ package com.android.tools.r8;
 import static com.android.tools.r8.utils.InternalOptions.DETERMINISTIC_DEBUGGING;
 
 import com.android.tools.r8.AssertionsConfiguration.AssertionTransformation;
+import com.android.tools.r8.dex.DexPerClassFileCache;
 import com.android.tools.r8.dex.Marker.Tool;
 import com.android.tools.r8.errors.DexFileOverflowDiagnostic;
 import com.android.tools.r8.graph.DexItemFactory;
@@ -84,6 +85,7 @@ public final class D8Command extends BaseCompilerCommand {
     private boolean enableMainDexListCheck = true;
     private boolean minimalMainDex = false;
     private boolean skipDump = false;
+    private Path perClassDexCacheDirectory = null;
     private final List<ProguardConfigurationSource> mainDexRules = new ArrayList<>();
 
     private Builder() {
@@ -175,6 +177,22 @@ public final class D8Command extends BaseCompilerCommand {
       return self();
     }
 
+    /**
+     * Set a directory for caching the DEX output of individual class files between compilations.
+     *
+     * <p>The cache is only used when compiling to a {@link DexFilePerClassFileConsumer} that
+     * combines synthetic classes with their primary class and no {@link DesugarGraphConsumer} is
+     * set. Class files for which the cache holds output produced by the same compiler version and
+     * the same compilation options are not compiled again. The classpath is not part of the cache
+     * key, so compilations with different classpaths must use different cache directories.
+     *
+     * @param directory Directory for the cache entries. Created if it does not exist.
+     */
+    public Builder setPerClassDexCacheDirectory(Path directory) {
+      this.perClassDexCacheDirectory = directory;
+      return self();
+    }
+
     /**
      * Allow to skip to dump into file and dump into directory instruction, this is primarily used
      * for chained compilation in L8 so there are no duplicated dumps.
@@ -275,6 +293,10 @@ public final class D8Command extends BaseCompilerCommand {
       if (hasDesugaredLibraryConfiguration() && getDisableDesugaring()) {
         reporter.error("Using desugared library configuration requires desugaring to be enabled");
       }
+      if (perClassDexCacheDirectory != null
+          && !(getProgramConsumer() instanceof DexFilePerClassFileConsumer)) {
+        reporter.error("Per-class DEX cache requires output mode DexFilePerClassFile");
+      }
       super.validate();
     }
 
@@ -312,6 +334,7 @@ public final class D8Command extends BaseCompilerCommand {
           getOutputInspections(),
           synthesizedClassPrefix,
           skipDump,
+          perClassDexCacheDirectory,
           enableMainDexListCheck,
           minimalMainDex,
           mainDexKeepRules,
@@ -328,6 +351,7 @@ public final class D8Command extends BaseCompilerCommand {
   private final DesugaredLibraryConfiguration libraryConfiguration;
   private final String synthesizedClassPrefix;
   private final boolean skipDump;
+  private final Path perClassDexCacheDirectory;
   private final boolean enableMainDexListCheck;
   private final boolean minimalMainDex;
   private final ImmutableList<ProguardConfigurationRule> mainDexKeepRules;
@@ -392,6 +416,7 @@ public final class D8Command extends BaseCompilerCommand {
       List<Consumer<Inspector>> outputInspections,
       String synthesizedClassPrefix,
       boolean skipDump,
+      Path perClassDexCacheDirectory,
       boolean enableMainDexListCheck,
       boolean minimalMainDex,
       ImmutableList<ProguardConfigurationRule> mainDexKeepRules,
@@ -417,6 +442,7 @@ public final class D8Command extends BaseCompilerCommand {
     this.libraryConfiguration = libraryConfiguration;
     this.synthesizedClassPrefix = synthesizedClassPrefix;
     this.skipDump = skipDump;
+    this.perClassDexCacheDirectory = perClassDexCacheDirectory;
     this.enableMainDexListCheck = enableMainDexListCheck;
     this.minimalMainDex = minimalMainDex;
     this.mainDexKeepRules = mainDexKeepRules;
@@ -431,6 +457,7 @@ public final class D8Command extends BaseCompilerCommand {
     libraryConfiguration = null;
     synthesizedClassPrefix = null;
     skipDump = false;
+    perClassDexCacheDirectory = null;
     enableMainDexListCheck = true;
     minimalMainDex = false;
     mainDexKeepRules = null;
@@ -506,6 +533,10 @@ public final class D8Command extends BaseCompilerCommand {
     }
     internal.dumpOptions = dumpOptions();
 
+    if (perClassDexCacheDirectory != null) {
+      internal.dexPerClassFileCache = new DexPerClassFileCache(perClassDexCacheDirectory);
+    }
+
     return internal;
   }
 
@@ -110,6 +110,7 @@ import com.android.tools.r8.utils.CollectionUtils;
 import com.android.tools.r8.utils.ExceptionUtils;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.LineNumberOptimizer;
+import com.android.tools.r8.utils.R8OutputReplayCache;
 import com.android.tools.r8.utils.SelfRetraceTest;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.StringUtils;
@@ -124,6 +125,7 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -262,7 +264,26 @@ public class R8 {
 
   private static void run(AndroidApp app, InternalOptions options, ExecutorService executor)
       throws IOException {
-    new R8(options).run(app, executor);
+    String fingerprint =
+        R8OutputReplayCache.isApplicable(options)
+            ? R8OutputReplayCache.computeFingerprint(app, options)
+            : null;
+    if (fingerprint == null) {
+      new R8(options).run(app, executor);
+      return;
+    }
+    if (options.r8OutputReplayCache.replay(fingerprint, options)) {
+      // The outputs of the previous compilation have been passed to the consumers.
+      return;
+    }
+    R8OutputReplayCache.Recording recording =
+        options.r8OutputReplayCache.record(fingerprint, options);
+    try {
+      new R8(options).run(app, executor);
+      recording.commit();
+    } finally {
+      recording.discard();
+    }
   }
 
   private static DirectMappedDexApplication getDirectApp(AppView<?> appView) {
@@ -726,9 +747,11 @@ public class R8 {
       // Perform minification.
       NamingLens namingLens;
       if (options.getProguardConfiguration().hasApplyMappingFile()) {
+        Path applyMappingFile = options.getProguardConfiguration().getApplyMappingFile();
         SeedMapper seedMapper =
-            SeedMapper.seedMapperFromFile(
-                options.reporter, options.getProguardConfiguration().getApplyMappingFile());
+            options.enableParallelProguardMapParsing
+                ? SeedMapper.seedMapperFromFile(options.reporter, applyMappingFile, executorService)
+                : SeedMapper.seedMapperFromFile(options.reporter, applyMappingFile);
         timing.begin("apply-mapping");
         namingLens =
             new ProguardMapMinifier(appView.withLiveness(), seedMapper)
@@ -815,6 +838,7 @@ public class R8 {
       throw unwrapExecutionException(e);
     } finally {
       options.signalFinishedToConsumers();
+      options.getMetrics().finished("R8", options.reporter);
       // Dump timings.
       if (options.printTimes) {
         timing.report();
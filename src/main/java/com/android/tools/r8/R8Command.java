@@ -15,6 +15,7 @@ import com.android.tools.r8.graph.DexItemFactory;
 import com.android.tools.r8.inspector.Inspector;
 import com.android.tools.r8.inspector.internal.InspectorImpl;
 import com.android.tools.r8.ir.desugar.DesugaredLibraryConfiguration;
+import com.android.tools.r8.naming.ProguardMapIndex;
 import com.android.tools.r8.origin.Origin;
 import com.android.tools.r8.origin.PathOrigin;
 import com.android.tools.r8.shaking.ProguardConfiguration;
@@ -32,11 +33,13 @@ import com.android.tools.r8.utils.FileUtils;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.InternalOptions.DesugarState;
 import com.android.tools.r8.utils.InternalOptions.LineNumberOptimization;
+import com.android.tools.r8.utils.R8OutputReplayCache;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.ImmutableList;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -112,6 +115,7 @@ public final class R8Command extends BaseCompilerCommand {
     private final List<FeatureSplit> featureSplits = new ArrayList<>();
     private String synthesizedClassPrefix = "";
     private boolean skipDump = false;
+    private Path outputReplayCacheDirectory = null;
 
     private boolean allowPartiallyImplementedProguardOptions = false;
     private boolean allowTestProguardOptions =
@@ -276,6 +280,20 @@ public final class R8Command extends BaseCompilerCommand {
       return self();
     }
 
+    /**
+     * Set a directory for caching the outputs of the last compilation.
+     *
+     * <p>If all inputs, options and keep rules of a compilation are identical to those of the last
+     * compilation that used the directory, the recorded outputs are passed to the consumers
+     * without compiling. Any change to the inputs causes a full compilation, whose outputs then
+     * replace the cached outputs. Input files are identified by their path, size and modification
+     * time. Compilations with inputs that are not files always compile and are not cached.
+     */
+    public Builder setOutputReplayCacheDirectory(Path directory) {
+      this.outputReplayCacheDirectory = directory;
+      return self();
+    }
+
     /**
      * Set a consumer for receiving the proguard usage information.
      *
@@ -587,6 +605,7 @@ public final class R8Command extends BaseCompilerCommand {
               getOutputInspections(),
               synthesizedClassPrefix,
               skipDump,
+              outputReplayCacheDirectory,
               getThreadCount());
 
       return command;
@@ -672,6 +691,7 @@ public final class R8Command extends BaseCompilerCommand {
   private final FeatureSplitConfiguration featureSplitConfiguration;
   private final String synthesizedClassPrefix;
   private final boolean skipDump;
+  private final Path outputReplayCacheDirectory;
 
   /** Get a new {@link R8Command.Builder}. */
   public static Builder builder() {
@@ -752,6 +772,7 @@ public final class R8Command extends BaseCompilerCommand {
       List<Consumer<Inspector>> outputInspections,
       String synthesizedClassPrefix,
       boolean skipDump,
+      Path outputReplayCacheDirectory,
       int threadCount) {
     super(
         inputApp,
@@ -788,6 +809,7 @@ public final class R8Command extends BaseCompilerCommand {
     this.featureSplitConfiguration = featureSplitConfiguration;
     this.synthesizedClassPrefix = synthesizedClassPrefix;
     this.skipDump = skipDump;
+    this.outputReplayCacheDirectory = outputReplayCacheDirectory;
   }
 
   private R8Command(boolean printHelp, boolean printVersion) {
@@ -811,6 +833,7 @@ public final class R8Command extends BaseCompilerCommand {
     featureSplitConfiguration = null;
     synthesizedClassPrefix = null;
     skipDump = false;
+    outputReplayCacheDirectory = null;
   }
 
   /** Get the enable-tree-shaking state. */
@@ -888,6 +911,17 @@ public final class R8Command extends BaseCompilerCommand {
             proguardMapConsumer,
             proguardConfiguration.isPrintMapping(),
             proguardConfiguration.getPrintMappingFile());
+    if (internal.enableProguardMapIndex
+        && internal.proguardMapConsumer instanceof StringConsumer.FileConsumer) {
+      StringConsumer.FileConsumer fileConsumer =
+          (StringConsumer.FileConsumer) internal.proguardMapConsumer;
+      // The offsets in the index are offsets in the UTF-8 encoding of the mapping file.
+      if (fileConsumer.getEncoding() == StandardCharsets.UTF_8) {
+        internal.proguardMapIndexConsumer =
+            ProguardMapIndex.fileConsumer(
+                ProguardMapIndex.getIndexPath(fileConsumer.getOutputPath()));
+      }
+    }
 
     // Amend the usage information consumer with options from the proguard configuration.
     internal.usageInformationConsumer =
@@ -964,6 +998,10 @@ public final class R8Command extends BaseCompilerCommand {
     }
     internal.dumpOptions = dumpOptions();
 
+    if (outputReplayCacheDirectory != null) {
+      internal.r8OutputReplayCache = new R8OutputReplayCache(outputReplayCacheDirectory);
+    }
+
     return internal;
   }
 
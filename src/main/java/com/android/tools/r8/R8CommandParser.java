@@ -34,6 +34,7 @@ public class R8CommandParser extends BaseCompilerCommandParser<R8Command, R8Comm
           "--pg-map-output",
           "--desugared-lib",
           "--desugared-lib-pg-conf-output",
+          "--output-replay-cache",
           THREAD_COUNT_FLAG);
 
   private static final Set<String> OPTIONS_WITH_TWO_PARAMETERS = ImmutableSet.of("--feature");
@@ -97,7 +98,10 @@ public class R8CommandParser extends BaseCompilerCommandParser<R8Command, R8Comm
                   "                          # Add feature <input> file to <output> file. Several ",
                   "                          # occurrences can map to the same output.",
                   "  --main-dex-list-output <file>  ",
-                  "                          # Output the full main-dex list in <file>."),
+                  "                          # Output the full main-dex list in <file>.",
+                  "  --output-replay-cache <dir>",
+                  "                          # Cache the outputs in <dir> and reuse them if the",
+                  "                          # next compilation has identical inputs."),
               ASSERTIONS_USAGE_MESSAGE,
               THREAD_COUNT_USAGE_MESSAGE,
               MAP_DIAGNOSTICS_USAGE_MESSAGE,
@@ -217,6 +221,8 @@ public class R8CommandParser extends BaseCompilerCommandParser<R8Command, R8Comm
                   argsOrigin));
         }
         state.outputPath = Paths.get(nextArg);
+      } else if (arg.equals("--output-replay-cache")) {
+        builder.setOutputReplayCacheDirectory(Paths.get(nextArg));
       } else if (arg.equals("--lib")) {
         addLibraryArgument(builder, argsOrigin, nextArg);
       } else if (arg.equals("--classpath")) {
@@ -34,6 +34,9 @@ public class SwissArmyKnife {
       case "compatproguard":
         CompatProguard.main(shift(args));
         break;
+      case "daemon":
+        CompilerDaemon.main(shift(args));
+        break;
       case "d8":
         D8.main(shift(args));
         break;
@@ -34,6 +34,7 @@ import com.android.tools.r8.origin.Origin;
 import com.android.tools.r8.shaking.MainDexInfo;
 import com.android.tools.r8.utils.AndroidApiLevel;
 import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.ArchiveResourceProvider;
 import com.android.tools.r8.utils.ClassProvider;
 import com.android.tools.r8.utils.ClasspathClassCollection;
 import com.android.tools.r8.utils.DescriptorUtils;
@@ -50,7 +51,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -58,6 +58,9 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
 
 public class ApplicationReader {
@@ -315,6 +318,16 @@ public class ApplicationReader {
     private final Queue<DexLibraryClass> libraryClasses = new ConcurrentLinkedQueue<>();
     // Jar application reader to share across all class readers.
     private final JarApplicationReader application = new JarApplicationReader(options);
+    // Class file reader for the program classes, created on first use.
+    private JarClassFileReader<DexProgramClass> classFileReader;
+    // Budget of the class file bytes that have been read from archives but not yet parsed. A
+    // non-positive budget acquires no permits, but a semaphore with negative permits would still
+    // block, so the permits are clamped at zero.
+    private final Semaphore readByteBudget =
+        new Semaphore(Math.max(0, options.programResourceReadByteBudget));
+    // The number of class file bytes that have been read but not yet parsed. Only tracked for
+    // testing.
+    private final AtomicLong readBytesInFlight = new AtomicLong();
 
     // Flag of which input resource types have flowen into the program classes.
     // Note that this is just at the level of the resources having been given.
@@ -366,8 +379,7 @@ public class ApplicationReader {
         return;
       }
       hasReadProgramResourceFromCf = true;
-      JarClassFileReader<DexProgramClass> reader =
-          new JarClassFileReader<>(application, classes::add, PROGRAM);
+      JarClassFileReader<DexProgramClass> reader = getClassFileReader(classes);
       // Read classes in parallel.
       for (ProgramResource input : classSources) {
         futures.add(
@@ -381,16 +393,85 @@ public class ApplicationReader {
       }
     }
 
+    private JarClassFileReader<DexProgramClass> getClassFileReader(
+        Queue<DexProgramClass> classes) {
+      if (classFileReader == null) {
+        classFileReader = new JarClassFileReader<>(application, classes::add, PROGRAM);
+      }
+      return classFileReader;
+    }
+
+    // Reads the program resources of the archive on the current thread and parses the class files
+    // on the executor while the remaining entries are read. The class files that have been read but
+    // not yet parsed are bounded by the read byte budget. The dex resources are only collected,
+    // since the dex files are parsed after the index tables of all dex files have been populated.
+    private void readArchiveSources(
+        ArchiveResourceProvider provider,
+        List<ProgramResource> dexSources,
+        Queue<DexProgramClass> classes)
+        throws ResourceException {
+      provider.readProgramResources(
+          resource -> {
+            if (resource.getKind() == Kind.DEX) {
+              dexSources.add(resource);
+              return;
+            }
+            assert resource.getKind() == Kind.CF;
+            hasReadProgramResourceFromCf = true;
+            JarClassFileReader<DexProgramClass> reader = getClassFileReader(classes);
+            Origin origin = resource.getOrigin();
+            byte[] bytes;
+            try {
+              bytes = resource.getBytes();
+            } catch (ResourceException e) {
+              throw new CompilationError(e.getMessage(), e, origin);
+            }
+            // A non-positive budget does not bound the read class files.
+            int budgetPermits =
+                Math.min(bytes.length, Math.max(0, options.programResourceReadByteBudget));
+            acquireReadByteBudget(budgetPermits);
+            LongConsumer readBytesInFlightConsumer = options.testing.readBytesInFlightConsumer;
+            if (readBytesInFlightConsumer != null) {
+              readBytesInFlightConsumer.accept(readBytesInFlight.addAndGet(bytes.length));
+            }
+            futures.add(
+                executorService.submit(
+                    () -> {
+                      try {
+                        reader.read(origin, bytes);
+                      } finally {
+                        if (readBytesInFlightConsumer != null) {
+                          readBytesInFlight.addAndGet(-bytes.length);
+                        }
+                        readByteBudget.release(budgetPermits);
+                      }
+                    }));
+          });
+    }
+
+    private void acquireReadByteBudget(int permits) {
+      try {
+        readByteBudget.acquire(permits);
+      } catch (InterruptedException e) {
+        throw new RuntimeException("Interrupted while waiting for class files to be parsed.", e);
+      }
+    }
+
     void readSources() throws IOException, ResourceException {
-      Collection<ProgramResource> resources = inputApp.computeAllProgramResources();
-      List<ProgramResource> dexResources = new ArrayList<>(resources.size());
-      List<ProgramResource> cfResources = new ArrayList<>(resources.size());
-      for (ProgramResource resource : resources) {
-        if (resource.getKind() == Kind.DEX) {
-          dexResources.add(resource);
-        } else {
-          assert resource.getKind() == Kind.CF;
-          cfResources.add(resource);
+      List<ProgramResource> dexResources = new ArrayList<>();
+      List<ProgramResource> cfResources = new ArrayList<>();
+      for (ProgramResourceProvider provider : inputApp.getProgramResourceProviders()) {
+        if (provider instanceof ArchiveResourceProvider) {
+          readArchiveSources((ArchiveResourceProvider) provider, dexResources, programClasses);
+          continue;
+        }
+        for (ProgramResource resource : provider.getProgramResources()) {
+          if (resource.getKind() == Kind.DEX) {
+            dexResources.add(resource);
+          } else {
+            assert resource.getKind() == Kind.CF;
+            cfResources.add(resource);
+          }
         }
       }
       readDexSources(dexResources, programClasses);
@@ -50,12 +50,14 @@ import com.android.tools.r8.utils.ArrayUtils;
 import com.android.tools.r8.utils.DescriptorUtils;
 import com.android.tools.r8.utils.ExceptionUtils;
 import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.PoolingByteBufferProvider;
 import com.android.tools.r8.utils.PredicateUtils;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.StringUtils;
 import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.android.tools.r8.utils.Timing.TimingMerger;
+import com.android.tools.r8.utils.metrics.CompilerMetrics;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ObjectArrays;
 import it.unimi.dsi.fastutil.objects.Reference2LongMap;
@@ -88,6 +90,9 @@ public class ApplicationWriter {
 
   public DexIndexedConsumer programConsumer;
   public final ProguardMapSupplier proguardMapSupplier;
+  // Pool of output buffers for the consumers that do not provide their own buffers. The pool only
+  // exists while the files are written.
+  private PoolingByteBufferProvider byteBufferPool;
 
   private static class SortAnnotations extends MixedSectionCollection {
 
@@ -250,6 +255,9 @@ public class ApplicationWriter {
         markerStrings.add(appView.dexItemFactory().createString(marker.toString()));
       }
     }
+    if (options.enableByteBufferPooling) {
+      byteBufferPool = PoolingByteBufferProvider.createDefault();
+    }
     try {
       timing.begin("Insert Attribute Annotations");
       // TODO(b/151313715): Move this to the writer threads.
@@ -288,16 +296,19 @@ public class ApplicationWriter {
 
       TimingMerger merger =
           timing.beginMerger("Write files", ThreadUtils.getNumberOfThreads(executorService));
-      Collection<Timing> timings =
-          ThreadUtils.processItemsWithResults(
-              virtualFiles,
-              virtualFile -> {
-                Timing fileTiming = Timing.create("VirtualFile " + virtualFile.getId(), options);
-                writeVirtualFile(virtualFile, fileTiming);
-                fileTiming.end();
-                return fileTiming;
-              },
-              executorService);
+      Collection<Timing> timings;
+      if (options.enableStreamingDexOutput) {
+        // Writing the files in order also allows consumers that preserve the file order, such as
+        // the archive consumer, to pass on each file without keeping a copy of it.
+        timings = new ArrayList<>(virtualFiles.size());
+        for (VirtualFile virtualFile : virtualFiles) {
+          timings.add(writeVirtualFileWithTiming(virtualFile));
+        }
+      } else {
+        timings =
+            ThreadUtils.processItemsWithResults(
+                virtualFiles, this::writeVirtualFileWithTiming, executorService);
+      }
       merger.add(timings);
       merger.end();
       // A consumer can manage the generated keep rules.
@@ -310,10 +321,28 @@ public class ApplicationWriter {
       // Supply info to all additional resource consumers.
       supplyAdditionalConsumers(appView.appInfo().app(), appView, graphLens, namingLens, options);
     } finally {
+      if (byteBufferPool != null) {
+        // Do not keep the buffers alive after the compilation.
+        byteBufferPool.clear();
+        byteBufferPool = null;
+      }
       timing.end();
     }
   }
 
+  private Timing writeVirtualFileWithTiming(VirtualFile virtualFile) {
+    Timing fileTiming = Timing.create("VirtualFile " + virtualFile.getId(), options);
+    CompilerMetrics.Scope fileScope =
+        options
+            .getMetrics()
+            .begin(CompilerMetrics.CATEGORY_DEX_FILE, "write")
+            .setCount(virtualFile.classes().size());
+    writeVirtualFile(virtualFile, fileTiming);
+    fileScope.end();
+    fileTiming.end();
+    return fileTiming;
+  }
+
   private void writeVirtualFile(VirtualFile virtualFile, Timing timing) {
     if (virtualFile.isEmpty()) {
       return;
@@ -337,6 +366,11 @@ public class ApplicationWriter {
         byteBufferProvider = options.getDexIndexedConsumer();
       }
     }
+    if (byteBufferPool != null
+        && PoolingByteBufferProvider.usesDefaultAllocation(byteBufferProvider)) {
+      // The consumer does not manage its own buffers, so take them from the pool.
+      byteBufferProvider = byteBufferPool;
+    }
     timing.begin("Compute object offset mapping");
     ObjectToOffsetMapping objectMapping =
         virtualFile.computeMapping(appView, graphLens, namingLens, initClassLens, timing);
@@ -366,6 +400,8 @@ public class ApplicationWriter {
     // Release use of the backing buffer now that accept has returned.
     data.invalidate();
     byteBufferProvider.releaseByteBuffer(result.buffer.asByteBuffer());
+    // The indexed items of the file are no longer needed once the file has been consumed.
+    virtualFile.releaseIndexedItems();
   }
 
   public static void supplyAdditionalConsumers(
@@ -7,6 +7,7 @@ package com.android.tools.r8.dex;
 import com.android.tools.r8.ProgramResource;
 import com.android.tools.r8.ResourceException;
 import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.ByteBufferProgramResource;
 import com.android.tools.r8.utils.LebUtils;
 import com.android.tools.r8.utils.StreamUtils;
 import java.io.IOException;
@@ -19,13 +20,26 @@ public abstract class BinaryReader {
   protected final CompatByteBuffer buffer;
 
   protected BinaryReader(ProgramResource resource) throws ResourceException, IOException {
-    this(resource.getOrigin(), StreamUtils.StreamToByteArrayClose(resource.getByteStream()));
+    this(resource.getOrigin(), readContent(resource));
   }
 
   protected BinaryReader(Origin origin, byte[] bytes) {
+    this(origin, CompatByteBuffer.wrap(bytes));
+  }
+
+  private BinaryReader(Origin origin, CompatByteBuffer buffer) {
     assert origin != null;
     this.origin = origin;
-    buffer = CompatByteBuffer.wrap(bytes);
+    this.buffer = buffer;
+  }
+
+  private static CompatByteBuffer readContent(ProgramResource resource)
+      throws ResourceException, IOException {
+    if (resource instanceof ByteBufferProgramResource) {
+      // Parse directly from the (typically memory mapped) buffer without copying it.
+      return new CompatByteBuffer(((ByteBufferProgramResource) resource).getByteBuffer());
+    }
+    return CompatByteBuffer.wrap(StreamUtils.StreamToByteArrayClose(resource.getByteStream()));
   }
 
   public Origin getOrigin() {
@@ -34,8 +34,13 @@ public class DexOutputBuffer {
   }
 
   public DexOutputBuffer(ByteBufferProvider byteBufferProvider) {
+    this(byteBufferProvider, DEFAULT_BUFFER_SIZE);
+  }
+
+  /** Creates a buffer with an initial capacity of at least {@code estimatedSize} bytes. */
+  public DexOutputBuffer(ByteBufferProvider byteBufferProvider, int estimatedSize) {
     this.byteBufferProvider = byteBufferProvider;
-    byteBuffer = allocateByteBuffer(DEFAULT_BUFFER_SIZE);
+    byteBuffer = allocateByteBuffer(Math.max(DEFAULT_BUFFER_SIZE, estimatedSize));
   }
 
   private void ensureSpaceFor(int bytes) {
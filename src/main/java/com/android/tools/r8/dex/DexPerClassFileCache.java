@@ -0,0 +1,474 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.dex;
+
+import com.android.tools.r8.AssertionsConfiguration;
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.ClassFileResourceProvider;
+import com.android.tools.r8.DataResourceProvider;
+import com.android.tools.r8.DexFilePerClassFileConsumer;
+import com.android.tools.r8.DexFilePerClassFileConsumer.ForwardingConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.ProgramResource.Kind;
+import com.android.tools.r8.ProgramResourceProvider;
+import com.android.tools.r8.ResourceException;
+import com.android.tools.r8.Version;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.DescriptorUtils;
+import com.android.tools.r8.utils.ExceptionDiagnostic;
+import com.android.tools.r8.utils.InputFingerprint;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.StringDiagnostic;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+
+/**
+ * Persistent content-addressed cache of the DEX output produced by D8 for a single class file.
+ *
+ * <p>Entries are keyed by the class-file bytes, the bytes of its supertypes in the program input,
+ * the compiler version, the library, the compiler system properties and all compilation options
+ * that can affect the DEX output of a class in file-per-class mode (min API, compilation mode,
+ * desugaring state, desugared library configuration, assertion handling, etc.). Classes in a nest
+ * are never cached. Cache hits are passed directly to the program consumer before compilation
+ * starts, and the corresponding class files are removed from the program input so they are never
+ * converted. They are passed as classpath instead, such that the classes that are compiled see
+ * the same supertypes as in a compilation without the cache.
+ *
+ * <p>When desugaring is enabled the output for a class can depend on the classpath (e.g., default
+ * interface methods inherited from classpath interfaces). The classpath is not part of the key,
+ * so clients must use distinct cache directories for compilations with different classpaths.
+ */
+public class DexPerClassFileCache {
+
+  private static final int ENTRY_MAGIC = 0x44384343; // "D8CC"
+  private static final int ENTRY_VERSION = 1;
+
+  private final Path directory;
+
+  public DexPerClassFileCache(Path directory) {
+    this.directory = directory;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Returns true if the cache can be used for the given compilation.
+   *
+   * <p>The cache requires file-per-class output where synthetic classes are combined with their
+   * primary class, such that each class-file input gives rise to exactly one DEX file.
+   */
+  public static boolean isApplicable(InternalOptions options) {
+    if (options.dexPerClassFileCache == null
+        || !(options.programConsumer instanceof DexFilePerClassFileConsumer)) {
+      return false;
+    }
+    DexFilePerClassFileConsumer consumer =
+        (DexFilePerClassFileConsumer) options.programConsumer;
+    return consumer.combineSyntheticClassesWithPrimaryClass()
+        && options.desugarGraphConsumer == null
+        && options.desugaredLibraryKeepRuleConsumer == null
+        && !options.hasMethodsFilter();
+  }
+
+  /**
+   * Replays all cached outputs for the class-file inputs of {@param app} to the program consumer
+   * and returns an application where the cached inputs have been removed.
+   *
+   * <p>The program consumer of {@param options} is replaced by a consumer that populates the cache
+   * with the output of the remaining inputs.
+   */
+  public AndroidApp applyCachedOutputs(AndroidApp app, InternalOptions options) {
+    assert isApplicable(options);
+    try {
+      return internalApplyCachedOutputs(app, options);
+    } catch (ResourceException e) {
+      throw options.reporter.fatalError(new StringDiagnostic(e.getMessage(), e.getOrigin()));
+    }
+  }
+
+  private AndroidApp internalApplyCachedOutputs(AndroidApp app, InternalOptions options)
+      throws ResourceException {
+    DexFilePerClassFileConsumer consumer = (DexFilePerClassFileConsumer) options.programConsumer;
+    String optionsKey;
+    try {
+      optionsKey = computeOptionsKey(app, options);
+    } catch (IOException e) {
+      throw options.reporter.fatalError(new ExceptionDiagnostic(e));
+    }
+
+    // Read the headers of all class-file inputs. The DEX output for a class depends on the content
+    // of its program supertypes (e.g., due to interface method desugaring), so the content hashes
+    // of those are part of the key.
+    List<List<ClassFileInput>> inputsPerProvider = new ArrayList<>();
+    Map<String, ClassFileInput> inputsByDescriptor = new HashMap<>();
+    for (ProgramResourceProvider provider : app.getProgramResourceProviders()) {
+      List<ClassFileInput> inputs = new ArrayList<>();
+      for (ProgramResource resource : provider.getProgramResources()) {
+        ClassFileInput input = new ClassFileInput(resource);
+        if (input.descriptor != null) {
+          inputsByDescriptor.put(input.descriptor, input);
+        }
+        inputs.add(input);
+      }
+      inputsPerProvider.add(inputs);
+    }
+
+    Map<String, String> pendingKeys = new ConcurrentHashMap<>();
+    Map<String, ProgramResource> cachedResources = new HashMap<>();
+    AndroidApp.Builder builder = AndroidApp.builder(app);
+    builder.getProgramResourceProviders().clear();
+    for (int i = 0; i < inputsPerProvider.size(); i++) {
+      List<ProgramResource> uncachedResources = new ArrayList<>();
+      for (ClassFileInput input : inputsPerProvider.get(i)) {
+        if (!input.isCacheable()) {
+          uncachedResources.add(input.getResource());
+          continue;
+        }
+        String key = computeKey(optionsKey, input, inputsByDescriptor);
+        if (replayEntry(key, input.descriptor, consumer, options.reporter)) {
+          cachedResources.put(input.descriptor, input.getResource());
+        } else {
+          pendingKeys.put(input.descriptor, key);
+          uncachedResources.add(input.getResource());
+        }
+      }
+      builder.addProgramResourceProvider(
+          new FilteredProgramResourceProvider(
+              uncachedResources, app.getProgramResourceProviders().get(i)));
+    }
+    if (!cachedResources.isEmpty()) {
+      builder.addClasspathResourceProvider(new CachedClassesProvider(cachedResources));
+    }
+    options.programConsumer = new CachePopulatingConsumer(consumer, pendingKeys);
+    return builder.build();
+  }
+
+  private static String computeOptionsKey(AndroidApp app, InternalOptions options)
+      throws IOException, ResourceException {
+    StringBuilder builder = new StringBuilder();
+    builder.append(Version.getVersionString()).append('\n');
+    // Internal modes are enabled by system properties, and some of them affect the output.
+    InputFingerprint.getCompilerSystemProperties()
+        .forEach((name, value) -> builder.append(name).append('=').append(value).append('\n'));
+    Hasher libraryHasher = Hashing.sha256().newHasher();
+    for (ClassFileResourceProvider provider : app.getLibraryResourceProviders()) {
+      InputFingerprint.putClassFileResourceProvider(libraryHasher, provider);
+    }
+    builder.append("library=").append(libraryHasher.hash()).append('\n');
+    builder.append("intermediate=").append(options.intermediate).append('\n');
+    if (options.dumpOptions != null) {
+      String desugaredLibraryJson = options.dumpOptions.getDesugaredLibraryJsonSource();
+      if (desugaredLibraryJson != null) {
+        builder.append(desugaredLibraryJson).append('\n');
+      }
+    }
+    builder.append("min-api=").append(options.minApiLevel).append('\n');
+    builder.append("debug=").append(options.debug).append('\n');
+    builder.append("desugar-state=").append(options.desugarState).append('\n');
+    builder.append("checksums=").append(options.encodeChecksums).append('\n');
+    builder.append("synthetic-prefix=").append(options.synthesizedClassPrefix).append('\n');
+    if (options.assertionsConfiguration != null) {
+      builder
+          .append("assertions=")
+          .append(options.assertionsConfiguration.defautlTransformation)
+          .append('\n');
+      for (AssertionsConfiguration configuration :
+          options.assertionsConfiguration.assertionsConfigurations) {
+        builder
+            .append(configuration.getTransformation())
+            .append(':')
+            .append(configuration.getScope())
+            .append(':')
+            .append(configuration.getValue())
+            .append('\n');
+      }
+    }
+    return builder.toString();
+  }
+
+  private static String computeKey(
+      String optionsKey, ClassFileInput input, Map<String, ClassFileInput> inputsByDescriptor) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(optionsKey, StandardCharsets.UTF_8);
+    hasher.putString(input.getContentHash(), StandardCharsets.UTF_8);
+    SortedMap<String, ClassFileInput> supertypes = new TreeMap<>();
+    Deque<ClassFileInput> worklist = new ArrayDeque<>();
+    worklist.add(input);
+    while (!worklist.isEmpty()) {
+      for (String supertype : worklist.removeFirst().supertypes) {
+        ClassFileInput supertypeInput = inputsByDescriptor.get(supertype);
+        if (supertypeInput != null && supertypes.put(supertype, supertypeInput) == null) {
+          worklist.addLast(supertypeInput);
+        }
+      }
+    }
+    supertypes.forEach(
+        (descriptor, supertypeInput) -> {
+          hasher.putString(descriptor, StandardCharsets.UTF_8);
+          hasher.putString(supertypeInput.getContentHash(), StandardCharsets.UTF_8);
+        });
+    return hasher.hash().toString();
+  }
+
+  private Path getEntryPath(String key) {
+    return directory.resolve(key.substring(0, 2)).resolve(key.substring(2) + ".dexcache");
+  }
+
+  private boolean replayEntry(
+      String key,
+      String primaryClassDescriptor,
+      DexFilePerClassFileConsumer consumer,
+      DiagnosticsHandler handler) {
+    byte[] entry;
+    try {
+      entry = Files.readAllBytes(getEntryPath(key));
+    } catch (NoSuchFileException e) {
+      return false;
+    } catch (IOException e) {
+      // Treat unreadable entries as cache misses. The entry is rewritten after compilation.
+      return false;
+    }
+    Set<String> descriptors = new HashSet<>();
+    byte[] data;
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(entry))) {
+      if (input.readInt() != ENTRY_MAGIC || input.readInt() != ENTRY_VERSION) {
+        return false;
+      }
+      int descriptorCount = input.readInt();
+      for (int i = 0; i < descriptorCount; i++) {
+        descriptors.add(input.readUTF());
+      }
+      data = new byte[input.readInt()];
+      input.readFully(data);
+    } catch (IOException e) {
+      return false;
+    }
+    if (!descriptors.contains(primaryClassDescriptor)) {
+      return false;
+    }
+    consumer.accept(primaryClassDescriptor, ByteDataView.of(data), descriptors, handler);
+    return true;
+  }
+
+  private void writeEntry(
+      String key, ByteDataView data, Set<String> descriptors, DiagnosticsHandler handler) {
+    Path entryPath = getEntryPath(key);
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.getLength() + 256);
+      try (DataOutputStream output = new DataOutputStream(bytes)) {
+        output.writeInt(ENTRY_MAGIC);
+        output.writeInt(ENTRY_VERSION);
+        output.writeInt(descriptors.size());
+        for (String descriptor : descriptors) {
+          output.writeUTF(descriptor);
+        }
+        output.writeInt(data.getLength());
+        output.write(data.getBuffer(), data.getOffset(), data.getLength());
+      }
+      Files.createDirectories(entryPath.getParent());
+      // Write to a temporary file and move it into place such that concurrent compilations sharing
+      // the cache never observe partially written entries.
+      Path tempPath = Files.createTempFile(entryPath.getParent(), key.substring(2), ".tmp");
+      try {
+        Files.write(tempPath, bytes.toByteArray());
+        try {
+          Files.move(tempPath, entryPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(tempPath, entryPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(tempPath);
+      }
+    } catch (IOException e) {
+      // Failing to populate the cache does not affect the compilation result.
+      handler.warning(new ExceptionDiagnostic(e));
+    }
+  }
+
+  private static class ClassFileInput {
+
+    private final ProgramResource resource;
+    private final byte[] bytes;
+    private final String descriptor;
+    private final List<String> supertypes = new ArrayList<>();
+    private boolean isInNest = false;
+    private String contentHash;
+
+    ClassFileInput(ProgramResource resource) throws ResourceException {
+      this.resource = resource;
+      if (resource.getKind() != Kind.CF) {
+        this.bytes = null;
+        this.descriptor = null;
+        return;
+      }
+      this.bytes = resource.getBytes();
+      this.descriptor = readHeader();
+    }
+
+    private String readHeader() {
+      String[] binaryName = new String[1];
+      try {
+        new ClassReader(bytes)
+            .accept(
+                new ClassVisitor(InternalOptions.ASM_VERSION) {
+                  @Override
+                  public void visit(
+                      int version,
+                      int access,
+                      String name,
+                      String signature,
+                      String superName,
+                      String[] interfaces) {
+                    binaryName[0] = name;
+                    if (superName != null) {
+                      supertypes.add(DescriptorUtils.getDescriptorFromClassBinaryName(superName));
+                    }
+                    for (String iface : interfaces) {
+                      supertypes.add(DescriptorUtils.getDescriptorFromClassBinaryName(iface));
+                    }
+                  }
+
+                  @Override
+                  public void visitNestHost(String nestHost) {
+                    isInNest = true;
+                  }
+
+                  @Override
+                  public void visitNestMember(String nestMember) {
+                    isInNest = true;
+                  }
+                },
+                ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+      } catch (RuntimeException e) {
+        // Malformed class files are left for the class-file reader to report.
+        return null;
+      }
+      if (binaryName[0] == null) {
+        return null;
+      }
+      String classDescriptor = DescriptorUtils.getDescriptorFromClassBinaryName(binaryName[0]);
+      Set<String> descriptors = resource.getClassDescriptors();
+      if (descriptors != null
+          && (descriptors.size() != 1 || !descriptors.contains(classDescriptor))) {
+        return null;
+      }
+      return classDescriptor;
+    }
+
+    // The output for classes in a nest depends on the other members of the nest due to nest based
+    // access desugaring.
+    boolean isCacheable() {
+      return descriptor != null && !isInNest;
+    }
+
+    String getContentHash() {
+      if (contentHash == null) {
+        contentHash = Hashing.sha256().hashBytes(bytes).toString();
+      }
+      return contentHash;
+    }
+
+    ProgramResource getResource() {
+      // Avoid reading the resource again when it is compiled.
+      return bytes == null
+          ? resource
+          : ProgramResource.fromBytes(
+              resource.getOrigin(), Kind.CF, bytes, resource.getClassDescriptors());
+    }
+  }
+
+  // Provides the classes with cached outputs as classpath classes.
+  private static class CachedClassesProvider implements ClassFileResourceProvider {
+
+    private final Map<String, ProgramResource> resources;
+
+    CachedClassesProvider(Map<String, ProgramResource> resources) {
+      this.resources = resources;
+    }
+
+    @Override
+    public Set<String> getClassDescriptors() {
+      return resources.keySet();
+    }
+
+    @Override
+    public ProgramResource getProgramResource(String descriptor) {
+      return resources.get(descriptor);
+    }
+  }
+
+  private static class FilteredProgramResourceProvider implements ProgramResourceProvider {
+
+    private final Collection<ProgramResource> resources;
+    private final ProgramResourceProvider provider;
+
+    FilteredProgramResourceProvider(
+        Collection<ProgramResource> resources, ProgramResourceProvider provider) {
+      this.resources = resources;
+      this.provider = provider;
+    }
+
+    @Override
+    public Collection<ProgramResource> getProgramResources() {
+      return resources;
+    }
+
+    @Override
+    public DataResourceProvider getDataResourceProvider() {
+      return provider.getDataResourceProvider();
+    }
+  }
+
+  private class CachePopulatingConsumer extends ForwardingConsumer {
+
+    private final Map<String, String> pendingKeys;
+
+    CachePopulatingConsumer(DexFilePerClassFileConsumer consumer, Map<String, String> pendingKeys) {
+      super(consumer);
+      this.pendingKeys = pendingKeys;
+    }
+
+    @Override
+    public void accept(
+        String primaryClassDescriptor,
+        ByteDataView data,
+        Set<String> descriptors,
+        DiagnosticsHandler handler) {
+      String key = pendingKeys.remove(primaryClassDescriptor);
+      if (key != null) {
+        writeEntry(key, data, descriptors, handler);
+      }
+      super.accept(primaryClassDescriptor, data, descriptors, handler);
+    }
+  }
+}
@@ -125,11 +125,49 @@ public class FileWriter {
     this.options = options;
     this.graphLens = mapping.getGraphLens();
     this.namingLens = namingLens;
-    this.dest = new DexOutputBuffer(provider);
+    this.dest = new DexOutputBuffer(provider, estimateFileSize(mapping, codeMapping));
     this.mixedSectionOffsets = new MixedSectionOffsets(options, codeMapping);
     this.desugaredLibraryCodeToKeep = desugaredLibraryCodeToKeep;
   }
 
+  /**
+   * Estimates the size of the file from the items in the file, such that the output buffer can be
+   * allocated up front instead of growing while writing.
+   */
+  private static int estimateFileSize(
+      ObjectToOffsetMapping mapping, MethodToCodeObjectMapping codeMapping) {
+    long size = Constants.TYPE_HEADER_ITEM_SIZE;
+    size += (long) mapping.getStrings().size() * Constants.TYPE_STRING_ID_ITEM_SIZE;
+    size += (long) mapping.getTypes().size() * Constants.TYPE_TYPE_ID_ITEM_SIZE;
+    size += (long) mapping.getProtos().size() * Constants.TYPE_PROTO_ID_ITEM_SIZE;
+    size += (long) mapping.getFields().size() * Constants.TYPE_FIELD_ID_ITEM_SIZE;
+    size += (long) mapping.getMethods().size() * Constants.TYPE_METHOD_ID_ITEM_SIZE;
+    size += (long) mapping.getCallSites().size() * Constants.TYPE_CALL_SITE_ID_ITEM_SIZE;
+    size += (long) mapping.getMethodHandles().size() * Constants.TYPE_METHOD_HANDLE_ITEM_SIZE;
+    for (DexString string : mapping.getStrings()) {
+      // The string data is the uleb128 encoded length followed by the encoded string.
+      size += sizeAsUleb128(string.size) + string.content.length;
+    }
+    for (DexProgramClass clazz : mapping.getClasses()) {
+      size += Constants.TYPE_CLASS_DEF_ITEM_SIZE;
+      // Encoded fields in the class data.
+      size += 4L * (clazz.staticFields().size() + clazz.instanceFields().size());
+      for (DexEncodedMethod method : clazz.methods()) {
+        // Encoded method in the class data.
+        size += 6;
+        DexCode code = codeMapping.getCode(method);
+        if (code != null && code.instructions.length > 0) {
+          // Header, instructions and tries of the code item.
+          size += 16 + 2L * code.codeSizeInBytes() + 8L * code.tries.length;
+        }
+      }
+    }
+    // Leave room for the items that are not accounted for, such as type lists, debug info and
+    // annotations.
+    size += size / 4;
+    return (int) Math.min(size, Integer.MAX_VALUE / 2);
+  }
+
   public static void writeEncodedAnnotation(
       DexEncodedAnnotation annotation, DexOutputBuffer dest, ObjectToOffsetMapping mapping) {
     if (Log.ENABLED) {
@@ -41,6 +41,7 @@ import com.google.common.collect.Sets;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -295,6 +296,12 @@ public class VirtualFile {
     return indexedItems.classes;
   }
 
+  /** Drops the items of this file after it has been written. The file is empty afterwards. */
+  void releaseIndexedItems() {
+    assert transaction.isEmpty();
+    indexedItems.release();
+  }
+
   public abstract static class Distributor {
     protected final AppView<?> appView;
     protected final ApplicationWriter writer;
@@ -629,14 +636,15 @@ public class VirtualFile {
     private final InitClassLens initClassLens;
     private final NamingLens namingLens;
 
-    private final Set<DexProgramClass> classes = Sets.newIdentityHashSet();
-    private final Set<DexProto> protos = Sets.newIdentityHashSet();
-    private final Set<DexType> types = Sets.newIdentityHashSet();
-    private final Set<DexMethod> methods = Sets.newIdentityHashSet();
-    private final Set<DexField> fields = Sets.newIdentityHashSet();
-    private final Set<DexString> strings = Sets.newIdentityHashSet();
-    private final Set<DexCallSite> callSites = Sets.newIdentityHashSet();
-    private final Set<DexMethodHandle> methodHandles = Sets.newIdentityHashSet();
+    // Not final such that the backing tables can be released once the file has been written.
+    private Set<DexProgramClass> classes = Sets.newIdentityHashSet();
+    private Set<DexProto> protos = Sets.newIdentityHashSet();
+    private Set<DexType> types = Sets.newIdentityHashSet();
+    private Set<DexMethod> methods = Sets.newIdentityHashSet();
+    private Set<DexField> fields = Sets.newIdentityHashSet();
+    private Set<DexString> strings = Sets.newIdentityHashSet();
+    private Set<DexCallSite> callSites = Sets.newIdentityHashSet();
+    private Set<DexMethodHandle> methodHandles = Sets.newIdentityHashSet();
 
     public VirtualFileIndexedItemCollection(
         GraphLens graphLens, InitClassLens initClassLens, NamingLens namingLens) {
@@ -645,6 +653,17 @@ public class VirtualFile {
       this.namingLens = namingLens;
     }
 
+    private void release() {
+      classes = Collections.emptySet();
+      protos = Collections.emptySet();
+      types = Collections.emptySet();
+      methods = Collections.emptySet();
+      fields = Collections.emptySet();
+      strings = Collections.emptySet();
+      callSites = Collections.emptySet();
+      methodHandles = Collections.emptySet();
+    }
+
     @Override
     public boolean addClass(DexProgramClass clazz) {
       return classes.add(clazz);
@@ -227,6 +227,11 @@ public class CfCode extends Code implements StructuralItem<CfCode> {
     return countNonStackOperations(threshold) <= threshold;
   }
 
+  @Override
+  public int estimatedSizeForScheduling() {
+    return instructions.size();
+  }
+
   @Override
   public int estimatedDexCodeSizeUpperBoundInBytes() {
     return estimatedSizeForInlining() * Base5Format.SIZE;
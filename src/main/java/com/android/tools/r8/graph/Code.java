@@ -78,10 +78,22 @@ public abstract class Code extends CachedHashValueDexItem {
 
   public abstract int estimatedDexCodeSizeUpperBoundInBytes();
 
+  /**
+   * Estimate of the cost of processing the code, used to process large methods first. Unlike
+   * estimatedSizeForInlining(), this must be cheap to compute and must not parse the code.
+   */
+  public int estimatedSizeForScheduling() {
+    return 0;
+  }
+
   public CfCode asCfCode() {
     throw new Unreachable(getClass().getCanonicalName() + ".asCfCode()");
   }
 
+  public boolean isLazyCfCode() {
+    return false;
+  }
+
   public LazyCfCode asLazyCfCode() {
     throw new Unreachable(getClass().getCanonicalName() + ".asLazyCfCode()");
   }
@@ -121,6 +121,11 @@ public class DexCode extends Code implements StructuralItem<DexCode> {
     return instructions.length;
   }
 
+  @Override
+  public int estimatedSizeForScheduling() {
+    return instructions.length;
+  }
+
   @Override
   public int estimatedDexCodeSizeUpperBoundInBytes() {
     return codeSizeInBytes();
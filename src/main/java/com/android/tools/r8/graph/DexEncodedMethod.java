@@ -56,6 +56,7 @@ import com.android.tools.r8.ir.optimize.Inliner.Reason;
 import com.android.tools.r8.ir.optimize.NestUtils;
 import com.android.tools.r8.ir.optimize.info.CallSiteOptimizationInfo;
 import com.android.tools.r8.ir.optimize.info.DefaultMethodOptimizationInfo;
+import com.android.tools.r8.ir.optimize.info.DeferredMethodOptimizationInfo;
 import com.android.tools.r8.ir.optimize.info.MethodOptimizationInfo;
 import com.android.tools.r8.ir.optimize.info.OptimizationFeedbackSimple;
 import com.android.tools.r8.ir.optimize.info.UpdatableMethodOptimizationInfo;
@@ -158,6 +159,9 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
   //   we need to maintain a set of states with (potentially different) contexts.
   private CompilationState compilationState = CompilationState.NOT_PROCESSED;
   private MethodOptimizationInfo optimizationInfo = DefaultMethodOptimizationInfo.DEFAULT_INSTANCE;
+  // Non-null if the method has been processed by a dependency-driven optimization pass that has
+  // not yet committed the resulting optimization info and compilation state.
+  private DeferredMethodOptimizationInfo deferredOptimizationInfo = null;
   private CallSiteOptimizationInfo callSiteOptimizationInfo = CallSiteOptimizationInfo.bottom();
   private CfVersion classFileVersion;
   private KotlinMethodLevelInfo kotlinMemberInfo = NO_KOTLIN_INFO;
@@ -212,6 +216,10 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
   }
 
   public CompilationState getCompilationState() {
+    DeferredMethodOptimizationInfo deferred = deferredOptimizationInfo;
+    if (deferred != null && deferred.hasCompilationState() && deferred.isVisible()) {
+      return deferred.getCompilationState();
+    }
     return compilationState;
   }
 
@@ -465,7 +473,7 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
 
   public boolean isProcessed() {
     checkIfObsolete();
-    return compilationState != CompilationState.NOT_PROCESSED;
+    return getCompilationState() != CompilationState.NOT_PROCESSED;
   }
 
   public boolean isAbstract() {
@@ -653,7 +661,7 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
   }
 
   public boolean isOnlyInlinedIntoNestMembers() {
-    return compilationState == PROCESSED_INLINING_CANDIDATE_SAME_NEST;
+    return getCompilationState() == PROCESSED_INLINING_CANDIDATE_SAME_NEST;
   }
 
   public boolean isInliningCandidate(
@@ -685,6 +693,7 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
     }
 
     // TODO(b/128967328): inlining candidate should satisfy all states if multiple states are there.
+    CompilationState compilationState = getCompilationState();
     switch (compilationState) {
       case PROCESSED_INLINING_CANDIDATE_ANY:
         return true;
@@ -733,27 +742,27 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
   public boolean markProcessed(ConstraintWithTarget state) {
     checkIfObsolete();
     CompilationState prevCompilationState = compilationState;
+    compilationState = getProcessedCompilationState(state);
+    return prevCompilationState != compilationState;
+  }
+
+  public static CompilationState getProcessedCompilationState(ConstraintWithTarget state) {
     switch (state.constraint) {
       case ALWAYS:
-        compilationState = PROCESSED_INLINING_CANDIDATE_ANY;
-        break;
+        return PROCESSED_INLINING_CANDIDATE_ANY;
       case SUBCLASS:
-        compilationState = PROCESSED_INLINING_CANDIDATE_SUBCLASS;
-        break;
+        return PROCESSED_INLINING_CANDIDATE_SUBCLASS;
       case PACKAGE:
-        compilationState = PROCESSED_INLINING_CANDIDATE_SAME_PACKAGE;
-        break;
+        return PROCESSED_INLINING_CANDIDATE_SAME_PACKAGE;
       case SAMENEST:
-        compilationState = PROCESSED_INLINING_CANDIDATE_SAME_NEST;
-        break;
+        return PROCESSED_INLINING_CANDIDATE_SAME_NEST;
       case SAMECLASS:
-        compilationState = PROCESSED_INLINING_CANDIDATE_SAME_CLASS;
-        break;
+        return PROCESSED_INLINING_CANDIDATE_SAME_CLASS;
       case NEVER:
-        compilationState = PROCESSED_NOT_INLINING_CANDIDATE;
-        break;
+        return PROCESSED_NOT_INLINING_CANDIDATE;
+      default:
+        throw new Unreachable("Unexpected constraint: " + state.constraint);
     }
-    return prevCompilationState != compilationState;
   }
 
   public void markNotProcessed() {
@@ -831,6 +840,11 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
     return code;
   }
 
+  public int estimatedSizeForScheduling() {
+    checkIfObsolete();
+    return code != null ? code.estimatedSizeForScheduling() : 0;
+  }
+
   public void removeCode() {
     checkIfObsolete();
     code = null;
@@ -1463,11 +1477,28 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
 
   public MethodOptimizationInfo getOptimizationInfo() {
     checkIfObsolete();
+    DeferredMethodOptimizationInfo deferred = deferredOptimizationInfo;
+    if (deferred != null && deferred.hasInfo() && deferred.isVisible()) {
+      return deferred.getInfo();
+    }
     return optimizationInfo;
   }
 
+  /**
+   * Returns the most recent optimization info of the method, including optimization info that is
+   * not yet visible to all methods.
+   */
+  public MethodOptimizationInfo getLatestOptimizationInfo() {
+    checkIfObsolete();
+    DeferredMethodOptimizationInfo deferred = deferredOptimizationInfo;
+    return deferred != null && deferred.hasInfo() ? deferred.getInfo() : optimizationInfo;
+  }
+
   public synchronized UpdatableMethodOptimizationInfo getMutableOptimizationInfo() {
     checkIfObsolete();
+    if (deferredOptimizationInfo != null && deferredOptimizationInfo.hasInfo()) {
+      return deferredOptimizationInfo.getInfo();
+    }
     if (optimizationInfo == DefaultMethodOptimizationInfo.DEFAULT_INSTANCE) {
       optimizationInfo = optimizationInfo.mutableCopy();
     }
@@ -1479,6 +1510,24 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
     optimizationInfo = info;
   }
 
+  public synchronized void setDeferredOptimizationInfo(DeferredMethodOptimizationInfo info) {
+    checkIfObsolete();
+    deferredOptimizationInfo = info;
+  }
+
+  public synchronized void commitDeferredOptimizationInfo() {
+    checkIfObsolete();
+    if (deferredOptimizationInfo != null) {
+      if (deferredOptimizationInfo.hasInfo()) {
+        optimizationInfo = deferredOptimizationInfo.getInfo();
+      }
+      if (deferredOptimizationInfo.hasCompilationState()) {
+        compilationState = deferredOptimizationInfo.getCompilationState();
+      }
+      deferredOptimizationInfo = null;
+    }
+  }
+
   public synchronized void abandonCallSiteOptimizationInfo() {
     checkIfObsolete();
     callSiteOptimizationInfo = CallSiteOptimizationInfo.abandoned();
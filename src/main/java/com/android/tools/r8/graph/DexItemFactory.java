@@ -39,7 +39,6 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceArrayMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
@@ -68,15 +67,16 @@ public class DexItemFactory {
   public static final String recordDescriptorString = "Ljava/lang/Record;";
 
   /** Set of types that may be synthesized during compilation. */
-  private final Set<DexType> possibleCompilerSynthesizedTypes = Sets.newIdentityHashSet();
-
-  private final Map<DexString, DexString> strings = new ConcurrentHashMap<>();
-  private final Map<DexString, DexType> types = new ConcurrentHashMap<>();
-  private final Map<DexField, DexField> fields = new ConcurrentHashMap<>();
-  private final Map<DexProto, DexProto> protos = new ConcurrentHashMap<>();
-  private final Map<DexMethod, DexMethod> methods = new ConcurrentHashMap<>();
-  private final Map<DexMethodHandle, DexMethodHandle> methodHandles =
-      new ConcurrentHashMap<>();
+  private final Set<DexType> possibleCompilerSynthesizedTypes = ConcurrentHashMap.newKeySet();
+
+  private final DexItemInternTable<DexString, DexString> strings = DexItemInternTable.create();
+  private final DexItemInternTable<DexString, DexType> types =
+      DexItemInternTable.createWithKey(type -> type.descriptor);
+  private final DexItemInternTable<DexField, DexField> fields = DexItemInternTable.create();
+  private final DexItemInternTable<DexProto, DexProto> protos = DexItemInternTable.create();
+  private final DexItemInternTable<DexMethod, DexMethod> methods = DexItemInternTable.create();
+  private final DexItemInternTable<DexMethodHandle, DexMethodHandle> methodHandles =
+      DexItemInternTable.create();
 
   // DexDebugEvent Canonicalization.
   private final Int2ReferenceMap<AdvanceLine> advanceLines = new Int2ReferenceOpenHashMap<>();
@@ -1920,11 +1920,11 @@ public class DexItemFactory {
     }
   }
 
-  private static <T extends DexItem> T canonicalize(Map<T, T> map, T item) {
+  private static <T extends CachedHashValueDexItem> T canonicalize(
+      DexItemInternTable<T, T> table, T item) {
     assert item != null;
     assert !DexItemFactory.isInternalSentinel(item);
-    T previous = map.putIfAbsent(item, item);
-    return previous == null ? item : previous;
+    return table.intern(item);
   }
 
   public DexString createString(int size, byte[] content) {
@@ -2161,30 +2161,30 @@ public class DexItemFactory {
   public synchronized List<Marker> extractMarkers() {
     // This is slow but it is not needed for any production code yet.
     List<Marker> markers = new ArrayList<>();
-    for (DexString dexString : strings.keySet()) {
-      Marker marker = Marker.parse(dexString);
-      if (marker != null) {
-        markers.add(marker);
-      }
-    }
+    strings.forEach(
+        dexString -> {
+          Marker marker = Marker.parse(dexString);
+          if (marker != null) {
+            markers.add(marker);
+          }
+        });
     return markers;
   }
 
-  // Non-synchronized internal create.
   private DexType internalCreateType(DexString descriptor) {
     assert !sorted;
     assert descriptor != null;
-    DexType result = types.get(descriptor);
-    if (result == null) {
-      result = new DexType(descriptor);
-      assert result.isArrayType()
-          || result.isClassType()
-          || result.isPrimitiveType()
-          || result.isVoidType();
-      assert !isInternalSentinel(result);
-      types.put(descriptor, result);
-    }
-    return result;
+    return types.computeIfAbsent(
+        descriptor,
+        key -> {
+          DexType result = new DexType(key);
+          assert result.isArrayType()
+              || result.isClassType()
+              || result.isPrimitiveType()
+              || result.isVoidType();
+          assert !isInternalSentinel(result);
+          return result;
+        });
   }
 
   private DexType createStaticallyKnownType(String descriptor) {
@@ -2203,9 +2203,9 @@ public class DexItemFactory {
     return type;
   }
 
-  // Safe synchronized external create. May be used for statically known types in synthetic code.
+  // Safe external create. May be used for statically known types in synthetic code.
   // See the generated BackportedMethods.java for reference.
-  public synchronized DexType createSynthesizedType(String descriptor) {
+  public DexType createSynthesizedType(String descriptor) {
     DexType type = internalCreateType(createString(descriptor));
     addPossiblySynthesizedType(type);
     return type;
@@ -2234,8 +2234,8 @@ public class DexItemFactory {
     possibleCompilerSynthesizedTypes.forEach(fn);
   }
 
-  // Safe synchronized external create. Should never be used to create a statically known type!
-  public synchronized DexType createType(DexString descriptor) {
+  // Safe external create. Should never be used to create a statically known type!
+  public DexType createType(DexString descriptor) {
     return internalCreateType(descriptor);
   }
 
@@ -2551,7 +2551,9 @@ public class DexItemFactory {
   }
 
   @Deprecated
-  synchronized public void forAllTypes(Consumer<DexType> f) {
-    new ArrayList<>(types.values()).forEach(f);
+  public void forAllTypes(Consumer<DexType> f) {
+    List<DexType> allTypes = new ArrayList<>(types.size());
+    types.forEach(allTypes::add);
+    allTypes.forEach(f);
   }
 }
@@ -0,0 +1,189 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Concurrent table for canonicalizing dex items.
+ *
+ * <p>The table is split into a fixed number of stripes, each of which is an open-addressed hash
+ * table with linear probing. Lookups are lock free and use the hash code cached on the key. Inserts
+ * only lock the stripe of the key. Entries are stored directly in the backing arrays, which avoids
+ * the per-entry node objects of {@link java.util.concurrent.ConcurrentHashMap}. Entries are never
+ * removed.
+ */
+public final class DexItemInternTable<K extends CachedHashValueDexItem, V> {
+
+  private static final int STRIPE_COUNT_LOG2 = 6;
+  private static final int STRIPE_COUNT = 1 << STRIPE_COUNT_LOG2;
+  private static final int INITIAL_STRIPE_CAPACITY = 64;
+
+  private static final class Stripe<V> {
+
+    // The backing array is replaced when the stripe is resized. The slots of an array are only
+    // written while holding the lock of the stripe, and a slot is never cleared once written.
+    private volatile AtomicReferenceArray<V> table;
+    private int size = 0;
+
+    private Stripe(int capacity) {
+      table = new AtomicReferenceArray<>(capacity);
+    }
+  }
+
+  private final Function<V, K> keyFunction;
+  private final Stripe<V>[] stripes;
+
+  @SuppressWarnings("unchecked")
+  private DexItemInternTable(Function<V, K> keyFunction) {
+    this.keyFunction = keyFunction;
+    this.stripes = new Stripe[STRIPE_COUNT];
+    for (int i = 0; i < STRIPE_COUNT; i++) {
+      stripes[i] = new Stripe<>(INITIAL_STRIPE_CAPACITY);
+    }
+  }
+
+  /** Creates a table where each item is its own key. */
+  public static <T extends CachedHashValueDexItem> DexItemInternTable<T, T> create() {
+    return new DexItemInternTable<>(Function.identity());
+  }
+
+  /** Creates a table where the key of each item is given by {@code keyFunction}. */
+  public static <K extends CachedHashValueDexItem, V> DexItemInternTable<K, V> createWithKey(
+      Function<V, K> keyFunction) {
+    return new DexItemInternTable<>(keyFunction);
+  }
+
+  /** Returns the canonical item equal to {@code item}, adding {@code item} if there is none. */
+  public V intern(V item) {
+    K key = keyFunction.apply(item);
+    int hash = hash(key);
+    Stripe<V> stripe = getStripe(hash);
+    V result = find(stripe.table, key, hash);
+    return result != null ? result : insert(stripe, key, hash, item, null);
+  }
+
+  /**
+   * Returns the item for {@code key}, creating it using {@code fn} if there is none. The function
+   * is called at most once per key.
+   */
+  public V computeIfAbsent(K key, Function<K, V> fn) {
+    int hash = hash(key);
+    Stripe<V> stripe = getStripe(hash);
+    V result = find(stripe.table, key, hash);
+    return result != null ? result : insert(stripe, key, hash, null, fn);
+  }
+
+  /** Returns the item for {@code key}, or null if there is none. */
+  public V get(K key) {
+    int hash = hash(key);
+    Stripe<V> stripe = getStripe(hash);
+    V result = find(stripe.table, key, hash);
+    if (result != null) {
+      return result;
+    }
+    // The lock free lookup may have raced with a resize of the stripe.
+    synchronized (stripe) {
+      return find(stripe.table, key, hash);
+    }
+  }
+
+  public void forEach(Consumer<V> consumer) {
+    for (Stripe<V> stripe : stripes) {
+      AtomicReferenceArray<V> table = stripe.table;
+      for (int i = 0; i < table.length(); i++) {
+        V item = table.get(i);
+        if (item != null) {
+          consumer.accept(item);
+        }
+      }
+    }
+  }
+
+  public int size() {
+    int size = 0;
+    for (Stripe<V> stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size;
+      }
+    }
+    return size;
+  }
+
+  private V insert(Stripe<V> stripe, K key, int hash, V item, Function<K, V> fn) {
+    synchronized (stripe) {
+      AtomicReferenceArray<V> table = stripe.table;
+      V result = find(table, key, hash);
+      if (result != null) {
+        return result;
+      }
+      if (item == null) {
+        item = fn.apply(key);
+        assert keyFunction.apply(item).equals(key);
+      }
+      // Keep the load factor at most 1/2 such that probing always ends at an empty slot.
+      if (2 * (stripe.size + 1) > table.length()) {
+        table = resize(table);
+        stripe.table = table;
+      }
+      put(table, item, hash);
+      stripe.size++;
+      return item;
+    }
+  }
+
+  private AtomicReferenceArray<V> resize(AtomicReferenceArray<V> table) {
+    AtomicReferenceArray<V> newTable = new AtomicReferenceArray<>(table.length() * 2);
+    for (int i = 0; i < table.length(); i++) {
+      V item = table.get(i);
+      if (item != null) {
+        put(newTable, item, hash(keyFunction.apply(item)));
+      }
+    }
+    return newTable;
+  }
+
+  private static <V> void put(AtomicReferenceArray<V> table, V item, int hash) {
+    int mask = table.length() - 1;
+    int index = hash & mask;
+    while (table.get(index) != null) {
+      index = (index + 1) & mask;
+    }
+    table.set(index, item);
+  }
+
+  private V find(AtomicReferenceArray<V> table, K key, int hash) {
+    int mask = table.length() - 1;
+    int keyHash = key.hashCode();
+    for (int index = hash & mask; ; index = (index + 1) & mask) {
+      V candidate = table.get(index);
+      if (candidate == null) {
+        return null;
+      }
+      K candidateKey = keyFunction.apply(candidate);
+      if (candidateKey == key
+          || (candidateKey.hashCode() == keyHash && candidateKey.equals(key))) {
+        return candidate;
+      }
+    }
+  }
+
+  private Stripe<V> getStripe(int hash) {
+    return stripes[hash >>> (Integer.SIZE - STRIPE_COUNT_LOG2)];
+  }
+
+  private static int hash(CachedHashValueDexItem key) {
+    // Spread the cached hash code such that both the high bits, which select the stripe, and the
+    // low bits, which select the slot, depend on all bits of the hash code.
+    int hash = key.hashCode();
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+}
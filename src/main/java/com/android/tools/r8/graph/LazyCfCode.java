@@ -118,11 +118,20 @@ public class LazyCfCode extends Code {
     return true;
   }
 
+  @Override
+  public boolean isLazyCfCode() {
+    return true;
+  }
+
   @Override
   public LazyCfCode asLazyCfCode() {
     return this;
   }
 
+  public boolean isParsed() {
+    return code != null;
+  }
+
   @Override
   public CfCode asCfCode() {
     if (code == null) {
@@ -210,6 +219,20 @@ public class LazyCfCode extends Code {
     return asCfCode().estimatedSizeForInliningAtMost(threshold);
   }
 
+  @Override
+  public int estimatedSizeForScheduling() {
+    CfCode code = this.code;
+    if (code != null) {
+      return code.estimatedSizeForScheduling();
+    }
+    // Approximate the size of the unparsed code by the share of the class file of each method.
+    ReparseContext context = this.context;
+    if (context == null || context.codeList.isEmpty()) {
+      return 0;
+    }
+    return context.classCache.length / context.codeList.size();
+  }
+
   @Override
   public int estimatedDexCodeSizeUpperBoundInBytes() {
     return asCfCode().estimatedDexCodeSizeUpperBoundInBytes();
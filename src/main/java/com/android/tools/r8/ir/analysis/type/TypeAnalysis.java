@@ -149,14 +149,14 @@ public class TypeAnalysis {
     }
 
     // propagate the type change to (instruction) users if any.
-    for (Instruction instruction : value.uniqueUsers()) {
+    for (Instruction instruction : value.users()) {
       Value outValue = instruction.outValue();
       if (outValue != null) {
         enqueue(outValue);
       }
     }
     // Propagate the type change to phi users if any.
-    for (Phi phi : value.uniquePhiUsers()) {
+    for (Phi phi : value.phiUsers()) {
       enqueue(phi);
     }
   }
@@ -38,7 +38,6 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -152,7 +151,7 @@ public class BasicBlock {
   // Catch handler information about which successors are catch handlers and what their guards are.
   private CatchHandlers<Integer> catchHandlers = CatchHandlers.EMPTY_INDICES;
 
-  private LinkedList<Instruction> instructions = new LinkedList<>();
+  private final InstructionList instructions = new InstructionList();
   private int number = -1;
   private List<Phi> phis = new ArrayList<>();
 
@@ -626,7 +625,7 @@ public class BasicBlock {
     return nextInstructionNumber;
   }
 
-  public LinkedList<Instruction> getInstructions() {
+  public InstructionList getInstructions() {
     return instructions;
   }
 
@@ -681,13 +680,13 @@ public class BasicBlock {
   }
 
   public Instruction entry() {
-    return instructions.get(0);
+    return instructions.getFirst();
   }
 
   public JumpInstruction exit() {
     assert filled;
-    assert instructions.get(instructions.size() - 1).isJumpInstruction();
-    return instructions.get(instructions.size() - 1).asJumpInstruction();
+    assert instructions.getLast().isJumpInstruction();
+    return instructions.getLast().asJumpInstruction();
   }
 
   public Instruction exceptionalExit() {
@@ -1324,8 +1323,8 @@ public class BasicBlock {
     printer.ln();
     printer.print("xhandlers\n");
     printer.print("flags\n");
-    printer.print("first_lir_id ").print(instructions.get(0).getNumber()).ln();
-    printer.print("last_lir_id ").print(instructions.get(instructions.size() - 1).getNumber()).ln();
+    printer.print("first_lir_id ").print(instructions.getFirst().getNumber()).ln();
+    printer.print("last_lir_id ").print(instructions.getLast().getNumber()).ln();
     printer.begin("HIR");
     if (phis != null) {
       for (Phi phi : phis) {
@@ -1357,33 +1356,27 @@ public class BasicBlock {
     // TODO(ager): Consider this more, is it always the case that we should add it before the
     // exit instruction?
     Instruction branch = exit();
-    instructions.set(instructions.size() - 1, move);
+    instructions.removeLast();
+    instructions.add(move);
     instructions.add(branch);
   }
 
-  public void setInstructions(LinkedList<Instruction> instructions) {
-    this.instructions = instructions;
-  }
-
   /**
    * Remove a number of instructions. The instructions to remove are given as indexes in the
    * instruction stream.
    */
   public void removeInstructions(List<Integer> toRemove) {
-    if (!toRemove.isEmpty()) {
-      LinkedList<Instruction> newInstructions = new LinkedList<>();
-      int nextIndex = 0;
-      for (Integer index : toRemove) {
-        assert index >= nextIndex;  // Indexes in toRemove must be sorted ascending.
-        newInstructions.addAll(instructions.subList(nextIndex, index));
-        instructions.get(index).clearBlock();
-        nextIndex = index + 1;
-      }
-      if (nextIndex < instructions.size()) {
-        newInstructions.addAll(instructions.subList(nextIndex, instructions.size()));
+    ListIterator<Instruction> iterator = instructions.listIterator();
+    int nextIndex = 0;
+    for (Integer index : toRemove) {
+      assert index >= nextIndex;  // Indexes in toRemove must be sorted ascending.
+      while (nextIndex < index) {
+        iterator.next();
+        nextIndex++;
       }
-      assert instructions.size() == newInstructions.size() + toRemove.size();
-      setInstructions(newInstructions);
+      iterator.next().clearBlock();
+      iterator.remove();
+      nextIndex++;
     }
   }
 
@@ -1391,9 +1384,8 @@ public class BasicBlock {
    * Remove an instruction.
    */
   public void removeInstruction(Instruction toRemove) {
-    int index = instructions.indexOf(toRemove);
-    assert index >= 0;
-    removeInstructions(Collections.singletonList(index));
+    instructions.removeInstruction(toRemove);
+    toRemove.clearBlock();
   }
 
   /**
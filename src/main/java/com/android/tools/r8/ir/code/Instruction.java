@@ -52,6 +52,10 @@ public abstract class Instruction implements InstructionOrPhi, TypeAndLocalInfoS
   private Set<Value> debugValues = null;
   private Position position = null;
 
+  // Links of the InstructionList of the block that holds this instruction.
+  Instruction previousInBlock = null;
+  Instruction nextInBlock = null;
+
   protected Instruction(Value outValue) {
     setOutValue(outValue);
   }
@@ -352,7 +356,7 @@ public abstract class Instruction implements InstructionOrPhi, TypeAndLocalInfoS
       value = printer.makeUnusedValue();
     } else {
       if (outValue.hasUsersInfo()) {
-        uses = outValue.uniqueUsers().size() + outValue.uniquePhiUsers().size();
+        uses = outValue.numberOfAllNonDebugUsers();
       }
       value = "v" + outValue.getNumber();
     }
@@ -566,7 +570,7 @@ public abstract class Instruction implements InstructionOrPhi, TypeAndLocalInfoS
       if (outValue.numberOfPhiUsers() > 0) {
         return true;
       }
-      for (Instruction user : outValue.uniqueUsers()) {
+      for (Instruction user : outValue.users()) {
         if (user.getBlock() != getBlock()) {
           return true;
         }
@@ -0,0 +1,299 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.code;
+
+import java.util.AbstractSequentialList;
+import java.util.ConcurrentModificationException;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * The instructions of a {@link BasicBlock}.
+ *
+ * <p>This is a doubly linked list where the links are stored on the instructions themselves, which
+ * avoids allocating a list node for each instruction. As a consequence, an instruction can be in at
+ * most one list at a time, and must be removed from its current list before it is added to another.
+ */
+public class InstructionList extends AbstractSequentialList<Instruction> {
+
+  private Instruction first = null;
+  private Instruction last = null;
+  private int size = 0;
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public Instruction getFirst() {
+    if (first == null) {
+      throw new NoSuchElementException();
+    }
+    return first;
+  }
+
+  public Instruction getLast() {
+    if (last == null) {
+      throw new NoSuchElementException();
+    }
+    return last;
+  }
+
+  public void addFirst(Instruction instruction) {
+    if (first == null) {
+      linkLast(instruction);
+    } else {
+      linkBefore(instruction, first);
+    }
+  }
+
+  public void addLast(Instruction instruction) {
+    linkLast(instruction);
+  }
+
+  @Override
+  public boolean add(Instruction instruction) {
+    linkLast(instruction);
+    return true;
+  }
+
+  public Instruction removeFirst() {
+    Instruction instruction = getFirst();
+    unlink(instruction);
+    return instruction;
+  }
+
+  public Instruction removeLast() {
+    Instruction instruction = getLast();
+    unlink(instruction);
+    return instruction;
+  }
+
+  /** Removes {@code instruction}, which must be in this list, in constant time. */
+  public void removeInstruction(Instruction instruction) {
+    assert contains(instruction);
+    unlink(instruction);
+  }
+
+  @Override
+  public void clear() {
+    Instruction current = first;
+    while (current != null) {
+      Instruction next = current.nextInBlock;
+      current.previousInBlock = null;
+      current.nextInBlock = null;
+      current = next;
+    }
+    first = null;
+    last = null;
+    size = 0;
+    modCount++;
+  }
+
+  @Override
+  public void forEach(Consumer<? super Instruction> consumer) {
+    for (Instruction current = first; current != null; current = current.nextInBlock) {
+      consumer.accept(current);
+    }
+  }
+
+  @Override
+  public ListIterator<Instruction> listIterator(int index) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    return new ListItr(index);
+  }
+
+  private Instruction instructionAt(int index) {
+    assert 0 <= index && index < size;
+    // Walk from the closest end of the list.
+    if (index < (size >> 1)) {
+      Instruction current = first;
+      for (int i = 0; i < index; i++) {
+        current = current.nextInBlock;
+      }
+      return current;
+    }
+    Instruction current = last;
+    for (int i = size - 1; i > index; i--) {
+      current = current.previousInBlock;
+    }
+    return current;
+  }
+
+  private boolean isUnlinked(Instruction instruction) {
+    return instruction.previousInBlock == null
+        && instruction.nextInBlock == null
+        && instruction != first;
+  }
+
+  private void linkLast(Instruction instruction) {
+    assert isUnlinked(instruction);
+    if (last == null) {
+      first = instruction;
+    } else {
+      last.nextInBlock = instruction;
+      instruction.previousInBlock = last;
+    }
+    last = instruction;
+    size++;
+    modCount++;
+  }
+
+  private void linkBefore(Instruction instruction, Instruction successor) {
+    assert isUnlinked(instruction);
+    Instruction predecessor = successor.previousInBlock;
+    instruction.previousInBlock = predecessor;
+    instruction.nextInBlock = successor;
+    successor.previousInBlock = instruction;
+    if (predecessor == null) {
+      first = instruction;
+    } else {
+      predecessor.nextInBlock = instruction;
+    }
+    size++;
+    modCount++;
+  }
+
+  private void unlink(Instruction instruction) {
+    Instruction predecessor = instruction.previousInBlock;
+    Instruction successor = instruction.nextInBlock;
+    if (predecessor == null) {
+      assert first == instruction;
+      first = successor;
+    } else {
+      predecessor.nextInBlock = successor;
+      instruction.previousInBlock = null;
+    }
+    if (successor == null) {
+      assert last == instruction;
+      last = predecessor;
+    } else {
+      successor.previousInBlock = predecessor;
+      instruction.nextInBlock = null;
+    }
+    size--;
+    modCount++;
+  }
+
+  private class ListItr implements ListIterator<Instruction> {
+
+    private Instruction lastReturned = null;
+    private Instruction next;
+    private int nextIndex;
+    private int expectedModCount = modCount;
+
+    private ListItr(int index) {
+      next = index == size ? null : instructionAt(index);
+      nextIndex = index;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextIndex < size;
+    }
+
+    @Override
+    public Instruction next() {
+      checkForComodification();
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      lastReturned = next;
+      next = next.nextInBlock;
+      nextIndex++;
+      return lastReturned;
+    }
+
+    @Override
+    public boolean hasPrevious() {
+      return nextIndex > 0;
+    }
+
+    @Override
+    public Instruction previous() {
+      checkForComodification();
+      if (!hasPrevious()) {
+        throw new NoSuchElementException();
+      }
+      next = next == null ? last : next.previousInBlock;
+      lastReturned = next;
+      nextIndex--;
+      return lastReturned;
+    }
+
+    @Override
+    public int nextIndex() {
+      return nextIndex;
+    }
+
+    @Override
+    public int previousIndex() {
+      return nextIndex - 1;
+    }
+
+    @Override
+    public void remove() {
+      checkForComodification();
+      if (lastReturned == null) {
+        throw new IllegalStateException();
+      }
+      Instruction lastNext = lastReturned.nextInBlock;
+      unlink(lastReturned);
+      if (next == lastReturned) {
+        next = lastNext;
+      } else {
+        nextIndex--;
+      }
+      lastReturned = null;
+      expectedModCount++;
+    }
+
+    @Override
+    public void set(Instruction instruction) {
+      checkForComodification();
+      if (lastReturned == null) {
+        throw new IllegalStateException();
+      }
+      Instruction successor = lastReturned.nextInBlock;
+      unlink(lastReturned);
+      if (successor == null) {
+        linkLast(instruction);
+      } else {
+        linkBefore(instruction, successor);
+      }
+      if (next == lastReturned) {
+        next = instruction;
+      }
+      lastReturned = instruction;
+      expectedModCount += 2;
+    }
+
+    @Override
+    public void add(Instruction instruction) {
+      checkForComodification();
+      lastReturned = null;
+      if (next == null) {
+        linkLast(instruction);
+      } else {
+        linkBefore(instruction, next);
+      }
+      nextIndex++;
+      expectedModCount++;
+    }
+
+    private void checkForComodification() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+  }
+}
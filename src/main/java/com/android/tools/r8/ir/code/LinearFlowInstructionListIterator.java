@@ -166,6 +166,11 @@ public class LinearFlowInstructionListIterator implements InstructionListIterato
         code, blockIterator, instruction, options);
   }
 
+  @Override
+  public void removeInstructionIgnoreOutValue() {
+    currentBlockIterator.removeInstructionIgnoreOutValue();
+  }
+
   @Override
   public void removeOrReplaceByDebugLocalRead() {
     currentBlockIterator.removeOrReplaceByDebugLocalRead();
@@ -0,0 +1,241 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.code;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The users of a value, in the order they were added.
+ *
+ * <p>A user occurs once for each operand in which it uses the value, so the list can contain
+ * duplicates. The users are stored in an array that grows on demand. Iterating the list directly
+ * does not allocate, but the list must not be modified during the iteration. Code that modifies
+ * the users while iterating must iterate the deduplicated snapshot returned by {@link
+ * #uniqueSet()}, which is cached until the list is modified.
+ */
+final class UseList<T> implements Iterable<T> {
+
+  private static final Object[] EMPTY = new Object[0];
+
+  // Snapshots with at most this many users are backed by an array, larger snapshots are hashed.
+  private static final int MAX_ARRAY_SNAPSHOT_SIZE = 8;
+
+  private Object[] elements = EMPTY;
+  private int size = 0;
+  private Set<T> uniqueSet = null;
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns the number of uses, counting a user once for each use. */
+  int size() {
+    return size;
+  }
+
+  @SuppressWarnings("unchecked")
+  T get(int index) {
+    assert index < size;
+    return (T) elements[index];
+  }
+
+  T first() {
+    assert size > 0;
+    return get(0);
+  }
+
+  void add(T user) {
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, Math.max(2, size * 2));
+    }
+    elements[size++] = user;
+    uniqueSet = null;
+  }
+
+  /** Removes the first use by the given user. */
+  void remove(T user) {
+    for (int i = 0; i < size; i++) {
+      if (elements[i] == user) {
+        System.arraycopy(elements, i + 1, elements, i, size - i - 1);
+        elements[--size] = null;
+        uniqueSet = null;
+        return;
+      }
+    }
+  }
+
+  /** Removes all uses by the given user. */
+  void removeAll(T user) {
+    int newSize = 0;
+    for (int i = 0; i < size; i++) {
+      Object element = elements[i];
+      if (element != user) {
+        elements[newSize++] = element;
+      }
+    }
+    Arrays.fill(elements, newSize, size, null);
+    size = newSize;
+    uniqueSet = null;
+  }
+
+  void clear() {
+    if (size > 0) {
+      Arrays.fill(elements, 0, size, null);
+      size = 0;
+    }
+    uniqueSet = null;
+  }
+
+  boolean anyMatch(Predicate<? super T> predicate) {
+    for (int i = 0; i < size; i++) {
+      if (predicate.test(get(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns true if the list is non-empty and all uses are by the same user. */
+  boolean hasSingleUniqueUser() {
+    if (size == 0) {
+      return false;
+    }
+    Object first = elements[0];
+    for (int i = 1; i < size; i++) {
+      if (elements[i] != first) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the number of distinct users. */
+  int uniqueSize() {
+    if (size <= 1) {
+      return size;
+    }
+    if (uniqueSet == null && size <= MAX_ARRAY_SNAPSHOT_SIZE) {
+      int uniqueSize = 0;
+      for (int i = 0; i < size; i++) {
+        if (indexOf(elements, i, elements[i]) < 0) {
+          uniqueSize++;
+        }
+      }
+      return uniqueSize;
+    }
+    return uniqueSet().size();
+  }
+
+  /** Returns an immutable snapshot of the distinct users, in the order of their first use. */
+  @SuppressWarnings("unchecked")
+  Set<T> uniqueSet() {
+    if (uniqueSet == null) {
+      if (size == 0) {
+        uniqueSet = ImmutableSet.of();
+      } else if (size == 1) {
+        uniqueSet = ImmutableSet.of((T) elements[0]);
+      } else if (size <= MAX_ARRAY_SNAPSHOT_SIZE) {
+        Object[] unique = new Object[size];
+        int uniqueSize = 0;
+        for (int i = 0; i < size; i++) {
+          Object element = elements[i];
+          if (indexOf(unique, uniqueSize, element) < 0) {
+            unique[uniqueSize++] = element;
+          }
+        }
+        uniqueSet =
+            new ArraySnapshot<>(uniqueSize == size ? unique : Arrays.copyOf(unique, uniqueSize));
+      } else {
+        uniqueSet = (Set<T>) ImmutableSet.copyOf(Arrays.copyOf(elements, size));
+      }
+    }
+    return uniqueSet;
+  }
+
+  private static int indexOf(Object[] array, int length, Object element) {
+    for (int i = 0; i < length; i++) {
+      if (array[i] == element) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+
+      private final Object[] iteratedElements = elements;
+      private final int iteratedSize = size;
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < iteratedSize;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public T next() {
+        assert iteratedElements == elements && iteratedSize == size
+            : "Users modified during iteration";
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return (T) iteratedElements[index++];
+      }
+    };
+  }
+
+  /**
+   * An immutable set of a few distinct users. Users are compared by identity, which is their
+   * equality.
+   */
+  private static class ArraySnapshot<T> extends AbstractSet<T> {
+
+    private final Object[] elements;
+
+    ArraySnapshot(Object[] elements) {
+      this.elements = elements;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return indexOf(elements, elements.length, o) >= 0;
+    }
+
+    @Override
+    public int size() {
+      return elements.length;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return new Iterator<T>() {
+
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+          return index < elements.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return (T) elements[index++];
+        }
+      };
+    }
+  }
+}
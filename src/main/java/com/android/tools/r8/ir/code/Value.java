@@ -31,6 +31,7 @@ import com.android.tools.r8.origin.Origin;
 import com.android.tools.r8.position.MethodPosition;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.utils.BooleanUtils;
+import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.LongInterval;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.SetUtils;
@@ -41,7 +42,6 @@ import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.ints.IntList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -164,10 +164,8 @@ public class Value implements Comparable<Value> {
 
   protected final int number;
   public Instruction definition = null;
-  private LinkedList<Instruction> users = new LinkedList<>();
-  private Set<Instruction> uniqueUsers = null;
-  private LinkedList<Phi> phiUsers = new LinkedList<>();
-  private Set<Phi> uniquePhiUsers = null;
+  private UseList<Instruction> users = new UseList<>();
+  private UseList<Phi> phiUsers = new UseList<>();
   private Value nextConsecutive = null;
   private Value previousConsecutive = null;
   private LiveIntervals liveIntervals;
@@ -223,7 +221,8 @@ public class Value implements Comparable<Value> {
   public Value getAliasedValue(
       AliasedValueConfiguration configuration, Predicate<Value> stoppingCriterion) {
     assert stoppingCriterion != null;
-    Set<Value> visited = Sets.newIdentityHashSet();
+    // The visited set is only used to check that there are no cycles.
+    Set<Value> visited = InternalOptions.assertionsEnabled() ? Sets.newIdentityHashSet() : null;
     Value lastAliasedValue;
     Value aliasedValue = this;
     do {
@@ -331,7 +330,7 @@ public class Value implements Comparable<Value> {
     if (hasPhiUsers() || hasDebugUsers()) {
       return false;
     }
-    for (Instruction user : uniqueUsers()) {
+    for (Instruction user : users) {
       if (user.getBlock() != block) {
         return false;
       }
@@ -339,20 +338,27 @@ public class Value implements Comparable<Value> {
     return true;
   }
 
+  /**
+   * Returns the users of this value without allocating. A user occurs once for each operand in
+   * which it uses this value. The users must not be modified while iterating, use {@link
+   * #uniqueUsers()} for that.
+   */
+  public Iterable<Instruction> users() {
+    return users;
+  }
+
+  /** Returns an immutable snapshot of the distinct users of this value. */
   public Set<Instruction> uniqueUsers() {
-    if (uniqueUsers != null) {
-      return uniqueUsers;
-    }
-    return uniqueUsers = ImmutableSet.copyOf(users);
+    return users.uniqueSet();
   }
 
   public boolean hasSingleUniqueUser() {
-    return uniqueUsers().size() == 1;
+    return users.hasSingleUniqueUser();
   }
 
   public Instruction singleUniqueUser() {
-    assert ImmutableSet.copyOf(users).size() == 1;
-    return users.getFirst();
+    assert users.hasSingleUniqueUser();
+    return users.first();
   }
 
   public Set<Instruction> aliasedUsers() {
@@ -385,14 +391,21 @@ public class Value implements Comparable<Value> {
 
   public Phi firstPhiUser() {
     assert !phiUsers.isEmpty();
-    return phiUsers.getFirst();
+    return phiUsers.first();
   }
 
+  /**
+   * Returns the phi users of this value without allocating. A phi occurs once for each operand in
+   * which it uses this value. The phi users must not be modified while iterating, use {@link
+   * #uniquePhiUsers()} for that.
+   */
+  public Iterable<Phi> phiUsers() {
+    return phiUsers;
+  }
+
+  /** Returns an immutable snapshot of the distinct phi users of this value. */
   public Set<Phi> uniquePhiUsers() {
-    if (uniquePhiUsers != null) {
-      return uniquePhiUsers;
-    }
-    return uniquePhiUsers = ImmutableSet.copyOf(phiUsers);
+    return phiUsers.uniqueSet();
   }
 
   public Set<Instruction> debugUsers() {
@@ -420,28 +433,15 @@ public class Value implements Comparable<Value> {
   }
 
   public boolean hasUserThatMatches(Predicate<Instruction> predicate) {
-    for (Instruction user : uniqueUsers()) {
-      if (predicate.test(user)) {
-        return true;
-      }
-    }
-    return false;
+    return users.anyMatch(predicate);
   }
 
   public int numberOfUsers() {
-    int size = users.size();
-    if (size <= 1) {
-      return size;
-    }
-    return uniqueUsers().size();
+    return users.uniqueSize();
   }
 
   public int numberOfPhiUsers() {
-    int size = phiUsers.size();
-    if (size <= 1) {
-      return size;
-    }
-    return uniquePhiUsers().size();
+    return phiUsers.uniqueSize();
   }
 
   public int numberOfAllNonDebugUsers() {
@@ -475,32 +475,23 @@ public class Value implements Comparable<Value> {
   }
 
   public boolean usedInMonitorOperation() {
-    for (Instruction instruction : uniqueUsers()) {
-      if (instruction.isMonitor()) {
-        return true;
-      }
-    }
-    return false;
+    return users.anyMatch(Instruction::isMonitor);
   }
 
   public void addUser(Instruction user) {
     users.add(user);
-    uniqueUsers = null;
   }
 
   public void removeUser(Instruction user) {
     users.remove(user);
-    uniqueUsers = null;
   }
 
   private void fullyRemoveUser(Instruction user) {
-    users.removeIf(u -> u == user);
-    uniqueUsers = null;
+    users.removeAll(user);
   }
 
   public void clearUsers() {
     users.clear();
-    uniqueUsers = null;
     clearPhiUsers();
     if (debugData != null) {
       debugData.users.clear();
@@ -509,22 +500,18 @@ public class Value implements Comparable<Value> {
 
   public void clearPhiUsers() {
     phiUsers.clear();
-    uniquePhiUsers = null;
   }
 
   public void addPhiUser(Phi user) {
     phiUsers.add(user);
-    uniquePhiUsers = null;
   }
 
   public void removePhiUser(Phi user) {
     phiUsers.remove(user);
-    uniquePhiUsers = null;
   }
 
   private void fullyRemovePhiUser(Phi user) {
-    phiUsers.removeIf(u -> u == user);
-    uniquePhiUsers = null;
+    phiUsers.removeAll(user);
   }
 
   public boolean isUninitializedLocal() {
@@ -549,9 +536,7 @@ public class Value implements Comparable<Value> {
 
   public void clearUsersInfo() {
     users = null;
-    uniqueUsers = null;
     phiUsers = null;
-    uniquePhiUsers = null;
     if (debugData != null) {
       debugData.users = null;
     }
@@ -569,12 +554,12 @@ public class Value implements Comparable<Value> {
   }
 
   public void forEachAffectedValue(Consumer<Value> consumer) {
-    for (Instruction user : uniqueUsers()) {
+    for (Instruction user : users) {
       if (user.hasOutValue()) {
         consumer.accept(user.outValue());
       }
     }
-    uniquePhiUsers().forEach(consumer::accept);
+    phiUsers.forEach(consumer);
   }
 
   public void replaceUsers(Value newValue) {
@@ -708,7 +693,7 @@ public class Value implements Comparable<Value> {
     if (numberOfPhiUsers() > 0) {
       return true;
     }
-    for (Instruction user : uniqueUsers()) {
+    for (Instruction user : users) {
       if (user.needsValueInRegister(this)) {
         return true;
       }
@@ -717,7 +702,7 @@ public class Value implements Comparable<Value> {
   }
 
   public boolean hasRegisterConstraint() {
-    for (Instruction instruction : uniqueUsers()) {
+    for (Instruction instruction : users) {
       if (instruction.maxInValueRegister() != Constants.U16BIT_MAX) {
         return true;
       }
@@ -986,7 +971,7 @@ public class Value implements Comparable<Value> {
     // This is a candidate for a dead value. Guard against looping by adding it to the set of
     // currently active values.
     active.add(this);
-    for (Instruction instruction : uniqueUsers()) {
+    for (Instruction instruction : users) {
       if (ignoreUser.test(instruction)) {
         continue;
       }
@@ -1009,7 +994,7 @@ public class Value implements Comparable<Value> {
         return false;
       }
     }
-    for (Phi phi : uniquePhiUsers()) {
+    for (Phi phi : phiUsers) {
       if (!active.contains(phi) && !phi.isDead(appView, code, ignoreUser, active)) {
         return false;
       }
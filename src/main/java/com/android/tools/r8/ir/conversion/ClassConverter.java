@@ -13,6 +13,7 @@ import com.android.tools.r8.ir.desugar.CfClassDesugaringEventConsumer;
 import com.android.tools.r8.ir.desugar.CfClassDesugaringEventConsumer.D8CfClassDesugaringEventConsumer;
 import com.android.tools.r8.ir.desugar.CfInstructionDesugaringEventConsumer;
 import com.android.tools.r8.ir.desugar.CfInstructionDesugaringEventConsumer.D8CfInstructionDesugaringEventConsumer;
+import com.android.tools.r8.utils.IntBox;
 import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
@@ -77,8 +78,11 @@ public abstract class ClassConverter {
 
       // Process the wave and wait for all IR processing to complete.
       methodProcessor.newWave();
-      ThreadUtils.processItems(
-          wave, clazz -> convertClass(clazz, instructionDesugaringEventConsumer), executorService);
+      ThreadUtils.processItemsLargestFirst(
+          wave,
+          ClassConverter::estimatedSizeForScheduling,
+          clazz -> convertClass(clazz, instructionDesugaringEventConsumer),
+          executorService);
       methodProcessor.awaitMethodProcessing();
 
       // Finalize the desugaring of the processed classes. This may require processing (and
@@ -91,8 +95,9 @@ public abstract class ClassConverter {
 
         // Process the methods that require reprocessing. These are all simple bridge methods and
         // should therefore not lead to additional desugaring.
-        ThreadUtils.processItems(
+        ThreadUtils.processItemsLargestFirst(
             needsProcessing,
+            method -> method.getDefinition().estimatedSizeForScheduling(),
             method -> {
               DexEncodedMethod definition = method.getDefinition();
               if (definition.isProcessed()) {
@@ -111,6 +116,12 @@ public abstract class ClassConverter {
     }
   }
 
+  private static int estimatedSizeForScheduling(DexProgramClass clazz) {
+    IntBox size = new IntBox();
+    clazz.forEachMethod(method -> size.increment(method.estimatedSizeForScheduling()));
+    return size.get();
+  }
+
   abstract void convertClass(
       DexProgramClass clazz, D8CfInstructionDesugaringEventConsumer desugaringEventConsumer);
 
@@ -11,10 +11,12 @@ import com.android.tools.r8.graph.ProgramMethod;
 import com.android.tools.r8.ir.desugar.CfInstructionDesugaringEventConsumer;
 import com.android.tools.r8.ir.desugar.CfInstructionDesugaringEventConsumer.D8CfInstructionDesugaringEventConsumer;
 import com.android.tools.r8.ir.optimize.info.OptimizationFeedbackIgnore;
+import com.android.tools.r8.utils.ListUtils;
 import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
@@ -110,7 +112,13 @@ public class D8MethodProcessor extends MethodProcessor {
   }
 
   public D8MethodProcessor scheduleDesugaredMethodsForProcessing(Iterable<ProgramMethod> methods) {
-    methods.forEach(this::scheduleDesugaredMethodForProcessing);
+    // Schedule the largest methods first, such that they do not delay the end of the processing.
+    List<ProgramMethod> sortedMethods = ListUtils.newArrayList(methods::forEach);
+    sortedMethods.sort(
+        Comparator.comparingInt(
+                (ProgramMethod method) -> method.getDefinition().estimatedSizeForScheduling())
+            .reversed());
+    sortedMethods.forEach(this::scheduleDesugaredMethodForProcessing);
     return this;
   }
 
@@ -0,0 +1,398 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.conversion;
+
+import com.android.tools.r8.errors.Unreachable;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.ProgramMethod;
+import com.android.tools.r8.ir.conversion.CallGraph.Node;
+import com.android.tools.r8.utils.Timing;
+import com.android.tools.r8.utils.collections.SortedProgramMethodSet;
+import it.unimi.dsi.fastutil.ints.Int2BooleanMap;
+import it.unimi.dsi.fastutil.ints.Int2BooleanOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Processes the methods of a call graph such that each method is processed as soon as the methods
+ * it depends on, i.e., its callees and the writers of the fields it reads, have been processed.
+ * Unlike waves, this does not wait for unrelated methods, so a single slow method only delays the
+ * methods that depend on it.
+ *
+ * <p>To keep the optimization decisions deterministic, a method being processed only considers the
+ * methods that it transitively depends on as processed, and only sees their optimization info. All
+ * other methods are considered to be processed concurrently, even if they have already been
+ * processed.
+ */
+class DependencyDrivenMethodScheduler {
+
+  interface MethodAction {
+
+    Timing apply(ProgramMethod method) throws Exception;
+  }
+
+  // The methods of the call graph, in the deterministic order of the call graph nodes.
+  private final ProgramMethod[] methods;
+  private final Reference2IntMap<DexEncodedMethod> indices;
+  private final int[][] dependencies;
+  private final int[][] dependents;
+  // The length of the longest dependency chain from each method to a method without dependencies.
+  private final int[] levels;
+
+  // The method processed by the current thread.
+  private final ThreadLocal<Task> currentTask = new ThreadLocal<>();
+
+  private volatile boolean running = false;
+
+  private DependencyDrivenMethodScheduler(
+      ProgramMethod[] methods,
+      Reference2IntMap<DexEncodedMethod> indices,
+      int[][] dependencies,
+      int[][] dependents,
+      int[] levels) {
+    this.methods = methods;
+    this.indices = indices;
+    this.dependencies = dependencies;
+    this.dependents = dependents;
+    this.levels = levels;
+  }
+
+  /**
+   * Returns a scheduler for the methods of {@code callGraph}, or null if the dependencies of the
+   * methods have a cycle, in which case the methods must be processed in waves.
+   */
+  static DependencyDrivenMethodScheduler create(CallGraph callGraph) {
+    Set<Node> nodes = callGraph.nodes;
+    ProgramMethod[] methods = new ProgramMethod[nodes.size()];
+    Reference2IntMap<DexEncodedMethod> indices = new Reference2IntOpenHashMap<>(nodes.size());
+    indices.defaultReturnValue(-1);
+    int index = 0;
+    for (Node node : nodes) {
+      methods[index] = node.getProgramMethod();
+      indices.put(node.getMethod(), index);
+      index++;
+    }
+    int[][] dependencies = new int[methods.length][];
+    int[][] dependents = new int[methods.length][];
+    index = 0;
+    for (Node node : nodes) {
+      dependencies[index] =
+          toIndices(
+              node.getCalleesWithDeterministicOrder(),
+              node.getWritersWithDeterministicOrder(),
+              indices);
+      dependents[index] =
+          toIndices(
+              node.getCallersWithDeterministicOrder(),
+              node.getReadersWithDeterministicOrder(),
+              indices);
+      index++;
+    }
+    return create(methods, indices, dependencies, dependents);
+  }
+
+  static DependencyDrivenMethodScheduler createForTesting(
+      ProgramMethod[] methods, int[][] dependencies) {
+    Reference2IntMap<DexEncodedMethod> indices = new Reference2IntOpenHashMap<>(methods.length);
+    indices.defaultReturnValue(-1);
+    List<IntArrayList> dependentLists = new ArrayList<>(methods.length);
+    for (int i = 0; i < methods.length; i++) {
+      indices.put(methods[i].getDefinition(), i);
+      dependentLists.add(new IntArrayList());
+    }
+    for (int i = 0; i < methods.length; i++) {
+      for (int dependency : dependencies[i]) {
+        dependentLists.get(dependency).add(i);
+      }
+    }
+    int[][] dependents = new int[methods.length][];
+    for (int i = 0; i < methods.length; i++) {
+      dependents[i] = dependentLists.get(i).toIntArray();
+    }
+    return create(methods, indices, dependencies, dependents);
+  }
+
+  private static DependencyDrivenMethodScheduler create(
+      ProgramMethod[] methods,
+      Reference2IntMap<DexEncodedMethod> indices,
+      int[][] dependencies,
+      int[][] dependents) {
+    int[] levels = computeLevels(dependencies, dependents);
+    if (levels == null) {
+      return null;
+    }
+    return new DependencyDrivenMethodScheduler(methods, indices, dependencies, dependents, levels);
+  }
+
+  private static int[] toIndices(
+      Set<Node> first, Set<Node> second, Reference2IntMap<DexEncodedMethod> indices) {
+    int[] result = new int[first.size() + second.size()];
+    int size = 0;
+    for (Node node : first) {
+      result[size++] = indices.getInt(node.getMethod());
+    }
+    for (Node node : second) {
+      // The call graph does not have a field read edge if there is a call edge.
+      result[size++] = indices.getInt(node.getMethod());
+    }
+    assert Arrays.stream(result).allMatch(i -> i >= 0);
+    return result;
+  }
+
+  // Returns the level of each method, or null if the dependencies have a cycle.
+  private static int[] computeLevels(int[][] dependencies, int[][] dependents) {
+    int[] levels = new int[dependencies.length];
+    int[] pending = new int[dependencies.length];
+    IntArrayList worklist = new IntArrayList();
+    for (int i = 0; i < dependencies.length; i++) {
+      pending[i] = dependencies[i].length;
+      if (pending[i] == 0) {
+        worklist.add(i);
+      }
+    }
+    int processed = 0;
+    while (!worklist.isEmpty()) {
+      int index = worklist.removeInt(worklist.size() - 1);
+      processed++;
+      for (int dependent : dependents[index]) {
+        levels[dependent] = Math.max(levels[dependent], levels[index] + 1);
+        if (--pending[dependent] == 0) {
+          worklist.add(dependent);
+        }
+      }
+    }
+    // The methods on a cycle never have all their dependencies processed.
+    return processed == dependencies.length ? levels : null;
+  }
+
+  SortedProgramMethodSet getMethods() {
+    SortedProgramMethodSet result = SortedProgramMethodSet.create();
+    for (ProgramMethod method : methods) {
+      result.add(method);
+    }
+    return result;
+  }
+
+  void forEachMethod(Consumer<ProgramMethod> consumer) {
+    for (ProgramMethod method : methods) {
+      consumer.accept(method);
+    }
+  }
+
+  boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Returns true if the given method may be processed concurrently with the method processed by
+   * the current thread, i.e., if it is not a transitive dependency of the current method.
+   */
+  boolean mayBeProcessedConcurrently(ProgramMethod method) {
+    int index = indices.getInt(method.getDefinition());
+    if (index < 0) {
+      // Not part of the call graph.
+      return false;
+    }
+    Task task = currentTask.get();
+    if (task == null) {
+      return true;
+    }
+    return index == task.index || !task.isTransitiveDependency(index);
+  }
+
+  /**
+   * Returns a condition that holds on a thread if the method processed by the thread transitively
+   * depends on the given method. The result of processing the given method must only be visible to
+   * such methods for the processing to be deterministic.
+   */
+  BooleanSupplier getDependentsCondition(ProgramMethod method) {
+    int index = indices.getInt(method.getDefinition());
+    assert index >= 0;
+    return () -> {
+      Task task = currentTask.get();
+      return task != null && task.isTransitiveDependency(index);
+    };
+  }
+
+  /**
+   * Applies {@code action} to each method once its dependencies have been processed, and calls
+   * {@code onMethodDone} on the processing thread when the action for a method has completed. The
+   * methods that depend on a method are only scheduled once {@code onMethodDone} has returned for
+   * the method.
+   */
+  List<Timing> processMethods(
+      MethodAction action, Consumer<ProgramMethod> onMethodDone, ExecutorService executorService)
+      throws ExecutionException {
+    Execution execution = new Execution(action, onMethodDone, executorService);
+    running = true;
+    try {
+      return execution.run();
+    } finally {
+      running = false;
+    }
+  }
+
+  private class Task implements Runnable {
+
+    private final Execution execution;
+    private final int index;
+    private Int2BooleanMap transitiveDependencyCache;
+
+    Task(Execution execution, int index) {
+      this.execution = execution;
+      this.index = index;
+    }
+
+    @Override
+    public void run() {
+      execution.run(this);
+    }
+
+    boolean isTransitiveDependency(int candidate) {
+      int candidateLevel = levels[candidate];
+      if (candidateLevel >= levels[index]) {
+        return false;
+      }
+      if (transitiveDependencyCache == null) {
+        transitiveDependencyCache = new Int2BooleanOpenHashMap();
+      } else if (transitiveDependencyCache.containsKey(candidate)) {
+        return transitiveDependencyCache.get(candidate);
+      }
+      // The levels strictly decrease along dependency edges, so only the methods with a higher
+      // level than the candidate can have the candidate as a transitive dependency.
+      IntSet visited = new IntOpenHashSet();
+      IntArrayList worklist = IntArrayList.wrap(new int[] {index});
+      boolean result = false;
+      while (!result && !worklist.isEmpty()) {
+        int current = worklist.removeInt(worklist.size() - 1);
+        for (int dependency : dependencies[current]) {
+          if (dependency == candidate) {
+            result = true;
+            break;
+          }
+          if (levels[dependency] > candidateLevel && visited.add(dependency)) {
+            worklist.add(dependency);
+          }
+        }
+      }
+      transitiveDependencyCache.put(candidate, result);
+      return result;
+    }
+  }
+
+  private class Execution {
+
+    private final MethodAction action;
+    private final Consumer<ProgramMethod> onMethodDone;
+    private final ExecutorService executorService;
+
+    private final AtomicIntegerArray pendingDependencies;
+    private final Timing[] timings = new Timing[methods.length];
+    private final AtomicInteger tasksInFlight = new AtomicInteger();
+    private final AtomicInteger tasksCompleted = new AtomicInteger();
+    private volatile Throwable failure = null;
+
+    Execution(
+        MethodAction action,
+        Consumer<ProgramMethod> onMethodDone,
+        ExecutorService executorService) {
+      this.action = action;
+      this.onMethodDone = onMethodDone;
+      this.executorService = executorService;
+      this.pendingDependencies = new AtomicIntegerArray(methods.length);
+    }
+
+    List<Timing> run() throws ExecutionException {
+      for (int i = 0; i < methods.length; i++) {
+        pendingDependencies.set(i, dependencies[i].length);
+      }
+      for (int i = 0; i < methods.length; i++) {
+        if (dependencies[i].length == 0) {
+          schedule(i);
+        }
+      }
+      synchronized (this) {
+        while (tasksInFlight.get() > 0) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while waiting for method processing.", e);
+          }
+        }
+      }
+      if (failure != null) {
+        throw new ExecutionException(failure);
+      }
+      if (tasksCompleted.get() != methods.length) {
+        throw new Unreachable(
+            "Processed " + tasksCompleted.get() + " of " + methods.length + " methods");
+      }
+      List<Timing> result = new ArrayList<>(methods.length);
+      for (Timing timing : timings) {
+        result.add(timing);
+      }
+      return result;
+    }
+
+    private void schedule(int index) {
+      tasksInFlight.incrementAndGet();
+      try {
+        executorService.execute(new Task(this, index));
+      } catch (Throwable e) {
+        failure = e;
+        taskFinished();
+      }
+    }
+
+    void run(Task task) {
+      try {
+        if (failure != null) {
+          return;
+        }
+        Task previousTask = currentTask.get();
+        currentTask.set(task);
+        try {
+          ProgramMethod method = methods[task.index];
+          timings[task.index] = action.apply(method);
+          onMethodDone.accept(method);
+        } finally {
+          currentTask.set(previousTask);
+        }
+        tasksCompleted.incrementAndGet();
+        for (int dependent : dependents[task.index]) {
+          if (pendingDependencies.decrementAndGet(dependent) == 0) {
+            schedule(dependent);
+          }
+        }
+      } catch (Throwable e) {
+        failure = e;
+      } finally {
+        taskFinished();
+      }
+    }
+
+    private void taskFinished() {
+      // Dependents are scheduled before the task finishes, so the number of tasks in flight only
+      // reaches zero when all methods have been processed or processing has failed.
+      if (tasksInFlight.decrementAndGet() == 0) {
+        synchronized (this) {
+          notifyAll();
+        }
+      }
+    }
+  }
+}
@@ -114,6 +114,7 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -688,6 +689,7 @@ public class IRConverter {
                   method, feedback, primaryMethodProcessor, methodProcessingContext),
           this::waveStart,
           this::waveDone,
+          this::methodDone,
           timing,
           executorService);
       timing.end();
@@ -876,6 +878,12 @@ public class IRConverter {
     onWaveDoneActions = null;
   }
 
+  private void methodDone(ProgramMethod method, BooleanSupplier isDependent) {
+    // Only called when methods are processed as soon as their dependencies have been processed.
+    // Make the optimization info of the method visible to the methods that depend on it.
+    delayedOptimizationFeedback.deferOptimizationInfo(method, isDependent);
+  }
+
   public void addWaveDoneAction(com.android.tools.r8.utils.Action action) {
     if (!appView.enableWholeProgramOptimizations()) {
       throw new Unreachable("addWaveDoneAction() should never be used in D8.");
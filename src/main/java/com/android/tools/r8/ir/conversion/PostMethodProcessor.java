@@ -175,8 +175,9 @@ public class PostMethodProcessor extends MethodProcessorWithWave {
       assert !wave.isEmpty();
       assert waveExtension.isEmpty();
       do {
-        ThreadUtils.processItems(
+        ThreadUtils.processItemsLargestFirst(
             wave,
+            method -> method.getDefinition().estimatedSizeForScheduling(),
             method -> {
               Collection<CodeOptimization> codeOptimizations =
                   methodsMap.get(method.getReference());
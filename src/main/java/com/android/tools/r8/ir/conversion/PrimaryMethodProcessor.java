@@ -17,12 +17,15 @@ import com.android.tools.r8.utils.Timing;
 import com.android.tools.r8.utils.Timing.TimingMerger;
 import com.android.tools.r8.utils.collections.ProgramMethodSet;
 import com.android.tools.r8.utils.collections.SortedProgramMethodSet;
+import com.android.tools.r8.utils.metrics.CompilerMetrics;
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
 /**
@@ -40,6 +43,9 @@ class PrimaryMethodProcessor extends MethodProcessorWithWave {
   private final CallSiteInformation callSiteInformation;
   private final PostMethodProcessor.Builder postMethodProcessorBuilder;
   private final Deque<SortedProgramMethodSet> waves;
+  // Non-null if the methods are processed as soon as their dependencies have been processed
+  // instead of in waves.
+  private final DependencyDrivenMethodScheduler scheduler;
 
   private PrimaryMethodProcessor(
       AppView<AppInfoWithLiveness> appView,
@@ -48,7 +54,22 @@ class PrimaryMethodProcessor extends MethodProcessorWithWave {
     this.appView = appView;
     this.callSiteInformation = callGraph.createCallSiteInformation(appView);
     this.postMethodProcessorBuilder = postMethodProcessorBuilder;
-    this.waves = createWaves(appView, callGraph, callSiteInformation);
+    // The scheduler requires the dependencies to be acyclic. Otherwise, fall back to waves.
+    this.scheduler =
+        appView.options().enableDependencyDrivenMethodProcessing
+            ? DependencyDrivenMethodScheduler.create(callGraph)
+            : null;
+    if (scheduler != null) {
+      this.waves = new ArrayDeque<>();
+      ProgramMethodSet reprocessing = ProgramMethodSet.create();
+      scheduler.forEachMethod(
+          method -> addRemovedCallersForReprocessing(method, callGraph, reprocessing));
+      if (!reprocessing.isEmpty()) {
+        postMethodProcessorBuilder.put(reprocessing);
+      }
+    } else {
+      this.waves = createWaves(appView, callGraph, callSiteInformation);
+    }
   }
 
   static PrimaryMethodProcessor create(
@@ -72,6 +93,14 @@ class PrimaryMethodProcessor extends MethodProcessorWithWave {
     return !method.getDefinition().isProcessed();
   }
 
+  @Override
+  public boolean isProcessedConcurrently(ProgramMethod method) {
+    if (scheduler != null && scheduler.isRunning()) {
+      return scheduler.mayBeProcessedConcurrently(method);
+    }
+    return super.isProcessedConcurrently(method);
+  }
+
   @Override
   public CallSiteInformation getCallSiteInformation() {
     return callSiteInformation;
@@ -86,12 +115,7 @@ class PrimaryMethodProcessor extends MethodProcessorWithWave {
     int waveCount = 1;
     while (!nodes.isEmpty()) {
       SortedProgramMethodSet wave = callGraph.extractLeaves();
-      wave.forEach(
-          method -> {
-            if (callSiteInformation.hasSingleCallSite(method) && options.enableInlining) {
-              callGraph.cycleEliminationResult.forEachRemovedCaller(method, reprocessing::add);
-            }
-          });
+      wave.forEach(method -> addRemovedCallersForReprocessing(method, callGraph, reprocessing));
       waves.addLast(wave);
       if (Log.ENABLED && Log.isLoggingEnabledFor(PrimaryMethodProcessor.class)) {
         Log.info(getClass(), "Wave #%d: %d", waveCount++, wave.size());
@@ -104,6 +128,13 @@ class PrimaryMethodProcessor extends MethodProcessorWithWave {
     return waves;
   }
 
+  private void addRemovedCallersForReprocessing(
+      ProgramMethod method, CallGraph callGraph, ProgramMethodSet reprocessing) {
+    if (callSiteInformation.hasSingleCallSite(method) && appView.options().enableInlining) {
+      callGraph.cycleEliminationResult.forEachRemovedCaller(method, reprocessing::add);
+    }
+  }
+
   @FunctionalInterface
   public interface MethodAction<E extends Exception> {
     Timing apply(ProgramMethod method, MethodProcessingContext methodProcessingContext) throws E;
@@ -119,21 +150,32 @@ class PrimaryMethodProcessor extends MethodProcessorWithWave {
       MethodAction<E> consumer,
       WaveStartAction waveStartAction,
       Consumer<ProgramMethodSet> waveDone,
+      BiConsumer<ProgramMethod, BooleanSupplier> methodDone,
       Timing timing,
       ExecutorService executorService)
       throws ExecutionException {
-    TimingMerger merger =
-        timing.beginMerger("primary-processor", ThreadUtils.getNumberOfThreads(executorService));
+    int numberOfThreads = ThreadUtils.getNumberOfThreads(executorService);
+    TimingMerger merger = timing.beginMerger("primary-processor", numberOfThreads);
+    CompilerMetrics metrics = appView.options().getMetrics();
+    if (scheduler != null) {
+      forEachMethodDependencyDriven(
+          consumer, waveStartAction, waveDone, methodDone, merger, executorService);
+    }
     while (!waves.isEmpty()) {
       ProcessorContext processorContext = appView.createProcessorContext();
       wave = waves.removeFirst();
       assert !wave.isEmpty();
       assert waveExtension.isEmpty();
       do {
+        CompilerMetrics.Scope waveScope =
+            metrics
+                .beginParallel(CompilerMetrics.CATEGORY_WAVE, "wave", numberOfThreads)
+                .setCount(wave.size());
         waveStartAction.notifyWaveStart(wave);
         Collection<Timing> timings =
-            ThreadUtils.processItemsWithResults(
+            ThreadUtils.processItemsWithResultsLargestFirst(
                 wave,
+                method -> method.getDefinition().estimatedSizeForScheduling(),
                 method -> {
                   Timing time =
                       consumer.apply(
@@ -144,9 +186,66 @@ class PrimaryMethodProcessor extends MethodProcessorWithWave {
                 executorService);
         merger.add(timings);
         waveDone.accept(wave);
+        waveScope.end();
         prepareForWaveExtensionProcessing();
       } while (!wave.isEmpty());
     }
     merger.end();
   }
+
+  /**
+   * Processes all methods of the call graph as a single wave in which each method is processed as
+   * soon as its dependencies have been processed. When a method has been processed, {@code
+   * methodDone} makes its optimization info visible to the methods that depend on it, given the
+   * condition under which a thread processes such a method. The optimization info is committed for
+   * all methods at the end, where {@code waveDone} also applies the refinements that are normally
+   * applied at the end of each wave. The methods scheduled for processing during the wave are
+   * processed afterwards in waves.
+   */
+  private <E extends Exception> void forEachMethodDependencyDriven(
+      MethodAction<E> consumer,
+      WaveStartAction waveStartAction,
+      Consumer<ProgramMethodSet> waveDone,
+      BiConsumer<ProgramMethod, BooleanSupplier> methodDone,
+      TimingMerger merger,
+      ExecutorService executorService)
+      throws ExecutionException {
+    ProcessorContext processorContext = appView.createProcessorContext();
+    SortedProgramMethodSet methods = scheduler.getMethods();
+    CompilerMetrics.Scope scope =
+        appView
+            .options()
+            .getMetrics()
+            .beginParallel(
+                CompilerMetrics.CATEGORY_WAVE,
+                "dependency-driven",
+                ThreadUtils.getNumberOfThreads(executorService))
+            .setCount(methods.size());
+    // The methods are tracked by the scheduler instead of the wave.
+    wave = SortedProgramMethodSet.empty();
+    waveStartAction.notifyWaveStart(methods);
+    Collection<Timing> timings =
+        scheduler.processMethods(
+            method -> {
+              Timing time =
+                  consumer.apply(method, processorContext.createMethodProcessingContext(method));
+              time.end();
+              return time;
+            },
+            method -> methodDone.accept(method, scheduler.getDependentsCondition(method)),
+            executorService);
+    scheduler.forEachMethod(
+        method -> {
+          if (!method.getDefinition().isObsolete()) {
+            method.getDefinition().commitDeferredOptimizationInfo();
+          }
+        });
+    merger.add(timings);
+    waveDone.accept(methods);
+    scope.end();
+    if (!waveExtension.isEmpty()) {
+      waves.addLast(waveExtension);
+      waveExtension = SortedProgramMethodSet.createConcurrent();
+    }
+  }
 }
@@ -668,7 +668,7 @@ public class AssumeInserter {
       if (value.hasPhiUsers()) {
         return true;
       }
-      for (Instruction user : value.uniqueUsers()) {
+      for (Instruction user : value.users()) {
         if (user != ignore) {
           return true;
         }
@@ -66,6 +66,7 @@ import com.android.tools.r8.utils.ListUtils;
 import com.android.tools.r8.utils.SetUtils;
 import com.android.tools.r8.utils.Timing;
 import com.android.tools.r8.utils.collections.ProgramMethodSet;
+import com.android.tools.r8.utils.metrics.CompilerMetrics;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
@@ -952,6 +953,7 @@ public class Inliner implements PostOptimization {
         new ClassInitializationAnalysis(appView, code);
     Deque<BasicBlock> inlineeStack = new ArrayDeque<>();
     InternalOptions options = appView.options();
+    CompilerMetrics metrics = options.getMetrics();
     while (blockIterator.hasNext()) {
       BasicBlock block = blockIterator.next();
       if (!inlineeStack.isEmpty() && inlineeStack.peekFirst() == block) {
@@ -986,6 +988,7 @@ public class Inliner implements PostOptimization {
           ProgramMethod singleTarget = oracle.lookupSingleTarget(invoke, context);
           if (singleTarget == null) {
             WhyAreYouNotInliningReporter.handleInvokeWithUnknownTarget(invoke, appView, context);
+            metrics.event(CompilerMetrics.CATEGORY_INLINER, "not inlined: unknown target");
             continue;
           }
 
@@ -1004,6 +1007,7 @@ public class Inliner implements PostOptimization {
                   whyAreYouNotInliningReporter);
           if (action == null) {
             assert whyAreYouNotInliningReporter.unsetReasonHasBeenReportedFlag();
+            metrics.event(CompilerMetrics.CATEGORY_INLINER, "not inlined: rejected by oracle");
             continue;
           }
 
@@ -1013,6 +1017,7 @@ public class Inliner implements PostOptimization {
             if (downcastClass == null
                 || AccessControl.isClassAccessible(downcastClass, context, appView)
                     .isPossiblyFalse()) {
+              metrics.event(CompilerMetrics.CATEGORY_INLINER, "not inlined: inaccessible downcast");
               continue;
             }
           }
@@ -1021,11 +1026,13 @@ public class Inliner implements PostOptimization {
               && !strategy.allowInliningOfInvokeInInlinee(
                   action, inlineeStack.size(), whyAreYouNotInliningReporter)) {
             assert whyAreYouNotInliningReporter.unsetReasonHasBeenReportedFlag();
+            metrics.event(CompilerMetrics.CATEGORY_INLINER, "not inlined: inlinee depth");
             continue;
           }
 
           if (!strategy.stillHasBudget(action, whyAreYouNotInliningReporter)) {
             assert whyAreYouNotInliningReporter.unsetReasonHasBeenReportedFlag();
+            metrics.event(CompilerMetrics.CATEGORY_INLINER, "not inlined: budget");
             continue;
           }
 
@@ -1035,6 +1042,7 @@ public class Inliner implements PostOptimization {
           if (strategy.willExceedBudget(
               code, invoke, inlinee, block, whyAreYouNotInliningReporter)) {
             assert whyAreYouNotInliningReporter.unsetReasonHasBeenReportedFlag();
+            metrics.event(CompilerMetrics.CATEGORY_INLINER, "not inlined: budget");
             continue;
           }
 
@@ -1048,6 +1056,7 @@ public class Inliner implements PostOptimization {
               && !strategy.canInlineInstanceInitializer(
                   code, inlinee.code, invoke.asInvokeDirect(), whyAreYouNotInliningReporter)) {
             assert whyAreYouNotInliningReporter.unsetReasonHasBeenReportedFlag();
+            metrics.event(CompilerMetrics.CATEGORY_INLINER, "not inlined: instance initializer");
             continue;
           }
 
@@ -1069,6 +1078,9 @@ public class Inliner implements PostOptimization {
           if (inlinee.reason == Reason.SINGLE_CALLER) {
             feedback.markInlinedIntoSingleCallSite(singleTargetMethod);
           }
+          if (metrics.isEnabled()) {
+            metrics.event(CompilerMetrics.CATEGORY_INLINER, "inlined: " + inlinee.reason);
+          }
 
           classInitializationAnalysis.notifyCodeHasChanged();
           postProcessInlineeBlocks(code, inlinee.code, blockIterator, block, timing);
@@ -524,21 +524,21 @@ final class InlineCandidateProcessor {
     Set<Value> aliases = SetUtils.newIdentityHashSet(eligibleInstance);
     Set<Phi> expectedDeadOrTrivialPhis = Sets.newIdentityHashSet();
     WorkList<InstructionOrPhi> worklist = WorkList.newIdentityWorkList();
-    eligibleInstance.uniqueUsers().forEach(worklist::addIfNotSeen);
-    eligibleInstance.uniquePhiUsers().forEach(worklist::addIfNotSeen);
+    eligibleInstance.users().forEach(worklist::addIfNotSeen);
+    eligibleInstance.phiUsers().forEach(worklist::addIfNotSeen);
     while (worklist.hasNext()) {
       InstructionOrPhi instructionOrPhi = worklist.next();
       if (instructionOrPhi.isPhi()) {
         Phi phi = instructionOrPhi.asPhi();
         expectedDeadOrTrivialPhis.add(phi);
-        phi.uniqueUsers().forEach(worklist::addIfNotSeen);
-        phi.uniquePhiUsers().forEach(worklist::addIfNotSeen);
+        phi.users().forEach(worklist::addIfNotSeen);
+        phi.phiUsers().forEach(worklist::addIfNotSeen);
       } else {
         Instruction instruction = instructionOrPhi.asInstruction();
         if (aliasesThroughAssumeAndCheckCasts.isIntroducingAnAlias(instruction)) {
           aliases.add(instruction.outValue());
-          instruction.outValue().uniqueUsers().forEach(worklist::addIfNotSeen);
-          instruction.outValue().uniquePhiUsers().forEach(worklist::addIfNotSeen);
+          instruction.outValue().users().forEach(worklist::addIfNotSeen);
+          instruction.outValue().phiUsers().forEach(worklist::addIfNotSeen);
         }
       }
     }
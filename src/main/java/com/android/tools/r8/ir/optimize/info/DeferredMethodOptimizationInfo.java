@@ -0,0 +1,54 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir.optimize.info;
+
+import com.android.tools.r8.graph.DexEncodedMethod.CompilationState;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The optimization info and compilation state of a method that has been processed, but which are
+ * not yet visible to all methods. Until they are committed, they are only visible to the methods
+ * for which {@code visibility} holds on the thread that reads them, and the other methods continue
+ * to see the previous optimization info and compilation state of the method.
+ */
+public class DeferredMethodOptimizationInfo {
+
+  private final UpdatableMethodOptimizationInfo info;
+  private final CompilationState compilationState;
+  private final BooleanSupplier visibility;
+
+  public DeferredMethodOptimizationInfo(
+      UpdatableMethodOptimizationInfo info,
+      CompilationState compilationState,
+      BooleanSupplier visibility) {
+    assert info != null || compilationState != null;
+    this.info = info;
+    this.compilationState = compilationState;
+    this.visibility = visibility;
+  }
+
+  public boolean hasInfo() {
+    return info != null;
+  }
+
+  public UpdatableMethodOptimizationInfo getInfo() {
+    assert hasInfo();
+    return info;
+  }
+
+  public boolean hasCompilationState() {
+    return compilationState != null;
+  }
+
+  public CompilationState getCompilationState() {
+    assert hasCompilationState();
+    return compilationState;
+  }
+
+  /** Returns true if the info is visible to the method processed by the current thread. */
+  public boolean isVisible() {
+    return visibility.getAsBoolean();
+  }
+}
@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
 public class OptimizationFeedbackDelayed extends OptimizationFeedback {
@@ -57,7 +58,7 @@ public class OptimizationFeedbackDelayed extends OptimizationFeedback {
     if (info != null) {
       return info;
     }
-    info = method.getOptimizationInfo().mutableCopy();
+    info = method.getLatestOptimizationInfo().mutableCopy();
     methodOptimizationInfos.put(method, info);
     return info;
   }
@@ -105,6 +106,25 @@ public class OptimizationFeedbackDelayed extends OptimizationFeedback {
     processed.clear();
   }
 
+  /**
+   * Defers the updated optimization info and the processed state of the given method, which then
+   * only become visible to the methods for which {@code visibility} holds until they are committed
+   * by {@link DexEncodedMethod#commitDeferredOptimizationInfo()}.
+   */
+  public synchronized void deferOptimizationInfo(
+      ProgramMethod method, BooleanSupplier visibility) {
+    DexEncodedMethod definition = method.getDefinition();
+    UpdatableMethodOptimizationInfo info = methodOptimizationInfos.remove(definition);
+    ConstraintWithTarget state = processed.remove(definition);
+    if (info != null || state != null) {
+      definition.setDeferredOptimizationInfo(
+          new DeferredMethodOptimizationInfo(
+              info,
+              state != null ? DexEncodedMethod.getProcessedCompilationState(state) : null,
+              visibility));
+    }
+  }
+
   public boolean noUpdatesLeft() {
     assert appInfoWithLivenessModifier.isEmpty();
     assert fieldOptimizationInfos.isEmpty()
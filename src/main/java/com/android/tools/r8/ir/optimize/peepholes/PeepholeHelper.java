@@ -57,19 +57,21 @@ public class PeepholeHelper {
   public static void moveInstructionsUpToCurrentPosition(
       InstructionListIterator it, List<Instruction> instructions) {
     assert !instructions.isEmpty();
+    // An instruction can only be linked into one instruction list, so unlink the instructions from
+    // their current position before adding them at the position of the iterator. The instructions
+    // keep their in-values and out-values, so their users are unchanged.
+    int distance = 0;
     for (Instruction instruction : instructions) {
-      for (Value inValue : instruction.inValues()) {
-        inValue.addUser(instruction);
+      while (it.next() != instruction) {
+        distance++;
       }
-      it.add(instruction);
+      it.removeInstructionIgnoreOutValue();
+    }
+    for (int i = 0; i < distance; i++) {
+      it.previous();
     }
-    Instruction current = it.nextUntil(i -> i == instructions.get(0));
-    for (int i = 0; i < instructions.size(); i++) {
-      assert current == instructions.get(i);
-      it.removeOrReplaceByDebugLocalRead();
-      current = it.next();
+    for (Instruction instruction : instructions) {
+      it.add(instruction);
     }
-    it.previousUntil(i -> i == instructions.get(instructions.size() - 1));
-    it.next();
   }
 }
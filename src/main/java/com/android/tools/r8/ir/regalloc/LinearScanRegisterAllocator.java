@@ -56,6 +56,7 @@ import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.objects.Reference2IntArrayMap;
 import it.unimi.dsi.fastutil.objects.Reference2IntMap;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -66,7 +67,6 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 
@@ -142,16 +142,16 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   // The current register allocation mode.
   private ArgumentReuseMode mode = ArgumentReuseMode.ALLOW_ARGUMENT_REUSE_U4BIT;
   // The set of registers that are free for allocation.
-  private TreeSet<Integer> freeRegisters = new TreeSet<>();
+  private BitSet freeRegisters = new BitSet();
   // The max register number used.
   private int maxRegisterNumber = -1;
 
   // List of all top-level live intervals for all SSA values.
   private List<LiveIntervals> liveIntervals = new ArrayList<>();
   // List of active intervals.
-  private List<LiveIntervals> active = new LinkedList<>();
+  private List<LiveIntervals> active = new ArrayList<>();
   // List of intervals where the current instruction falls into one of their live range holes.
-  protected List<LiveIntervals> inactive = new LinkedList<>();
+  protected List<LiveIntervals> inactive = new ArrayList<>();
   // List of intervals that no register has been allocated to sorted by first live range.
   protected PriorityQueue<LiveIntervals> unhandled = new PriorityQueue<>();
 
@@ -931,12 +931,12 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
       }
 
       int start = unhandledInterval.getStart();
-      // Check for active intervals that expired or became inactive.
-      Iterator<LiveIntervals> activeIterator = active.iterator();
-      while (activeIterator.hasNext()) {
-        LiveIntervals activeIntervals = activeIterator.next();
+      // Check for active intervals that expired or became inactive. The remaining active intervals
+      // are compacted in place to avoid quadratic removal from the array list.
+      int activeSize = 0;
+      for (int i = 0; i < active.size(); i++) {
+        LiveIntervals activeIntervals = active.get(i);
         if (start >= activeIntervals.getEnd()) {
-          activeIterator.remove();
           freeOccupiedRegistersForIntervals(activeIntervals);
           if (start == activeIntervals.getEnd()) {
             expiredHere.add(activeIntervals.getRegister());
@@ -945,19 +945,20 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
             }
           }
         } else if (!activeIntervals.overlapsPosition(start)) {
-          activeIterator.remove();
           assert activeIntervals.getRegister() != NO_REGISTER;
           inactive.add(activeIntervals);
           freeOccupiedRegistersForIntervals(activeIntervals);
+        } else {
+          active.set(activeSize++, activeIntervals);
         }
       }
+      active.subList(activeSize, active.size()).clear();
 
       // Check for inactive intervals that expired or became reactivated.
-      Iterator<LiveIntervals> inactiveIterator = inactive.iterator();
-      while (inactiveIterator.hasNext()) {
-        LiveIntervals inactiveIntervals = inactiveIterator.next();
+      int inactiveSize = 0;
+      for (int i = 0; i < inactive.size(); i++) {
+        LiveIntervals inactiveIntervals = inactive.get(i);
         if (start >= inactiveIntervals.getEnd()) {
-          inactiveIterator.remove();
           if (start == inactiveIntervals.getEnd()) {
             expiredHere.add(inactiveIntervals.getRegister());
             if (inactiveIntervals.getType().isWide()) {
@@ -965,12 +966,14 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
             }
           }
         } else if (inactiveIntervals.overlapsPosition(start)) {
-          inactiveIterator.remove();
           assert inactiveIntervals.getRegister() != NO_REGISTER;
           active.add(inactiveIntervals);
           takeFreeRegistersForIntervals(inactiveIntervals);
+        } else {
+          inactive.set(inactiveSize++, inactiveIntervals);
         }
       }
+      inactive.subList(inactiveSize, inactive.size()).clear();
 
       // Perform the actual allocation.
       if (unhandledInterval.isLinked() && !unhandledInterval.isArgumentInterval()) {
@@ -985,16 +988,14 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   }
 
   private boolean invariantsHold(ArgumentReuseMode mode) {
-    TreeSet<Integer> computedFreeRegisters = new TreeSet<>();
-    for (int register = 0; register <= maxRegisterNumber; ++register) {
-      computedFreeRegisters.add(register);
-    }
+    BitSet computedFreeRegisters = new BitSet();
+    computedFreeRegisters.set(0, maxRegisterNumber + 1);
     for (LiveIntervals activeIntervals : active) {
       assert registersForIntervalsAreTaken(activeIntervals);
       activeIntervals.forEachRegister(
           register -> {
-            assert computedFreeRegisters.contains(register);
-            computedFreeRegisters.remove(register);
+            assert computedFreeRegisters.get(register);
+            computedFreeRegisters.clear(register);
           });
     }
     if (mode == ArgumentReuseMode.ALLOW_ARGUMENT_REUSE_U8BIT
@@ -1010,8 +1011,8 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
                 .getSplitParent()
                 .forEachRegister(
                     register -> {
-                      assert computedFreeRegisters.contains(register);
-                      computedFreeRegisters.remove(register);
+                      assert computedFreeRegisters.get(register);
+                      computedFreeRegisters.clear(register);
                     });
           }
         }
@@ -1020,8 +1021,8 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     if (hasDedicatedMoveExceptionRegister()) {
       // Relax the check, since it is not currently guaranteed that the move exception register is
       // occupied if-and-only-if there is an active live interval with the register.
-      freeRegisters.remove(getMoveExceptionRegister());
-      computedFreeRegisters.remove(getMoveExceptionRegister());
+      freeRegisters.clear(getMoveExceptionRegister());
+      computedFreeRegisters.clear(getMoveExceptionRegister());
     }
     assert freeRegisters.equals(computedFreeRegisters);
     return true;
@@ -1037,7 +1038,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
         boolean isMoveExceptionRegister =
             hasDedicatedMoveExceptionRegister() && register == getMoveExceptionRegister();
         if (!isMoveExceptionRegister) {
-          assert freeRegisters.contains(register);
+          assert freeRegisters.get(register);
         }
       }
     }
@@ -1114,9 +1115,9 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
         LiveIntervals destIntervals = dest.getLiveIntervals();
         if (destIntervals.getRegister() == NO_REGISTER) {
           // Save the current register allocation state so we can restore it at the end.
-          TreeSet<Integer> savedFreeRegisters = new TreeSet<>(freeRegisters);
+          BitSet savedFreeRegisters = (BitSet) freeRegisters.clone();
           int savedMaxRegisterNumber = maxRegisterNumber;
-          List<LiveIntervals> savedInactive = new LinkedList<>(inactive);
+          List<LiveIntervals> savedInactive = new ArrayList<>(inactive);
 
           // Add all the active intervals to the inactive set. When allocating linked intervals we
           // check all inactive intervals and exclude the registers for overlapping inactive
@@ -1156,9 +1157,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
           // Restore the register allocation state.
           freeRegisters = savedFreeRegisters;
           // In case maxRegisterNumber has changed, update freeRegisters.
-          for (int i = savedMaxRegisterNumber + 1; i <= maxRegisterNumber; i++) {
-            freeRegisters.add(i);
-          }
+          freeRegisters.set(savedMaxRegisterNumber + 1, maxRegisterNumber + 1);
 
           inactive = savedInactive;
           // Move all the argument intervals to the inactive set.
@@ -1203,7 +1202,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     // Exclude move exception register if the first interval overlaps a move exception interval.
     // It is not necessary to check the remaining consecutive intervals, since we always use
     // register 0 (after remapping) for the argument register.
-    if (overlapsMoveExceptionInterval(start) && freeRegisters.remove(getMoveExceptionRegister())) {
+    if (overlapsMoveExceptionInterval(start) && takeFreeRegister(getMoveExceptionRegister())) {
       excludedRegisters.add(getMoveExceptionRegister());
     }
     // Select registers.
@@ -1233,7 +1232,9 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     takeFreeRegistersForIntervals(unhandledInterval);
     active.add(unhandledInterval);
     // Include the registers for inactive ranges that we had to exclude for this allocation.
-    freeRegisters.addAll(excludedRegisters);
+    for (IntIterator iterator = excludedRegisters.iterator(); iterator.hasNext(); ) {
+      freeRegisters.set(iterator.nextInt());
+    }
   }
 
   // Returns true if intervals has an unhandled split, which overlaps with chain or any of its
@@ -1275,11 +1276,15 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
       return intervals.getSplitParent().getRegister();
     }
 
-    TreeSet<Integer> previousFreeRegisters = new TreeSet<>(freeRegisters);
+    BitSet previousFreeRegisters = (BitSet) freeRegisters.clone();
     int previousMaxRegisterNumber = maxRegisterNumber;
-    freeRegisters.removeAll(expiredHere);
+    for (int i = 0; i < expiredHere.size(); i++) {
+      freeRegisters.clear(expiredHere.getInt(i));
+    }
     if (excludedRegisters != null) {
-      freeRegisters.removeAll(excludedRegisters);
+      for (int i = 0; i < excludedRegisters.size(); i++) {
+        freeRegisters.clear(excludedRegisters.getInt(i));
+      }
     }
 
     // Check if we can use a register that was previously used as a register for intervals.
@@ -1311,9 +1316,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     freeRegisters = previousFreeRegisters;
     // If getFreeConsecutiveRegisters had to increment |maxRegisterNumber|, we need to update
     // freeRegisters.
-    for (int i = previousMaxRegisterNumber + 1; i <= maxRegisterNumber; ++i) {
-      freeRegisters.add(i);
-    }
+    freeRegisters.set(previousMaxRegisterNumber + 1, maxRegisterNumber + 1);
     assert registersAreFree(register, intervals.getType().isWide());
     return register;
   }
@@ -1340,14 +1343,14 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
       do {
         if (argumentLiveIntervals.anySplitOverlaps(intervals)) {
           // Remove so that next invocation of getFreeConsecutiveRegisters does not consider this.
-          freeRegisters.remove(register);
+          freeRegisters.clear(register);
           // We have just established that there is an overlap between the live range of the
           // current argument and the live range we need to find a register for. Therefore, if
           // the argument is wide, and the current register corresponds to the low register of the
           // argument, we know that the subsequent register will not work either.
           if (register == argumentLiveIntervals.getRegister()
               && argumentLiveIntervals.getType().isWide()) {
-            freeRegisters.remove(register + 1);
+            freeRegisters.clear(register + 1);
           }
           return false;
         }
@@ -1368,10 +1371,10 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     }
     if (overlapsInactiveIntervals != null) {
       // Remove so that next invocation of getFreeConsecutiveRegisters does not consider this.
-      freeRegisters.remove(register);
+      freeRegisters.clear(register);
       if (register == overlapsInactiveIntervals.getRegister()
           && overlapsInactiveIntervals.getType().isWide()) {
-        freeRegisters.remove(register + 1);
+        freeRegisters.clear(register + 1);
       }
       return false;
     }
@@ -1384,7 +1387,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
             && overlapsMoveExceptionInterval(intervals);
     if (overlapsMoveExceptionInterval) {
       // Remove so that next invocation of getFreeConsecutiveRegisters does not consider this.
-      freeRegisters.remove(register);
+      freeRegisters.clear(register);
       return false;
     }
 
@@ -2483,14 +2486,14 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
         // the phi value is defined on the inflowing edge.
         instructionNumber--;
       }
-      intervals.addRange(new LiveRange(instructionNumber, end));
+      intervals.addRange(instructionNumber, end);
       assert unconstrainedForCf(intervals.getRegisterLimit(), options);
       if (options.isGeneratingDex() && !value.isPhi()) {
         int constraint = value.definition.maxOutValueRegister();
         intervals.addUse(new LiveIntervalsUse(instructionNumber, constraint));
       }
     } else {
-      intervals.addRange(new LiveRange(firstInstructionInBlock - 1, end));
+      intervals.addRange(firstInstructionInBlock - 1, end);
     }
   }
 
@@ -2506,8 +2509,8 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
         if (instruction.isArgument() && instruction.outValue().isThis()) {
           Value thisValue = instruction.outValue();
           LiveIntervals thisIntervals = thisValue.getLiveIntervals();
-          thisIntervals.getRanges().clear();
-          thisIntervals.addRange(new LiveRange(0, code.getNextInstructionNumber()));
+          thisIntervals.clearRanges();
+          thisIntervals.addRange(0, code.getNextInstructionNumber());
           for (LiveAtEntrySets values : liveAtEntrySets.values()) {
             values.liveValues.add(thisValue);
           }
@@ -2893,7 +2896,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
       // instruction to avoid dead arguments without a range. This may create an actually empty
       // range like [0,0[ but that works, too.
       LiveIntervals argumentInterval = new LiveIntervals(argument);
-      argumentInterval.addRange(new LiveRange(0, index));
+      argumentInterval.addRange(0, index);
       liveIntervals.add(argumentInterval);
       index += INSTRUCTION_NUMBER_DELTA;
     }
@@ -2966,10 +2969,8 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   }
 
   private void increaseCapacity(int newMaxRegisterNumber, boolean takeRegisters) {
-    if (!takeRegisters) {
-      for (int register = maxRegisterNumber + 1; register <= newMaxRegisterNumber; ++register) {
-        freeRegisters.add(register);
-      }
+    if (!takeRegisters && newMaxRegisterNumber > maxRegisterNumber) {
+      freeRegisters.set(maxRegisterNumber + 1, newMaxRegisterNumber + 1);
     }
     maxRegisterNumber = newMaxRegisterNumber;
   }
@@ -2980,28 +2981,11 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
 
   private int getFreeConsecutiveRegisters(int numberOfRegisters, boolean prioritizeSmallRegisters) {
     int oldMaxRegisterNumber = maxRegisterNumber;
-    TreeSet<Integer> freeRegistersWithDesiredOrdering = this.freeRegisters;
-    if (prioritizeSmallRegisters) {
-      freeRegistersWithDesiredOrdering =
-          new TreeSet<>(
-              (Integer x, Integer y) -> {
-                boolean xIsArgument = x < numberOfArgumentRegisters;
-                boolean yIsArgument = y < numberOfArgumentRegisters;
-                // If x is an argument and y is not, then prioritize y.
-                if (xIsArgument && !yIsArgument) {
-                  return 1;
-                }
-                // If x is not an argument and y is, then prioritize x.
-                if (!xIsArgument && yIsArgument) {
-                  return -1;
-                }
-                // Otherwise use their normal ordering.
-                return x - y;
-              });
-      freeRegistersWithDesiredOrdering.addAll(this.freeRegisters);
-    }
-
-    Iterator<Integer> freeRegistersIterator = freeRegistersWithDesiredOrdering.iterator();
+    // When prioritizing small registers, the non-argument registers are visited before the
+    // argument registers.
+    FreeRegisterIterator freeRegistersIterator =
+        new FreeRegisterIterator(
+            freeRegisters, prioritizeSmallRegisters ? numberOfArgumentRegisters : 0);
     int first = getNextFreeRegister(freeRegistersIterator);
     int current = first;
     while (current - first + 1 != numberOfRegisters) {
@@ -3017,9 +3001,9 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
         current++;
       }
     }
-    for (int register = oldMaxRegisterNumber + 1; register <= maxRegisterNumber; ++register) {
-      boolean wasAdded = freeRegisters.add(register);
-      assert wasAdded;
+    assert freeRegisters.nextSetBit(oldMaxRegisterNumber + 1) < 0;
+    if (maxRegisterNumber > oldMaxRegisterNumber) {
+      freeRegisters.set(oldMaxRegisterNumber + 1, maxRegisterNumber + 1);
     }
     // Either all the consecutive registers are from the argument registers, or all are from the
     // non-argument registers.
@@ -3031,11 +3015,11 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   }
 
   private boolean registersAreFreeAndConsecutive(int register, boolean registerIsWide) {
-    if (!freeRegisters.contains(register)) {
+    if (!freeRegisters.get(register)) {
       return false;
     }
     if (registerIsWide) {
-      if (!freeRegisters.contains(register + 1)) {
+      if (!freeRegisters.get(register + 1)) {
         return false;
       }
       if (register == numberOfArgumentRegisters - 1) {
@@ -3046,19 +3030,53 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     return true;
   }
 
-  private int getNextFreeRegister(Iterator<Integer> freeRegistersIterator) {
-    if (freeRegistersIterator.hasNext()) {
-      return freeRegistersIterator.next();
+  private int getNextFreeRegister(FreeRegisterIterator freeRegistersIterator) {
+    int register = freeRegistersIterator.next();
+    if (register >= 0) {
+      return register;
     }
     return ++maxRegisterNumber;
   }
 
+  /**
+   * Iterates the free registers in ascending order, starting from a given register. The registers
+   * below the starting register are visited last.
+   */
+  private static class FreeRegisterIterator {
+
+    private final BitSet freeRegisters;
+    private final int firstRegister;
+
+    private int position;
+    private boolean wrapped;
+
+    FreeRegisterIterator(BitSet freeRegisters, int firstRegister) {
+      this.freeRegisters = freeRegisters;
+      this.firstRegister = firstRegister;
+      this.position = firstRegister;
+    }
+
+    // Returns the next free register, or -1 if all free registers have been visited.
+    int next() {
+      int register = freeRegisters.nextSetBit(position);
+      if (register < 0 && !wrapped) {
+        wrapped = true;
+        register = freeRegisters.nextSetBit(0);
+      }
+      if (register < 0 || (wrapped && register >= firstRegister)) {
+        return -1;
+      }
+      position = register + 1;
+      return register;
+    }
+  }
+
   private void excludeRegistersForInterval(LiveIntervals intervals, IntSet excluded) {
     int register = intervals.getRegister();
     assert register != NO_REGISTER;
 
     for (int i = 0; i < intervals.requiredRegisters(); i++) {
-      if (freeRegisters.remove(register + i)) {
+      if (takeFreeRegister(register + i)) {
         excluded.add(register + i);
       }
     }
@@ -3075,9 +3093,9 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     assert registersForIntervalsAreTaken(intervals);
     int register = intervals.getRegister();
     assert register + intervals.requiredRegisters() - 1 <= maxRegisterNumber;
-    freeRegisters.add(register);
+    freeRegisters.set(register);
     if (intervals.getType().isWide()) {
-      freeRegisters.add(register + 1);
+      freeRegisters.set(register + 1);
     }
 
     if (intervals.isArgumentInterval() && intervals != intervals.getSplitParent()) {
@@ -3088,11 +3106,18 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     }
   }
 
+  // Removes the register from the free registers and returns true if it was free.
+  private boolean takeFreeRegister(int register) {
+    boolean wasFree = freeRegisters.get(register);
+    freeRegisters.clear(register);
+    return wasFree;
+  }
+
   private void takeFreeRegisters(int register, boolean isWide) {
     assert registersAreFree(register, isWide);
-    freeRegisters.remove(register);
+    freeRegisters.clear(register);
     if (isWide) {
-      freeRegisters.remove(register + 1);
+      freeRegisters.clear(register + 1);
     }
   }
 
@@ -3108,7 +3133,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   }
 
   private boolean registerIsFree(int register) {
-    return freeRegisters.contains(register)
+    return freeRegisters.get(register)
         || (hasDedicatedMoveExceptionRegister() && register == getMoveExceptionRegister());
   }
 
@@ -3119,7 +3144,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   }
 
   private boolean registersAreTaken(int register, boolean isWide) {
-    return !freeRegisters.contains(register) && (!isWide || !freeRegisters.contains(register + 1));
+    return !freeRegisters.get(register) && (!isWide || !freeRegisters.get(register + 1));
   }
 
   private boolean registersForIntervalsAreTaken(LiveIntervals intervals) {
@@ -3128,7 +3153,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   }
 
   private boolean atLeastOneOfRegistersAreTaken(int register, boolean isWide) {
-    return !freeRegisters.contains(register) || (isWide && !freeRegisters.contains(register + 1));
+    return !freeRegisters.get(register) || (isWide && !freeRegisters.get(register + 1));
   }
 
   private boolean noLinkedValues() {
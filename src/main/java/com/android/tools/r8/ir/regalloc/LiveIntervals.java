@@ -13,9 +13,9 @@ import com.android.tools.r8.ir.code.ValueType;
 import com.android.tools.r8.utils.CfgPrinter;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.TreeSet;
@@ -33,7 +33,10 @@ public class LiveIntervals implements Comparable<LiveIntervals> {
   private final List<LiveIntervals> splitChildren = new ArrayList<>();
   private final IntArrayList sortedSplitChildrenEnds = new IntArrayList();
   private boolean sortedChildren = false;
-  private List<LiveRange> ranges = new ArrayList<>();
+  // The live ranges as sorted and disjoint [start, end[ pairs, packed into an int array to avoid
+  // allocating an object per range. Only the first rangesSize entries are used.
+  private int[] ranges = new int[4];
+  private int rangesSize = 0;
   private final TreeSet<LiveIntervalsUse> uses = new TreeSet<>();
   private int numberOfConsecutiveRegisters = -1;
   private int register = NO_REGISTER;
@@ -218,30 +221,43 @@ public class LiveIntervals implements Comparable<LiveIntervals> {
    * @param range the range to add
    */
   public void addRange(LiveRange range) {
-    boolean added = tryAddRange(range);
+    addRange(range.start, range.end);
+  }
+
+  /** Add the live range [start, end[ to the intervals. */
+  public void addRange(int start, int end) {
+    boolean added = tryAddRange(start, end);
     assert added;
   }
 
-  private boolean tryAddRange(LiveRange range) {
-    if (ranges.size() > 0) {
-      LiveRange lastRange = ranges.get(ranges.size() - 1);
-      if (lastRange.isInfinite()) {
+  private boolean tryAddRange(int start, int end) {
+    if (rangesSize > 0) {
+      int lastRangeEnd = ranges[rangesSize - 1];
+      if (lastRangeEnd == LiveRange.INFINITE.end) {
         return false;
       }
-      int rangeStartInstructionPosition = toInstructionPosition(range.start);
-      int lastRangeEndInstructionPosition = toInstructionPosition(lastRange.end);
+      int rangeStartInstructionPosition = toInstructionPosition(start);
+      int lastRangeEndInstructionPosition = toInstructionPosition(lastRangeEnd);
       if (lastRangeEndInstructionPosition > rangeStartInstructionPosition) {
         return false;
       }
       if (lastRangeEndInstructionPosition == rangeStartInstructionPosition) {
-        lastRange.end = range.end;
+        ranges[rangesSize - 1] = end;
         return true;
       }
     }
-    ranges.add(range);
+    if (rangesSize == ranges.length) {
+      ranges = Arrays.copyOf(ranges, rangesSize * 2);
+    }
+    ranges[rangesSize++] = start;
+    ranges[rangesSize++] = end;
     return true;
   }
 
+  public void clearRanges() {
+    rangesSize = 0;
+  }
+
   /**
    * Record a use for this interval.
    */
@@ -258,18 +274,23 @@ public class LiveIntervals implements Comparable<LiveIntervals> {
     return uses;
   }
 
+  /** Returns a copy of the live ranges of these intervals. */
   public List<LiveRange> getRanges() {
-    return ranges;
+    List<LiveRange> result = new ArrayList<>(rangesSize / 2);
+    for (int i = 0; i < rangesSize; i += 2) {
+      result.add(new LiveRange(ranges[i], ranges[i + 1]));
+    }
+    return result;
   }
 
   public int getStart() {
-    assert !ranges.isEmpty();
-    return ranges.get(0).start;
+    assert rangesSize > 0;
+    return ranges[0];
   }
 
   public int getEnd() {
-    assert !ranges.isEmpty();
-    return ranges.get(ranges.size() - 1).end;
+    assert rangesSize > 0;
+    return ranges[rangesSize - 1];
   }
 
   public int getRegister() {
@@ -334,12 +355,12 @@ public class LiveIntervals implements Comparable<LiveIntervals> {
   }
 
   public boolean overlapsPosition(int position) {
-    for (LiveRange range : ranges) {
-      if (range.start > position) {
+    for (int i = 0; i < rangesSize; i += 2) {
+      if (ranges[i] > position) {
         // Ranges are sorted. When a range starts after position there is no overlap.
         return false;
       }
-      if (position < range.end) {
+      if (position < ranges[i + 1]) {
         return true;
       }
     }
@@ -364,17 +385,17 @@ public class LiveIntervals implements Comparable<LiveIntervals> {
   }
 
   public int nextOverlap(LiveIntervals other) {
-    Iterator<LiveRange> it = other.ranges.iterator();
-    LiveRange otherRange = it.next();
-    for (LiveRange range : ranges) {
-      while (otherRange.end <= range.start) {
-        if (!it.hasNext()) {
+    int[] otherRanges = other.ranges;
+    int otherIndex = 0;
+    for (int i = 0; i < rangesSize; i += 2) {
+      while (otherRanges[otherIndex + 1] <= ranges[i]) {
+        otherIndex += 2;
+        if (otherIndex == other.rangesSize) {
           return -1;
         }
-        otherRange = it.next();
       }
-      if (otherRange.start < range.end) {
-        return otherRange.start;
+      if (otherRanges[otherIndex] < ranges[i + 1]) {
+        return otherRanges[otherIndex];
       }
     }
     return -1;
@@ -420,61 +441,76 @@ public class LiveIntervals implements Comparable<LiveIntervals> {
     LiveIntervals splitChild = new LiveIntervals(splitParent);
     splitParent.splitChildren.add(splitChild);
     splitParent.sortedChildren = false;
-    List<LiveRange> beforeSplit = new ArrayList<>();
-    List<LiveRange> afterSplit = new ArrayList<>();
     if (start == getEnd()) {
-      beforeSplit = ranges;
-      afterSplit.add(new LiveRange(start, start));
+      splitChild.addRange(start, start);
     } else {
+      // Find the index of the first range that contains or starts after the split position.
       int rangeToSplitIndex = 0;
-      for (; rangeToSplitIndex < ranges.size(); rangeToSplitIndex++) {
-        LiveRange range = ranges.get(rangeToSplitIndex);
-        if (range.start <= start && range.end > start) {
-          break;
-        }
-        if (range.start > start) {
+      for (; rangeToSplitIndex < rangesSize; rangeToSplitIndex += 2) {
+        if (ranges[rangeToSplitIndex + 1] > start) {
           break;
         }
       }
-      LiveRange rangeToSplit = ranges.get(rangeToSplitIndex);
-      beforeSplit.addAll(ranges.subList(0, rangeToSplitIndex));
-      if (rangeToSplit.start < start) {
-        beforeSplit.add(new LiveRange(rangeToSplit.start, start));
-        afterSplit.add(new LiveRange(start, rangeToSplit.end));
+      int rangeToSplitStart = ranges[rangeToSplitIndex];
+      if (rangeToSplitStart < start) {
+        // Split the range in two, the second of which starts the split child.
+        int[] afterSplit = new int[Math.max(4, rangesSize - rangeToSplitIndex)];
+        afterSplit[0] = start;
+        System.arraycopy(
+            ranges, rangeToSplitIndex + 1, afterSplit, 1, rangesSize - rangeToSplitIndex - 1);
+        splitChild.ranges = afterSplit;
+        splitChild.rangesSize = rangesSize - rangeToSplitIndex;
+        ranges[rangeToSplitIndex + 1] = start;
+        rangesSize = rangeToSplitIndex + 2;
       } else {
-        afterSplit.add(rangeToSplit);
+        splitChild.ranges =
+            Arrays.copyOfRange(
+                ranges, rangeToSplitIndex, Math.max(rangesSize, rangeToSplitIndex + 4));
+        splitChild.rangesSize = rangesSize - rangeToSplitIndex;
+        rangesSize = rangeToSplitIndex;
       }
-      afterSplit.addAll(ranges.subList(rangeToSplitIndex + 1, ranges.size()));
     }
-    splitChild.ranges = afterSplit;
-    ranges = beforeSplit;
     while (!uses.isEmpty() && uses.last().getPosition() >= start) {
       splitChild.addUse(uses.pollLast());
     }
     // Recompute limit after having removed uses from this interval.
     recomputeLimit();
-    assert !ranges.isEmpty();
-    assert !splitChild.ranges.isEmpty();
+    assert rangesSize > 0;
+    assert splitChild.rangesSize > 0;
     return splitChild;
   }
 
   public void undoSplits() {
-    List<LiveRange> ranges = new ArrayList<>(this.ranges);
+    // Sort the ranges of all splits by start and then end, by packing each into a long.
+    int numberOfRanges = rangesSize / 2;
+    for (LiveIntervals split : splitChildren) {
+      numberOfRanges += split.rangesSize / 2;
+    }
+    long[] sortedRanges = new long[numberOfRanges];
+    int index = packRanges(this, sortedRanges, 0);
     for (LiveIntervals split : splitChildren) {
-      ranges.addAll(split.ranges);
+      index = packRanges(split, sortedRanges, index);
       for (LiveIntervalsUse use : split.uses) {
         addUse(use);
       }
     }
-    Collections.sort(ranges);
-    this.ranges.clear();
-    for (LiveRange range : ranges) {
-      addRange(range);
+    Arrays.sort(sortedRanges);
+    clearRanges();
+    for (long range : sortedRanges) {
+      addRange((int) (range >> 32), (int) range);
     }
     splitChildren.clear();
     recomputeLimit();
   }
 
+  private static int packRanges(LiveIntervals intervals, long[] packed, int index) {
+    for (int i = 0; i < intervals.rangesSize; i += 2) {
+      packed[index++] =
+          ((long) intervals.ranges[i] << 32) | (intervals.ranges[i + 1] & 0xFFFFFFFFL);
+    }
+    return index;
+  }
+
   private void recomputeLimit() {
     registerLimit = U16BIT_MAX;
     for (LiveIntervalsUse use : uses) {
@@ -573,26 +609,30 @@ public class LiveIntervals implements Comparable<LiveIntervals> {
     // Use the field here to avoid toString to have side effects.
     builder.append(numberOfConsecutiveRegisters);
     builder.append("): ");
-    for (LiveRange range : getRanges()) {
-      builder.append(range);
+    for (int i = 0; i < rangesSize; i += 2) {
+      builder.append(rangeToString(i));
       builder.append(" ");
     }
     builder.append("\n");
     return builder.toString();
   }
 
+  private String rangeToString(int index) {
+    return "[" + ranges[index] + ", " + ranges[index + 1] + "[";
+  }
+
   public String toAscciArtString() {
     StringBuilder builder = new StringBuilder();
     int current = 0;
-    for (LiveRange range : getRanges()) {
-      if (range.isInfinite()) {
+    for (int i = 0; i < rangesSize; i += 2) {
+      if (ranges[i + 1] == LiveRange.INFINITE.end) {
         builder.append("--- infinite ---...");
         break;
       }
-      for (; current < range.start; current++) {
+      for (; current < ranges[i]; current++) {
         builder.append(" ");
       }
-      for (; current < range.end; current++) {
+      for (; current < ranges[i + 1]; current++) {
         builder.append("-");
       }
     }
@@ -604,8 +644,8 @@ public class LiveIntervals implements Comparable<LiveIntervals> {
         .sp().append("object") // range type
         .sp().append(parentNumber * 10000 + getSplitParent().getRegister()) // split parent
         .sp().append(-1); // hint
-    for (LiveRange range : getRanges()) {
-      printer.sp().append(range.toString());
+    for (int i = 0; i < rangesSize; i += 2) {
+      printer.sp().append(rangeToString(i));
     }
     for (LiveIntervalsUse use : getUses()) {
       printer.sp().append(use.getPosition()).sp().append("M");
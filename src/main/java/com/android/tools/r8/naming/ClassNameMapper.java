@@ -34,6 +34,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
 
 public class ClassNameMapper implements ProguardMap {
 
@@ -110,7 +111,7 @@ public class ClassNameMapper implements ProguardMap {
     return mapperFromBufferedReader(reader, diagnosticsHandler, false);
   }
 
-  private static ClassNameMapper mapperFromBufferedReader(
+  static ClassNameMapper mapperFromBufferedReader(
       BufferedReader reader, DiagnosticsHandler diagnosticsHandler, boolean allowEmptyMappedRanges)
       throws IOException {
     try (ProguardMapReader proguardReader =
@@ -124,6 +125,27 @@ public class ClassNameMapper implements ProguardMap {
     }
   }
 
+  /**
+   * Reads the mapping and parses the member mappings of the classes on the executor service. The
+   * diagnostics are reported on the calling thread in input order.
+   */
+  static ClassNameMapper mapperFromBufferedReader(
+      BufferedReader reader,
+      DiagnosticsHandler diagnosticsHandler,
+      boolean allowEmptyMappedRanges,
+      ExecutorService executorService)
+      throws IOException {
+    try (ProguardMapReader proguardReader =
+        new ProguardMapReader(
+            reader,
+            diagnosticsHandler != null ? diagnosticsHandler : new Reporter(),
+            allowEmptyMappedRanges)) {
+      ClassNameMapper.Builder builder = ClassNameMapper.builder();
+      proguardReader.parse(builder, executorService);
+      return builder.build();
+    }
+  }
+
   private final ImmutableMap<String, ClassNamingForNameMapper> classNameMappings;
   private BiMapContainer<String, String> nameMapping;
 
@@ -0,0 +1,40 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.naming;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Internal access to the parsing of a mapping from a reader, for the retracer and the benchmarks.
+ * Not for use outside of R8.
+ */
+public final class ClassNameMapperReader {
+
+  private ClassNameMapperReader() {}
+
+  public static ClassNameMapper read(
+      BufferedReader reader, DiagnosticsHandler diagnosticsHandler, boolean allowEmptyMappedRanges)
+      throws IOException {
+    return ClassNameMapper.mapperFromBufferedReader(
+        reader, diagnosticsHandler, allowEmptyMappedRanges);
+  }
+
+  /**
+   * Reads the mapping and parses the member mappings of the classes on the executor service. The
+   * diagnostics are reported on the calling thread in input order.
+   */
+  public static ClassNameMapper read(
+      BufferedReader reader,
+      DiagnosticsHandler diagnosticsHandler,
+      boolean allowEmptyMappedRanges,
+      ExecutorService executorService)
+      throws IOException {
+    return ClassNameMapper.mapperFromBufferedReader(
+        reader, diagnosticsHandler, allowEmptyMappedRanges, executorService);
+  }
+}
@@ -13,7 +13,6 @@ import com.android.tools.r8.naming.MemberNaming.Signature;
 import com.android.tools.r8.naming.MemberNaming.Signature.SignatureKind;
 import com.android.tools.r8.naming.mappinginformation.MappingInformation;
 import com.android.tools.r8.position.Position;
-import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.ThrowingConsumer;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableMap;
@@ -41,16 +40,20 @@ public class ClassNamingForMapApplier implements ClassNaming {
     private final String originalName;
     private final String renamedName;
     private final Position position;
-    private final Reporter reporter;
+    private final DiagnosticsHandler diagnosticsHandler;
     private final Map<MethodSignature, List<MemberNaming>> qualifiedMethodMembers = new HashMap<>();
     private final Map<MethodSignature, MemberNaming> methodMembers = new HashMap<>();
     private final Map<FieldSignature, MemberNaming> fieldMembers = new HashMap<>();
 
-    private Builder(String renamedName, String originalName, Position position, Reporter reporter) {
+    private Builder(
+        String renamedName,
+        String originalName,
+        Position position,
+        DiagnosticsHandler diagnosticsHandler) {
       this.originalName = originalName;
       this.renamedName = renamedName;
       this.position = position;
-      this.reporter = reporter;
+      this.diagnosticsHandler = diagnosticsHandler;
     }
 
     @Override
@@ -62,14 +65,14 @@ public class ClassNamingForMapApplier implements ClassNaming {
         if (signature.isQualified()) {
           qualifiedMethodMembers.computeIfAbsent(signature, k -> new ArrayList<>(2)).add(entry);
         } else if (methodMembers.put(signature, entry) != null) {
-          reporter.error(
+          diagnosticsHandler.error(
               ProguardMapError.duplicateSourceMember(
                   signature.toString(), this.originalName, entry.position));
         }
       } else {
         FieldSignature signature = (FieldSignature) entry.getOriginalSignature();
         if (!signature.isQualified() && fieldMembers.put(signature, entry) != null) {
-          reporter.error(
+          diagnosticsHandler.error(
               ProguardMapError.duplicateSourceMember(
                   signature.toString(), this.originalName, entry.position));
         }
@@ -108,8 +111,11 @@ public class ClassNamingForMapApplier implements ClassNaming {
   }
 
   static Builder builder(
-      String renamedName, String originalName, Position position, Reporter reporter) {
-    return new Builder(renamedName, originalName, position, reporter);
+      String renamedName,
+      String originalName,
+      Position position,
+      DiagnosticsHandler diagnosticsHandler) {
+    return new Builder(renamedName, originalName, position, diagnosticsHandler);
   }
 
   private final String originalName;
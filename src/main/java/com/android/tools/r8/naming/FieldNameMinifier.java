@@ -19,6 +19,7 @@ import com.android.tools.r8.graph.ProgramField;
 import com.android.tools.r8.graph.SubtypingInfo;
 import com.android.tools.r8.graph.TopDownClassHierarchyTraversal;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
@@ -31,6 +32,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 class FieldNameMinifier {
 
@@ -49,7 +52,9 @@ class FieldNameMinifier {
     this.strategy = strategy;
   }
 
-  FieldRenaming computeRenaming(Collection<DexClass> interfaces, Timing timing) {
+  FieldRenaming computeRenaming(
+      Collection<DexClass> interfaces, ExecutorService executorService, Timing timing)
+      throws ExecutionException {
     // Reserve names in all classes first. We do this in subtyping order so we do not
     // shadow a reserved field in subclasses. While there is no concept of virtual field
     // dispatch in Java, field resolution still traverses the super type chain and external
@@ -61,7 +66,7 @@ class FieldNameMinifier {
     timing.begin("rename-definitions");
     renameFieldsInInterfaces(interfaces);
     propagateReservedFieldNamesUpwards();
-    renameFieldsInClasses();
+    renameFieldsInClasses(executorService);
     timing.end();
     // Rename the references that are not rebound to definitions for some reasons.
     timing.begin("rename-references");
@@ -161,33 +166,78 @@ class FieldNameMinifier {
             });
   }
 
-  private void renameFieldsInClasses() {
+  private void renameFieldsInClasses(ExecutorService executorService) throws ExecutionException {
+    // The names of a class only depend on the states of its super classes. Visit the library and
+    // classpath classes here and collect the subtrees rooted at program classes, in top-down order,
+    // such that each subtree can be renamed independently of the others.
     Map<DexType, FieldNamingState> states = new IdentityHashMap<>();
+    Map<DexType, ClassSubtree> subtrees = new IdentityHashMap<>();
+    List<ClassSubtree> programSubtrees = new ArrayList<>();
     TopDownClassHierarchyTraversal.forAllClasses(appView)
         .excludeInterfaces()
         .visit(
             appView.appInfo().classes(),
             clazz -> {
               assert !clazz.isInterface();
-
-              FieldNamingState parentState =
-                  clazz.superType == null
-                      ? new FieldNamingState(appView, strategy)
-                      : states
-                          .computeIfAbsent(
-                              clazz.superType, key -> new FieldNamingState(appView, strategy))
-                          .clone();
-
-              ReservedFieldNamingState reservedNames =
-                  getOrCreateReservedFieldNamingState(clazz.type);
-              FieldNamingState state = parentState.createChildState(reservedNames);
-              if (clazz.isProgramClass()) {
-                clazz.asProgramClass().forEachProgramField(field -> renameField(field, state));
+              // The reserved naming states are allocated up front, as the map is not thread safe.
+              getOrCreateReservedFieldNamingState(clazz.type);
+              ClassSubtree subtree =
+                  clazz.superType == null ? null : subtrees.get(clazz.superType);
+              if (subtree == null) {
+                FieldNamingState parentState = getParentState(clazz, states);
+                if (!clazz.isProgramClass()) {
+                  renameFieldsInClass(clazz, parentState, states);
+                  return;
+                }
+                subtree = new ClassSubtree(parentState);
+                programSubtrees.add(subtree);
               }
-
-              assert !states.containsKey(clazz.type);
-              states.put(clazz.type, state);
+              subtree.classes.add(clazz);
+              subtrees.put(clazz.type, subtree);
             });
+    ThreadUtils.processItems(
+        programSubtrees,
+        subtree -> {
+          Map<DexType, FieldNamingState> subtreeStates = new IdentityHashMap<>();
+          for (DexClass clazz : subtree.classes) {
+            FieldNamingState parentState =
+                subtreeStates.isEmpty()
+                    ? subtree.parentState
+                    : getParentState(clazz, subtreeStates);
+            renameFieldsInClass(clazz, parentState, subtreeStates);
+          }
+        },
+        executorService);
+  }
+
+  private FieldNamingState getParentState(DexClass clazz, Map<DexType, FieldNamingState> states) {
+    return clazz.superType == null
+        ? new FieldNamingState(appView, strategy)
+        : states
+            .computeIfAbsent(clazz.superType, key -> new FieldNamingState(appView, strategy))
+            .clone();
+  }
+
+  private void renameFieldsInClass(
+      DexClass clazz, FieldNamingState parentState, Map<DexType, FieldNamingState> states) {
+    ReservedFieldNamingState reservedNames = getReservedFieldNamingState(clazz.type);
+    FieldNamingState state = parentState.createChildState(reservedNames);
+    if (clazz.isProgramClass()) {
+      clazz.asProgramClass().forEachProgramField(field -> renameField(field, state));
+    }
+
+    assert !states.containsKey(clazz.type);
+    states.put(clazz.type, state);
+  }
+
+  private static class ClassSubtree {
+
+    private final FieldNamingState parentState;
+    private final List<DexClass> classes = new ArrayList<>();
+
+    private ClassSubtree(FieldNamingState parentState) {
+      this.parentState = parentState;
+    }
   }
 
   private void renameFieldsInInterfaces(Collection<DexClass> interfaces) {
@@ -244,7 +294,9 @@ class FieldNameMinifier {
   private DexString renameField(ProgramField field, FieldNamingState state) {
     DexString newName = state.getOrCreateNameFor(field);
     if (newName != field.getReference().name) {
-      renaming.put(field.getReference(), newName);
+      synchronized (renaming) {
+        renaming.put(field.getReference(), newName);
+      }
     }
     return newName;
   }
@@ -12,13 +12,17 @@ import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.graph.SubtypingInfo;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.ImmutableMap;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 
 /**
@@ -72,7 +76,9 @@ import java.util.function.Function;
  *
  * <p>In stage 4, we assign names to methods by traversing the subtype tree, now allocating separate
  * naming states for each class starting from the frontier. In the first swoop, we allocate all
- * non-private methods, updating naming states accordingly.
+ * non-private methods, updating naming states accordingly. Program classes only affect the naming
+ * states of their own subtypes, so once the non-program part of the hierarchy has been visited, the
+ * subtrees rooted at program classes with a non-program super class are named in parallel.
  *
  * <p>Finally, the computed renamings are returned as a map from {@link DexMethod} to {@link
  * DexString}. The MethodNameMinifier object should not be retained to ensure all intermediate state
@@ -173,7 +179,9 @@ class MethodNameMinifier {
     }
   }
 
-  MethodRenaming computeRenaming(Iterable<DexClass> interfaces, Timing timing) {
+  MethodRenaming computeRenaming(
+      Iterable<DexClass> interfaces, ExecutorService executorService, Timing timing)
+      throws ExecutionException {
     // Phase 1: Reserve all the names that need to be kept and allocate linked state in the
     //          library part.
     timing.begin("Phase 1");
@@ -191,27 +199,51 @@ class MethodNameMinifier {
     timing.end();
     // Phase 4: Assign names top-down by traversing the subtype hierarchy.
     timing.begin("Phase 4");
-    assignNamesToClassesMethods(appView.dexItemFactory().objectType, rootNamingState);
+    assignNamesToClassesMethods(executorService);
     timing.end();
 
     return new MethodRenaming(renaming);
   }
 
-  private void assignNamesToClassesMethods(DexType type, MethodNamingState<?> parentNamingState) {
+  private void assignNamesToClassesMethods(ExecutorService executorService)
+      throws ExecutionException {
+    // Visit the library and classpath classes first and collect the program classes that extend
+    // them together with the naming state of their super class. The naming states above these roots
+    // are not changed by the program subtrees, which can therefore be processed independently.
+    Map<DexType, MethodNamingState<?>> programRoots = new LinkedHashMap<>();
+    assignNamesToClassesMethods(
+        appView.dexItemFactory().objectType, rootNamingState, programRoots);
+    ThreadUtils.processItems(
+        programRoots.entrySet(),
+        entry -> assignNamesToClassesMethods(entry.getKey(), entry.getValue(), null),
+        executorService);
+  }
+
+  private void assignNamesToClassesMethods(
+      DexType type,
+      MethodNamingState<?> parentNamingState,
+      Map<DexType, MethodNamingState<?>> programRoots) {
+    DexClass holder = appView.definitionFor(type);
+    if (programRoots != null && holder != null && holder.isProgramClass()) {
+      programRoots.put(type, parentNamingState);
+      return;
+    }
     MethodReservationState<?> reservationState =
         reservationStates.get(frontiers.getOrDefault(type, type));
     assert reservationState != null : "Could not find reservation state for " + type.toString();
-    MethodNamingState<?> namingState =
-        namingStates.computeIfAbsent(
-            type, ignore -> parentNamingState.createChild(reservationState));
-    DexClass holder = appView.definitionFor(type);
+    MethodNamingState<?> namingState;
+    synchronized (namingStates) {
+      namingState =
+          namingStates.computeIfAbsent(
+              type, ignore -> parentNamingState.createChild(reservationState));
+    }
     if (holder != null && strategy.allowMemberRenaming(holder)) {
       for (DexEncodedMethod method : holder.allMethodsSorted()) {
         assignNameToMethod(holder, method, namingState);
       }
     }
     for (DexType subType : subtypingInfo.allImmediateExtendsSubtypes(type)) {
-      assignNamesToClassesMethods(subType, namingState);
+      assignNamesToClassesMethods(subType, namingState, programRoots);
     }
   }
 
@@ -228,7 +260,9 @@ class MethodNameMinifier {
       newName = state.newOrReservedNameFor(method);
     }
     if (method.getName() != newName) {
-      renaming.put(method.getReference(), newName);
+      synchronized (renaming) {
+        renaming.put(method.getReference(), newName);
+      }
     }
     state.addRenaming(newName, method);
   }
@@ -19,12 +19,14 @@ abstract class MethodNamingStateBase<KeyType, InternalState> {
     this.internalStates = new HashMap<>();
   }
 
-  final InternalState getInternalState(DexMethod method) {
+  // Naming states are shared between the subtrees that are named concurrently. Creating an internal
+  // state may create the internal state of the parent, so locks are only ever taken upwards.
+  final synchronized InternalState getInternalState(DexMethod method) {
     KeyType internalStateKey = keyTransform.apply(method);
     return internalStates.get(internalStateKey);
   }
 
-  final InternalState getOrCreateInternalState(DexMethod method) {
+  final synchronized InternalState getOrCreateInternalState(DexMethod method) {
     KeyType internalStateKey = keyTransform.apply(method);
     return internalStates.computeIfAbsent(internalStateKey, key -> createInternalState(method));
   }
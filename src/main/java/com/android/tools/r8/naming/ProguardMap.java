@@ -3,6 +3,7 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.naming;
 
+import com.android.tools.r8.DiagnosticsHandler;
 import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.position.Position;
 
@@ -12,6 +13,16 @@ public interface ProguardMap {
     abstract ClassNaming.Builder classNamingBuilder(
         String renamedName, String originalName, Position position);
 
+    // Returns the builder of a class mapping read from a mapping file, for which diagnostics are
+    // reported to the given handler.
+    ClassNaming.Builder classNamingBuilder(
+        String renamedName,
+        String originalName,
+        Position position,
+        DiagnosticsHandler diagnosticsHandler) {
+      return classNamingBuilder(renamedName, originalName, position);
+    }
+
     abstract ProguardMap build();
   }
 
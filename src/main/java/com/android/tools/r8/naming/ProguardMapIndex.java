@@ -0,0 +1,442 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.origin.PathOrigin;
+import com.android.tools.r8.utils.ChainableStringConsumer;
+import com.android.tools.r8.utils.ExceptionDiagnostic;
+import com.android.tools.r8.utils.StringUtils;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Binary index of the class mappings in a mapping file.
+ *
+ * <p>The index maps the obfuscated name of each class to the byte range of its class mapping in the
+ * mapping file. The class mapping of a class extends from its class line to the next class line. A
+ * retracer can then read and parse only the class mappings of the classes that it retraces. The
+ * index is an open addressing hash table over the obfuscated names that is read directly from a
+ * buffer, so a memory mapped index uses almost no heap. The member mappings of a class are not
+ * indexed; they are parsed from the class mapping when the class is retraced.
+ *
+ * <p>The index holds the size of the mapping file it was built for and the CRC-32 of the header of
+ * the mapping file, which is its first {@link #HASHED_HEADER_SIZE} bytes. The header of a mapping
+ * file written by R8 includes the map id, which is a hash of all the mappings, so checking the
+ * identity of the mapping file does not require reading all of it.
+ *
+ * <p>The format is as follows, where all numbers are big endian:
+ *
+ * <pre>
+ *   int     magic
+ *   int     version
+ *   long    size of the mapping file in bytes
+ *   long    CRC-32 of the header of the mapping file
+ *   int     number of classes
+ *   int     number of hash table slots, a power of two
+ *   int[]   hash table slots, each the index of a class plus one, or zero if the slot is empty
+ *   entry[] the classes in the order of the mapping file, each of the form
+ *             long  offset of the class mapping in the mapping file
+ *             int   offset of the obfuscated name in the names
+ *             int   length of the obfuscated name in bytes
+ *   byte[]  the UTF-8 encoded obfuscated names
+ * </pre>
+ */
+public class ProguardMapIndex {
+
+  public static final String FILE_EXTENSION = ".index";
+
+  private static final int MAGIC = 0x52384d49;
+  private static final int VERSION = 3;
+  private static final int HEADER_SIZE = 32;
+  private static final int ENTRY_SIZE = 16;
+
+  /** The number of bytes at the start of the mapping file that are hashed for its identity. */
+  public static final int HASHED_HEADER_SIZE = 4096;
+
+  private final ByteBuffer buffer;
+  private final long mappingSize;
+  private final long mappingHeaderHash;
+  private final int classCount;
+  private final int slotCount;
+  private final int entriesOffset;
+  private final int namesOffset;
+
+  private ProguardMapIndex(ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.mappingSize = buffer.getLong(8);
+    this.mappingHeaderHash = buffer.getLong(16);
+    this.classCount = buffer.getInt(24);
+    this.slotCount = buffer.getInt(28);
+    this.entriesOffset = HEADER_SIZE + 4 * slotCount;
+    this.namesOffset = entriesOffset + ENTRY_SIZE * classCount;
+  }
+
+  /**
+   * Returns the index in the buffer, or null if the buffer does not contain a valid index. An index
+   * that is truncated or corrupt is not valid.
+   */
+  public static ProguardMapIndex fromBuffer(ByteBuffer buffer) {
+    if (buffer.capacity() < HEADER_SIZE
+        || buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != VERSION) {
+      return null;
+    }
+    ProguardMapIndex index = new ProguardMapIndex(buffer);
+    return index.isValid() ? index : null;
+  }
+
+  // Checks that all offsets of the index are within the buffer and the mapping file, and that the
+  // hash table has an empty slot, such that a lookup terminates.
+  private boolean isValid() {
+    if (mappingSize < 0
+        || classCount < 0
+        || slotCount <= classCount
+        || Integer.bitCount(slotCount) != 1) {
+      return false;
+    }
+    long namesStart = HEADER_SIZE + 4L * slotCount + (long) ENTRY_SIZE * classCount;
+    if (namesStart > buffer.capacity()) {
+      return false;
+    }
+    long namesSize = buffer.capacity() - namesStart;
+    boolean hasEmptySlot = false;
+    for (int slot = 0; slot < slotCount; slot++) {
+      int value = buffer.getInt(HEADER_SIZE + 4 * slot);
+      if (value < 0 || value > classCount) {
+        return false;
+      }
+      hasEmptySlot |= value == 0;
+    }
+    if (!hasEmptySlot) {
+      return false;
+    }
+    long previousStart = 0;
+    for (int i = 0; i < classCount; i++) {
+      int entry = entriesOffset + ENTRY_SIZE * i;
+      long start = buffer.getLong(entry);
+      int nameOffset = buffer.getInt(entry + 8);
+      int nameLength = buffer.getInt(entry + 12);
+      if (start < previousStart
+          || start > mappingSize
+          || nameOffset < 0
+          || nameLength < 0
+          || (long) nameOffset + nameLength > namesSize) {
+        return false;
+      }
+      previousStart = start;
+    }
+    return true;
+  }
+
+  /** Memory maps the index file. Returns null if the file does not contain an index. */
+  public static ProguardMapIndex fromFile(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path)) {
+      // The mapping stays valid when the channel is closed.
+      return fromBuffer(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /** Returns the path of the index of the given mapping file. */
+  public static Path getIndexPath(Path mappingFile) {
+    return mappingFile.resolveSibling(mappingFile.getFileName() + FILE_EXTENSION);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Consumer of the index of a mapping file. */
+  public interface Consumer {
+
+    void accept(byte[] index, DiagnosticsHandler handler);
+  }
+
+  /** Returns a consumer that writes the index to the given file. */
+  public static Consumer fileConsumer(Path indexPath) {
+    return (index, handler) -> {
+      try {
+        Files.write(indexPath, index);
+      } catch (IOException e) {
+        handler.error(new ExceptionDiagnostic(e, new PathOrigin(indexPath)));
+      }
+    };
+  }
+
+  /** Returns the size in bytes of the mapping file that was indexed. */
+  public long getMappingSize() {
+    return mappingSize;
+  }
+
+  /** Returns the CRC-32 of the header of the mapping file that was indexed. */
+  public long getMappingHeaderHash() {
+    return mappingHeaderHash;
+  }
+
+  /** Returns the CRC-32 of the header of the given mapping file, as stored in an index of it. */
+  public static long computeMappingHeaderHash(Path mappingFile) throws IOException {
+    byte[] header = new byte[HASHED_HEADER_SIZE];
+    int length = 0;
+    try (InputStream in = Files.newInputStream(mappingFile)) {
+      int read;
+      while (length < header.length
+          && (read = in.read(header, length, header.length - length)) > 0) {
+        length += read;
+      }
+    }
+    return computeMappingHeaderHash(header, length);
+  }
+
+  /** Returns the CRC-32 of the header of a mapping file that starts with the given bytes. */
+  public static long computeMappingHeaderHash(byte[] bytes, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, Math.min(length, HASHED_HEADER_SIZE));
+    return crc.getValue();
+  }
+
+  public int getNumberOfClasses() {
+    return classCount;
+  }
+
+  /**
+   * Returns the index of the class mapping of the class with the given obfuscated name, or -1 if
+   * the mapping file has no mapping for the class.
+   */
+  public int lookup(String obfuscatedName) {
+    byte[] name = obfuscatedName.getBytes(StandardCharsets.UTF_8);
+    int mask = slotCount - 1;
+    for (int slot = hash(name, 0, name.length) & mask; ; slot = (slot + 1) & mask) {
+      int classIndex = buffer.getInt(HEADER_SIZE + 4 * slot) - 1;
+      if (classIndex < 0) {
+        return -1;
+      }
+      if (nameEquals(classIndex, name)) {
+        return classIndex;
+      }
+    }
+  }
+
+  private boolean nameEquals(int classIndex, byte[] name) {
+    int entry = entriesOffset + ENTRY_SIZE * classIndex;
+    int nameOffset = namesOffset + buffer.getInt(entry + 8);
+    int nameLength = buffer.getInt(entry + 12);
+    if (nameLength != name.length) {
+      return false;
+    }
+    for (int i = 0; i < nameLength; i++) {
+      if (buffer.get(nameOffset + i) != name[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the offset in the mapping file of the class mapping with the given index. */
+  public long getStart(int classIndex) {
+    assert 0 <= classIndex && classIndex < classCount;
+    return buffer.getLong(entriesOffset + ENTRY_SIZE * classIndex);
+  }
+
+  /** Returns the offset in the mapping file after the class mapping with the given index. */
+  public long getEnd(int classIndex) {
+    assert 0 <= classIndex && classIndex < classCount;
+    return classIndex + 1 < classCount ? getStart(classIndex + 1) : mappingSize;
+  }
+
+  // FNV-1a hash of the UTF-8 encoded name.
+  private static int hash(byte[] bytes, int offset, int length) {
+    int hash = 0x811c9dc5;
+    for (int i = offset; i < offset + length; i++) {
+      hash ^= bytes[i] & 0xff;
+      hash *= 0x01000193;
+    }
+    return hash;
+  }
+
+  /**
+   * Builder of an index. The mapping file is either passed to the builder as text through {@link
+   * #accept(String)}, or the class lines are found by the caller and passed to {@link
+   * #addClassLine(String, long, int)}.
+   */
+  public static class Builder implements ChainableStringConsumer {
+
+    private final LongList classStarts = new LongArrayList();
+    private final IntList nameOffsets = new IntArrayList();
+    private final IntList nameLengths = new IntArrayList();
+    private final ByteArrayOutputStream names = new ByteArrayOutputStream();
+    private final Set<String> seenNames = new HashSet<>();
+
+    // The start of the text, which holds at least the characters of the hashed header. Each
+    // character is encoded in at least one byte, so the characters of the first HASHED_HEADER_SIZE
+    // bytes are among the first HASHED_HEADER_SIZE characters, and one more character completes a
+    // surrogate pair at the end of the header.
+    private final StringBuilder header = new StringBuilder();
+
+    // State of the text scanner.
+    private long offset = 0;
+    private long lineStart = 0;
+    private int lineNumber = 1;
+    private boolean atLineStart = true;
+    private StringBuilder classLine = null;
+
+    private Builder() {}
+
+    /**
+     * Returns true if a line starting with the given character cannot be a class line. Member lines
+     * are indented and comments start with '#'. All lines before the first class line must be
+     * inspected by the caller, since the first class line may be indented.
+     */
+    public boolean isMemberOrCommentLineStart(int c) {
+      return hasClasses() && (c == ' ' || c == '\t' || c == '\r' || c == '#');
+    }
+
+    private boolean hasClasses() {
+      return !classStarts.isEmpty();
+    }
+
+    @Override
+    public Builder accept(String string) {
+      if (header.length() <= HASHED_HEADER_SIZE) {
+        int end = Math.min(string.length(), HASHED_HEADER_SIZE + 1 - header.length());
+        header.append(string, 0, end);
+      }
+      for (int i = 0; i < string.length(); i++) {
+        char c = string.charAt(i);
+        if (c == '\n') {
+          finishLine();
+          atLineStart = true;
+          lineNumber++;
+          offset++;
+          continue;
+        }
+        if (atLineStart) {
+          atLineStart = false;
+          lineStart = offset;
+          if (!isMemberOrCommentLineStart(c)) {
+            classLine = new StringBuilder();
+          }
+        }
+        if (classLine != null) {
+          classLine.append(c);
+        }
+        offset += getUtf8Length(c);
+      }
+      return this;
+    }
+
+    private static int getUtf8Length(char c) {
+      if (c < 0x80) {
+        return 1;
+      }
+      if (c < 0x800 || Character.isSurrogate(c)) {
+        // A surrogate pair is encoded in four bytes.
+        return 2;
+      }
+      return 3;
+    }
+
+    private void finishLine() {
+      if (classLine != null) {
+        addClassLine(classLine.toString(), lineStart, lineNumber);
+        classLine = null;
+      }
+    }
+
+    /**
+     * Adds a line that may start a class mapping. Empty and comment lines are ignored, which is
+     * only allowed before the first class line.
+     */
+    public void addClassLine(String line, long lineStart, int lineNumber) {
+      line = trim(line);
+      if (line.isEmpty() || line.charAt(0) == '#') {
+        assert !hasClasses();
+        return;
+      }
+      // A class line has the form 'original -> obfuscated:'.
+      int arrow = line.indexOf("->");
+      if (arrow < 0 || line.charAt(line.length() - 1) != ':') {
+        throw new CompilationError("Invalid class mapping on line " + lineNumber + ": " + line);
+      }
+      String obfuscatedName = trim(line.substring(arrow + 2, line.length() - 1));
+      if (!seenNames.add(obfuscatedName)) {
+        throw new CompilationError(
+            "Duplicate class mapping for '" + obfuscatedName + "' on line " + lineNumber);
+      }
+      byte[] name = obfuscatedName.getBytes(StandardCharsets.UTF_8);
+      classStarts.add(lineStart);
+      nameOffsets.add(names.size());
+      nameLengths.add(name.length);
+      names.write(name, 0, name.length);
+    }
+
+    private static String trim(String string) {
+      int start = 0;
+      int end = string.length();
+      while (start < end && StringUtils.isWhitespace(string.charAt(start))) {
+        start++;
+      }
+      while (end > start && StringUtils.isWhitespace(string.charAt(end - 1))) {
+        end--;
+      }
+      return string.substring(start, end);
+    }
+
+    /** Builds the index of the text passed to {@link #accept(String)}. */
+    public byte[] build() {
+      finishLine();
+      byte[] headerBytes = header.toString().getBytes(StandardCharsets.UTF_8);
+      return build(offset, computeMappingHeaderHash(headerBytes, headerBytes.length));
+    }
+
+    /**
+     * Builds the index of the class lines of a mapping file of the given size and CRC-32 of its
+     * header.
+     */
+    public byte[] build(long mappingSize, long mappingHeaderHash) {
+      int classCount = classStarts.size();
+      int slotCount = Integer.highestOneBit(Math.max(1, classCount) * 2 - 1) << 1;
+      byte[] nameBytes = names.toByteArray();
+      ByteBuffer buffer =
+          ByteBuffer.allocate(
+              HEADER_SIZE + 4 * slotCount + ENTRY_SIZE * classCount + nameBytes.length);
+      buffer.putInt(MAGIC);
+      buffer.putInt(VERSION);
+      buffer.putLong(mappingSize);
+      buffer.putLong(mappingHeaderHash);
+      buffer.putInt(classCount);
+      buffer.putInt(slotCount);
+      int mask = slotCount - 1;
+      for (int i = 0; i < classCount; i++) {
+        int slot = hash(nameBytes, nameOffsets.getInt(i), nameLengths.getInt(i)) & mask;
+        while (buffer.getInt(HEADER_SIZE + 4 * slot) != 0) {
+          slot = (slot + 1) & mask;
+        }
+        buffer.putInt(HEADER_SIZE + 4 * slot, i + 1);
+      }
+      buffer.position(HEADER_SIZE + 4 * slotCount);
+      for (int i = 0; i < classCount; i++) {
+        buffer.putLong(classStarts.getLong(i));
+        buffer.putInt(nameOffsets.getInt(i));
+        buffer.putInt(nameLengths.getInt(i));
+      }
+      buffer.put(nameBytes);
+      return buffer.array();
+    }
+  }
+}
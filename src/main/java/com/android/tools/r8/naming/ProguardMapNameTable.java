@@ -0,0 +1,100 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Table for canonicalizing the names read from a mapping file, which are mostly repeated type
+ * names. A name is looked up by its characters, so a string is only created the first time a name
+ * is read.
+ *
+ * <p>The table is not thread safe. The tables of readers that run concurrently can share their
+ * names through a concurrent map, such that all readers use the same string for a name.
+ */
+class ProguardMapNameTable {
+
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  private final ConcurrentMap<String, String> sharedNames;
+
+  private String[] names = new String[INITIAL_CAPACITY];
+  private int[] hashes = new int[INITIAL_CAPACITY];
+  private int size = 0;
+
+  ProguardMapNameTable() {
+    this(null);
+  }
+
+  ProguardMapNameTable(ConcurrentMap<String, String> sharedNames) {
+    this.sharedNames = sharedNames;
+  }
+
+  String intern(char[] chars, int start, int end) {
+    // The hash is the hash of the string, see String.hashCode().
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    int mask = names.length - 1;
+    int slot = spread(hash) & mask;
+    while (true) {
+      String name = names[slot];
+      if (name == null) {
+        break;
+      }
+      if (hashes[slot] == hash && contentEquals(name, chars, start, end)) {
+        return name;
+      }
+      slot = (slot + 1) & mask;
+    }
+    String name = new String(chars, start, end - start);
+    if (sharedNames != null) {
+      String existing = sharedNames.putIfAbsent(name, name);
+      if (existing != null) {
+        name = existing;
+      }
+    }
+    names[slot] = name;
+    hashes[slot] = hash;
+    if (++size * 2 > names.length) {
+      grow();
+    }
+    return name;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean contentEquals(String name, char[] chars, int start, int end) {
+    if (name.length() != end - start) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) != chars[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void grow() {
+    String[] oldNames = names;
+    int[] oldHashes = hashes;
+    names = new String[oldNames.length * 2];
+    hashes = new int[oldNames.length * 2];
+    int mask = names.length - 1;
+    for (int i = 0; i < oldNames.length; i++) {
+      if (oldNames[i] != null) {
+        int slot = spread(oldHashes[i]) & mask;
+        while (names[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        names[slot] = oldNames[i];
+        hashes[slot] = oldHashes[i];
+      }
+    }
+  }
+}
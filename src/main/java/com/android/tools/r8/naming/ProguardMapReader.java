@@ -3,6 +3,7 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.naming;
 
+import com.android.tools.r8.Diagnostic;
 import com.android.tools.r8.DiagnosticsHandler;
 import com.android.tools.r8.naming.MemberNaming.FieldSignature;
 import com.android.tools.r8.naming.MemberNaming.MethodSignature;
@@ -12,16 +13,27 @@ import com.android.tools.r8.naming.mappinginformation.SignatureMappingInformatio
 import com.android.tools.r8.position.TextPosition;
 import com.android.tools.r8.utils.IdentifierUtils;
 import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.Maps;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 
 /**
  * Parses a Proguard mapping file and produces mappings from obfuscated class names to the original
@@ -57,83 +69,121 @@ import java.util.Objects;
  * range COLON signature COLON number ARROW name
  * <p>
  * and are currently only stored to be able to reproduce them later.
+ * <p>
+ * The reader reads the lines into a character buffer that is reused for all lines, and the names
+ * are canonicalized from the characters in the buffer, so no strings are created for the lines and
+ * for names that have already been read. The member mappings of the classes can be parsed in
+ * parallel, see {@link #parse(ProguardMap.Builder, ExecutorService)}.
  */
 public class ProguardMapReader implements AutoCloseable {
 
-  private final BufferedReader reader;
+  private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+  // The number of characters of member mappings that are parsed together on a thread.
+  private static final int PARALLEL_BATCH_SIZE = 1 << 20;
+  // The number of batches of member mappings that are read ahead of the parsing.
+  private static final int PARALLEL_BATCHES_IN_FLIGHT = 16;
+
+  private final Reader reader;
   private final JsonParser jsonParser = new JsonParser();
-  private final DiagnosticsHandler diagnosticsHandler;
+  // The handler that diagnostics are reported to. In a parallel parse this is the batch of member
+  // mappings that is being read or parsed, which reports the diagnostics in input order.
+  private DiagnosticsHandler diagnosticsHandler;
   private final boolean allowEmptyMappedRanges;
 
   @Override
   public void close() throws IOException {
-    reader.close();
+    if (reader != null) {
+      reader.close();
+    }
   }
 
   ProguardMapReader(
       BufferedReader reader,
       DiagnosticsHandler diagnosticsHandler,
       boolean allowEmptyMappedRanges) {
+    this(reader, diagnosticsHandler, allowEmptyMappedRanges, new ProguardMapNameTable());
+    assert reader != null;
+  }
+
+  // Reader of the member mappings of the batches of a parallel parse.
+  private ProguardMapReader(
+      Reader reader,
+      DiagnosticsHandler diagnosticsHandler,
+      boolean allowEmptyMappedRanges,
+      ProguardMapNameTable names) {
     this.reader = reader;
     this.diagnosticsHandler = diagnosticsHandler;
     this.allowEmptyMappedRanges = allowEmptyMappedRanges;
-    assert reader != null;
+    this.names = names;
+    this.buffer = reader != null ? new char[INITIAL_BUFFER_SIZE] : null;
+    this.endOfInput = reader == null;
     assert diagnosticsHandler != null;
   }
 
-  // Internal parser state
+  // Input state. The buffer holds the input from the start of the current line up to bufferEnd.
+  private char[] buffer;
+  private int bufferEnd = 0;
+  private int nextLineStart = 0;
+  private boolean endOfInput;
+
+  // Internal parser state. The current line is the lineLength characters at lineStart in the
+  // buffer, and the line length is -1 when there are no more lines.
   private int lineNo = 0;
   private int lineOffset = 0;
-  private String line;
+  private int lineStart = 0;
+  private int lineLength = -1;
+
+  private char charAt(int index) {
+    assert index < lineLength;
+    return buffer[lineStart + index];
+  }
 
   private int peekCodePoint() {
-    return lineOffset < line.length() ? line.codePointAt(lineOffset) : '\n';
+    return lineOffset < lineLength
+        ? Character.codePointAt(buffer, lineStart + lineOffset, lineStart + lineLength)
+        : '\n';
   }
 
   private char peekChar(int distance) {
-    return lineOffset + distance < line.length()
-        ? line.charAt(lineOffset + distance)
-        : '\n';
+    return lineOffset + distance < lineLength ? charAt(lineOffset + distance) : '\n';
   }
 
   private boolean hasNext() {
-    return lineOffset < line.length();
+    return lineOffset < lineLength;
   }
 
   private int nextCodePoint() {
-    try {
-      int cp = line.codePointAt(lineOffset);
-      lineOffset += Character.charCount(cp);
-      return cp;
-    } catch (ArrayIndexOutOfBoundsException e) {
+    if (!hasNext()) {
       throw new ParseException("Unexpected end of line");
     }
+    int cp = Character.codePointAt(buffer, lineStart + lineOffset, lineStart + lineLength);
+    lineOffset += Character.charCount(cp);
+    return cp;
   }
 
   private char nextChar() {
     assert hasNext();
-    try {
-      return line.charAt(lineOffset++);
-    } catch (ArrayIndexOutOfBoundsException e) {
+    if (!hasNext()) {
       throw new ParseException("Unexpected end of line");
     }
+    return charAt(lineOffset++);
   }
 
   private boolean nextLine() throws IOException {
-    if (line.length() != lineOffset) {
+    if (lineLength != lineOffset) {
       throw new ParseException("Expected end of line");
     }
     return skipLine();
   }
 
-  private boolean isEmptyOrCommentLine(String line) {
-    if (line == null) {
+  private boolean isEmptyOrCommentLine() {
+    if (!hasLine()) {
       return true;
     }
-    for (int i = 0; i < line.length(); ++i) {
-      char c = line.charAt(i);
+    for (int i = 0; i < lineLength; ++i) {
+      char c = charAt(i);
       if (c == '#') {
-        return !hasFirstCharJsonBrace(line, i);
+        return !hasFirstCharJsonBrace(i);
       } else if (!StringUtils.isWhitespace(c)) {
         return false;
       }
@@ -142,13 +192,13 @@ public class ProguardMapReader implements AutoCloseable {
   }
 
   private boolean isCommentLineWithJsonBrace() {
-    if (line == null) {
+    if (!hasLine()) {
       return false;
     }
-    for (int i = 0; i < line.length(); ++i) {
-      char c = line.charAt(i);
+    for (int i = 0; i < lineLength; ++i) {
+      char c = charAt(i);
       if (c == '#') {
-        return hasFirstCharJsonBrace(line, i);
+        return hasFirstCharJsonBrace(i);
       } else if (!Character.isWhitespace(c)) {
         return false;
       }
@@ -156,9 +206,9 @@ public class ProguardMapReader implements AutoCloseable {
     return false;
   }
 
-  private static boolean hasFirstCharJsonBrace(String line, int commentCharIndex) {
-    for (int i = commentCharIndex + 1; i < line.length(); i++) {
-      char c = line.charAt(i);
+  private boolean hasFirstCharJsonBrace(int commentCharIndex) {
+    for (int i = commentCharIndex + 1; i < lineLength; i++) {
+      char c = charAt(i);
       if (c == '{') {
         return true;
       } else if (!Character.isWhitespace(c)) {
@@ -168,17 +218,79 @@ public class ProguardMapReader implements AutoCloseable {
     return false;
   }
 
+  // Returns true if the current line starts a class mapping, which is the line that ends the member
+  // mappings of the previous class, see parseMemberMappings.
+  private boolean isClassLine() {
+    assert lineOffset == 0;
+    return !isEmptyOrCommentLine()
+        && !isCommentLineWithJsonBrace()
+        && !StringUtils.isWhitespace(peekCodePoint());
+  }
+
   private boolean skipLine() throws IOException {
     lineOffset = 0;
     do {
       lineNo++;
-      line = reader.readLine();
-    } while (hasLine() && isEmptyOrCommentLine(line));
+      readLine();
+    } while (hasLine() && isEmptyOrCommentLine());
     return hasLine();
   }
 
   private boolean hasLine() {
-    return line != null;
+    return lineLength >= 0;
+  }
+
+  // Reads the next line into the buffer. A line is terminated by '\n', '\r' or '\r\n', as for
+  // BufferedReader.readLine().
+  private void readLine() throws IOException {
+    int index = nextLineStart;
+    while (true) {
+      while (index < bufferEnd && buffer[index] != '\n' && buffer[index] != '\r') {
+        index++;
+      }
+      if (index < bufferEnd) {
+        if (buffer[index] == '\r' && index + 1 == bufferEnd && !endOfInput) {
+          // Read ahead to check for a '\n' after the '\r'.
+          index -= fill();
+          continue;
+        }
+        lineStart = nextLineStart;
+        lineLength = index - lineStart;
+        nextLineStart = index + 1;
+        if (buffer[index] == '\r' && nextLineStart < bufferEnd && buffer[nextLineStart] == '\n') {
+          nextLineStart++;
+        }
+        return;
+      }
+      if (endOfInput) {
+        lineStart = nextLineStart;
+        lineLength = bufferEnd > nextLineStart ? bufferEnd - nextLineStart : -1;
+        nextLineStart = bufferEnd;
+        return;
+      }
+      index -= fill();
+    }
+  }
+
+  // Moves the unread input to the start of the buffer, growing the buffer if it is full, and reads
+  // more input. Returns the distance that the unread input was moved.
+  private int fill() throws IOException {
+    int shift = nextLineStart;
+    int remaining = bufferEnd - nextLineStart;
+    if (shift > 0) {
+      System.arraycopy(buffer, shift, buffer, 0, remaining);
+    } else if (remaining == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    nextLineStart = 0;
+    bufferEnd = remaining;
+    int read = reader.read(buffer, bufferEnd, buffer.length - bufferEnd);
+    if (read < 0) {
+      endOfInput = true;
+    } else {
+      bufferEnd += read;
+    }
+    return shift;
   }
 
   // Helpers for common pattern
@@ -209,52 +321,195 @@ public class ProguardMapReader implements AutoCloseable {
   }
 
   void parse(ProguardMap.Builder mapBuilder) throws IOException {
-    // Read the first line.
+    readFirstLine();
+    parseClassMappings(mapBuilder);
+  }
+
+  /**
+   * Parses the mapping like {@link #parse(ProguardMap.Builder)}, but parses the member mappings on
+   * the executor service.
+   *
+   * <p>The class lines are parsed in order on the calling thread, which copies the member mappings
+   * of consecutive classes into batches that are parsed concurrently. The number of batches that
+   * are read ahead of the parsing is bounded. The diagnostics of each batch, including those of
+   * its class lines, are buffered and reported on the calling thread in input order, the same as
+   * the sequential parse.
+   */
+  void parse(ProguardMap.Builder mapBuilder, ExecutorService executorService) throws IOException {
+    DiagnosticsHandler handler = diagnosticsHandler;
+    ConcurrentHashMap<String, String> sharedNames = new ConcurrentHashMap<>();
+    names = new ProguardMapNameTable(sharedNames);
+    ThreadLocal<ProguardMapReader> batchReaders =
+        ThreadLocal.withInitial(
+            () ->
+                new ProguardMapReader(
+                    null,
+                    diagnosticsHandler,
+                    allowEmptyMappedRanges,
+                    new ProguardMapNameTable(sharedNames)));
+    Semaphore batchesInFlight = new Semaphore(PARALLEL_BATCHES_IN_FLIGHT);
+    List<MemberMappingsBatch> batches = new ArrayList<>();
+    List<Future<?>> futures = new ArrayList<>();
+    MemberMappingsBatch batch = new MemberMappingsBatch();
+    diagnosticsHandler = batch;
+    try {
+      readFirstLine();
+      while (hasLine()) {
+        ClassNaming.Builder currentClassBuilder = parseClassMapping(mapBuilder);
+        if (lineLength != lineOffset) {
+          throw new ParseException("Expected end of line");
+        }
+        batch.addClass(currentClassBuilder, lineNo);
+        lineOffset = 0;
+        while (true) {
+          lineNo++;
+          readLine();
+          if (!hasLine() || isClassLine()) {
+            break;
+          }
+          batch.addLine(buffer, lineStart, lineLength);
+        }
+        if (batch.size() >= PARALLEL_BATCH_SIZE || !hasLine()) {
+          MemberMappingsBatch fullBatch = batch;
+          batchesInFlight.acquireUninterruptibly();
+          batches.add(fullBatch);
+          futures.add(
+              executorService.submit(
+                  () -> {
+                    try {
+                      batchReaders.get().parseBatch(fullBatch);
+                    } finally {
+                      batchesInFlight.release();
+                    }
+                    return null;
+                  }));
+          batch = new MemberMappingsBatch();
+          diagnosticsHandler = batch;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // The diagnostics and an error in the member mappings of a previous class are reported first.
+      reportBatches(batches, futures, handler);
+      try {
+        batchReaders.get().parseBatch(batch);
+      } finally {
+        batch.reportDiagnostics(handler);
+      }
+      throw e;
+    } finally {
+      diagnosticsHandler = handler;
+    }
+    reportBatches(batches, futures, handler);
+  }
+
+  // Reports the diagnostics of the batches in input order once all batches are parsed. The error of
+  // the first batch that failed is thrown after its diagnostics, and the later batches are not
+  // reported, as in the sequential parse.
+  private static void reportBatches(
+      List<MemberMappingsBatch> batches, List<Future<?>> futures, DiagnosticsHandler handler)
+      throws IOException {
+    try {
+      ThreadUtils.awaitFutures(futures);
+    } catch (ExecutionException e) {
+      // The error is thrown below, in input order.
+    }
+    for (int i = 0; i < batches.size(); i++) {
+      try {
+        awaitBatches(futures.subList(i, i + 1));
+      } finally {
+        batches.get(i).reportDiagnostics(handler);
+      }
+    }
+  }
+
+  private static void awaitBatches(List<Future<?>> futures) throws IOException {
+    try {
+      ThreadUtils.awaitFutures(futures);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    }
+  }
+
+  private void readFirstLine() throws IOException {
     do {
-      line = reader.readLine();
+      readLine();
       lineNo++;
-    } while (hasLine() && isEmptyOrCommentLine(line));
-    parseClassMappings(mapBuilder);
+    } while (hasLine() && isEmptyOrCommentLine());
   }
 
   // Parsing of entries
 
   private void parseClassMappings(ProguardMap.Builder mapBuilder) throws IOException {
     while (hasLine()) {
-      skipWhitespace();
-      if (isCommentLineWithJsonBrace()) {
-        // TODO(b/179665169): Parse the mapping information without doing anything with it, since we
-        //  at this point do not have a global context.
-        MappingInformation.fromJsonObject(parseJsonInComment(), diagnosticsHandler, lineNo);
-        // Skip reading the rest of the line.
-        lineOffset = line.length();
-        nextLine();
-      }
-      String before = parseType(false);
-      skipWhitespace();
-      // Workaround for proguard map files that contain entries for package-info.java files.
-      assert IdentifierUtils.isDexIdentifierPart('-');
-      if (before.endsWith("-") && acceptString(">")) {
-        // With - as a legal identifier part the grammar is ambiguous, and we treat a->b as a -> b,
-        // and not as a- > b (which would be a parse error).
-        before = before.substring(0, before.length() - 1);
-      } else {
-        skipWhitespace();
-        acceptArrow();
-      }
-      skipWhitespace();
-      String after = parseType(false);
-      skipWhitespace();
-      expect(':');
-      ClassNaming.Builder currentClassBuilder =
-          mapBuilder.classNamingBuilder(after, before, getPosition());
-      skipWhitespace();
+      ClassNaming.Builder currentClassBuilder = parseClassMapping(mapBuilder);
       if (nextLine()) {
         parseMemberMappings(currentClassBuilder);
       }
     }
   }
 
+  private ClassNaming.Builder parseClassMapping(ProguardMap.Builder mapBuilder)
+      throws IOException {
+    skipWhitespace();
+    if (isCommentLineWithJsonBrace()) {
+      // TODO(b/179665169): Parse the mapping information without doing anything with it, since we
+      //  at this point do not have a global context.
+      MappingInformation.fromJsonObject(parseJsonInComment(), diagnosticsHandler, lineNo);
+      // Skip reading the rest of the line.
+      lineOffset = lineLength;
+      nextLine();
+    }
+    String before = parseType(false);
+    skipWhitespace();
+    // Workaround for proguard map files that contain entries for package-info.java files.
+    assert IdentifierUtils.isDexIdentifierPart('-');
+    if (before.endsWith("-") && acceptString(">")) {
+      // With - as a legal identifier part the grammar is ambiguous, and we treat a->b as a -> b,
+      // and not as a- > b (which would be a parse error).
+      before = before.substring(0, before.length() - 1);
+    } else {
+      skipWhitespace();
+      acceptArrow();
+    }
+    skipWhitespace();
+    String after = parseType(false);
+    skipWhitespace();
+    expect(':');
+    ClassNaming.Builder currentClassBuilder =
+        mapBuilder.classNamingBuilder(after, before, getPosition(), diagnosticsHandler);
+    skipWhitespace();
+    return currentClassBuilder;
+  }
+
+  private void parseBatch(MemberMappingsBatch batch) throws IOException {
+    buffer = batch.chars;
+    diagnosticsHandler = batch;
+    for (int i = 0; i < batch.getNumberOfClasses(); i++) {
+      batch.setCurrentClass(i);
+      nextLineStart = batch.getStart(i);
+      bufferEnd = batch.getEnd(i);
+      lineNo = batch.getLineNumber(i);
+      lineLength = -1;
+      if (skipLine()) {
+        parseMemberMappings(batch.getClassNamingBuilder(i));
+      }
+      assert !hasLine();
+    }
+    // The diagnostics of the batch are kept until they are reported, but the lines are not.
+    buffer = null;
+    batch.chars = null;
+  }
+
   private void parseMemberMappings(ClassNaming.Builder classNamingBuilder) throws IOException {
     MemberNaming lastAddedNaming = null;
     MemberNaming activeMemberNaming = null;
@@ -276,7 +531,7 @@ public class ProguardMapReader implements AutoCloseable {
           }
         }
         // Skip reading the rest of the line.
-        lineOffset = line.length();
+        lineOffset = lineLength;
         continue;
       }
       // Parse the member line '  x:y:name:z:q -> renamedName'.
@@ -394,17 +649,12 @@ public class ProguardMapReader implements AutoCloseable {
     }
   }
 
-  // Cache for canonicalizing strings.
+  // Table for canonicalizing strings.
   // This saves 10% of heap space for large programs.
-  final HashMap<String, String> cache = new HashMap<>();
+  private ProguardMapNameTable names;
 
   private String substring(int start) {
-    String result = line.substring(start, lineOffset);
-    if (cache.containsKey(result)) {
-      return cache.get(result);
-    }
-    cache.put(result, result);
-    return result;
+    return names.intern(buffer, lineStart + start, lineStart + lineOffset);
   }
 
   private String parseMethodName() {
@@ -444,9 +694,9 @@ public class ProguardMapReader implements AutoCloseable {
       skipWhitespace();
       String[] arguments;
       if (peekChar(0) == ')') {
-        arguments = new String[0];
+        arguments = StringUtils.EMPTY_ARRAY;
       } else {
-        List<String> items = new LinkedList<>();
+        List<String> items = new ArrayList<>();
         items.add(parseType(true));
         skipWhitespace();
         while (peekChar(0) != ')') {
@@ -517,7 +767,7 @@ public class ProguardMapReader implements AutoCloseable {
     }
     do {
       result *= 10;
-      result += Character.getNumericValue(nextChar());
+      result += nextChar() - '0';
     } while (isSimpleDigit(peekChar(0)));
     return result;
   }
@@ -526,16 +776,119 @@ public class ProguardMapReader implements AutoCloseable {
     assert isCommentLineWithJsonBrace();
     try {
       int firstIndex = 0;
-      while (line.charAt(firstIndex) != '{') {
+      while (charAt(firstIndex) != '{') {
         firstIndex++;
       }
-      return jsonParser.parse(line.substring(firstIndex)).getAsJsonObject();
+      return jsonParser
+          .parse(new String(buffer, lineStart + firstIndex, lineLength - firstIndex))
+          .getAsJsonObject();
     } catch (com.google.gson.JsonSyntaxException ex) {
       // An info message is reported in MappingInformation.
       return null;
     }
   }
 
+  // The member mappings of consecutive classes, which are the lines after the class line up to the
+  // next class line.
+  //
+  // The batch buffers the diagnostics reported while its class lines are read on the calling thread
+  // and while its member mappings are parsed on another thread. The diagnostics are ordered by
+  // their class when they are reported, so the diagnostics of a class line precede those of its
+  // member mappings, as in the sequential parse.
+  private static class MemberMappingsBatch implements DiagnosticsHandler {
+
+    // A batch is full after the class that reaches the batch size, so the lines usually fit
+    // without growing the array.
+    private char[] chars = new char[PARALLEL_BATCH_SIZE + INITIAL_BUFFER_SIZE];
+    private int size = 0;
+    private final List<ClassNaming.Builder> classNamingBuilders = new ArrayList<>();
+    private final IntList lineNumbers = new IntArrayList();
+    private final IntList starts = new IntArrayList();
+
+    // The class whose class line or member mappings are being parsed.
+    private int currentClass = 0;
+    private final List<BufferedDiagnostic> diagnostics = new ArrayList<>(0);
+
+    void addClass(ClassNaming.Builder classNamingBuilder, int lineNumber) {
+      classNamingBuilders.add(classNamingBuilder);
+      lineNumbers.add(lineNumber);
+      starts.add(size);
+      currentClass = classNamingBuilders.size();
+    }
+
+    void setCurrentClass(int index) {
+      currentClass = index;
+    }
+
+    @Override
+    public void error(Diagnostic error) {
+      diagnostics.add(new BufferedDiagnostic(currentClass, handler -> handler.error(error)));
+    }
+
+    @Override
+    public void warning(Diagnostic warning) {
+      diagnostics.add(new BufferedDiagnostic(currentClass, handler -> handler.warning(warning)));
+    }
+
+    @Override
+    public void info(Diagnostic info) {
+      diagnostics.add(new BufferedDiagnostic(currentClass, handler -> handler.info(info)));
+    }
+
+    void reportDiagnostics(DiagnosticsHandler handler) {
+      // The sort is stable, so the diagnostics of a class remain in the order they were reported.
+      diagnostics.sort(Comparator.comparingInt(diagnostic -> diagnostic.classIndex));
+      for (BufferedDiagnostic diagnostic : diagnostics) {
+        diagnostic.report.accept(handler);
+      }
+      diagnostics.clear();
+    }
+
+    void addLine(char[] line, int start, int length) {
+      if (size + length + 1 > chars.length) {
+        chars = Arrays.copyOf(chars, Math.max(chars.length * 2, size + length + 1));
+      }
+      System.arraycopy(line, start, chars, size, length);
+      size += length;
+      chars[size++] = '\n';
+    }
+
+    int size() {
+      return size;
+    }
+
+    int getNumberOfClasses() {
+      return classNamingBuilders.size();
+    }
+
+    ClassNaming.Builder getClassNamingBuilder(int index) {
+      return classNamingBuilders.get(index);
+    }
+
+    int getLineNumber(int index) {
+      return lineNumbers.getInt(index);
+    }
+
+    int getStart(int index) {
+      return starts.getInt(index);
+    }
+
+    int getEnd(int index) {
+      return index + 1 < starts.size() ? starts.getInt(index + 1) : size;
+    }
+  }
+
+  private static class BufferedDiagnostic {
+
+    private final int classIndex;
+    private final Consumer<DiagnosticsHandler> report;
+
+    BufferedDiagnostic(int classIndex, Consumer<DiagnosticsHandler> report) {
+      this.classIndex = classIndex;
+      this.report = report;
+    }
+  }
+
   public class ParseException extends RuntimeException {
 
     private final int lineNo;
@@ -47,10 +47,12 @@ public class ProguardMapSupplier {
     assert classNameMapper != null;
     assert !classNameMapper.isEmpty();
     this.classNameMapper = classNameMapper.sorted();
+    StringConsumer consumer = options.proguardMapConsumer;
+    if (options.proguardMapIndexConsumer != null) {
+      consumer = new ProguardMapIndexWriter(consumer, options.proguardMapIndexConsumer);
+    }
     this.consumer =
-        InternalOptions.assertionsEnabled()
-            ? new ProguardMapChecker(options.proguardMapConsumer)
-            : options.proguardMapConsumer;
+        InternalOptions.assertionsEnabled() ? new ProguardMapChecker(consumer) : consumer;
     this.options = options;
     this.reporter = options.reporter;
   }
@@ -133,6 +135,31 @@ public class ProguardMapSupplier {
     }
   }
 
+  // Builds the binary index of the class mappings and passes it to the index consumer when the
+  // mapping file is finished.
+  static class ProguardMapIndexWriter extends StringConsumer.ForwardingConsumer {
+
+    private final ProguardMapIndex.Consumer indexConsumer;
+    private final ProguardMapIndex.Builder indexBuilder = ProguardMapIndex.builder();
+
+    ProguardMapIndexWriter(StringConsumer inner, ProguardMapIndex.Consumer indexConsumer) {
+      super(inner);
+      this.indexConsumer = indexConsumer;
+    }
+
+    @Override
+    public void accept(String string, DiagnosticsHandler handler) {
+      super.accept(string, handler);
+      indexBuilder.accept(string);
+    }
+
+    @Override
+    public void finished(DiagnosticsHandler handler) {
+      super.finished(handler);
+      indexConsumer.accept(indexBuilder.build(), handler);
+    }
+  }
+
   static class ProguardMapChecker implements StringConsumer {
 
     private final StringConsumer inner;
@@ -7,6 +7,7 @@ import static com.android.tools.r8.utils.DescriptorUtils.descriptorToInternalNam
 import static com.android.tools.r8.utils.DescriptorUtils.descriptorToJavaType;
 import static com.android.tools.r8.utils.DescriptorUtils.javaTypeToDescriptor;
 
+import com.android.tools.r8.DiagnosticsHandler;
 import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.naming.MemberNaming.Signature;
 import com.android.tools.r8.position.Position;
@@ -23,6 +24,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Mappings read from the given ProGuard map.
@@ -48,14 +50,23 @@ public class SeedMapper implements ProguardMap {
     @Override
     ClassNamingForMapApplier.Builder classNamingBuilder(
         String renamedName, String originalName, Position position) {
+      return classNamingBuilder(renamedName, originalName, position, reporter);
+    }
+
+    @Override
+    ClassNamingForMapApplier.Builder classNamingBuilder(
+        String renamedName,
+        String originalName,
+        Position position,
+        DiagnosticsHandler diagnosticsHandler) {
       String originalDescriptor = javaTypeToDescriptor(originalName);
       String renamedDescriptorName = javaTypeToDescriptor(renamedName);
       mappedToDescriptorNames.add(renamedDescriptorName);
       ClassNamingForMapApplier.Builder classNamingBuilder =
           ClassNamingForMapApplier.builder(
-              renamedDescriptorName, originalDescriptor, position, reporter);
+              renamedDescriptorName, originalDescriptor, position, diagnosticsHandler);
       if (map.put(originalDescriptor, classNamingBuilder) != null) {
-        reporter.error(ProguardMapError.duplicateSourceClass(originalName, position));
+        diagnosticsHandler.error(ProguardMapError.duplicateSourceClass(originalName, position));
       }
       return classNamingBuilder;
     }
@@ -71,18 +82,29 @@ public class SeedMapper implements ProguardMap {
     return new Builder(reporter);
   }
 
-  private static SeedMapper seedMapperFromInputStream(Reporter reporter, InputStream in)
-      throws IOException {
+  private static SeedMapper seedMapperFromInputStream(
+      Reporter reporter, InputStream in, ExecutorService executorService) throws IOException {
     BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
     try (ProguardMapReader proguardReader = new ProguardMapReader(reader, reporter, false)) {
       SeedMapper.Builder builder = SeedMapper.builder(reporter);
-      proguardReader.parse(builder);
+      if (executorService != null) {
+        proguardReader.parse(builder, executorService);
+      } else {
+        proguardReader.parse(builder);
+      }
       return builder.build();
     }
   }
 
   public static SeedMapper seedMapperFromFile(Reporter reporter, Path path) throws IOException {
-    return seedMapperFromInputStream(reporter, Files.newInputStream(path));
+    return seedMapperFromInputStream(reporter, Files.newInputStream(path), null);
+  }
+
+  /** Reads the mapping and parses the member mappings of the classes on the executor service. */
+  public static SeedMapper seedMapperFromFile(
+      Reporter reporter, Path path, ExecutorService executorService) throws IOException {
+    assert executorService != null;
+    return seedMapperFromInputStream(reporter, Files.newInputStream(path), executorService);
   }
 
   private final ImmutableMap<String, ClassNamingForMapApplier> mappings;
@@ -5,9 +5,12 @@
 package com.android.tools.r8.retrace;
 
 import com.android.tools.r8.Keep;
+import com.android.tools.r8.retrace.internal.ProguardMapPathProducer;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Path;
 
 /** Interface for producing a string format of a mapping file. */
 @Keep
@@ -15,16 +18,43 @@ public interface ProguardMapProducer {
 
   String get() throws IOException;
 
+  /**
+   * Returns a reader of the mapping file. The mapping is parsed from the reader without creating a
+   * string of the entire mapping file. The default implementation reads the string from {@link
+   * #get()}.
+   */
+  default Reader getReader() throws IOException {
+    return new StringReader(get());
+  }
+
   static ProguardMapProducer fromReader(Reader reader) {
-    return () -> {
-      try (BufferedReader br = new BufferedReader(reader)) {
-        StringBuilder sb = new StringBuilder();
-        String line;
-        while ((line = br.readLine()) != null) {
-          sb.append(line).append('\n');
+    return new ProguardMapProducer() {
+      @Override
+      public String get() throws IOException {
+        try (BufferedReader br = new BufferedReader(reader)) {
+          StringBuilder sb = new StringBuilder();
+          String line;
+          while ((line = br.readLine()) != null) {
+            sb.append(line).append('\n');
+          }
+          return sb.toString();
         }
-        return sb.toString();
+      }
+
+      @Override
+      public Reader getReader() {
+        return reader;
       }
     };
   }
+
+  /**
+   * Creates a producer of the mapping file at the given path.
+   *
+   * <p>The default retracer only indexes the class mappings of the file when it is created and
+   * parses the mapping of a class when the class is first retraced.
+   */
+  static ProguardMapProducer fromPath(Path path) {
+    return new ProguardMapPathProducer(path);
+  }
 }
@@ -13,7 +13,6 @@ import com.android.tools.r8.Version;
 import com.android.tools.r8.retrace.RetraceCommand.Builder;
 import com.android.tools.r8.retrace.internal.PlainStackTraceLineParser;
 import com.android.tools.r8.retrace.internal.RetraceAbortException;
-import com.android.tools.r8.retrace.internal.StackTraceRegularExpressionParser;
 import com.android.tools.r8.utils.ExceptionDiagnostic;
 import com.android.tools.r8.utils.ListUtils;
 import com.android.tools.r8.utils.OptionsParsing;
@@ -123,15 +122,8 @@ public class Retrace<T, ST extends StackTraceElementProxy<T, ST>> {
           new StringDiagnostic(String.format("Could not find mapping file '%s'.", mappingPath)));
       throw new RetraceAbortException();
     }
-    return () -> {
-      try {
-        return new String(Files.readAllBytes(path));
-      } catch (IOException e) {
-        diagnosticsHandler.error(
-            new StringDiagnostic(String.format("Could not open mapping file '%s'.", mappingPath)));
-        throw new RuntimeException(e);
-      }
-    };
+    // The mapping of a class is only read from the file when the class is retraced.
+    return ProguardMapProducer.fromPath(path);
   }
 
   private static List<String> getStackTraceFromFile(
@@ -245,7 +237,8 @@ public class Retrace<T, ST extends StackTraceElementProxy<T, ST>> {
           new StringRetrace(
               options.getRegularExpression() == null
                   ? new PlainStackTraceLineParser()
-                  : new StackTraceRegularExpressionParser(options.getRegularExpression()),
+                  : StackTraceLineParser.createRegularExpressionParser(
+                      options.getRegularExpression()),
               StackTraceElementProxyRetracer.createDefault(retracer),
               diagnosticsHandler,
               options.isVerbose());
@@ -19,16 +19,27 @@ public class RetraceOptions {
   private final String regularExpression;
   private final DiagnosticsHandler diagnosticsHandler;
   private final ProguardMapProducer proguardMapProducer;
+  private final int resultCacheSize;
 
   RetraceOptions(
       String regularExpression,
       DiagnosticsHandler diagnosticsHandler,
       ProguardMapProducer proguardMapProducer,
       boolean isVerbose) {
+    this(regularExpression, diagnosticsHandler, proguardMapProducer, isVerbose, 0);
+  }
+
+  RetraceOptions(
+      String regularExpression,
+      DiagnosticsHandler diagnosticsHandler,
+      ProguardMapProducer proguardMapProducer,
+      boolean isVerbose,
+      int resultCacheSize) {
     this.regularExpression = regularExpression;
     this.diagnosticsHandler = diagnosticsHandler;
     this.proguardMapProducer = proguardMapProducer;
     this.isVerbose = isVerbose;
+    this.resultCacheSize = resultCacheSize;
 
     assert diagnosticsHandler != null;
     assert proguardMapProducer != null;
@@ -50,6 +61,10 @@ public class RetraceOptions {
     return proguardMapProducer;
   }
 
+  public int getResultCacheSize() {
+    return resultCacheSize;
+  }
+
   /** Utility method for obtaining a builder with a default diagnostics handler. */
   public static Builder builder() {
     return builder(new DiagnosticsHandler() {});
@@ -67,6 +82,7 @@ public class RetraceOptions {
     private final DiagnosticsHandler diagnosticsHandler;
     private ProguardMapProducer proguardMapProducer;
     private String regularExpression = StackTraceRegularExpressionParser.DEFAULT_REGULAR_EXPRESSION;
+    private int resultCacheSize = 0;
 
     Builder(DiagnosticsHandler diagnosticsHandler) {
       this.diagnosticsHandler = diagnosticsHandler;
@@ -100,6 +116,22 @@ public class RetraceOptions {
       return this;
     }
 
+    /**
+     * Set the number of retraced classes and frames to cache. The cached results are shared by all
+     * stack traces that are retraced with the same retrace object, which saves retracing frames
+     * that repeat across stack traces. The least recently used results are evicted when the cache
+     * is full. A size of zero, which is the default, disables the cache.
+     *
+     * @param resultCacheSize The maximal number of cached results of each kind.
+     */
+    public Builder setResultCacheSize(int resultCacheSize) {
+      if (resultCacheSize < 0) {
+        throw new IllegalArgumentException("Invalid result cache size: " + resultCacheSize);
+      }
+      this.resultCacheSize = resultCacheSize;
+      return this;
+    }
+
     public RetraceOptions build() {
       if (this.diagnosticsHandler == null) {
         throw new RuntimeException("DiagnosticsHandler not specified");
@@ -108,7 +140,7 @@ public class RetraceOptions {
         throw new RuntimeException("ProguardMapSupplier not specified");
       }
       return new RetraceOptions(
-          regularExpression, diagnosticsHandler, proguardMapProducer, isVerbose);
+          regularExpression, diagnosticsHandler, proguardMapProducer, isVerbose, resultCacheSize);
     }
   }
 }
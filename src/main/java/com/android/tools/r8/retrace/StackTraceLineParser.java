@@ -5,6 +5,7 @@
 package com.android.tools.r8.retrace;
 
 import com.android.tools.r8.Keep;
+import com.android.tools.r8.retrace.internal.DefaultStackTraceLineParser;
 import com.android.tools.r8.retrace.internal.StackTraceElementStringProxy;
 import com.android.tools.r8.retrace.internal.StackTraceRegularExpressionParser;
 
@@ -15,6 +16,10 @@ public interface StackTraceLineParser<T, ST extends StackTraceElementProxy<T, ST
 
   static StackTraceLineParser<String, StackTraceElementStringProxy> createRegularExpressionParser(
       String regularExpression) {
+    // Lines in the default format are parsed by scanning instead of matching the expression.
+    if (StackTraceRegularExpressionParser.DEFAULT_REGULAR_EXPRESSION.equals(regularExpression)) {
+      return new DefaultStackTraceLineParser();
+    }
     return new StackTraceRegularExpressionParser(regularExpression);
   }
 }
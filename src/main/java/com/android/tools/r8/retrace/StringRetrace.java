@@ -8,11 +8,15 @@ import static com.android.tools.r8.retrace.internal.RetraceUtils.firstNonWhiteSp
 
 import com.android.tools.r8.DiagnosticsHandler;
 import com.android.tools.r8.Keep;
+import com.android.tools.r8.retrace.internal.CachingRetracer;
 import com.android.tools.r8.retrace.internal.StackTraceElementStringProxy;
+import com.android.tools.r8.utils.ThreadUtils;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 
 /**
@@ -39,6 +43,9 @@ public class StringRetrace extends Retrace<String, StackTraceElementStringProxy>
   public static StringRetrace create(RetraceOptions command) {
     Retracer retracer =
         Retracer.createDefault(command.getProguardMapProducer(), command.getDiagnosticsHandler());
+    if (command.getResultCacheSize() > 0) {
+      retracer = new CachingRetracer(retracer, command.getResultCacheSize());
+    }
     return new StringRetrace(
         StackTraceLineParser.createRegularExpressionParser(command.getRegularExpression()),
         StackTraceElementProxyRetracer.createDefault(retracer),
@@ -59,6 +66,23 @@ public class StringRetrace extends Retrace<String, StackTraceElementStringProxy>
     return retracedStrings;
   }
 
+  /**
+   * Retraces a batch of stack traces concurrently and returns the retraced stack traces in the
+   * order of the input. Each stack trace is retraced as if by {@link #retrace(List)}. The stack
+   * traces share the result cache of this retrace object, see {@link
+   * RetraceOptions.Builder#setResultCacheSize(int)}.
+   *
+   * @param stackTraces the incoming stack traces
+   * @param executorService the executor service to retrace the stack traces on
+   * @return the retraced stack traces
+   */
+  public List<List<String>> retraceAll(
+      Iterable<List<String>> stackTraces, ExecutorService executorService)
+      throws ExecutionException {
+    return new ArrayList<>(
+        ThreadUtils.processItemsWithResults(stackTraces, this::retrace, executorService));
+  }
+
   /**
    * Retraces a single stack trace line and returns the potential list of original frames
    *
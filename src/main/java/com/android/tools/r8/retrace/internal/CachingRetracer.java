@@ -0,0 +1,212 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace.internal;
+
+import com.android.tools.r8.references.ClassReference;
+import com.android.tools.r8.references.FieldReference;
+import com.android.tools.r8.references.MethodReference;
+import com.android.tools.r8.references.TypeReference;
+import com.android.tools.r8.retrace.RetraceClassResult;
+import com.android.tools.r8.retrace.RetraceFieldResult;
+import com.android.tools.r8.retrace.RetraceFrameResult;
+import com.android.tools.r8.retrace.RetraceMethodResult;
+import com.android.tools.r8.retrace.RetraceTypeResult;
+import com.android.tools.r8.retrace.Retracer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A retracer that caches the class and frame results of another retracer.
+ *
+ * <p>The results of a retracer are immutable, so they can be shared between stack traces that are
+ * retraced concurrently. The caches are bounded and evict the least recently used result. A result
+ * is computed outside of the lock of the cache, so the same result may be computed more than once
+ * by concurrent lookups, in which case the first result that is added to the cache is kept.
+ */
+public class CachingRetracer implements Retracer {
+
+  private final Retracer retracer;
+  private final Map<ClassReference, RetraceClassResult> classResults;
+  // Frames retraced by the retracer and frames looked up in a class result are narrowed to the
+  // position differently, so they are cached separately.
+  private final Map<FrameKey, RetraceFrameResult> retracedFrameResults;
+  private final Map<FrameKey, RetraceFrameResult> frameResults;
+
+  public CachingRetracer(Retracer retracer, int cacheSize) {
+    assert cacheSize > 0;
+    this.retracer = retracer;
+    this.classResults = createCache(cacheSize);
+    this.retracedFrameResults = createCache(cacheSize);
+    this.frameResults = createCache(cacheSize);
+  }
+
+  private static <K, V> Map<K, V> createCache(int cacheSize) {
+    return Collections.synchronizedMap(
+        new LinkedHashMap<K, V>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > cacheSize;
+          }
+        });
+  }
+
+  private static <K, V> V lookup(Map<K, V> cache, K key, Supplier<V> supplier) {
+    V result = cache.get(key);
+    if (result == null) {
+      result = supplier.get();
+      V existing = cache.putIfAbsent(key, result);
+      if (existing != null) {
+        return existing;
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public RetraceClassResult retraceClass(ClassReference classReference) {
+    return lookup(
+        classResults,
+        classReference,
+        () -> new CachingClassResult(classReference, retracer.retraceClass(classReference)));
+  }
+
+  @Override
+  public RetraceMethodResult retraceMethod(MethodReference methodReference) {
+    return retracer.retraceMethod(methodReference);
+  }
+
+  @Override
+  public RetraceFrameResult retraceFrame(MethodReference methodReference, int position) {
+    // The frames of a method are looked up by name, so the signature is not part of the key.
+    return lookup(
+        retracedFrameResults,
+        new FrameKey(methodReference.getHolderClass(), methodReference.getMethodName(), position),
+        () -> retracer.retraceFrame(methodReference, position));
+  }
+
+  @Override
+  public RetraceFieldResult retraceField(FieldReference fieldReference) {
+    return retracer.retraceField(fieldReference);
+  }
+
+  @Override
+  public RetraceTypeResult retraceType(TypeReference typeReference) {
+    return retracer.retraceType(typeReference);
+  }
+
+  private static class FrameKey {
+
+    private final ClassReference holder;
+    private final String methodName;
+    private final int position;
+
+    private FrameKey(ClassReference holder, String methodName, int position) {
+      this.holder = holder;
+      this.methodName = methodName;
+      this.position = position;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof FrameKey)) {
+        return false;
+      }
+      FrameKey other = (FrameKey) o;
+      return position == other.position
+          && holder.equals(other.holder)
+          && methodName.equals(other.methodName);
+    }
+
+    @Override
+    public int hashCode() {
+      return (holder.hashCode() * 31 + methodName.hashCode()) * 31 + position;
+    }
+  }
+
+  // Class result that shares the frame cache of the retracer for frame lookups by name, which is
+  // how frames are looked up when retracing stack trace lines.
+  private class CachingClassResult implements RetraceClassResult {
+
+    private final ClassReference classReference;
+    private final RetraceClassResult classResult;
+
+    private CachingClassResult(ClassReference classReference, RetraceClassResult classResult) {
+      this.classReference = classReference;
+      this.classResult = classResult;
+    }
+
+    @Override
+    public RetraceFieldResult lookupField(String fieldName) {
+      return classResult.lookupField(fieldName);
+    }
+
+    @Override
+    public RetraceFieldResult lookupField(String fieldName, TypeReference fieldType) {
+      return classResult.lookupField(fieldName, fieldType);
+    }
+
+    @Override
+    public RetraceMethodResult lookupMethod(String methodName) {
+      return classResult.lookupMethod(methodName);
+    }
+
+    @Override
+    public RetraceMethodResult lookupMethod(
+        String methodName, List<TypeReference> formalTypes, TypeReference returnType) {
+      return classResult.lookupMethod(methodName, formalTypes, returnType);
+    }
+
+    @Override
+    public RetraceFrameResult lookupFrame(String methodName) {
+      return lookupFrame(methodName, -1);
+    }
+
+    @Override
+    public RetraceFrameResult lookupFrame(String methodName, int position) {
+      return lookup(
+          frameResults,
+          new FrameKey(classReference, methodName, position),
+          () -> classResult.lookupFrame(methodName, position));
+    }
+
+    @Override
+    public RetraceFrameResult lookupFrame(
+        String methodName,
+        int position,
+        List<TypeReference> formalTypes,
+        TypeReference returnType) {
+      return classResult.lookupFrame(methodName, position, formalTypes, returnType);
+    }
+
+    @Override
+    public Stream<Element> stream() {
+      return classResult.stream();
+    }
+
+    @Override
+    public RetraceClassResult forEach(Consumer<Element> resultConsumer) {
+      classResult.forEach(resultConsumer);
+      return this;
+    }
+
+    @Override
+    public boolean hasRetraceResult() {
+      return classResult.hasRetraceResult();
+    }
+
+    @Override
+    public boolean isAmbiguous() {
+      return classResult.isAmbiguous();
+    }
+  }
+}
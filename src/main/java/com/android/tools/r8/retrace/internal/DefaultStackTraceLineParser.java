@@ -0,0 +1,288 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace.internal;
+
+import com.android.tools.r8.retrace.StackTraceLineParser;
+import com.android.tools.r8.retrace.internal.StackTraceElementStringProxy.ClassNameType;
+import com.android.tools.r8.retrace.internal.StackTraceElementStringProxy.StackTraceElementStringProxyBuilder;
+
+/**
+ * Parser for stack trace lines in the format of {@link
+ * StackTraceRegularExpressionParser#DEFAULT_REGULAR_EXPRESSION} that scans the characters of the
+ * line instead of matching the regular expression.
+ *
+ * <p>The parser registers the same indices as the regular expression parser. The default regular
+ * expression has two alternatives:
+ *
+ * <ul>
+ *   <li>'at' lines, such as {@code at a.b.c(SourceFile:1)}, with any prefix before the 'at'.
+ *   <li>exception lines, such as {@code Caused by: a.b: message}, in which the class name is the
+ *       first class name that is followed by ':' or the end of the line and that is preceded by a
+ *       class name, the start of the line, or the last ':' or '"' followed by white space.
+ * </ul>
+ *
+ * <p>Lines for which the result of the match is not evident from a single scan are parsed by the
+ * regular expression parser. These are lines with non-ASCII characters or line terminators, and
+ * 'at' lines that are not of the plain form {@code at class.method(source:line)}.
+ */
+public class DefaultStackTraceLineParser
+    implements StackTraceLineParser<String, StackTraceElementStringProxy> {
+
+  private static final String SUPPRESSED = "Suppressed";
+  private static final String INIT = "<init>";
+  private static final String CLINIT = "<clinit>";
+
+  private final StackTraceRegularExpressionParser regularExpressionParser =
+      new StackTraceRegularExpressionParser(
+          StackTraceRegularExpressionParser.DEFAULT_REGULAR_EXPRESSION);
+
+  @Override
+  public StackTraceElementStringProxy parse(String stackTraceLine) {
+    StackTraceElementStringProxy proxy = tryParse(stackTraceLine);
+    return proxy != null ? proxy : regularExpressionParser.parse(stackTraceLine);
+  }
+
+  /** Returns the parsed line, or null if the line must be parsed by the regular expression. */
+  static StackTraceElementStringProxy tryParse(String line) {
+    if (!isAsciiSingleLine(line)) {
+      return null;
+    }
+    int atIndex = findAt(line);
+    if (atIndex >= 0) {
+      return tryParseAtLine(line, atIndex);
+    }
+    // Without an 'at' the first alternative of the regular expression cannot match.
+    return parseExceptionLine(line);
+  }
+
+  private static boolean isAsciiSingleLine(String line) {
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c >= 0x80 || c == '\n' || c == '\r') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Returns the index of the first 'at' that starts a word and is followed by white space.
+  private static int findAt(String line) {
+    for (int i = 0; i + 2 < line.length(); i++) {
+      if (line.charAt(i) == 'a'
+          && line.charAt(i + 1) == 't'
+          && isWhitespace(line.charAt(i + 2))
+          && (i == 0 || !isWordCharacter(line.charAt(i - 1)))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // Parses '\s+%c\.%m\s*\(%s(?::%l)?\)\s*' after the 'at'.
+  private static StackTraceElementStringProxy tryParseAtLine(String line, int atIndex) {
+    int classStart = skipWhitespace(line, atIndex + 2);
+    int index = classStart;
+    int lastDot = -1;
+    while (index < line.length()) {
+      char c = line.charAt(index);
+      if (c == '.') {
+        lastDot = index;
+      } else if (!Character.isJavaIdentifierPart(c)) {
+        break;
+      }
+      index++;
+    }
+    if (lastDot < 0 || !isQualifiedIdentifier(line, classStart, lastDot)) {
+      return null;
+    }
+    int methodStart = lastDot + 1;
+    int methodEnd = index;
+    if (methodStart == methodEnd) {
+      if (line.startsWith(INIT, methodStart)) {
+        methodEnd += INIT.length();
+      } else if (line.startsWith(CLINIT, methodStart)) {
+        methodEnd += CLINIT.length();
+      } else {
+        return null;
+      }
+    } else if (!isQualifiedIdentifier(line, methodStart, methodEnd)) {
+      return null;
+    }
+    int openParenthesis = skipWhitespace(line, methodEnd);
+    if (openParenthesis == line.length() || line.charAt(openParenthesis) != '(') {
+      return null;
+    }
+    // The source file may contain a closing parenthesis if more text follows, so only lines that
+    // end with the first closing parenthesis are parsed here.
+    int closeParenthesis = line.indexOf(')', openParenthesis + 1);
+    if (closeParenthesis < 0 || skipWhitespace(line, closeParenthesis + 1) != line.length()) {
+      return null;
+    }
+    int sourceFileStart = openParenthesis + 1;
+    int sourceFileEnd = closeParenthesis;
+    int lineNumberStart = -1;
+    if (!isSourceFile(line, sourceFileStart, closeParenthesis)) {
+      int colon = line.lastIndexOf(':', closeParenthesis - 1);
+      if (colon < sourceFileStart
+          || !isDigits(line, colon + 1, closeParenthesis)
+          || !isSourceFile(line, sourceFileStart, colon)) {
+        return null;
+      }
+      sourceFileEnd = colon;
+      lineNumberStart = colon + 1;
+    }
+    StackTraceElementStringProxyBuilder builder = StackTraceElementStringProxy.builder(line);
+    registerClassName(builder, line, classStart, lastDot);
+    builder.registerMethodName(methodStart, methodEnd);
+    builder.registerSourceFile(sourceFileStart, sourceFileEnd);
+    if (lineNumberStart >= 0) {
+      builder.registerLineNumber(lineNumberStart, closeParenthesis);
+    }
+    return builder.build();
+  }
+
+  // Parses '(?:(?:%c|.*)?[:"]\s+)?%c(?::.*)?', trying the alternatives in the order of the regular
+  // expression.
+  private static StackTraceElementStringProxy parseExceptionLine(String line) {
+    StackTraceElementStringProxyBuilder builder = StackTraceElementStringProxy.builder(line);
+    int classEnd = qualifiedIdentifierEnd(line, 0);
+    if (classEnd > 0 && classEnd < line.length() && isClassSeparator(line, classEnd)) {
+      int lastClassStart = skipWhitespace(line, classEnd + 1);
+      int lastClassEnd = lastClassEndAfterSeparator(line, classEnd);
+      if (lastClassEnd > 0) {
+        if (!registerClassName(builder, line, 0, classEnd)) {
+          registerClassName(builder, line, lastClassStart, lastClassEnd);
+        }
+        return builder.build();
+      }
+    }
+    // The prefix '.*' is greedy, so the last separator is tried first.
+    for (int separator = line.length() - 1; separator >= 0; separator--) {
+      if (isClassSeparator(line, separator)) {
+        int lastClassEnd = lastClassEndAfterSeparator(line, separator);
+        if (lastClassEnd > 0) {
+          registerClassName(builder, line, skipWhitespace(line, separator + 1), lastClassEnd);
+          return builder.build();
+        }
+      }
+    }
+    if (classEnd > 0 && isLastClassEnd(line, classEnd)) {
+      registerClassName(builder, line, 0, classEnd);
+    }
+    return builder.build();
+  }
+
+  // Returns the end of the class name matched by '\s+%c(?::.*)?' after the separator, or -1.
+  private static int lastClassEndAfterSeparator(String line, int separator) {
+    int classStart = skipWhitespace(line, separator + 1);
+    if (classStart == separator + 1) {
+      return -1;
+    }
+    int classEnd = qualifiedIdentifierEnd(line, classStart);
+    return classEnd > classStart && isLastClassEnd(line, classEnd) ? classEnd : -1;
+  }
+
+  private static boolean registerClassName(
+      StackTraceElementStringProxyBuilder builder, String line, int start, int end) {
+    // The regular expression parser does not register the class name 'Suppressed'.
+    if (end - start == SUPPRESSED.length() && line.startsWith(SUPPRESSED, start)) {
+      return false;
+    }
+    builder.registerClassName(start, end, ClassNameType.TYPENAME);
+    return true;
+  }
+
+  private static boolean isClassSeparator(String line, int index) {
+    char c = line.charAt(index);
+    return c == ':' || c == '"';
+  }
+
+  private static boolean isLastClassEnd(String line, int index) {
+    return index == line.length() || line.charAt(index) == ':';
+  }
+
+  // Returns the end of the longest match of '(ident\.)*ident' at the start index, or -1.
+  private static int qualifiedIdentifierEnd(String line, int start) {
+    int end = -1;
+    int index = start;
+    while (index < line.length() && Character.isJavaIdentifierStart(line.charAt(index))) {
+      index++;
+      while (index < line.length() && Character.isJavaIdentifierPart(line.charAt(index))) {
+        index++;
+      }
+      end = index;
+      if (index == line.length() || line.charAt(index) != '.') {
+        break;
+      }
+      index++;
+    }
+    return end;
+  }
+
+  // Matches '(ident\.)*ident' against the entire range.
+  private static boolean isQualifiedIdentifier(String line, int start, int end) {
+    boolean atSegmentStart = true;
+    for (int i = start; i < end; i++) {
+      char c = line.charAt(i);
+      if (atSegmentStart) {
+        if (!Character.isJavaIdentifierStart(c)) {
+          return false;
+        }
+        atSegmentStart = false;
+      } else if (c == '.') {
+        atSegmentStart = true;
+      } else if (!Character.isJavaIdentifierPart(c)) {
+        return false;
+      }
+    }
+    return !atSegmentStart;
+  }
+
+  // Matches '(?::+[^\d:]|[^:])*', in which a colon can only be followed by a colon or a character
+  // that is not a digit.
+  private static boolean isSourceFile(String line, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (line.charAt(i) == ':') {
+        while (i < end && line.charAt(i) == ':') {
+          i++;
+        }
+        if (i == end || isDigit(line.charAt(i))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isDigits(String line, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (!isDigit(line.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int skipWhitespace(String line, int index) {
+    while (index < line.length() && isWhitespace(line.charAt(index))) {
+      index++;
+    }
+    return index;
+  }
+
+  // The character classes of the regular expression: '\d', '\s' and the word characters of '\b'.
+
+  private static boolean isDigit(char c) {
+    return '0' <= c && c <= '9';
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+  }
+
+  private static boolean isWordCharacter(char c) {
+    return ('a' <= c && c <= 'z') || ('A' <= c && c <= 'Z') || isDigit(c) || c == '_';
+  }
+}
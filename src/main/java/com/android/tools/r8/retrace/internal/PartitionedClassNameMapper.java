@@ -0,0 +1,210 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace.internal;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.naming.ClassNameMapperReader;
+import com.android.tools.r8.naming.ClassNamingForNameMapper;
+import com.android.tools.r8.naming.ProguardMapIndex;
+import com.android.tools.r8.retrace.InvalidMappingFileException;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class name mapper for a mapping file on disk that only parses the mapping of a class when the
+ * class is first looked up.
+ *
+ * <p>The class mappings are located through a {@link ProguardMapIndex}. If the compiler wrote an
+ * index next to the mapping file, the index is memory mapped. Otherwise, the file is scanned once
+ * for the lines that start a class mapping when the mapper is created. A lookup reads the byte
+ * range of the class from the file and parses it with the {@link ClassNameMapper} parser. The
+ * parsed class mappings of the most recently retraced classes are cached, so the heap only holds a
+ * bounded number of classes.
+ */
+public class PartitionedClassNameMapper {
+
+  private static final int DEFAULT_CACHE_SIZE = 4096;
+
+  private final Path path;
+  private final DiagnosticsHandler diagnosticsHandler;
+  private final boolean allowEmptyMappedRanges;
+  private final ProguardMapIndex index;
+  private final Map<String, ClassNamingForNameMapper> classNamings;
+
+  private PartitionedClassNameMapper(
+      Path path,
+      DiagnosticsHandler diagnosticsHandler,
+      boolean allowEmptyMappedRanges,
+      ProguardMapIndex index,
+      int cacheSize) {
+    this.path = path;
+    this.diagnosticsHandler = diagnosticsHandler;
+    this.allowEmptyMappedRanges = allowEmptyMappedRanges;
+    this.index = index;
+    this.classNamings =
+        Collections.synchronizedMap(
+            new LinkedHashMap<String, ClassNamingForNameMapper>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(
+                  Map.Entry<String, ClassNamingForNameMapper> eldest) {
+                return size() > cacheSize;
+              }
+            });
+  }
+
+  public static PartitionedClassNameMapper create(
+      Path path, DiagnosticsHandler diagnosticsHandler, boolean allowEmptyMappedRanges)
+      throws IOException {
+    return create(path, diagnosticsHandler, allowEmptyMappedRanges, DEFAULT_CACHE_SIZE);
+  }
+
+  public static PartitionedClassNameMapper create(
+      Path path,
+      DiagnosticsHandler diagnosticsHandler,
+      boolean allowEmptyMappedRanges,
+      int cacheSize)
+      throws IOException {
+    assert cacheSize > 0;
+    ProguardMapIndex index = readIndex(path);
+    if (index == null) {
+      index = ProguardMapIndex.fromBuffer(ByteBuffer.wrap(scanClassLines(path)));
+    }
+    return new PartitionedClassNameMapper(
+        path, diagnosticsHandler, allowEmptyMappedRanges, index, cacheSize);
+  }
+
+  // Returns the index written next to the mapping file, or null if there is no valid index or the
+  // index was written for another version of the mapping file. The mapping file is identified by
+  // its size and the hash of its header, so only the header of the mapping file is read.
+  private static ProguardMapIndex readIndex(Path path) throws IOException {
+    Path indexPath = ProguardMapIndex.getIndexPath(path);
+    if (!Files.isRegularFile(indexPath)) {
+      return null;
+    }
+    ProguardMapIndex index;
+    try {
+      index = ProguardMapIndex.fromFile(indexPath);
+    } catch (IOException e) {
+      // The index is only an optimization, so an unreadable index is ignored.
+      return null;
+    }
+    if (index == null
+        || index.getMappingSize() != Files.size(path)
+        || index.getMappingHeaderHash() != ProguardMapIndex.computeMappingHeaderHash(path)) {
+      return null;
+    }
+    return index;
+  }
+
+  private static byte[] scanClassLines(Path path) throws IOException {
+    ProguardMapIndex.Builder builder = ProguardMapIndex.builder();
+    byte[] header = new byte[ProguardMapIndex.HASHED_HEADER_SIZE];
+    try (InputStream in = Files.newInputStream(path)) {
+      byte[] buffer = new byte[1 << 16];
+      long offset = 0;
+      long lineStart = 0;
+      int lineNumber = 1;
+      boolean atLineStart = true;
+      ByteArrayOutputStream classLine = null;
+      int read;
+      while ((read = in.read(buffer)) > 0) {
+        if (offset < header.length) {
+          int headerBytes = (int) Math.min(read, header.length - offset);
+          System.arraycopy(buffer, 0, header, (int) offset, headerBytes);
+        }
+        for (int i = 0; i < read; i++, offset++) {
+          byte b = buffer[i];
+          if (b == '\n') {
+            if (classLine != null) {
+              builder.addClassLine(toString(classLine), lineStart, lineNumber);
+              classLine = null;
+            }
+            atLineStart = true;
+            lineNumber++;
+            continue;
+          }
+          if (atLineStart) {
+            atLineStart = false;
+            lineStart = offset;
+            if (!builder.isMemberOrCommentLineStart(b)) {
+              classLine = new ByteArrayOutputStream();
+            }
+          }
+          if (classLine != null) {
+            classLine.write(b);
+          }
+        }
+      }
+      if (classLine != null) {
+        builder.addClassLine(toString(classLine), lineStart, lineNumber);
+      }
+      int headerLength = (int) Math.min(offset, header.length);
+      return builder.build(
+          offset, ProguardMapIndex.computeMappingHeaderHash(header, headerLength));
+    }
+  }
+
+  private static String toString(ByteArrayOutputStream bytes) {
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  public ClassNamingForNameMapper getClassNaming(String obfuscatedName) {
+    int classIndex = index.lookup(obfuscatedName);
+    if (classIndex < 0) {
+      return null;
+    }
+    // The section is parsed outside of the lock of the cache, so concurrent lookups of different
+    // classes are not serialized. A concurrent lookup of the same class may parse it twice.
+    ClassNamingForNameMapper classNaming = classNamings.get(obfuscatedName);
+    if (classNaming == null) {
+      classNaming = parseSection(obfuscatedName, classIndex);
+      if (classNaming != null) {
+        ClassNamingForNameMapper existing = classNamings.putIfAbsent(obfuscatedName, classNaming);
+        if (existing != null) {
+          classNaming = existing;
+        }
+      }
+    }
+    return classNaming;
+  }
+
+  private ClassNamingForNameMapper parseSection(String obfuscatedName, int classIndex) {
+    long start = index.getStart(classIndex);
+    byte[] bytes = new byte[(int) (index.getEnd(classIndex) - start)];
+    try {
+      try (FileChannel channel = FileChannel.open(path)) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer, start + buffer.position()) < 0) {
+            throw new EOFException("Mapping file changed while retracing: " + path);
+          }
+        }
+      }
+      ClassNameMapper mapper =
+          ClassNameMapperReader.read(
+              new BufferedReader(
+                  new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)),
+              diagnosticsHandler,
+              allowEmptyMappedRanges);
+      return mapper.getClassNaming(obfuscatedName);
+    } catch (Throwable throwable) {
+      throw new InvalidMappingFileException(throwable);
+    }
+  }
+}
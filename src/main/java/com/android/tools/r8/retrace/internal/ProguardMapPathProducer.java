@@ -0,0 +1,36 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace.internal;
+
+import com.android.tools.r8.retrace.ProguardMapProducer;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Producer of a mapping file on disk, which allows the retracer to read parts of the file. */
+public class ProguardMapPathProducer implements ProguardMapProducer {
+
+  private final Path path;
+
+  public ProguardMapPathProducer(Path path) {
+    this.path = path;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  @Override
+  public String get() throws IOException {
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public Reader getReader() throws IOException {
+    return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+  }
+}
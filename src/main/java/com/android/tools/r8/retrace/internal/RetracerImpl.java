@@ -6,6 +6,8 @@ package com.android.tools.r8.retrace.internal;
 
 import com.android.tools.r8.DiagnosticsHandler;
 import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.naming.ClassNameMapperReader;
+import com.android.tools.r8.naming.ClassNamingForNameMapper;
 import com.android.tools.r8.references.ClassReference;
 import com.android.tools.r8.references.FieldReference;
 import com.android.tools.r8.references.MethodReference;
@@ -13,15 +15,26 @@ import com.android.tools.r8.references.TypeReference;
 import com.android.tools.r8.retrace.InvalidMappingFileException;
 import com.android.tools.r8.retrace.ProguardMapProducer;
 import com.android.tools.r8.retrace.Retracer;
+import com.android.tools.r8.utils.StringDiagnostic;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Function;
 
 /** A default implementation for the retrace api using the ClassNameMapper defined in R8. */
 public class RetracerImpl implements Retracer {
 
-  private final ClassNameMapper classNameMapper;
+  // Lookup of the class naming by the obfuscated name of the class.
+  private final Function<String, ClassNamingForNameMapper> classNamingLookup;
 
   private RetracerImpl(ClassNameMapper classNameMapper) {
-    this.classNameMapper = classNameMapper;
     assert classNameMapper != null;
+    this.classNamingLookup = classNameMapper::getClassNaming;
+  }
+
+  private RetracerImpl(PartitionedClassNameMapper classNameMapper) {
+    assert classNameMapper != null;
+    this.classNamingLookup = classNameMapper::getClassNaming;
   }
 
   public static RetracerImpl create(
@@ -31,9 +44,21 @@ public class RetracerImpl implements Retracer {
           ((DirectClassNameMapperProguardMapProducer) proguardMapProducer).getClassNameMapper());
     }
     try {
-      ClassNameMapper classNameMapper =
-          ClassNameMapper.mapperFromString(proguardMapProducer.get(), diagnosticsHandler, true);
-      return new RetracerImpl(classNameMapper);
+      if (proguardMapProducer instanceof ProguardMapPathProducer) {
+        Path path = ((ProguardMapPathProducer) proguardMapProducer).getPath();
+        PartitionedClassNameMapper classNameMapper;
+        try {
+          classNameMapper = PartitionedClassNameMapper.create(path, diagnosticsHandler, true);
+        } catch (IOException e) {
+          diagnosticsHandler.error(
+              new StringDiagnostic(String.format("Could not open mapping file '%s'.", path)));
+          throw e;
+        }
+        return new RetracerImpl(classNameMapper);
+      }
+      try (BufferedReader reader = new BufferedReader(proguardMapProducer.getReader())) {
+        return new RetracerImpl(ClassNameMapperReader.read(reader, diagnosticsHandler, true));
+      }
     } catch (Throwable throwable) {
       throw new InvalidMappingFileException(throwable);
     }
@@ -60,7 +85,7 @@ public class RetracerImpl implements Retracer {
   @Override
   public RetraceClassResultImpl retraceClass(ClassReference classReference) {
     return RetraceClassResultImpl.create(
-        classReference, classNameMapper.getClassNaming(classReference.getTypeName()), this);
+        classReference, classNamingLookup.apply(classReference.getTypeName()), this);
   }
 
   @Override
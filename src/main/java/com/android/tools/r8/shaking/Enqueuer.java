@@ -126,6 +126,7 @@ import com.android.tools.r8.utils.Visibility;
 import com.android.tools.r8.utils.WorkList;
 import com.android.tools.r8.utils.collections.ProgramFieldSet;
 import com.android.tools.r8.utils.collections.ProgramMethodSet;
+import com.android.tools.r8.utils.metrics.CompilerMetrics;
 import com.google.common.base.Equivalence.Wrapper;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -134,6 +135,8 @@ import com.google.common.collect.Sets;
 import com.google.common.collect.Sets.SetView;
 import it.unimi.dsi.fastutil.objects.Object2BooleanArrayMap;
 import it.unimi.dsi.fastutil.objects.Object2BooleanMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import java.lang.reflect.InvocationHandler;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -380,6 +383,10 @@ public class Enqueuer {
   /** Map of active if rules to speed up aapt2 generated keep rules. */
   private Map<Wrapper<ProguardIfRule>, Set<ProguardIfRule>> activeIfRules;
 
+  // The number of effectively live members of each effectively live class at the last evaluation of
+  // the -if rules, used to only evaluate the -if rules against the classes that changed since.
+  private Reference2IntMap<DexProgramClass> ifRuleEvaluationLiveMemberCounts;
+
   /**
    * A cache of ScopedDexMethodSet for each live type used for determining that virtual methods that
    * cannot be removed because they are widening access for another virtual method defined earlier
@@ -412,7 +419,7 @@ public class Enqueuer {
     this.mode = mode;
     this.options = options;
     this.useRegistryFactory = createUseRegistryFactory();
-    this.workList = EnqueuerWorklist.createWorklist(this);
+    this.workList = EnqueuerWorklist.createWorklist(this, options);
     this.proguardCompatibilityActionsBuilder =
         mode.isInitialTreeShaking() && options.forceProguardCompatibility
             ? ProguardCompatibilityActions.builder()
@@ -3430,10 +3437,16 @@ public class Enqueuer {
     try {
       while (true) {
         long numberOfLiveItems = getNumberOfLiveItems();
+        CompilerMetrics.Scope iterationScope =
+            options.getMetrics().begin(CompilerMetrics.CATEGORY_ENQUEUER, mode.name());
+        long numberOfActions = 0;
         while (!workList.isEmpty()) {
           EnqueuerAction action = workList.poll();
+          workList.ensureCodeLoaded(action, executorService);
           action.run(this);
+          numberOfActions++;
         }
+        iterationScope.setCount(numberOfActions).end();
 
         // Continue fix-point processing if -if rules are enabled by items that newly became live.
         long numberOfLiveItemsAfterProcessing = getNumberOfLiveItems();
@@ -3447,6 +3460,8 @@ public class Enqueuer {
               Wrapper<ProguardIfRule> wrap = equivalence.wrap(ifRule);
               activeIfRules.computeIfAbsent(wrap, ignore -> new LinkedHashSet<>()).add(ifRule);
             }
+            ifRuleEvaluationLiveMemberCounts = new Reference2IntOpenHashMap<>();
+            ifRuleEvaluationLiveMemberCounts.defaultReturnValue(-1);
           }
           ConsequentRootSetBuilder consequentSetBuilder =
               ConsequentRootSet.builder(appView, subtypingInfo, this);
@@ -3457,6 +3472,7 @@ public class Enqueuer {
                   this,
                   executorService,
                   activeIfRules,
+                  ifRuleEvaluationLiveMemberCounts,
                   consequentSetBuilder);
           addConsequentRootSet(ifRuleEvaluator.run(), false);
           assert getNumberOfLiveItems() == numberOfLiveItemsAfterProcessing;
@@ -4,23 +4,39 @@
 
 package com.android.tools.r8.shaking;
 
+import com.android.tools.r8.graph.Code;
 import com.android.tools.r8.graph.DexField;
 import com.android.tools.r8.graph.DexMethod;
 import com.android.tools.r8.graph.DexProgramClass;
 import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.graph.LazyCfCode;
 import com.android.tools.r8.graph.ProgramDefinition;
 import com.android.tools.r8.graph.ProgramField;
 import com.android.tools.r8.graph.ProgramMethod;
 import com.android.tools.r8.shaking.GraphReporter.KeepReasonWitness;
 import com.android.tools.r8.utils.Action;
 import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 
 public class EnqueuerWorklist {
 
   public abstract static class EnqueuerAction {
     public abstract void run(Enqueuer enqueuer);
+
+    // Returns the method whose code is traced when running this action, if any.
+    ProgramMethod getMethodWithCodeToTrace() {
+      return null;
+    }
   }
 
   static class AssertAction extends EnqueuerAction {
@@ -157,6 +173,11 @@ public class EnqueuerWorklist {
     public void run(Enqueuer enqueuer) {
       enqueuer.markMethodAsLive(method, context);
     }
+
+    @Override
+    ProgramMethod getMethodWithCodeToTrace() {
+      return method;
+    }
   }
 
   static class MarkMethodKeptAction extends EnqueuerAction {
@@ -200,6 +221,11 @@ public class EnqueuerWorklist {
     public void run(Enqueuer enqueuer) {
       enqueuer.traceCode(method);
     }
+
+    @Override
+    ProgramMethod getMethodWithCodeToTrace() {
+      return method;
+    }
   }
 
   static class TraceConstClassAction extends EnqueuerAction {
@@ -282,12 +308,20 @@ public class EnqueuerWorklist {
   private final Enqueuer enqueuer;
   private final Queue<EnqueuerAction> queue = new ArrayDeque<>();
 
-  private EnqueuerWorklist(Enqueuer enqueuer) {
+  // Methods with code that will be traced by actions in the queue. Only used when the code of the
+  // methods is loaded in parallel ahead of tracing.
+  private final List<ProgramMethod> methodsWithCodeToLoad;
+  private final Consumer<Collection<DexProgramClass>> codeLoadingInspector;
+
+  private EnqueuerWorklist(Enqueuer enqueuer, InternalOptions options) {
     this.enqueuer = enqueuer;
+    this.methodsWithCodeToLoad =
+        options.enableParallelCodeLoadingInEnqueuer ? new ArrayList<>() : null;
+    this.codeLoadingInspector = options.testing.enqueuerCodeLoadingInspector;
   }
 
-  public static EnqueuerWorklist createWorklist(Enqueuer enqueuer) {
-    return new EnqueuerWorklist(enqueuer);
+  public static EnqueuerWorklist createWorklist(Enqueuer enqueuer, InternalOptions options) {
+    return new EnqueuerWorklist(enqueuer, options);
   }
 
   public boolean isEmpty() {
@@ -298,6 +332,50 @@ public class EnqueuerWorklist {
     return queue.poll();
   }
 
+  /**
+   * Ensures that the code traced by the given action has been parsed.
+   *
+   * <p>If the code of the action is not yet parsed, then the code of all methods that are currently
+   * waiting to be traced is parsed in parallel. The tracing itself remains single threaded and
+   * happens in the order of the worklist, so the result of tree shaking does not depend on this.
+   */
+  void ensureCodeLoaded(EnqueuerAction action, ExecutorService executorService)
+      throws ExecutionException {
+    if (methodsWithCodeToLoad == null || methodsWithCodeToLoad.isEmpty()) {
+      return;
+    }
+    ProgramMethod method = action.getMethodWithCodeToTrace();
+    if (method == null || !hasCodeToLoad(method)) {
+      return;
+    }
+    // A class file is parsed as a whole, so only schedule the parsing of one method per class to
+    // avoid two threads parsing the same class.
+    Map<DexProgramClass, LazyCfCode> codeToLoadByHolder = new IdentityHashMap<>();
+    for (ProgramMethod methodWithCodeToLoad : methodsWithCodeToLoad) {
+      if (hasCodeToLoad(methodWithCodeToLoad)) {
+        codeToLoadByHolder.putIfAbsent(
+            methodWithCodeToLoad.getHolder(),
+            methodWithCodeToLoad.getDefinition().getCode().asLazyCfCode());
+      }
+    }
+    methodsWithCodeToLoad.clear();
+    if (codeLoadingInspector != null) {
+      codeLoadingInspector.accept(codeToLoadByHolder.keySet());
+    }
+    ThreadUtils.processItems(codeToLoadByHolder.values(), LazyCfCode::asCfCode, executorService);
+  }
+
+  private static boolean hasCodeToLoad(ProgramMethod method) {
+    Code code = method.getDefinition().getCode();
+    return code != null && code.isLazyCfCode() && !code.asLazyCfCode().isParsed();
+  }
+
+  private void addMethodWithCodeToLoad(ProgramMethod method) {
+    if (methodsWithCodeToLoad != null && hasCodeToLoad(method)) {
+      methodsWithCodeToLoad.add(method);
+    }
+  }
+
   boolean enqueueAssertAction(Action assertion) {
     if (InternalOptions.assertionsEnabled()) {
       queue.add(new AssertAction(assertion));
@@ -347,6 +425,7 @@ public class EnqueuerWorklist {
       ProgramMethod method, ProgramDefinition context, KeepReason reason) {
     if (enqueuer.addLiveMethod(method, reason)) {
       queue.add(new MarkMethodLiveAction(method, context));
+      addMethodWithCodeToLoad(method);
       if (!enqueuer.isMethodTargeted(method)) {
         queue.add(new TraceMethodDefinitionExcludingCodeAction(method));
       }
@@ -365,6 +444,7 @@ public class EnqueuerWorklist {
 
   public void enqueueTraceCodeAction(ProgramMethod method) {
     queue.add(new TraceCodeAction(method));
+    addMethodWithCodeToLoad(method);
   }
 
   public void enqueueTraceConstClassAction(DexType type, ProgramMethod context) {
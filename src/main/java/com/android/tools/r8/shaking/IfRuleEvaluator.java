@@ -25,8 +25,10 @@ import com.google.common.base.Equivalence.Wrapper;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +46,7 @@ public class IfRuleEvaluator {
   private final ExecutorService executorService;
   private final List<Future<?>> futures = new ArrayList<>();
   private final Map<Wrapper<ProguardIfRule>, Set<ProguardIfRule>> ifRules;
+  private final Reference2IntMap<DexProgramClass> liveMemberCountsAtLastEvaluation;
   private final ConsequentRootSetBuilder rootSetBuilder;
 
   IfRuleEvaluator(
@@ -52,12 +55,15 @@ public class IfRuleEvaluator {
       Enqueuer enqueuer,
       ExecutorService executorService,
       Map<Wrapper<ProguardIfRule>, Set<ProguardIfRule>> ifRules,
+      Reference2IntMap<DexProgramClass> liveMemberCountsAtLastEvaluation,
       ConsequentRootSetBuilder rootSetBuilder) {
+    assert liveMemberCountsAtLastEvaluation.defaultReturnValue() < 0;
     this.appView = appView;
     this.subtypingInfo = subtypingInfo;
     this.enqueuer = enqueuer;
     this.executorService = executorService;
     this.ifRules = ifRules;
+    this.liveMemberCountsAtLastEvaluation = liveMemberCountsAtLastEvaluation;
     this.rootSetBuilder = rootSetBuilder;
   }
 
@@ -65,9 +71,20 @@ public class IfRuleEvaluator {
     appView.appInfo().app().timing.begin("Find consequent items for -if rules...");
     try {
       if (ifRules != null && !ifRules.isEmpty()) {
+        // The outcome of evaluating an -if rule against a class only depends on the liveness of the
+        // class and its members. Since liveness only grows, the rules only need to be evaluated
+        // against the classes that became live or got new live members since the last evaluation.
+        List<DexProgramClass> changedClasses = computeClassesChangedSinceLastEvaluation();
+        Set<DexProgramClass> changedClassSet = Sets.newIdentityHashSet();
+        changedClassSet.addAll(changedClasses);
+        // A rule that matches a class that has been vertically merged into a changed class is
+        // evaluated against the changed class, so the changed classes are also indexed under the
+        // names and annotations of their merged sources.
+        ProguardRuleCandidateIndex candidateIndex =
+            ProguardRuleCandidateIndex.create(changedClasses, this::getVerticallyMergedSources);
         Iterator<Map.Entry<Wrapper<ProguardIfRule>, Set<ProguardIfRule>>> it =
             ifRules.entrySet().iterator();
-        while (it.hasNext()) {
+        while (!changedClasses.isEmpty() && it.hasNext()) {
           Map.Entry<Wrapper<ProguardIfRule>, Set<ProguardIfRule>> ifRuleEntry = it.next();
           ProguardIfRule ifRule = ifRuleEntry.getKey().get();
           ProguardIfRuleEvaluationData ifRuleEvaluationData =
@@ -76,10 +93,13 @@ public class IfRuleEvaluator {
           // Depending on which types that trigger the -if rule, the application of the subsequent
           // -keep rule may vary (due to back references). So, we need to try all pairs of -if
           // rule and live types.
+          List<DexProgramClass> indexedCandidates = candidateIndex.getCandidates(ifRule);
           for (DexProgramClass clazz :
               ifRule.relevantCandidatesForRule(
-                  appView, subtypingInfo, appView.appInfo().classes())) {
-            if (!isEffectivelyLive(clazz)) {
+                  appView,
+                  subtypingInfo,
+                  indexedCandidates != null ? indexedCandidates : changedClasses)) {
+            if (!changedClassSet.contains(clazz)) {
               continue;
             }
 
@@ -174,6 +194,50 @@ public class IfRuleEvaluator {
     }
   }
 
+  private List<DexProgramClass> getVerticallyMergedSources(DexProgramClass clazz) {
+    if (appView.verticallyMergedClasses() == null) {
+      return Collections.emptyList();
+    }
+    List<DexProgramClass> sourceClasses = new ArrayList<>();
+    for (DexType sourceType : appView.verticallyMergedClasses().getSourcesFor(clazz.type)) {
+      DexProgramClass sourceClass = asProgramClassOrNull(appView.definitionFor(sourceType));
+      if (sourceClass != null) {
+        sourceClasses.add(sourceClass);
+      }
+    }
+    return sourceClasses;
+  }
+
+  private List<DexProgramClass> computeClassesChangedSinceLastEvaluation() {
+    List<DexProgramClass> changedClasses = new ArrayList<>();
+    for (DexProgramClass clazz : appView.appInfo().classes()) {
+      if (!isEffectivelyLive(clazz)) {
+        continue;
+      }
+      int liveMemberCount =
+          Iterables.size(clazz.fields(this::isEffectivelyLive))
+              + Iterables.size(clazz.methods(this::isEffectivelyLive));
+      if (liveMemberCountsAtLastEvaluation.put(clazz, liveMemberCount) != liveMemberCount) {
+        changedClasses.add(clazz);
+      }
+    }
+    return changedClasses;
+  }
+
+  private boolean isEffectivelyLive(DexEncodedField field) {
+    // Fields referenced only by -keep may not be referenced, we therefore have to filter on both
+    // live and referenced.
+    return enqueuer.isFieldLive(field)
+        || enqueuer.isFieldReferenced(field)
+        || field.getOptimizationInfo().valueHasBeenPropagated();
+  }
+
+  private boolean isEffectivelyLive(DexEncodedMethod method) {
+    return enqueuer.isMethodLive(method)
+        || enqueuer.isMethodTargeted(method)
+        || method.getOptimizationInfo().returnValueHasBeenPropagated();
+  }
+
   private boolean isEffectivelyLive(DexProgramClass clazz) {
     // A type is effectively live if (1) it is truly live, (2) the value of one of its fields has
     // been inlined by the member value propagation, or (3) the return value of one of its methods
@@ -230,20 +294,14 @@ public class IfRuleEvaluator {
         filteredMembers,
         targetClass.fields(
             f ->
-                // Fields referenced only by -keep may not be referenced, we therefore have to
-                // filter on both live and referenced.
-                (enqueuer.isFieldLive(f)
-                        || enqueuer.isFieldReferenced(f)
-                        || f.getOptimizationInfo().valueHasBeenPropagated())
+                isEffectivelyLive(f)
                     && appView.graphLens().getOriginalFieldSignature(f.getReference()).holder
                         == sourceClass.type));
     Iterables.addAll(
         filteredMembers,
         targetClass.methods(
             m ->
-                (enqueuer.isMethodLive(m)
-                        || enqueuer.isMethodTargeted(m)
-                        || m.getOptimizationInfo().returnValueHasBeenPropagated())
+                isEffectivelyLive(m)
                     && appView.graphLens().getOriginalMethodSignature(m.getReference()).holder
                         == sourceClass.type));
 
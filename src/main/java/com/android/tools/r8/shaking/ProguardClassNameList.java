@@ -11,6 +11,7 @@ import com.google.common.collect.Iterables;
 import it.unimi.dsi.fastutil.objects.Object2BooleanArrayMap;
 import it.unimi.dsi.fastutil.objects.Object2BooleanMap;
 import it.unimi.dsi.fastutil.objects.Object2BooleanMap.Entry;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -86,6 +87,12 @@ public abstract class ProguardClassNameList {
 
   public abstract boolean matches(DexType type);
 
+  // Returns prefixes such that the source name of every type matched by this list starts with one
+  // of them, or null if this list may match a type with any name.
+  List<String> getLiteralPrefixes() {
+    return null;
+  }
+
   protected Iterable<ProguardWildcard> getWildcards() {
     return Collections::emptyIterator;
   }
@@ -220,6 +227,12 @@ public abstract class ProguardClassNameList {
       return className.matches(type);
     }
 
+    @Override
+    List<String> getLiteralPrefixes() {
+      String prefix = className.getLiteralPrefix();
+      return prefix == null ? null : Collections.singletonList(prefix);
+    }
+
     @Override
     protected Iterable<ProguardWildcard> getWildcards() {
       return className.getWildcards();
@@ -298,6 +311,19 @@ public abstract class ProguardClassNameList {
       return classNames.stream().anyMatch(name -> name.matches(type));
     }
 
+    @Override
+    List<String> getLiteralPrefixes() {
+      List<String> prefixes = new ArrayList<>(classNames.size());
+      for (ProguardTypeMatcher className : classNames) {
+        String prefix = className.getLiteralPrefix();
+        if (prefix == null) {
+          return null;
+        }
+        prefixes.add(prefix);
+      }
+      return prefixes;
+    }
+
     @Override
     protected Iterable<ProguardWildcard> getWildcards() {
       return classNames.stream()
@@ -0,0 +1,175 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import com.android.tools.r8.graph.DexAnnotation;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DexType;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntLists;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Index of the program classes by source name and by class annotation.
+ *
+ * <p>The index is used to find the program classes that the class specification of a rule can
+ * match without testing the rule against all program classes. A rule whose class names all start
+ * with a literal prefix, such as {@code com.example.**}, can only match the classes in the
+ * corresponding range of the sorted class names. A rule that requires a specific class annotation
+ * can only match the classes annotated with it. The candidates are a superset of the matched
+ * classes and are returned in the order of the program classes.
+ *
+ * <p>A class can additionally be indexed under the names and annotations of other classes, such as
+ * the classes that have been vertically merged into it, in which case it is also a candidate for
+ * the rules that may match these classes.
+ */
+class ProguardRuleCandidateIndex {
+
+  private final List<DexProgramClass> classes;
+  private final String[] sortedNames;
+  private final int[] sortedClassIndices;
+  private final Map<DexType, IntList> classIndicesByAnnotation = new IdentityHashMap<>();
+
+  private ProguardRuleCandidateIndex(
+      List<DexProgramClass> classes,
+      Function<DexProgramClass, Iterable<DexProgramClass>> aliases) {
+    this.classes = classes;
+    List<String> names = new ArrayList<>(classes.size());
+    IntList classIndices = new IntArrayList(classes.size());
+    for (int i = 0; i < classes.size(); i++) {
+      DexProgramClass clazz = classes.get(i);
+      addClass(clazz, i, names, classIndices);
+      for (DexProgramClass alias : aliases.apply(clazz)) {
+        addClass(alias, i, names, classIndices);
+      }
+    }
+    Integer[] order = new Integer[names.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (x, y) -> names.get(x).compareTo(names.get(y)));
+    sortedNames = new String[order.length];
+    sortedClassIndices = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      sortedNames[i] = names.get(order[i]);
+      sortedClassIndices[i] = classIndices.getInt(order[i]);
+    }
+  }
+
+  private void addClass(
+      DexProgramClass clazz, int classIndex, List<String> names, IntList classIndices) {
+    names.add(clazz.getType().toSourceString());
+    classIndices.add(classIndex);
+    for (DexAnnotation annotation : clazz.annotations().annotations) {
+      IntList annotatedClassIndices =
+          classIndicesByAnnotation.computeIfAbsent(
+              annotation.getAnnotationType(), ignore -> new IntArrayList());
+      // A class can have multiple annotations of the same type in invalid inputs, and a class can
+      // have the same annotation as its aliases.
+      if (annotatedClassIndices.isEmpty()
+          || annotatedClassIndices.getInt(annotatedClassIndices.size() - 1) != classIndex) {
+        annotatedClassIndices.add(classIndex);
+      }
+    }
+  }
+
+  static ProguardRuleCandidateIndex create(Iterable<DexProgramClass> classes) {
+    return create(classes, ignore -> Collections.emptyList());
+  }
+
+  /**
+   * Creates an index of the given classes, where each class is also indexed under the names and
+   * annotations of its aliases.
+   */
+  static ProguardRuleCandidateIndex create(
+      Iterable<DexProgramClass> classes,
+      Function<DexProgramClass, Iterable<DexProgramClass>> aliases) {
+    List<DexProgramClass> classList = new ArrayList<>();
+    classes.forEach(classList::add);
+    return new ProguardRuleCandidateIndex(classList, aliases);
+  }
+
+  /**
+   * Returns the program classes that may be matched by the class specification of the given rule,
+   * or null if the rule may match any program class.
+   */
+  List<DexProgramClass> getCandidates(ProguardConfigurationRule rule) {
+    IntList candidatesByAnnotation = getCandidatesByAnnotation(rule);
+    BitSet candidatesByName = getCandidatesByName(rule);
+    if (candidatesByName != null
+        && (candidatesByAnnotation == null
+            || candidatesByName.cardinality() <= candidatesByAnnotation.size())) {
+      List<DexProgramClass> candidates = new ArrayList<>(candidatesByName.cardinality());
+      for (int i = candidatesByName.nextSetBit(0); i >= 0; i = candidatesByName.nextSetBit(i + 1)) {
+        candidates.add(classes.get(i));
+      }
+      return candidates;
+    }
+    if (candidatesByAnnotation != null) {
+      List<DexProgramClass> candidates = new ArrayList<>(candidatesByAnnotation.size());
+      for (int i = 0; i < candidatesByAnnotation.size(); i++) {
+        candidates.add(classes.get(candidatesByAnnotation.getInt(i)));
+      }
+      return candidates;
+    }
+    return null;
+  }
+
+  private IntList getCandidatesByAnnotation(ProguardConfigurationRule rule) {
+    // All class annotations must be present, so the least used specific annotation is the best
+    // filter.
+    IntList result = null;
+    for (ProguardTypeMatcher annotation : rule.getClassAnnotations()) {
+      if (annotation.hasSpecificType()) {
+        IntList classIndices =
+            classIndicesByAnnotation.getOrDefault(
+                annotation.getSpecificType(), IntLists.EMPTY_LIST);
+        if (result == null || classIndices.size() < result.size()) {
+          result = classIndices;
+        }
+      }
+    }
+    return result;
+  }
+
+  private BitSet getCandidatesByName(ProguardConfigurationRule rule) {
+    List<String> prefixes = rule.getClassNames().getLiteralPrefixes();
+    if (prefixes == null) {
+      return null;
+    }
+    BitSet result = new BitSet(classes.size());
+    for (String prefix : prefixes) {
+      for (int i = lowerBound(prefix); i < sortedNames.length; i++) {
+        if (!sortedNames[i].startsWith(prefix)) {
+          break;
+        }
+        result.set(sortedClassIndices[i]);
+      }
+    }
+    return result;
+  }
+
+  // Returns the index of the first name that is not smaller than the given name.
+  private int lowerBound(String name) {
+    int low = 0;
+    int high = sortedNames.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sortedNames[middle].compareTo(name) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
@@ -147,6 +147,12 @@ public abstract class ProguardTypeMatcher {
     return getSpecificType() != null;
   }
 
+  // Returns a prefix of the source name of every type matched by this matcher, or null if this
+  // matcher may match a type with any name.
+  String getLiteralPrefix() {
+    return null;
+  }
+
   private static class MatchAllTypes extends ProguardTypeMatcher {
 
     private static final ProguardTypeMatcher MATCH_ALL_TYPES = new MatchAllTypes();
@@ -372,6 +378,11 @@ public abstract class ProguardTypeMatcher {
     public DexType getSpecificType() {
       return type;
     }
+
+    @Override
+    String getLiteralPrefix() {
+      return type.toSourceString();
+    }
   }
 
   private static class MatchTypePattern extends ProguardTypeMatcher {
@@ -398,6 +409,17 @@ public abstract class ProguardTypeMatcher {
       return matched;
     }
 
+    @Override
+    String getLiteralPrefix() {
+      for (int i = 0; i < pattern.length(); i++) {
+        char c = pattern.charAt(i);
+        if (c == '*' || c == '?' || c == '<') {
+          return i == 0 ? null : pattern.substring(0, i);
+        }
+      }
+      return pattern;
+    }
+
     @Override
     protected Iterable<ProguardWildcard> getWildcards() {
       return wildcards;
@@ -128,6 +128,9 @@ public class RootSetUtils {
     private final DexStringCache dexStringCache = new DexStringCache();
     private final Set<ProguardIfRule> ifRules = Sets.newIdentityHashSet();
 
+    // Index of the program classes used to limit the classes that each rule is tested against.
+    private ProguardRuleCandidateIndex candidateIndex;
+
     private final Map<OriginWithPosition, Set<DexMethod>> assumeNoSideEffectsWarnings =
         new LinkedHashMap<>();
 
@@ -293,8 +296,13 @@ public class RootSetUtils {
       futures.add(
           executorService.submit(
               () -> {
+                List<DexProgramClass> indexedCandidates =
+                    candidateIndex != null ? candidateIndex.getCandidates(rule) : null;
                 for (DexProgramClass clazz :
-                    rule.relevantCandidatesForRule(appView, subtypingInfo, application.classes())) {
+                    rule.relevantCandidatesForRule(
+                        appView,
+                        subtypingInfo,
+                        indexedCandidates != null ? indexedCandidates : application.classes())) {
                   process(clazz, rule, ifRule);
                 }
                 if (rule.applyToNonProgramClasses()) {
@@ -311,6 +319,7 @@ public class RootSetUtils {
         List<Future<?>> futures = new ArrayList<>();
         // Mark all the things explicitly listed in keep rules.
         if (rules != null) {
+          candidateIndex = ProguardRuleCandidateIndex.create(application.classes());
           for (ProguardConfigurationRule rule : rules) {
             if (rule instanceof ProguardIfRule) {
               ProguardIfRule ifRule = (ProguardIfRule) rule;
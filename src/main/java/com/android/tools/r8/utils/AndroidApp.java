@@ -762,6 +762,48 @@ public class AndroidApp {
     return extractor.getDescriptor();
   }
 
+  /** Provider of the program and data resources that are added individually to the builder. */
+  static class ProgramResourceListProvider implements ProgramResourceProvider {
+
+    private final List<ProgramResource> programResources;
+    private final List<DataResource> dataResources;
+
+    ProgramResourceListProvider(
+        List<ProgramResource> programResources, List<DataResource> dataResources) {
+      this.programResources = programResources;
+      this.dataResources = dataResources;
+    }
+
+    @Override
+    public Collection<ProgramResource> getProgramResources() {
+      return programResources;
+    }
+
+    boolean hasDataResources() {
+      return !dataResources.isEmpty();
+    }
+
+    @Override
+    public DataResourceProvider getDataResourceProvider() {
+      if (!dataResources.isEmpty()) {
+        return new DataResourceProvider() {
+          @Override
+          public void accept(Visitor visitor) {
+            for (DataResource dataResource : dataResources) {
+              if (dataResource instanceof DataEntryResource) {
+                visitor.visit((DataEntryResource) dataResource);
+              } else {
+                assert dataResource instanceof DataDirectoryResource;
+                visitor.visit((DataDirectoryResource) dataResource);
+              }
+            }
+          }
+        };
+      }
+      return null;
+    }
+  }
+
   /**
    * Builder interface for constructing an AndroidApp.
    */
@@ -778,6 +820,10 @@ public class AndroidApp {
     private List<StringResource> mainDexListResources = new ArrayList<>();
     private List<String> mainDexListClasses = new ArrayList<>();
     private boolean ignoreDexInArchive = false;
+    // Memory mapped files cannot be deleted on Windows until the mapping is garbage collected, so
+    // mapping program inputs is opt-in.
+    private boolean memoryMapInputs =
+        System.getProperty("com.android.tools.r8.memoryMapInputs") != null;
 
     private StringResource proguardMapOutputData;
     private StringResource proguardMapInputData;
@@ -935,7 +981,7 @@ public class AndroidApp {
       for (FilteredClassPath archive : filteredArchives) {
         if (isArchive(archive.getPath())) {
           ArchiveResourceProvider archiveResourceProvider =
-              new ArchiveResourceProvider(archive, ignoreDexInArchive);
+              new ArchiveResourceProvider(archive, ignoreDexInArchive, memoryMapInputs);
           addProgramResourceProvider(archiveResourceProvider);
         } else {
           reporter.error(
@@ -1172,6 +1218,15 @@ public class AndroidApp {
       return this;
     }
 
+    /**
+     * Read dex files and archives added after this call through memory mappings, such that dex
+     * content that is not compressed is parsed without copying it to the heap.
+     */
+    public Builder setMemoryMapInputs(boolean value) {
+      memoryMapInputs = value;
+      return this;
+    }
+
     /**
      * Build final AndroidApp.
      */
@@ -1181,32 +1236,7 @@ public class AndroidApp {
         final List<ProgramResource> finalProgramResources = ImmutableList.copyOf(programResources);
         final List<DataResource> finalDataResources = ImmutableList.copyOf(dataResources);
         programResourceProviders.add(
-            new ProgramResourceProvider() {
-              @Override
-              public Collection<ProgramResource> getProgramResources() {
-                return finalProgramResources;
-              }
-
-              @Override
-              public DataResourceProvider getDataResourceProvider() {
-                if (!finalDataResources.isEmpty()) {
-                  return new DataResourceProvider() {
-                    @Override
-                    public void accept(Visitor visitor) {
-                      for (DataResource dataResource : finalDataResources) {
-                        if (dataResource instanceof DataEntryResource) {
-                          visitor.visit((DataEntryResource) dataResource);
-                        } else {
-                          assert dataResource instanceof DataDirectoryResource;
-                          visitor.visit((DataDirectoryResource) dataResource);
-                        }
-                      }
-                    }
-                  };
-                }
-                return null;
-              }
-            });
+            new ProgramResourceListProvider(finalProgramResources, finalDataResources));
         programResources.clear();
         dataResources.clear();
       }
@@ -1229,13 +1259,18 @@ public class AndroidApp {
         reporter.error(new ExceptionDiagnostic(noSuchFileException, pathOrigin));
       }
       if (isDexFile(file)) {
-        addProgramResources(ProgramResource.fromFile(Kind.DEX, file));
+        addProgramResources(
+            memoryMapInputs
+                ? ByteBufferProgramResource.fromMappedFile(Kind.DEX, file)
+                : ProgramResource.fromFile(Kind.DEX, file));
       } else if (isClassFile(file)) {
         addProgramResources(ProgramResource.fromFile(Kind.CF, file));
       } else if (isAarFile(file)) {
         addProgramResourceProvider(AarArchiveResourceProvider.fromArchive(file));
       } else if (isArchive(file)) {
-        addProgramResourceProvider(ArchiveResourceProvider.fromArchive(file, ignoreDexInArchive));
+        addProgramResourceProvider(
+            new ArchiveResourceProvider(
+                FilteredClassPath.unfiltered(file), ignoreDexInArchive, memoryMapInputs));
       } else {
         throw new CompilationError("Unsupported source file type", new PathOrigin(file));
       }
@@ -0,0 +1,208 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static com.android.tools.r8.utils.FileUtils.CLASS_EXTENSION;
+
+import com.android.tools.r8.ClassFileResourceProvider;
+import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.ProgramResource.Kind;
+import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.origin.ArchiveEntryOrigin;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.origin.PathOrigin;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Cache of class-file providers for library and classpath archives that is shared between
+ * compilations in the same process.
+ *
+ * <p>The cached providers keep the class descriptors of an archive and the bytes of each class
+ * that has been read, such that later compilations do not reopen and inflate the archive. A cached
+ * archive is reread when its size or modification time changes. Parsing is still done per
+ * compilation, as the parsed classes are specific to the item factory of a compilation.
+ *
+ * <p>The bytes retained by the cache are bounded. When a provider is requested and the cached
+ * archives retain more than the maximum number of bytes, the least recently requested archives
+ * are evicted. A provider of an evicted archive that is still in use keeps working, but no longer
+ * keeps the archive open.
+ */
+public class ArchiveClassFileProviderCache {
+
+  public static final long DEFAULT_MAXIMUM_RETAINED_BYTES = 512L * 1024 * 1024;
+
+  private final long maximumRetainedBytes;
+
+  // Archives in the order of their last request, least recently requested first.
+  private final Map<Path, CachedArchive> archives = new LinkedHashMap<>(16, 0.75f, true);
+
+  public ArchiveClassFileProviderCache() {
+    this(DEFAULT_MAXIMUM_RETAINED_BYTES);
+  }
+
+  public ArchiveClassFileProviderCache(long maximumRetainedBytes) {
+    this.maximumRetainedBytes = maximumRetainedBytes;
+  }
+
+  /** Returns a provider for the classes of {@code archive}, reusing the cached content if valid. */
+  public synchronized ClassFileResourceProvider getProvider(Path archive) throws IOException {
+    Path path = archive.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    CachedArchive cached = archives.get(path);
+    if (cached != null && !cached.isUpToDate(attributes)) {
+      archives.remove(path);
+      cached.evict();
+      cached = null;
+    }
+    if (cached == null) {
+      cached = new CachedArchive(path, attributes);
+      archives.put(path, cached);
+    }
+    evictLeastRecentlyUsed(cached);
+    return cached;
+  }
+
+  private void evictLeastRecentlyUsed(CachedArchive current) throws IOException {
+    long retainedBytes = 0;
+    for (CachedArchive archive : archives.values()) {
+      retainedBytes += archive.getRetainedBytes();
+    }
+    Iterator<CachedArchive> iterator = archives.values().iterator();
+    while (retainedBytes > maximumRetainedBytes && iterator.hasNext()) {
+      CachedArchive archive = iterator.next();
+      if (archive != current) {
+        retainedBytes -= archive.getRetainedBytes();
+        iterator.remove();
+        archive.evict();
+      }
+    }
+  }
+
+  /** Closes all open archives and drops the cached content. */
+  public synchronized void clear() throws IOException {
+    for (CachedArchive archive : archives.values()) {
+      archive.evict();
+    }
+    archives.clear();
+  }
+
+  private static class CachedArchive implements ClassFileResourceProvider {
+
+    private final Path path;
+    private final Origin origin;
+    private final FileTime lastModifiedTime;
+    private final long size;
+    private final Set<String> descriptors;
+    private final Map<String, ProgramResource> resources = new ConcurrentHashMap<>();
+
+    private long retainedBytes = 0;
+    private boolean evicted = false;
+    private ZipFile zipFile;
+
+    private CachedArchive(Path path, BasicFileAttributes attributes) throws IOException {
+      this.path = path;
+      this.origin = new PathOrigin(path);
+      this.lastModifiedTime = attributes.lastModifiedTime();
+      this.size = attributes.size();
+      ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+      Enumeration<? extends ZipEntry> entries = getZipFile().entries();
+      while (entries.hasMoreElements()) {
+        String name = entries.nextElement().getName();
+        if (ZipUtils.isClassFile(name)) {
+          builder.add(DescriptorUtils.guessTypeDescriptor(name));
+        }
+      }
+      this.descriptors = builder.build();
+    }
+
+    private boolean isUpToDate(BasicFileAttributes attributes) {
+      return lastModifiedTime.equals(attributes.lastModifiedTime()) && size == attributes.size();
+    }
+
+    @Override
+    public Set<String> getClassDescriptors() {
+      return descriptors;
+    }
+
+    @Override
+    public ProgramResource getProgramResource(String descriptor) {
+      if (!descriptors.contains(descriptor)) {
+        return null;
+      }
+      return resources.computeIfAbsent(descriptor, this::readProgramResource);
+    }
+
+    private synchronized ProgramResource readProgramResource(String descriptor) {
+      String name = descriptor.substring(1, descriptor.length() - 1) + CLASS_EXTENSION;
+      try {
+        if (evicted) {
+          // Do not keep an evicted archive open.
+          try (ZipFile zipFile = openZipFile()) {
+            return readProgramResource(zipFile, zipFile.getEntry(name), descriptor);
+          }
+        }
+        ZipFile zipFile = getZipFile();
+        ZipEntry entry = zipFile.getEntry(name);
+        ProgramResource resource = readProgramResource(zipFile, entry, descriptor);
+        retainedBytes += entry.getSize();
+        return resource;
+      } catch (IOException e) {
+        throw new CompilationError("Failed to read '" + descriptor + "'", e, origin);
+      }
+    }
+
+    private ProgramResource readProgramResource(ZipFile zipFile, ZipEntry entry, String descriptor)
+        throws IOException {
+      try (InputStream stream = zipFile.getInputStream(entry)) {
+        // The resource only hands out its bytes for reading, so it can be shared between
+        // compilations.
+        return ProgramResource.fromBytes(
+            new ArchiveEntryOrigin(entry.getName(), origin),
+            Kind.CF,
+            ByteStreams.toByteArray(stream),
+            Collections.singleton(descriptor));
+      }
+    }
+
+    private synchronized long getRetainedBytes() {
+      return retainedBytes;
+    }
+
+    private ZipFile openZipFile() throws IOException {
+      return FileUtils.createZipFile(path.toFile(), StandardCharsets.UTF_8);
+    }
+
+    private synchronized ZipFile getZipFile() throws IOException {
+      if (zipFile == null) {
+        zipFile = openZipFile();
+      }
+      return zipFile;
+    }
+
+    private synchronized void evict() throws IOException {
+      evicted = true;
+      if (zipFile != null) {
+        zipFile.close();
+        zipFile = null;
+      }
+    }
+  }
+}
@@ -39,21 +39,36 @@ public class ArchiveResourceProvider implements ProgramResourceProvider, DataRes
   private final Origin origin;
   private final FilteredClassPath archive;
   private final boolean ignoreDexInArchive;
+  private final boolean memoryMapArchive;
 
   public static ArchiveResourceProvider fromArchive(Path archive, boolean ignoreDexInArchive) {
-    return new ArchiveResourceProvider(FilteredClassPath.unfiltered(archive), ignoreDexInArchive);
+    return new ArchiveResourceProvider(
+        FilteredClassPath.unfiltered(archive), ignoreDexInArchive, false);
   }
 
-  ArchiveResourceProvider(FilteredClassPath archive, boolean ignoreDexInArchive) {
+  ArchiveResourceProvider(
+      FilteredClassPath archive, boolean ignoreDexInArchive, boolean memoryMapArchive) {
     assert isArchive(archive.getPath());
     origin = new PathOrigin(archive.getPath());
     this.archive = archive;
     this.ignoreDexInArchive = ignoreDexInArchive;
+    this.memoryMapArchive = memoryMapArchive;
+  }
+
+  FilteredClassPath getArchive() {
+    return archive;
+  }
+
+  boolean isIgnoreDexInArchive() {
+    return ignoreDexInArchive;
   }
 
   private List<ProgramResource> readArchive() throws IOException {
     List<ProgramResource> dexResources = new ArrayList<>();
     List<ProgramResource> classResources = new ArrayList<>();
+    if (memoryMapArchive && readMappedArchive(dexResources, classResources)) {
+      return selectProgramResources(dexResources, classResources);
+    }
     try (ZipFile zipFile =
         FileUtils.createZipFile(archive.getPath().toFile(), StandardCharsets.UTF_8)) {
       final Enumeration<? extends ZipEntry> entries = zipFile.entries();
@@ -87,14 +102,120 @@ public class ArchiveResourceProvider implements ProgramResourceProvider, DataRes
       throw new CompilationError(
           "Zip error while reading '" + archive + "': " + e.getMessage(), e);
     }
-    if (!dexResources.isEmpty() && !classResources.isEmpty()) {
+    return selectProgramResources(dexResources, classResources);
+  }
+
+  // Returns false if the archive cannot be memory mapped.
+  private boolean readMappedArchive(
+      List<ProgramResource> dexResources, List<ProgramResource> classResources)
+      throws IOException {
+    try {
+      MappedZipFile zipFile = MappedZipFile.open(archive.getPath());
+      if (zipFile == null) {
+        return false;
+      }
+      for (MappedZipFile.Entry entry : zipFile.getEntries()) {
+        String name = entry.getName();
+        if (entry.isDirectory() || !archive.matchesFile(name)) {
+          continue;
+        }
+        Origin entryOrigin = new ArchiveEntryOrigin(name, origin);
+        if (ZipUtils.isDexFile(name)) {
+          if (!ignoreDexInArchive) {
+            // Stored dex entries are parsed directly from the mapped archive.
+            dexResources.add(
+                entry.isStored()
+                    ? ByteBufferProgramResource.create(
+                        Kind.DEX, entryOrigin, zipFile.getStoredContent(entry), null)
+                    : OneShotByteResource.create(
+                        Kind.DEX, entryOrigin, zipFile.getBytes(entry), null));
+          }
+        } else if (ZipUtils.isClassFile(name)) {
+          // The class file reader requires a byte array, so class files are always copied.
+          String descriptor = DescriptorUtils.guessTypeDescriptor(name);
+          classResources.add(
+              OneShotByteResource.create(
+                  Kind.CF,
+                  entryOrigin,
+                  zipFile.getBytes(entry),
+                  Collections.singleton(descriptor)));
+        }
+      }
+      return true;
+    } catch (ZipException e) {
       throw new CompilationError(
-          "Cannot create android app from an archive '" + archive
-              + "' containing both DEX and Java-bytecode content");
+          "Zip error while reading '" + archive + "': " + e.getMessage(), e);
+    }
+  }
+
+  private List<ProgramResource> selectProgramResources(
+      List<ProgramResource> dexResources, List<ProgramResource> classResources) {
+    if (!dexResources.isEmpty() && !classResources.isEmpty()) {
+      throw mixedContentError();
     }
     return !dexResources.isEmpty() ? dexResources : classResources;
   }
 
+  private CompilationError mixedContentError() {
+    return new CompilationError(
+        "Cannot create android app from an archive '" + archive
+            + "' containing both DEX and Java-bytecode content");
+  }
+
+  /**
+   * Reads the program resources of the archive one entry at a time and passes each resource to the
+   * consumer as soon as its entry has been read. This allows the caller to process the resources
+   * while the remaining entries are read, and to apply back-pressure by blocking in the consumer.
+   */
+  public void readProgramResources(Consumer<ProgramResource> consumer) throws ResourceException {
+    if (memoryMapArchive) {
+      // The content of a memory mapped archive is not on the heap until it is copied.
+      getProgramResources().forEach(consumer);
+      return;
+    }
+    try (ZipFile zipFile =
+        FileUtils.createZipFile(archive.getPath().toFile(), StandardCharsets.UTF_8)) {
+      boolean hasDexResources = false;
+      boolean hasClassResources = false;
+      final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (entry.isDirectory() || !archive.matchesFile(name) || !isProgramResourceName(name)) {
+          continue;
+        }
+        Origin entryOrigin = new ArchiveEntryOrigin(name, origin);
+        ProgramResource resource;
+        try (InputStream stream = zipFile.getInputStream(entry)) {
+          if (ZipUtils.isDexFile(name)) {
+            hasDexResources = true;
+            resource =
+                OneShotByteResource.create(
+                    Kind.DEX, entryOrigin, ByteStreams.toByteArray(stream), null);
+          } else {
+            assert ZipUtils.isClassFile(name);
+            hasClassResources = true;
+            resource =
+                OneShotByteResource.create(
+                    Kind.CF,
+                    entryOrigin,
+                    ByteStreams.toByteArray(stream),
+                    Collections.singleton(DescriptorUtils.guessTypeDescriptor(name)));
+          }
+        }
+        if (hasDexResources && hasClassResources) {
+          throw mixedContentError();
+        }
+        consumer.accept(resource);
+      }
+    } catch (ZipException e) {
+      throw new CompilationError(
+          "Zip error while reading '" + archive + "': " + e.getMessage(), e);
+    } catch (IOException e) {
+      throw new ResourceException(origin, e);
+    }
+  }
+
   @Override
   public Collection<ProgramResource> getProgramResources() throws ResourceException {
     try {
@@ -0,0 +1,93 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.ResourceException;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.origin.PathOrigin;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+/**
+ * Program resource backed by a {@link ByteBuffer}, typically a memory mapped file or a slice of a
+ * memory mapped archive.
+ *
+ * <p>Readers that support it can parse the content directly from {@link #getByteBuffer()} without
+ * copying it to the heap.
+ */
+public class ByteBufferProgramResource implements ProgramResource {
+
+  private final Origin origin;
+  private final Kind kind;
+  private final Path file;
+  private final Set<String> classDescriptors;
+  private ByteBuffer content;
+
+  private ByteBufferProgramResource(
+      Origin origin, Kind kind, Path file, ByteBuffer content, Set<String> classDescriptors) {
+    assert file != null || content != null;
+    this.origin = origin;
+    this.kind = kind;
+    this.file = file;
+    this.content = content;
+    this.classDescriptors = classDescriptors;
+  }
+
+  public static ByteBufferProgramResource create(
+      Kind kind, Origin origin, ByteBuffer content, Set<String> classDescriptors) {
+    return new ByteBufferProgramResource(origin, kind, null, content, classDescriptors);
+  }
+
+  /** Creates a resource for {@code file}, which is memory mapped on first access. */
+  public static ByteBufferProgramResource fromMappedFile(Kind kind, Path file) {
+    return new ByteBufferProgramResource(new PathOrigin(file), kind, file, null, null);
+  }
+
+  @Override
+  public Origin getOrigin() {
+    return origin;
+  }
+
+  @Override
+  public Kind getKind() {
+    return kind;
+  }
+
+  /** Returns a new buffer sharing the content, with position zero and big endian byte order. */
+  public synchronized ByteBuffer getByteBuffer() throws ResourceException {
+    if (content == null) {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      } catch (IOException e) {
+        throw new ResourceException(origin, e);
+      }
+    }
+    return content.duplicate();
+  }
+
+  @Override
+  public InputStream getByteStream() throws ResourceException {
+    return new ByteArrayInputStream(getBytes());
+  }
+
+  @Override
+  public byte[] getBytes() throws ResourceException {
+    ByteBuffer buffer = getByteBuffer();
+    byte[] result = new byte[buffer.remaining()];
+    buffer.get(result);
+    return result;
+  }
+
+  @Override
+  public Set<String> getClassDescriptors() {
+    return classDescriptors;
+  }
+}
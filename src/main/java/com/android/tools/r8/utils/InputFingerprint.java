@@ -0,0 +1,139 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.ClassFileResourceProvider;
+import com.android.tools.r8.DirectoryClassFileProvider;
+import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.ProgramResourceProvider;
+import com.android.tools.r8.ResourceException;
+import com.android.tools.r8.origin.PathOrigin;
+import com.google.common.hash.Hasher;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Fingerprints of compilation inputs for caches of compilation outputs.
+ *
+ * <p>Inputs that are files are identified by their path, size and modification time, such that
+ * computing the fingerprint does not read the files. Other inputs are identified by their
+ * contents.
+ */
+public class InputFingerprint {
+
+  public static final String SYSTEM_PROPERTY_PREFIX = "com.android.tools.r8.";
+
+  /** Returns the system properties of the compiler, which enable internal modes. */
+  public static SortedMap<String, String> getCompilerSystemProperties() {
+    SortedMap<String, String> properties = new TreeMap<>();
+    for (String name : System.getProperties().stringPropertyNames()) {
+      if (name.startsWith(SYSTEM_PROPERTY_PREFIX)) {
+        properties.put(name, System.getProperty(name));
+      }
+    }
+    return properties;
+  }
+
+  public static void putClassFileResourceProvider(
+      Hasher hasher, ClassFileResourceProvider provider) throws IOException, ResourceException {
+    if (putFileBasedClassFileResourceProvider(hasher, provider)) {
+      return;
+    }
+    putString(hasher, provider.getClass().getName());
+    for (String descriptor : new TreeSet<>(provider.getClassDescriptors())) {
+      putString(hasher, descriptor);
+      ProgramResource resource = provider.getProgramResource(descriptor);
+      if (resource != null) {
+        putBytes(hasher, resource.getBytes());
+      }
+    }
+  }
+
+  /**
+   * Adds the files of {@param provider} to the fingerprint and returns true, or returns false
+   * without reading any resources if the provider is not backed by files.
+   */
+  public static boolean putFileBasedClassFileResourceProvider(
+      Hasher hasher, ClassFileResourceProvider provider) throws IOException {
+    if (provider instanceof InternalArchiveClassFileProvider) {
+      putString(hasher, "archive");
+      putFile(hasher, ((InternalArchiveClassFileProvider) provider).getPath());
+      return true;
+    }
+    if (provider instanceof DirectoryClassFileProvider) {
+      Path root = ((DirectoryClassFileProvider) provider).getRoot();
+      putString(hasher, "directory");
+      putString(hasher, root.toAbsolutePath().toString());
+      for (String descriptor : new TreeSet<>(provider.getClassDescriptors())) {
+        putFile(
+            hasher,
+            root.resolve(
+                DescriptorUtils.getClassBinaryNameFromDescriptor(descriptor)
+                    + FileUtils.CLASS_EXTENSION));
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Adds the files of {@param provider} to the fingerprint and returns true, or returns false
+   * without reading any resources if the provider is not backed by files. One-shot resources are
+   * never read, since that would consume them.
+   */
+  public static boolean putFileBasedProgramResourceProvider(
+      Hasher hasher, ProgramResourceProvider provider) throws IOException {
+    if (provider instanceof ArchiveResourceProvider) {
+      ArchiveResourceProvider archiveProvider = (ArchiveResourceProvider) provider;
+      putString(hasher, "archive");
+      // The string of the class path includes the filter.
+      putString(hasher, archiveProvider.getArchive().toString());
+      hasher.putBoolean(archiveProvider.isIgnoreDexInArchive());
+      putFile(hasher, archiveProvider.getArchive().getPath());
+      return true;
+    }
+    if (provider instanceof AndroidApp.ProgramResourceListProvider) {
+      AndroidApp.ProgramResourceListProvider listProvider =
+          (AndroidApp.ProgramResourceListProvider) provider;
+      if (listProvider.hasDataResources()) {
+        return false;
+      }
+      Collection<ProgramResource> resources = listProvider.getProgramResources();
+      for (ProgramResource resource : resources) {
+        if (!(resource instanceof ProgramResource.FileResource)) {
+          return false;
+        }
+      }
+      putString(hasher, "files");
+      for (ProgramResource resource : resources) {
+        putString(hasher, resource.getKind().name());
+        putFile(hasher, ((PathOrigin) resource.getOrigin()).getPath());
+      }
+      return true;
+    }
+    return false;
+  }
+
+  public static void putFile(Hasher hasher, Path file) throws IOException {
+    putString(hasher, file.toAbsolutePath().toString());
+    hasher.putLong(Files.size(file));
+    hasher.putLong(Files.getLastModifiedTime(file).toMillis());
+  }
+
+  public static void putString(Hasher hasher, String string) {
+    putBytes(hasher, string.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static void putBytes(Hasher hasher, byte[] bytes) {
+    hasher.putInt(bytes.length);
+    hasher.putBytes(bytes);
+  }
+}
@@ -16,6 +16,7 @@ import com.android.tools.r8.ProgramConsumer;
 import com.android.tools.r8.StringConsumer;
 import com.android.tools.r8.Version;
 import com.android.tools.r8.cf.CfVersion;
+import com.android.tools.r8.dex.DexPerClassFileCache;
 import com.android.tools.r8.dex.Marker;
 import com.android.tools.r8.dex.Marker.Backend;
 import com.android.tools.r8.dex.Marker.Tool;
@@ -48,6 +49,7 @@ import com.android.tools.r8.ir.desugar.DesugaredLibraryConfiguration;
 import com.android.tools.r8.ir.desugar.nest.Nest;
 import com.android.tools.r8.ir.optimize.Inliner;
 import com.android.tools.r8.ir.optimize.enums.EnumDataMap;
+import com.android.tools.r8.naming.ProguardMapIndex;
 import com.android.tools.r8.origin.Origin;
 import com.android.tools.r8.position.Position;
 import com.android.tools.r8.references.Reference;
@@ -62,6 +64,7 @@ import com.android.tools.r8.utils.IROrdering.IdentityIROrdering;
 import com.android.tools.r8.utils.IROrdering.NondeterministicIROrdering;
 import com.android.tools.r8.utils.collections.DexClassAndMethodSet;
 import com.android.tools.r8.utils.collections.SortedProgramMethodSet;
+import com.android.tools.r8.utils.metrics.CompilerMetrics;
 import com.android.tools.r8.utils.structural.Ordered;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Equivalence.Wrapper;
@@ -72,6 +75,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
@@ -85,6 +89,7 @@ import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.function.Predicate;
 import org.objectweb.asm.Opcodes;
 
@@ -222,6 +227,10 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
   public boolean printTimes = System.getProperty("com.android.tools.r8.printtimes") != null;
   // To print memory one also have to enable printtimes.
   public boolean printMemory = System.getProperty("com.android.tools.r8.printmemory") != null;
+  // Structured per-phase metrics, see CompilerMetrics for the properties enabling them. The
+  // metrics are created on first use, such that options that are never used to compile do not set
+  // up the metrics consumers.
+  private volatile CompilerMetrics metrics = null;
 
   public String dumpInputToFile = System.getProperty("com.android.tools.r8.dumpinputtofile");
   public String dumpInputToDirectory =
@@ -234,6 +243,36 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
   public boolean enableNeverMergePrefixes = true;
   public Set<String> neverMergePrefixes = ImmutableSet.of("j$.");
 
+  // If true, the Enqueuer parses the code of the methods waiting to be traced in parallel. The
+  // tracing of the parsed code remains single threaded.
+  public boolean enableParallelCodeLoadingInEnqueuer =
+      System.getProperty("com.android.tools.r8.parallelEnqueuerCodeLoading") != null;
+
+  // If true, the dex writer takes its output buffers from a pool when the program consumer does not
+  // provide its own buffers. The pool is released when the compilation has written its files.
+  public boolean enableByteBufferPooling =
+      System.getProperty("com.android.tools.r8.disableByteBufferPooling") == null;
+
+  // If true, the dex files are written one at a time and in order, such that the peak memory use
+  // of writing is bounded by the largest dex file instead of the number of files written in
+  // parallel.
+  public boolean enableStreamingDexOutput =
+      System.getProperty("com.android.tools.r8.streamDexOutput") != null;
+
+  // The maximal number of bytes of class files that are read from program archives but not yet
+  // parsed. Reading an archive blocks when the budget is exhausted until the parsing of the read
+  // class files catches up. A single class file larger than the budget is still read, and a
+  // non-positive budget does not bound the reading.
+  public int programResourceReadByteBudget =
+      Integer.getInteger("com.android.tools.r8.programResourceReadByteBudget", 256 << 20);
+
+  // If true, the primary optimization pass processes each method as soon as its callees and the
+  // writers of the fields it reads have been processed, instead of in waves that wait for all
+  // methods of the previous wave. The wave-level refinements, such as the field assignment
+  // tracking, are only applied at the end of the pass.
+  public boolean enableDependencyDrivenMethodProcessing =
+      System.getProperty("com.android.tools.r8.dependencyDrivenMethodProcessing") != null;
+
   public boolean classpathInterfacesMayHaveStaticInitialization = false;
   public boolean libraryInterfacesMayHaveStaticInitialization = false;
 
@@ -430,6 +469,23 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
     return isShrinking() || isMinifying() || getProguardConfiguration().hasApplyMappingFile();
   }
 
+  public CompilerMetrics getMetrics() {
+    CompilerMetrics result = metrics;
+    if (result == null) {
+      synchronized (this) {
+        if (metrics == null) {
+          metrics = CompilerMetrics.createFromSystemProperties();
+        }
+        result = metrics;
+      }
+    }
+    return result;
+  }
+
+  public void setMetrics(CompilerMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   public boolean isGeneratingDex() {
     return isGeneratingDexIndexed() || isGeneratingDexFilePerClassFile();
   }
@@ -740,6 +796,20 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
   // If non null it must be and passed to the consumer.
   public StringConsumer proguardMapConsumer = null;
 
+  // If true and the mapping file is written to a file, R8 writes a binary index of the class
+  // mappings next to it. The retracer uses the index to find the mapping of a class without
+  // parsing the mapping file.
+  public boolean enableProguardMapIndex =
+      System.getProperty("com.android.tools.r8.proguardMapIndex") != null;
+
+  // If non-null, the binary index of the class mappings of the mapping file is passed to this
+  // consumer.
+  public ProguardMapIndex.Consumer proguardMapIndexConsumer = null;
+
+  // If true, the member mappings of the classes in the -applymapping file are parsed in parallel.
+  public boolean enableParallelProguardMapParsing =
+      System.getProperty("com.android.tools.r8.parallelProguardMapParsing") != null;
+
   // If null, no usage information needs to be computed.
   // If non-null, it must be and is passed to the consumer.
   public StringConsumer usageInformationConsumer = null;
@@ -781,6 +851,13 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
   // code objects needed for correct desugaring needs to be provided to the consumer.
   public DesugarGraphConsumer desugarGraphConsumer = null;
 
+  // If non-null, D8 reuses previously produced file-per-class DEX output for unchanged class files.
+  public DexPerClassFileCache dexPerClassFileCache = null;
+
+  // If non-null, R8 passes the recorded outputs of the previous compilation to the consumers if the
+  // inputs are unchanged.
+  public R8OutputReplayCache r8OutputReplayCache = null;
+
   public Consumer<List<ProguardConfigurationRule>> syntheticProguardRulesConsumer = null;
 
   public static boolean assertionsEnabled() {
@@ -1245,8 +1322,16 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
 
     public BiConsumer<AppInfoWithLiveness, Enqueuer.Mode> enqueuerInspector = null;
 
+    // Receives the classes whose method code the Enqueuer loads in parallel, for each batch of
+    // classes that are loaded together.
+    public Consumer<Collection<DexProgramClass>> enqueuerCodeLoadingInspector = null;
+
     public Consumer<String> processingContextsConsumer = null;
 
+    // Receives the number of class file bytes that have been read from program archives but not
+    // yet parsed, each time a class file has been read.
+    public LongConsumer readBytesInFlightConsumer = null;
+
     public Function<AppView<AppInfoWithLiveness>, RepackagingConfiguration>
         repackagingConfigurationFactory = DefaultRepackagingConfiguration::new;
 
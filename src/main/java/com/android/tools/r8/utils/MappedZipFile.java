@@ -0,0 +1,265 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Read-only view of a zip archive that is memory mapped in its entirety.
+ *
+ * <p>The content of stored (uncompressed) entries is available as slices of the mapped file, which
+ * allows parsing them without copying. Deflated entries are inflated directly from the mapped file.
+ *
+ * <p>Only the plain zip format is supported. {@link #open} returns null for archives that cannot be
+ * mapped, such as zip64 archives, archives larger than 2GB and archives with encrypted entries, in
+ * which case the caller should fall back to {@link java.util.zip.ZipFile}.
+ */
+public class MappedZipFile {
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_HEADER_SIZE = 30;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+  private static final int END_HEADER_SIGNATURE = 0x06054b50;
+  private static final int END_HEADER_SIZE = 22;
+  private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+  private static final int METHOD_STORED = 0;
+  private static final int METHOD_DEFLATED = 8;
+
+  public static class Entry {
+
+    private final String name;
+    private final int method;
+    private final int compressedSize;
+    private final int size;
+    private final int localHeaderOffset;
+
+    private Entry(String name, int method, int compressedSize, int size, int localHeaderOffset) {
+      this.name = name;
+      this.method = method;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean isDirectory() {
+      return name.endsWith("/");
+    }
+
+    public boolean isStored() {
+      return method == METHOD_STORED;
+    }
+  }
+
+  private final Path path;
+  private final ByteBuffer buffer;
+  private final List<Entry> entries;
+
+  private MappedZipFile(Path path, ByteBuffer buffer, List<Entry> entries) {
+    this.path = path;
+    this.buffer = buffer;
+    this.entries = entries;
+  }
+
+  /**
+   * Maps the archive at {@code path} or returns null if the archive is not supported.
+   *
+   * <p>The mapping is released when the returned object is garbage collected.
+   */
+  public static MappedZipFile open(Path path) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        return null;
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    List<Entry> entries = readCentralDirectory(path, buffer);
+    return entries == null
+        ? null
+        : new MappedZipFile(path, buffer, Collections.unmodifiableList(entries));
+  }
+
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /** Returns a read-only slice of the mapped file with the content of a stored entry. */
+  public ByteBuffer getStoredContent(Entry entry) throws ZipException {
+    assert entry.isStored();
+    return slice(getDataOffset(entry), entry.size);
+  }
+
+  /** Returns a copy of the content of an entry, inflating it if needed. */
+  public byte[] getBytes(Entry entry) throws IOException {
+    byte[] result = new byte[entry.size];
+    if (entry.isStored()) {
+      getStoredContent(entry).get(result);
+      return result;
+    }
+    ByteBuffer compressed = slice(getDataOffset(entry), entry.compressedSize);
+    Inflater inflater = new Inflater(true);
+    try (InputStream stream =
+        new InflaterInputStream(new ByteBufferInputStream(compressed), inflater)) {
+      int offset = 0;
+      while (offset < result.length) {
+        int read = stream.read(result, offset, result.length - offset);
+        if (read < 0) {
+          throw error("Unexpected end of entry " + entry.name);
+        }
+        offset += read;
+      }
+    } finally {
+      inflater.end();
+    }
+    return result;
+  }
+
+  private int getDataOffset(Entry entry) throws ZipException {
+    int offset = entry.localHeaderOffset;
+    if (offset > buffer.capacity() - LOCAL_HEADER_SIZE
+        || buffer.getInt(offset) != LOCAL_HEADER_SIGNATURE) {
+      throw error("Invalid local header for entry " + entry.name);
+    }
+    int nameLength = Short.toUnsignedInt(buffer.getShort(offset + 26));
+    int extraLength = Short.toUnsignedInt(buffer.getShort(offset + 28));
+    return offset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+  }
+
+  private ByteBuffer slice(int offset, int length) throws ZipException {
+    if (offset < 0 || length < 0 || offset > buffer.capacity() - length) {
+      throw error("Entry data out of bounds");
+    }
+    ByteBuffer duplicate = buffer.duplicate();
+    // Use the java.nio.Buffer methods, which are not overridden on JDK 8.
+    ((Buffer) duplicate).limit(offset + length);
+    ((Buffer) duplicate).position(offset);
+    return duplicate.slice().asReadOnlyBuffer();
+  }
+
+  private ZipException error(String message) {
+    return new ZipException(message + " in " + path);
+  }
+
+  private static List<Entry> readCentralDirectory(Path path, ByteBuffer buffer)
+      throws ZipException {
+    int endOffset = findEndOfCentralDirectory(buffer);
+    if (endOffset < 0) {
+      throw new ZipException("Missing end of central directory in " + path);
+    }
+    int diskEntries = Short.toUnsignedInt(buffer.getShort(endOffset + 8));
+    int totalEntries = Short.toUnsignedInt(buffer.getShort(endOffset + 10));
+    long centralDirectoryOffset = Integer.toUnsignedLong(buffer.getInt(endOffset + 16));
+    if (totalEntries == 0xFFFF || centralDirectoryOffset == 0xFFFFFFFFL) {
+      // Zip64 archive.
+      return null;
+    }
+    if (diskEntries != totalEntries || centralDirectoryOffset > endOffset) {
+      // Multi-disk archive or prefixed data.
+      return null;
+    }
+    List<Entry> entries = new ArrayList<>(totalEntries);
+    int offset = (int) centralDirectoryOffset;
+    for (int i = 0; i < totalEntries; i++) {
+      if (offset > endOffset - CENTRAL_HEADER_SIZE
+          || buffer.getInt(offset) != CENTRAL_HEADER_SIGNATURE) {
+        throw new ZipException("Invalid central directory in " + path);
+      }
+      int flags = Short.toUnsignedInt(buffer.getShort(offset + 8));
+      int method = Short.toUnsignedInt(buffer.getShort(offset + 10));
+      int compressedSize = buffer.getInt(offset + 20);
+      int size = buffer.getInt(offset + 24);
+      int nameLength = Short.toUnsignedInt(buffer.getShort(offset + 28));
+      int extraLength = Short.toUnsignedInt(buffer.getShort(offset + 30));
+      int commentLength = Short.toUnsignedInt(buffer.getShort(offset + 32));
+      int localHeaderOffset = buffer.getInt(offset + 42);
+      boolean encrypted = (flags & 1) != 0;
+      if (encrypted
+          || (method != METHOD_STORED && method != METHOD_DEFLATED)
+          || compressedSize < 0
+          || size < 0
+          || localHeaderOffset < 0) {
+        return null;
+      }
+      byte[] name = new byte[nameLength];
+      ByteBuffer nameBuffer = buffer.duplicate();
+      ((Buffer) nameBuffer).position(offset + CENTRAL_HEADER_SIZE);
+      nameBuffer.get(name);
+      entries.add(
+          new Entry(
+              new String(name, StandardCharsets.UTF_8),
+              method,
+              compressedSize,
+              size,
+              localHeaderOffset));
+      offset += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+    }
+    return entries;
+  }
+
+  private static int findEndOfCentralDirectory(ByteBuffer buffer) {
+    int limit = Math.max(0, buffer.capacity() - END_HEADER_SIZE - MAX_COMMENT_SIZE);
+    for (int offset = buffer.capacity() - END_HEADER_SIZE; offset >= limit; offset--) {
+      if (buffer.getInt(offset) == END_HEADER_SIGNATURE
+          && offset + END_HEADER_SIZE + Short.toUnsignedInt(buffer.getShort(offset + 20))
+              == buffer.capacity()) {
+        return offset;
+      }
+    }
+    return -1;
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? Byte.toUnsignedInt(buffer.get()) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -0,0 +1,137 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.ByteBufferProvider;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * {@link ByteBufferProvider} that reuses released buffers.
+ *
+ * <p>Buffers are allocated in power-of-two size classes, such that a released buffer can serve any
+ * later request of the same size class. The total size of the buffers kept for reuse is bounded,
+ * and buffers released beyond the bound are left to the GC. Buffers are always heap buffers, as the
+ * dex writer requires an array backing.
+ *
+ * <p>The dex writer creates a pool for each compilation for consumers that do not manage their own
+ * buffers, which lets the files of the compilation reuse the buffers of earlier files. The pool is
+ * {@link #clear() cleared} when the compilation has written its files, such that no buffers are
+ * kept alive after the compilation. The {@link com.android.tools.r8.CompilerDaemon} keeps a pool
+ * for all compilations it runs, which lets consecutive compilations reuse the buffers of earlier
+ * compilations.
+ */
+public class PoolingByteBufferProvider implements ByteBufferProvider {
+
+  private static final int MIN_SIZE_CLASS_LOG2 = 16;
+  private static final int MAX_SIZE_CLASS_LOG2 = 30;
+
+  private static final ClassValue<Boolean> USES_DEFAULT_ALLOCATION =
+      new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> clazz) {
+          try {
+            return clazz.getMethod("acquireByteBuffer", int.class).getDeclaringClass()
+                    == ByteBufferProvider.class
+                && clazz.getMethod("releaseByteBuffer", ByteBuffer.class).getDeclaringClass()
+                    == ByteBufferProvider.class;
+          } catch (NoSuchMethodException e) {
+            return false;
+          }
+        }
+      };
+
+  private final long maxPooledBytes;
+  private final Deque<ByteBuffer>[] pools;
+  private long pooledBytes = 0;
+
+  @SuppressWarnings("unchecked")
+  public PoolingByteBufferProvider(long maxPooledBytes) {
+    this.maxPooledBytes = maxPooledBytes;
+    this.pools = new Deque[MAX_SIZE_CLASS_LOG2 + 1];
+    for (int i = MIN_SIZE_CLASS_LOG2; i <= MAX_SIZE_CLASS_LOG2; i++) {
+      pools[i] = new ArrayDeque<>();
+    }
+  }
+
+  /** Creates a pool that keeps at most 256MB or an eighth of the maximum heap size. */
+  public static PoolingByteBufferProvider createDefault() {
+    return new PoolingByteBufferProvider(
+        Math.min(256L << 20, Runtime.getRuntime().maxMemory() / 8));
+  }
+
+  /**
+   * Returns true if {@code provider} allocates and releases buffers using the default methods of
+   * {@link ByteBufferProvider}, in which case the buffers can be taken from a pool instead.
+   */
+  public static boolean usesDefaultAllocation(ByteBufferProvider provider) {
+    return USES_DEFAULT_ALLOCATION.get(provider.getClass());
+  }
+
+  @Override
+  public ByteBuffer acquireByteBuffer(int capacity) {
+    int sizeClass = sizeClass(capacity);
+    if (sizeClass > MAX_SIZE_CLASS_LOG2) {
+      return ByteBuffer.allocate(capacity);
+    }
+    ByteBuffer buffer;
+    synchronized (this) {
+      buffer = pools[sizeClass].pollFirst();
+      if (buffer != null) {
+        pooledBytes -= buffer.capacity();
+      }
+    }
+    if (buffer == null) {
+      return ByteBuffer.allocate(1 << sizeClass);
+    }
+    // The dex writer relies on the content of the buffer being zero initialized, for example for
+    // alignment padding.
+    Arrays.fill(buffer.array(), (byte) 0);
+    return buffer;
+  }
+
+  @Override
+  public void releaseByteBuffer(ByteBuffer buffer) {
+    int capacity = buffer.capacity();
+    if (!buffer.hasArray()
+        || buffer.arrayOffset() != 0
+        || Integer.bitCount(capacity) != 1
+        || capacity < 1 << MIN_SIZE_CLASS_LOG2
+        || capacity > 1 << MAX_SIZE_CLASS_LOG2) {
+      // Not allocated by this pool.
+      return;
+    }
+    // Use the java.nio.Buffer method, which is not overridden on JDK 8.
+    ((Buffer) buffer).clear();
+    synchronized (this) {
+      if (pooledBytes + capacity <= maxPooledBytes) {
+        pools[sizeClass(capacity)].addFirst(buffer);
+        pooledBytes += capacity;
+      }
+    }
+  }
+
+  /** Returns the total size of the buffers kept for reuse. */
+  public synchronized long getPooledBytes() {
+    return pooledBytes;
+  }
+
+  /** Drops all buffers kept for reuse. */
+  public synchronized void clear() {
+    for (int i = MIN_SIZE_CLASS_LOG2; i <= MAX_SIZE_CLASS_LOG2; i++) {
+      pools[i].clear();
+    }
+    pooledBytes = 0;
+  }
+
+  private static int sizeClass(int capacity) {
+    if (capacity <= 1 << MIN_SIZE_CLASS_LOG2) {
+      return MIN_SIZE_CLASS_LOG2;
+    }
+    return Integer.SIZE - Integer.numberOfLeadingZeros(capacity - 1);
+  }
+}
@@ -0,0 +1,616 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.ClassFileConsumer;
+import com.android.tools.r8.ClassFileResourceProvider;
+import com.android.tools.r8.DataDirectoryResource;
+import com.android.tools.r8.DataEntryResource;
+import com.android.tools.r8.DataResourceConsumer;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.ProgramResourceProvider;
+import com.android.tools.r8.ResourceException;
+import com.android.tools.r8.StringConsumer;
+import com.android.tools.r8.StringResource;
+import com.android.tools.r8.Version;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.shaking.ProguardConfiguration;
+import com.android.tools.r8.shaking.ProguardConfigurationRule;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Cache of the outputs of the last compilation, which are replayed to the consumers if the next
+ * compilation has exactly the same inputs. This is not incremental compilation: if any input has
+ * changed, the whole program is compiled again.
+ *
+ * <p>The cache directory holds a snapshot of the outputs of the last successful compilation,
+ * together with a fingerprint of everything the outputs depend on: the program, classpath and
+ * library inputs, the main-dex list, the apply-mapping input, the parsed keep rules, the
+ * compilation options, the R8 system properties and the compiler version. Program, classpath and
+ * library inputs are identified by their path, size and modification time, so computing the
+ * fingerprint does not read them. Compilations with inputs that are not files, such as class data
+ * passed in memory, are not cached, since reading such inputs for the fingerprint could consume
+ * them.
+ *
+ * <p>The results of the whole-program analyses (liveness, keep info, optimization info and
+ * minification) of a class depend on all other classes of the program, so no part of a previous
+ * compilation is reused when any input has changed. Compilations with outputs that cannot be
+ * recorded, such as feature splits and graph consumers, are not cached either.
+ */
+public class R8OutputReplayCache {
+
+  private static final int SNAPSHOT_MAGIC = 0x52384953; // "R8IS"
+  private static final int SNAPSHOT_VERSION = 3;
+  private static final String SNAPSHOT_FILE_NAME = "snapshot.r8state";
+
+  private static final int END = 0;
+  private static final int DEX_FILE = 1;
+  private static final int CLASS_FILE = 2;
+  private static final int DATA_DIRECTORY = 3;
+  private static final int DATA_ENTRY = 4;
+  private static final int STRING = 5;
+  private static final int STRING_FINISHED = 6;
+
+  // The string consumers of a compilation, identified by their position in this order.
+  private static final int MAIN_DEX_LIST = 0;
+  private static final int PROGUARD_MAP = 1;
+  private static final int USAGE_INFORMATION = 2;
+  private static final int PROGUARD_SEEDS = 3;
+  private static final int CONFIGURATION = 4;
+  private static final int NUMBER_OF_STRING_CONSUMERS = 5;
+
+  private final Path directory;
+
+  public R8OutputReplayCache(Path directory) {
+    this.directory = directory;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /** Returns true if the outputs of the given compilation can be recorded and replayed. */
+  public static boolean isApplicable(InternalOptions options) {
+    if (options.r8OutputReplayCache == null) {
+      return false;
+    }
+    if (!(options.programConsumer instanceof DexIndexedConsumer)
+        && !(options.programConsumer instanceof ClassFileConsumer)) {
+      return false;
+    }
+    return options.featureSplitConfiguration == null
+        && options.desugaredLibraryKeepRuleConsumer == null
+        && options.keptGraphConsumer == null
+        && options.mainDexKeptGraphConsumer == null
+        && options.desugarGraphConsumer == null
+        && options.syntheticProguardRulesConsumer == null
+        && options.outputInspections.isEmpty();
+  }
+
+  /**
+   * Passes the outputs of the snapshot to the consumers of {@param options} and returns true if
+   * the snapshot was produced from the inputs with the given fingerprint.
+   */
+  public boolean replay(String fingerprint, InternalOptions options) {
+    assert isApplicable(options);
+    List<Event> events = readSnapshot(fingerprint);
+    if (events == null) {
+      return false;
+    }
+    StringConsumer[] stringConsumers = getStringConsumers(options);
+    for (Event event : events) {
+      event.replay(options, stringConsumers);
+    }
+    options.signalFinishedToConsumers();
+    return true;
+  }
+
+  /**
+   * Installs consumers that record the outputs of the compilation and returns the recording, which
+   * must be committed once the compilation has succeeded.
+   */
+  public Recording record(String fingerprint, InternalOptions options) throws IOException {
+    assert isApplicable(options);
+    Recording recording = new Recording(fingerprint, options.reporter);
+    recording.install(options);
+    return recording;
+  }
+
+  private Path getSnapshotPath() {
+    return directory.resolve(SNAPSHOT_FILE_NAME);
+  }
+
+  /**
+   * Returns the fingerprint of the inputs of the compilation, or null if some of the inputs are not
+   * files, in which case the compilation is not cached.
+   */
+  public static String computeFingerprint(AndroidApp app, InternalOptions options)
+      throws IOException {
+    assert isApplicable(options);
+    Hasher hasher = Hashing.sha256().newHasher();
+    InputFingerprint.putString(hasher, computeOptionsKey(options));
+    for (ProgramResourceProvider provider : app.getProgramResourceProviders()) {
+      if (!InputFingerprint.putFileBasedProgramResourceProvider(hasher, provider)) {
+        return null;
+      }
+    }
+    for (ClassFileResourceProvider provider : app.getClasspathResourceProviders()) {
+      if (!InputFingerprint.putFileBasedClassFileResourceProvider(hasher, provider)) {
+        return null;
+      }
+    }
+    for (ClassFileResourceProvider provider : app.getLibraryResourceProviders()) {
+      if (!InputFingerprint.putFileBasedClassFileResourceProvider(hasher, provider)) {
+        return null;
+      }
+    }
+    try {
+      for (StringResource mainDexListResource : app.getMainDexListResources()) {
+        InputFingerprint.putString(hasher, mainDexListResource.getString());
+      }
+      StringResource proguardMapInput = app.getProguardMapInputData();
+      if (proguardMapInput != null) {
+        InputFingerprint.putString(hasher, proguardMapInput.getString());
+      }
+    } catch (ResourceException e) {
+      throw options.reporter.fatalError(new StringDiagnostic(e.getMessage(), e.getOrigin()));
+    }
+    return hasher.hash().toString();
+  }
+
+  private static String computeOptionsKey(InternalOptions options) {
+    StringBuilder builder = new StringBuilder();
+    builder.append(Version.getVersionString()).append('\n');
+    builder.append("class-files=").append(options.isGeneratingClassFiles()).append('\n');
+    // Many internal modes are enabled by system properties, and some of them affect the output.
+    InputFingerprint.getCompilerSystemProperties()
+        .forEach((name, value) -> builder.append(name).append('=').append(value).append('\n'));
+    if (options.dumpOptions != null) {
+      for (String line : StringUtils.splitLines(options.dumpOptions.dumpOptions())) {
+        // The number of threads does not affect the output.
+        if (!line.startsWith("thread-count=")) {
+          builder.append(line).append('\n');
+        }
+      }
+      String desugaredLibraryJson = options.dumpOptions.getDesugaredLibraryJsonSource();
+      if (desugaredLibraryJson != null) {
+        builder.append(desugaredLibraryJson).append('\n');
+      }
+      if (options.dumpOptions.hasMainDexKeepRules()) {
+        for (ProguardConfigurationRule rule : options.dumpOptions.getMainDexKeepRules()) {
+          builder.append(rule).append('\n');
+        }
+      }
+    }
+    ProguardConfiguration configuration = options.getProguardConfiguration();
+    if (configuration != null) {
+      builder.append(configuration.getParsedConfiguration()).append('\n');
+      configuration.getObfuscationDictionary().forEach(name -> builder.append(name).append('\n'));
+      configuration
+          .getClassObfuscationDictionary()
+          .forEach(name -> builder.append(name).append('\n'));
+      configuration
+          .getPackageObfuscationDictionary()
+          .forEach(name -> builder.append(name).append('\n'));
+    }
+    // The set of outputs is part of the key, since only the outputs of the consumers that are
+    // present are recorded.
+    builder.append("data-resources=").append(options.dataResourceConsumer != null).append('\n');
+    StringConsumer[] stringConsumers = getStringConsumers(options);
+    for (StringConsumer consumer : stringConsumers) {
+      builder.append(consumer != null ? '1' : '0');
+    }
+    builder.append('\n');
+    return builder.toString();
+  }
+
+  private static StringConsumer[] getStringConsumers(InternalOptions options) {
+    StringConsumer[] consumers = new StringConsumer[NUMBER_OF_STRING_CONSUMERS];
+    consumers[MAIN_DEX_LIST] = options.mainDexListConsumer;
+    consumers[PROGUARD_MAP] = options.proguardMapConsumer;
+    consumers[USAGE_INFORMATION] = options.usageInformationConsumer;
+    consumers[PROGUARD_SEEDS] = options.proguardSeedsConsumer;
+    consumers[CONFIGURATION] = options.configurationConsumer;
+    return consumers;
+  }
+
+  private List<Event> readSnapshot(String fingerprint) {
+    byte[] snapshot;
+    try {
+      snapshot = Files.readAllBytes(getSnapshotPath());
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      // Treat an unreadable snapshot as missing. It is rewritten after the compilation.
+      return null;
+    }
+    // Read all events before replaying any of them, such that a corrupt snapshot never leads to
+    // partial outputs.
+    List<Event> events = new ArrayList<>();
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+      if (input.readInt() != SNAPSHOT_MAGIC
+          || input.readInt() != SNAPSHOT_VERSION
+          || !input.readUTF().equals(fingerprint)) {
+        return null;
+      }
+      for (int kind = input.readByte(); kind != END; kind = input.readByte()) {
+        events.add(Event.read(kind, input));
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    return events;
+  }
+
+  private abstract static class Event {
+
+    abstract void replay(InternalOptions options, StringConsumer[] stringConsumers);
+
+    static Event read(int kind, DataInputStream input) throws IOException {
+      switch (kind) {
+        case DEX_FILE:
+          {
+            int fileIndex = input.readInt();
+            Set<String> descriptors = readDescriptors(input);
+            byte[] data = readBytes(input);
+            return new Event() {
+              @Override
+              void replay(InternalOptions options, StringConsumer[] stringConsumers) {
+                options
+                    .getDexIndexedConsumer()
+                    .accept(fileIndex, ByteDataView.of(data), descriptors, options.reporter);
+              }
+            };
+          }
+        case CLASS_FILE:
+          {
+            String descriptor = input.readUTF();
+            byte[] data = readBytes(input);
+            return new Event() {
+              @Override
+              void replay(InternalOptions options, StringConsumer[] stringConsumers) {
+                options
+                    .getClassFileConsumer()
+                    .accept(ByteDataView.of(data), descriptor, options.reporter);
+              }
+            };
+          }
+        case DATA_DIRECTORY:
+          {
+            String name = input.readUTF();
+            return new Event() {
+              @Override
+              void replay(InternalOptions options, StringConsumer[] stringConsumers) {
+                options.dataResourceConsumer.accept(
+                    DataDirectoryResource.fromName(name, Origin.unknown()), options.reporter);
+              }
+            };
+          }
+        case DATA_ENTRY:
+          {
+            String name = input.readUTF();
+            byte[] data = readBytes(input);
+            return new Event() {
+              @Override
+              void replay(InternalOptions options, StringConsumer[] stringConsumers) {
+                options.dataResourceConsumer.accept(
+                    DataEntryResource.fromBytes(data, name, Origin.unknown()), options.reporter);
+              }
+            };
+          }
+        case STRING:
+          {
+            int consumer = input.readByte();
+            String string = new String(readBytes(input), StandardCharsets.UTF_8);
+            return new Event() {
+              @Override
+              void replay(InternalOptions options, StringConsumer[] stringConsumers) {
+                stringConsumers[consumer].accept(string, options.reporter);
+              }
+            };
+          }
+        case STRING_FINISHED:
+          {
+            int consumer = input.readByte();
+            return new Event() {
+              @Override
+              void replay(InternalOptions options, StringConsumer[] stringConsumers) {
+                stringConsumers[consumer].finished(options.reporter);
+              }
+            };
+          }
+        default:
+          throw new IOException("Unexpected snapshot event: " + kind);
+      }
+    }
+
+    private static Set<String> readDescriptors(DataInputStream input) throws IOException {
+      int count = input.readInt();
+      Set<String> descriptors = new TreeSet<>();
+      for (int i = 0; i < count; i++) {
+        descriptors.add(input.readUTF());
+      }
+      return descriptors;
+    }
+
+    private static byte[] readBytes(DataInputStream input) throws IOException {
+      byte[] bytes = new byte[input.readInt()];
+      input.readFully(bytes);
+      return bytes;
+    }
+  }
+
+  /**
+   * The outputs of a compilation that is in progress. The outputs are written to a temporary file,
+   * which replaces the snapshot when the recording is committed.
+   *
+   * <p>The diagnostics of a compilation are not recorded, so the outputs of a compilation that
+   * reported diagnostics are never committed. The next compilation with the same inputs then
+   * compiles again and reports the same diagnostics.
+   */
+  public class Recording {
+
+    private final String fingerprint;
+    private final Reporter reporter;
+    private final int reportedDiagnosticsBefore;
+    private Path tempPath;
+    private DataOutputStream output;
+    private IOException failure;
+
+    private Recording(String fingerprint, Reporter reporter) {
+      this.fingerprint = fingerprint;
+      this.reporter = reporter;
+      this.reportedDiagnosticsBefore = reporter.getNumberOfReportedDiagnostics();
+    }
+
+    private void install(InternalOptions options) throws IOException {
+      Files.createDirectories(directory);
+      tempPath = Files.createTempFile(directory, SNAPSHOT_FILE_NAME, ".tmp");
+      output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)));
+      output.writeInt(SNAPSHOT_MAGIC);
+      output.writeInt(SNAPSHOT_VERSION);
+      output.writeUTF(fingerprint);
+
+      if (options.dataResourceConsumer != null) {
+        options.dataResourceConsumer =
+            new RecordingDataResourceConsumer(options.dataResourceConsumer);
+      }
+      if (options.programConsumer instanceof DexIndexedConsumer) {
+        options.programConsumer =
+            new RecordingDexIndexedConsumer(
+                options.getDexIndexedConsumer(), options.dataResourceConsumer);
+      } else {
+        options.programConsumer =
+            new RecordingClassFileConsumer(
+                options.getClassFileConsumer(), options.dataResourceConsumer);
+      }
+      options.mainDexListConsumer = wrap(MAIN_DEX_LIST, options.mainDexListConsumer);
+      options.proguardMapConsumer = wrap(PROGUARD_MAP, options.proguardMapConsumer);
+      options.usageInformationConsumer =
+          wrap(USAGE_INFORMATION, options.usageInformationConsumer);
+      options.proguardSeedsConsumer = wrap(PROGUARD_SEEDS, options.proguardSeedsConsumer);
+      options.configurationConsumer = wrap(CONFIGURATION, options.configurationConsumer);
+    }
+
+    private StringConsumer wrap(int id, StringConsumer consumer) {
+      return consumer == null ? null : new RecordingStringConsumer(id, consumer);
+    }
+
+    /**
+     * Replaces the snapshot by the recorded outputs, unless the compilation reported diagnostics.
+     */
+    public void commit() {
+      if (reporter.getNumberOfReportedDiagnostics() != reportedDiagnosticsBefore) {
+        discard();
+        return;
+      }
+      try {
+        synchronized (this) {
+          if (failure != null) {
+            throw failure;
+          }
+          output.writeByte(END);
+          output.close();
+          output = null;
+        }
+        try {
+          Files.move(tempPath, getSnapshotPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(tempPath, getSnapshotPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+      } catch (IOException e) {
+        // Failing to update the snapshot does not affect the compilation result.
+        reporter.warning(new ExceptionDiagnostic(e));
+      } finally {
+        discard();
+      }
+    }
+
+    /** Removes the recorded outputs, if they have not been committed. */
+    public void discard() {
+      try {
+        synchronized (this) {
+          if (output != null) {
+            output.close();
+            output = null;
+          }
+        }
+        Files.deleteIfExists(tempPath);
+      } catch (IOException e) {
+        // Ignore failures to clean up the temporary file.
+      }
+    }
+
+    private synchronized void record(int kind, RecordAction action) {
+      if (failure != null || output == null) {
+        return;
+      }
+      try {
+        output.writeByte(kind);
+        action.write(output);
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+
+    private void writeBytes(DataOutputStream output, byte[] bytes, int offset, int length)
+        throws IOException {
+      output.writeInt(length);
+      output.write(bytes, offset, length);
+    }
+
+    private class RecordingDexIndexedConsumer extends DexIndexedConsumer.ForwardingConsumer {
+
+      private final DataResourceConsumer dataResourceConsumer;
+
+      RecordingDexIndexedConsumer(
+          DexIndexedConsumer consumer, DataResourceConsumer dataResourceConsumer) {
+        super(consumer);
+        this.dataResourceConsumer = dataResourceConsumer;
+      }
+
+      @Override
+      public DataResourceConsumer getDataResourceConsumer() {
+        return dataResourceConsumer;
+      }
+
+      @Override
+      public void accept(
+          int fileIndex, ByteDataView data, Set<String> descriptors, DiagnosticsHandler handler) {
+        record(
+            DEX_FILE,
+            output -> {
+              output.writeInt(fileIndex);
+              output.writeInt(descriptors.size());
+              for (String descriptor : descriptors) {
+                output.writeUTF(descriptor);
+              }
+              writeBytes(output, data.getBuffer(), data.getOffset(), data.getLength());
+            });
+        super.accept(fileIndex, data, descriptors, handler);
+      }
+    }
+
+    private class RecordingClassFileConsumer extends ClassFileConsumer.ForwardingConsumer {
+
+      private final DataResourceConsumer dataResourceConsumer;
+
+      RecordingClassFileConsumer(
+          ClassFileConsumer consumer, DataResourceConsumer dataResourceConsumer) {
+        super(consumer);
+        this.dataResourceConsumer = dataResourceConsumer;
+      }
+
+      @Override
+      public DataResourceConsumer getDataResourceConsumer() {
+        return dataResourceConsumer;
+      }
+
+      @Override
+      public void accept(ByteDataView data, String descriptor, DiagnosticsHandler handler) {
+        record(
+            CLASS_FILE,
+            output -> {
+              output.writeUTF(descriptor);
+              writeBytes(output, data.getBuffer(), data.getOffset(), data.getLength());
+            });
+        super.accept(data, descriptor, handler);
+      }
+    }
+
+    private class RecordingDataResourceConsumer implements DataResourceConsumer {
+
+      private final DataResourceConsumer consumer;
+
+      RecordingDataResourceConsumer(DataResourceConsumer consumer) {
+        this.consumer = consumer;
+      }
+
+      @Override
+      public void accept(DataDirectoryResource directory, DiagnosticsHandler handler) {
+        record(DATA_DIRECTORY, output -> output.writeUTF(directory.getName()));
+        consumer.accept(directory, handler);
+      }
+
+      @Override
+      public void accept(DataEntryResource file, DiagnosticsHandler handler) {
+        byte[] bytes;
+        try (InputStream input = file.getByteStream()) {
+          bytes = ByteStreams.toByteArray(input);
+        } catch (IOException | ResourceException e) {
+          handler.error(new ExceptionDiagnostic(e, file.getOrigin()));
+          return;
+        }
+        record(
+            DATA_ENTRY,
+            output -> {
+              output.writeUTF(file.getName());
+              writeBytes(output, bytes, 0, bytes.length);
+            });
+        consumer.accept(
+            DataEntryResource.fromBytes(bytes, file.getName(), file.getOrigin()), handler);
+      }
+
+      @Override
+      public void finished(DiagnosticsHandler handler) {
+        consumer.finished(handler);
+      }
+    }
+
+    private class RecordingStringConsumer extends StringConsumer.ForwardingConsumer {
+
+      private final int id;
+
+      RecordingStringConsumer(int id, StringConsumer consumer) {
+        super(consumer);
+        this.id = id;
+      }
+
+      @Override
+      public void accept(String string, DiagnosticsHandler handler) {
+        record(
+            STRING,
+            output -> {
+              output.writeByte(id);
+              byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+              writeBytes(output, bytes, 0, bytes.length);
+            });
+        super.accept(string, handler);
+      }
+
+      @Override
+      public void finished(DiagnosticsHandler handler) {
+        record(STRING_FINISHED, output -> output.writeByte(id));
+        super.finished(handler);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface RecordAction {
+
+    void write(DataOutputStream output) throws IOException;
+  }
+}
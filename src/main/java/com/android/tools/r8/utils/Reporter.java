@@ -44,6 +44,7 @@ public class Reporter implements DiagnosticsHandler {
   private final DiagnosticsHandler clientHandler;
   private final List<DiagnosticsLevelMapping> diagnosticsLevelMapping = new ArrayList<>();
   private AbortException abort = null;
+  private int reportedDiagnostics = 0;
 
   public Reporter() {
     this(new DiagnosticsHandler() {});
@@ -63,6 +64,7 @@ public class Reporter implements DiagnosticsHandler {
     } else {
       level = ERROR;
     }
+    reportedDiagnostics++;
     switch (level) {
       case INFO:
         clientHandler.info(diagnostic);
@@ -121,6 +123,11 @@ public class Reporter implements DiagnosticsHandler {
     throw abort;
   }
 
+  /** Returns the number of diagnostics that have been reported, of any level. */
+  public synchronized int getNumberOfReportedDiagnostics() {
+    return reportedDiagnostics;
+  }
+
   /** @throws AbortException if any error was reported. */
   public synchronized void failIfPendingErrors() {
     if (abort != null) {
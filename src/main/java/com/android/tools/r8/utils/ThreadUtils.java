@@ -4,6 +4,7 @@
 package com.android.tools.r8.utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -14,6 +15,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
 
 public class ThreadUtils {
 
@@ -59,6 +61,54 @@ public class ThreadUtils {
     return awaitFuturesWithResults(futures);
   }
 
+  /**
+   * Processes the given items like {@link #processItemsWithResults(Iterable, ThrowingFunction,
+   * ExecutorService)}, but submits the items in decreasing order of their estimated size. This
+   * avoids that a large item that happens to be submitted last delays the completion of all items.
+   * Items of the same size are submitted in iteration order, and the results are returned in the
+   * iteration order of the items.
+   */
+  public static <T, R, E extends Exception> Collection<R> processItemsWithResultsLargestFirst(
+      Iterable<T> items,
+      ToIntFunction<? super T> sizeEstimate,
+      ThrowingFunction<T, R, E> consumer,
+      ExecutorService executorService)
+      throws ExecutionException {
+    List<T> itemList = new ArrayList<>();
+    items.forEach(itemList::add);
+    int[] sizes = new int[itemList.size()];
+    Integer[] order = new Integer[itemList.size()];
+    for (int i = 0; i < itemList.size(); i++) {
+      sizes[i] = sizeEstimate.applyAsInt(itemList.get(i));
+      order[i] = i;
+    }
+    // Arrays.sort is stable for objects, so items of the same size remain in iteration order.
+    Arrays.sort(order, (x, y) -> Integer.compare(sizes[y], sizes[x]));
+    @SuppressWarnings("unchecked")
+    Future<R>[] futures = new Future[itemList.size()];
+    for (int index : order) {
+      T item = itemList.get(index);
+      futures[index] = executorService.submit(() -> consumer.apply(item));
+    }
+    return awaitFuturesWithResults(Arrays.asList(futures));
+  }
+
+  public static <T, E extends Exception> void processItemsLargestFirst(
+      Iterable<T> items,
+      ToIntFunction<? super T> sizeEstimate,
+      ThrowingConsumer<T, E> consumer,
+      ExecutorService executorService)
+      throws ExecutionException {
+    processItemsWithResultsLargestFirst(
+        items,
+        sizeEstimate,
+        item -> {
+          consumer.accept(item);
+          return null;
+        },
+        executorService);
+  }
+
   public static <T, E extends Exception> void processItems(
       Iterable<T> items, ThrowingConsumer<T, E> consumer, ExecutorService executorService)
       throws ExecutionException {
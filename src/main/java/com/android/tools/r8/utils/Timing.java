@@ -13,6 +13,7 @@ package com.android.tools.r8.utils;
 // Finally a report is printed by:
 //     t.report();
 
+import com.android.tools.r8.utils.metrics.CompilerMetrics;
 import com.google.common.base.Strings;
 import java.util.ArrayDeque;
 import java.util.Collection;
@@ -27,7 +28,7 @@ public class Timing {
   private static final int MINIMUM_REPORT_PERCENTAGE = 2;
 
   private static final Timing EMPTY =
-      new Timing("<empty>", false) {
+      new Timing("<empty>", false, CompilerMetrics.empty()) {
         @Override
         public TimingMerger beginMerger(String title, int numberOfThreads) {
           return new TimingMerger(null, -1, this) {
@@ -70,26 +71,33 @@ public class Timing {
 
   public static Timing create(String title, InternalOptions options) {
     // We also create a timer when running assertions to validate wellformedness of the node stack.
-    return options.printTimes || InternalOptions.assertionsEnabled()
-        ? new Timing(title, options.printMemory)
+    return options.printTimes
+            || InternalOptions.assertionsEnabled()
+            || options.getMetrics().isEnabled()
+        ? new Timing(title, options.printMemory, options.getMetrics())
         : Timing.empty();
   }
 
   public static Timing create(String title, boolean printMemory) {
-    return new Timing(title, printMemory);
+    return new Timing(title, printMemory, CompilerMetrics.empty());
   }
 
   private final Node top;
   private final Stack<Node> stack;
   private final boolean trackMemory;
+  // Each scope below the top node is also reported as a phase to the metrics, if enabled.
+  private final CompilerMetrics metrics;
+  private final Deque<CompilerMetrics.Scope> metricsScopes;
 
   @Deprecated
   public Timing(String title) {
-    this(title, false);
+    this(title, false, CompilerMetrics.empty());
   }
 
-  private Timing(String title, boolean trackMemory) {
+  private Timing(String title, boolean trackMemory, CompilerMetrics metrics) {
     this.trackMemory = trackMemory;
+    this.metrics = metrics;
+    this.metricsScopes = metrics.isEnabled() ? new ArrayDeque<>() : null;
     stack = new Stack<>();
     top = new Node(title, trackMemory);
     stack.push(top);
@@ -114,6 +122,8 @@ public class Timing {
   static class Node {
     final String title;
     final boolean trackMemory;
+    // The titles from the top node to this node, used as the name of the metrics phase.
+    String path;
 
     final Map<String, Node> children = new LinkedHashMap<>();
     long duration = 0;
@@ -365,14 +375,22 @@ public class Timing {
       child.restart();
     } else {
       child = new Node(title, trackMemory);
+      child.path = parent == top ? title : parent.path + " > " + title;
       parent.children.put(title, child);
     }
     stack.push(child);
+    if (metricsScopes != null) {
+      metricsScopes.push(metrics.begin(CompilerMetrics.CATEGORY_PHASE, child.path));
+    }
   }
 
   public void end() {
-    stack.peek().end();  // record time.
+    Node node = stack.peek();
+    node.end();  // record time.
     stack.pop();
+    if (metricsScopes != null && node != top) {
+      metricsScopes.pop().end();
+    }
   }
 
   public void report() {
@@ -0,0 +1,200 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils.metrics;
+
+import com.android.tools.r8.utils.Reporter;
+import com.google.common.collect.ImmutableList;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Structured per-phase measurements of a compilation.
+ *
+ * <p>A scope is measured by:
+ *
+ * <pre>
+ *   CompilerMetrics.Scope scope = metrics.begin(CompilerMetrics.CATEGORY_PHASE, "My task");
+ *   try { ... } finally { scope.end(); }
+ * </pre>
+ *
+ * <p>Each ended scope records its wall time, the bytes allocated while it was open and the number
+ * of threads it ran on, and is passed to the {@link MetricsConsumer}s. The metrics of a compilation
+ * are disabled unless consumers are installed, either programmatically or using the system
+ * properties {@code com.android.tools.r8.metrics.jfr}, which emits JDK Flight Recorder events, and
+ * {@code com.android.tools.r8.metrics.json=<file>}, which appends a JSON summary to the file.
+ */
+public class CompilerMetrics {
+
+  public static final String CATEGORY_PHASE = "phase";
+  public static final String CATEGORY_WAVE = "primary-processor";
+  public static final String CATEGORY_ENQUEUER = "enqueuer";
+  public static final String CATEGORY_INLINER = "inliner";
+  public static final String CATEGORY_DEX_FILE = "dex-file";
+
+  private static final CompilerMetrics EMPTY = new CompilerMetrics(ImmutableList.of());
+
+  private static final Scope EMPTY_SCOPE = new Scope(EMPTY, null, null, 0, false);
+
+  private static final com.sun.management.ThreadMXBean THREAD_BEAN = getThreadBean();
+
+  private final List<MetricsConsumer> consumers;
+
+  private CompilerMetrics(List<MetricsConsumer> consumers) {
+    this.consumers = consumers;
+  }
+
+  public static CompilerMetrics empty() {
+    return EMPTY;
+  }
+
+  public static CompilerMetrics create(MetricsConsumer... consumers) {
+    return consumers.length == 0 ? empty() : new CompilerMetrics(ImmutableList.copyOf(consumers));
+  }
+
+  public static CompilerMetrics createFromSystemProperties() {
+    ImmutableList.Builder<MetricsConsumer> builder = ImmutableList.builder();
+    if (System.getProperty("com.android.tools.r8.metrics.jfr") != null) {
+      MetricsConsumer jfrConsumer = JfrMetricsConsumer.createIfAvailable();
+      if (jfrConsumer != null) {
+        builder.add(jfrConsumer);
+      }
+    }
+    String jsonFile = System.getProperty("com.android.tools.r8.metrics.json");
+    if (jsonFile != null) {
+      builder.add(new JsonMetricsConsumer(Paths.get(jsonFile)));
+    }
+    List<MetricsConsumer> consumers = builder.build();
+    return consumers.isEmpty() ? empty() : new CompilerMetrics(consumers);
+  }
+
+  public boolean isEnabled() {
+    return !consumers.isEmpty();
+  }
+
+  /** Begins a scope that runs on the current thread. */
+  public Scope begin(String category, String name) {
+    return isEnabled() ? new Scope(this, category, name, 1, false) : EMPTY_SCOPE;
+  }
+
+  /**
+   * Begins a scope that forks work to {@code threads} threads. The allocations of the scope are
+   * accounted over all threads of the VM.
+   */
+  public Scope beginParallel(String category, String name, int threads) {
+    return isEnabled() ? new Scope(this, category, name, threads, true) : EMPTY_SCOPE;
+  }
+
+  /** Records an instant event, such as a decision, with the given name. */
+  public void event(String category, String name) {
+    if (isEnabled()) {
+      MetricsRecord record =
+          new MetricsRecord(category, name, Thread.currentThread().getName(), 0, 0, 1, 1);
+      for (MetricsConsumer consumer : consumers) {
+        consumer.accept(record, null);
+      }
+    }
+  }
+
+  /** Signals the end of the compilation by {@code tool} to the consumers. */
+  public void finished(String tool, Reporter reporter) {
+    for (MetricsConsumer consumer : consumers) {
+      consumer.finished(tool, reporter);
+    }
+  }
+
+  private static com.sun.management.ThreadMXBean getThreadBean() {
+    try {
+      ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (threadBean.isThreadAllocatedMemorySupported()
+            && threadBean.isThreadAllocatedMemoryEnabled()) {
+          return threadBean;
+        }
+      }
+    } catch (Throwable e) {
+      // The management API is not available, e.g., on Android.
+    }
+    return null;
+  }
+
+  private static long getAllocatedBytes(boolean allThreads) {
+    if (THREAD_BEAN == null) {
+      return MetricsRecord.UNKNOWN;
+    }
+    if (!allThreads) {
+      return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    long total = 0;
+    for (long allocated : THREAD_BEAN.getThreadAllocatedBytes(THREAD_BEAN.getAllThreadIds())) {
+      if (allocated > 0) {
+        total += allocated;
+      }
+    }
+    return total;
+  }
+
+  public static class Scope {
+
+    private final CompilerMetrics metrics;
+    private final String category;
+    private final String name;
+    private final int threads;
+    private final boolean allThreads;
+    private final Object[] handles;
+    private final long startAllocatedBytes;
+    private final long startTime;
+    private long count = 1;
+
+    private Scope(
+        CompilerMetrics metrics, String category, String name, int threads, boolean allThreads) {
+      this.metrics = metrics;
+      this.category = category;
+      this.name = name;
+      this.threads = threads;
+      this.allThreads = allThreads;
+      List<MetricsConsumer> consumers = metrics.consumers;
+      handles = new Object[consumers.size()];
+      for (int i = 0; i < handles.length; i++) {
+        handles[i] = consumers.get(i).scopeStarted(category, name);
+      }
+      startAllocatedBytes = metrics.isEnabled() ? getAllocatedBytes(allThreads) : 0;
+      startTime = System.nanoTime();
+    }
+
+    /** Sets the number of items, such as methods or classes, processed in this scope. */
+    public Scope setCount(long count) {
+      this.count = count;
+      return this;
+    }
+
+    public void end() {
+      if (!metrics.isEnabled()) {
+        return;
+      }
+      // Clamp to 1ns to distinguish the scope from an instant event.
+      long duration = Math.max(1, System.nanoTime() - startTime);
+      long allocatedBytes = MetricsRecord.UNKNOWN;
+      if (startAllocatedBytes != MetricsRecord.UNKNOWN) {
+        // Threads that terminated during the scope can make the difference negative.
+        allocatedBytes = Math.max(0, getAllocatedBytes(allThreads) - startAllocatedBytes);
+      }
+      MetricsRecord record =
+          new MetricsRecord(
+              category,
+              name,
+              Thread.currentThread().getName(),
+              duration,
+              allocatedBytes,
+              threads,
+              count);
+      List<MetricsConsumer> consumers = metrics.consumers;
+      for (int i = 0; i < handles.length; i++) {
+        consumers.get(i).accept(record, handles[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils.metrics;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Emits the metrics as JDK Flight Recorder events.
+ *
+ * <p>Scopes are emitted as {@code com.android.tools.r8.Scope} events spanning the scope, and
+ * instant events as {@code com.android.tools.r8.Event} events. Both carry the category and name of
+ * the measurement, and scopes also carry the allocated bytes, thread count and item count.
+ *
+ * <p>The compiler is built for Java 8 where {@code jdk.jfr} is not available, so the event types
+ * are defined at runtime using the dynamic {@code jdk.jfr.EventFactory} API. The events are only
+ * recorded if a recording is started, e.g., using {@code -XX:StartFlightRecording}.
+ */
+public class JfrMetricsConsumer implements MetricsConsumer {
+
+  private static final String[] SCOPE_FIELDS = {
+    "category", "name", "allocatedBytes", "threads", "count"
+  };
+  private static final String[] EVENT_FIELDS = {"category", "name"};
+
+  private final Object scopeFactory;
+  private final Object eventFactory;
+  private final Method newEvent;
+  private final Method set;
+  private final Method begin;
+  private final Method end;
+  private final Method shouldCommit;
+  private final Method commit;
+
+  private JfrMetricsConsumer(Object scopeFactory, Object eventFactory) throws Exception {
+    this.scopeFactory = scopeFactory;
+    this.eventFactory = eventFactory;
+    newEvent = Class.forName("jdk.jfr.EventFactory").getMethod("newEvent");
+    Class<?> eventClass = Class.forName("jdk.jfr.Event");
+    set = eventClass.getMethod("set", int.class, Object.class);
+    begin = eventClass.getMethod("begin");
+    end = eventClass.getMethod("end");
+    shouldCommit = eventClass.getMethod("shouldCommit");
+    commit = eventClass.getMethod("commit");
+  }
+
+  // The event types are registered with JFR once, when the first compilation enables the metrics.
+  private static class InstanceHolder {
+    private static final JfrMetricsConsumer INSTANCE = create();
+  }
+
+  /** Returns a consumer emitting JFR events, or null if JFR is not supported by the VM. */
+  public static JfrMetricsConsumer createIfAvailable() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  private static JfrMetricsConsumer create() {
+    try {
+      return new JfrMetricsConsumer(
+          createFactory("com.android.tools.r8.Scope", "R8 Scope", SCOPE_FIELDS),
+          createFactory("com.android.tools.r8.Event", "R8 Event", EVENT_FIELDS));
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object createFactory(String name, String label, String[] fields)
+      throws Exception {
+    Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+    Constructor<?> annotationElement =
+        annotationElementClass.getConstructor(Class.class, Object.class);
+    List<Object> annotations = new ArrayList<>();
+    annotations.add(
+        annotationElement.newInstance(
+            (Class<? extends Annotation>) Class.forName("jdk.jfr.Name"), name));
+    annotations.add(
+        annotationElement.newInstance(
+            (Class<? extends Annotation>) Class.forName("jdk.jfr.Label"), label));
+    annotations.add(
+        annotationElement.newInstance(
+            (Class<? extends Annotation>) Class.forName("jdk.jfr.Category"),
+            new String[] {"R8"}));
+    // The stack traces would point into the reflective commit.
+    annotations.add(
+        annotationElement.newInstance(
+            (Class<? extends Annotation>) Class.forName("jdk.jfr.StackTrace"), false));
+    Constructor<?> valueDescriptor =
+        Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class);
+    List<Object> descriptors = new ArrayList<>();
+    for (String field : fields) {
+      Class<?> type = field.equals("category") || field.equals("name") ? String.class : long.class;
+      descriptors.add(valueDescriptor.newInstance(type, field));
+    }
+    return Class.forName("jdk.jfr.EventFactory")
+        .getMethod("create", List.class, List.class)
+        .invoke(null, annotations, descriptors);
+  }
+
+  @Override
+  public Object scopeStarted(String category, String name) {
+    try {
+      Object event = newEvent.invoke(scopeFactory);
+      begin.invoke(event);
+      return event;
+    } catch (ReflectiveOperationException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void accept(MetricsRecord record, Object handle) {
+    try {
+      Object event = handle;
+      if (event == null) {
+        event = newEvent.invoke(eventFactory);
+      } else {
+        end.invoke(event);
+      }
+      if (!(boolean) shouldCommit.invoke(event)) {
+        return;
+      }
+      set.invoke(event, 0, record.getCategory());
+      set.invoke(event, 1, record.getName());
+      if (handle != null) {
+        set.invoke(event, 2, record.getAllocatedBytes());
+        set.invoke(event, 3, (long) record.getThreads());
+        set.invoke(event, 4, record.getCount());
+      }
+      commit.invoke(event);
+    } catch (ReflectiveOperationException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,129 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils.metrics;
+
+import com.android.tools.r8.origin.PathOrigin;
+import com.android.tools.r8.utils.ExceptionDiagnostic;
+import com.android.tools.r8.utils.Reporter;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates the metrics of a compilation per category and name, and appends them as a single line
+ * of JSON to a file when the compilation finishes.
+ *
+ * <p>A line has the form:
+ *
+ * <pre>
+ * {"tool":"R8","timeMs":1234,"metrics":[
+ *   {"category":"phase","name":"Tree shaking","occurrences":1,"timeMs":321,"maxTimeMs":321,
+ *    "allocatedBytes":123456,"maxThreads":1,"count":1}, ...]}
+ * </pre>
+ *
+ * <p>Appending one line per compilation allows collecting the summaries of many builds, such as the
+ * compilations of a daemon, in a single file.
+ */
+public class JsonMetricsConsumer implements MetricsConsumer {
+
+  private static class Aggregate {
+    final String category;
+    final String name;
+    long occurrences = 0;
+    long durationNanos = 0;
+    long maxDurationNanos = 0;
+    long allocatedBytes = 0;
+    int maxThreads = 0;
+    long count = 0;
+
+    Aggregate(String category, String name) {
+      this.category = category;
+      this.name = name;
+    }
+
+    void add(MetricsRecord record) {
+      occurrences++;
+      durationNanos += record.getDurationNanos();
+      maxDurationNanos = Math.max(maxDurationNanos, record.getDurationNanos());
+      if (allocatedBytes != MetricsRecord.UNKNOWN) {
+        allocatedBytes =
+            record.getAllocatedBytes() == MetricsRecord.UNKNOWN
+                ? MetricsRecord.UNKNOWN
+                : allocatedBytes + record.getAllocatedBytes();
+      }
+      maxThreads = Math.max(maxThreads, record.getThreads());
+      count += record.getCount();
+    }
+
+    JsonObject toJson() {
+      JsonObject json = new JsonObject();
+      json.addProperty("category", category);
+      json.addProperty("name", name);
+      json.addProperty("occurrences", occurrences);
+      json.addProperty("timeMs", toMillis(durationNanos));
+      json.addProperty("maxTimeMs", toMillis(maxDurationNanos));
+      json.addProperty("allocatedBytes", allocatedBytes);
+      json.addProperty("maxThreads", maxThreads);
+      json.addProperty("count", count);
+      return json;
+    }
+  }
+
+  private final Path output;
+  private final Map<String, Map<String, Aggregate>> aggregates = new LinkedHashMap<>();
+  private long startTime = System.nanoTime();
+
+  public JsonMetricsConsumer(Path output) {
+    this.output = output;
+  }
+
+  @Override
+  public synchronized void accept(MetricsRecord record, Object handle) {
+    aggregates
+        .computeIfAbsent(record.getCategory(), ignore -> new LinkedHashMap<>())
+        .computeIfAbsent(record.getName(), name -> new Aggregate(record.getCategory(), name))
+        .add(record);
+  }
+
+  @Override
+  public void finished(String tool, Reporter reporter) {
+    String line = buildSummary(tool).toString() + System.lineSeparator();
+    try {
+      Files.write(
+          output,
+          line.getBytes(StandardCharsets.UTF_8),
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      reporter.warning(new ExceptionDiagnostic(e, new PathOrigin(output)));
+    }
+  }
+
+  /** Returns the summary of the metrics received since the previous summary, and resets them. */
+  public synchronized JsonObject buildSummary(String tool) {
+    List<Aggregate> entries = new ArrayList<>();
+    aggregates.values().forEach(byName -> entries.addAll(byName.values()));
+    JsonArray metrics = new JsonArray();
+    entries.forEach(aggregate -> metrics.add(aggregate.toJson()));
+    JsonObject summary = new JsonObject();
+    summary.addProperty("tool", tool);
+    summary.addProperty("timeMs", toMillis(System.nanoTime() - startTime));
+    summary.add("metrics", metrics);
+    aggregates.clear();
+    startTime = System.nanoTime();
+    return summary;
+  }
+
+  private static long toMillis(long nanos) {
+    return nanos / 1000000;
+  }
+}
@@ -0,0 +1,31 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils.metrics;
+
+import com.android.tools.r8.utils.Reporter;
+
+/**
+ * Receiver of the measurements collected by {@link CompilerMetrics}.
+ *
+ * <p>Consumers are called concurrently from the compiler threads and must be thread safe.
+ */
+public interface MetricsConsumer {
+
+  /**
+   * Called on the thread entering a scope. The returned handle, which may be null, is passed to
+   * {@link #accept} when the scope ends on the same thread.
+   */
+  default Object scopeStarted(String category, String name) {
+    return null;
+  }
+
+  /**
+   * Called for each ended scope with the handle returned by {@link #scopeStarted}, and for each
+   * instant event with a null handle.
+   */
+  void accept(MetricsRecord record, Object handle);
+
+  /** Called once when the compilation has completed, successfully or not. */
+  default void finished(String tool, Reporter reporter) {}
+}
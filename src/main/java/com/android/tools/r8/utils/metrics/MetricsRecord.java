@@ -0,0 +1,77 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils.metrics;
+
+/** A single measurement reported to a {@link MetricsConsumer}. */
+public class MetricsRecord {
+
+  public static final long UNKNOWN = -1;
+
+  private final String category;
+  private final String name;
+  private final String threadName;
+  private final long durationNanos;
+  private final long allocatedBytes;
+  private final int threads;
+  private final long count;
+
+  MetricsRecord(
+      String category,
+      String name,
+      String threadName,
+      long durationNanos,
+      long allocatedBytes,
+      int threads,
+      long count) {
+    this.category = category;
+    this.name = name;
+    this.threadName = threadName;
+    this.durationNanos = durationNanos;
+    this.allocatedBytes = allocatedBytes;
+    this.threads = threads;
+    this.count = count;
+  }
+
+  /** The kind of measurement, for example one of the {@code CompilerMetrics.CATEGORY_*} names. */
+  public String getCategory() {
+    return category;
+  }
+
+  /** The name of the measurement within its category. */
+  public String getName() {
+    return name;
+  }
+
+  /** The name of the thread that ended the scope or reported the event. */
+  public String getThreadName() {
+    return threadName;
+  }
+
+  /** Wall time of the scope, or zero for instant events. */
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  /**
+   * Bytes allocated during the scope by the threads it was measured on, or {@link #UNKNOWN} if the
+   * VM does not support allocation accounting.
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /** Number of threads the scope ran on, or {@link #UNKNOWN} if not known. */
+  public int getThreads() {
+    return threads;
+  }
+
+  /** Number of items processed by the scope, such as methods in a wave, or one for events. */
+  public long getCount() {
+    return count;
+  }
+
+  public boolean isInstant() {
+    return durationNanos == 0;
+  }
+}
@@ -0,0 +1,65 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.CompilerDaemon.Tool;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class CompilerDaemonTest extends TestBase {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public CompilerDaemonTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  private byte[] compile(CompilerDaemon daemon) throws Exception {
+    Path output = temp.newFolder().toPath().resolve("out.zip");
+    daemon.compile(
+        Tool.D8,
+        new String[] {
+          "--output",
+          output.toString(),
+          "--lib",
+          ToolHelper.getMostRecentAndroidJar().toString(),
+          ToolHelper.getClassFileForTestClass(TestClass.class).toString()
+        },
+        new DiagnosticsHandler() {});
+    return Files.readAllBytes(output);
+  }
+
+  @Test
+  public void testOutputBuffersAreReusedAcrossCompilations() throws Exception {
+    CompilerDaemon daemon = new CompilerDaemon();
+    byte[] first = compile(daemon);
+    // The output buffer of the first compilation is kept by the daemon.
+    long pooledBytes = daemon.getByteBufferPool().getPooledBytes();
+    assertTrue(pooledBytes > 0);
+    // The second compilation takes its output buffer from the pool and returns it.
+    byte[] second = compile(daemon);
+    assertEquals(pooledBytes, daemon.getByteBufferPool().getPooledBytes());
+    assertArrayEquals(first, second);
+    daemon.clearCache();
+    assertEquals(0, daemon.getByteBufferPool().getPooledBytes());
+  }
+
+  static class TestClass {
+
+    public static void main(String[] args) {
+      System.out.println("Hello, world");
+    }
+  }
+}
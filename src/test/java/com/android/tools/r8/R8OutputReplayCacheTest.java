@@ -0,0 +1,279 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class R8OutputReplayCacheTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public R8OutputReplayCacheTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testUnchangedInputsReplayOutputs() throws Exception {
+    Path state = temp.newFolder().toPath();
+    Path snapshot = state.resolve("snapshot.r8state");
+    StringBuilder coldMap = new StringBuilder();
+    Map<Integer, byte[]> cold = compile(state, AndroidApiLevel.B, coldMap, Main.class, A.class);
+    assertTrue(Files.exists(snapshot));
+    Object snapshotKey = getFileKey(snapshot);
+
+    StringBuilder warmMap = new StringBuilder();
+    Map<Integer, byte[]> warm = compile(state, AndroidApiLevel.B, warmMap, Main.class, A.class);
+    assertEquals(cold.keySet(), warm.keySet());
+    for (Integer fileIndex : cold.keySet()) {
+      assertArrayEquals(cold.get(fileIndex), warm.get(fileIndex));
+    }
+    assertEquals(coldMap.toString(), warmMap.toString());
+    // The snapshot is only rewritten when the compilation is not replayed.
+    assertEquals(snapshotKey, getFileKey(snapshot));
+    assertEquals(1, countFiles(state));
+  }
+
+  @Test
+  public void testChangedInputsRecompile() throws Exception {
+    Path state = temp.newFolder().toPath();
+    Path snapshot = state.resolve("snapshot.r8state");
+    compile(state, AndroidApiLevel.B, new StringBuilder(), Main.class, A.class);
+    byte[] first = Files.readAllBytes(snapshot);
+
+    compile(state, AndroidApiLevel.N, new StringBuilder(), Main.class, A.class);
+    byte[] second = Files.readAllBytes(snapshot);
+    assertFalse(Arrays.equals(first, second));
+
+    compile(state, AndroidApiLevel.N, new StringBuilder(), Main.class, A.class, B.class);
+    byte[] third = Files.readAllBytes(snapshot);
+    assertFalse(Arrays.equals(second, third));
+    assertEquals(1, countFiles(state));
+  }
+
+  @Test
+  public void testTouchedInputRecompiles() throws Exception {
+    Path state = temp.newFolder().toPath();
+    Path snapshot = state.resolve("snapshot.r8state");
+    Path input = temp.newFolder().toPath().resolve("A.class");
+    Files.copy(ToolHelper.getClassFileForTestClass(A.class), input);
+    compile(state, AndroidApiLevel.B, new StringBuilder(), Main.class, A.class);
+    byte[] first = Files.readAllBytes(snapshot);
+
+    // Inputs are identified by their path, size and modification time, not by their contents.
+    List<Path> inputs = ImmutableList.of(ToolHelper.getClassFileForTestClass(Main.class), input);
+    compile(state, AndroidApiLevel.B, new StringBuilder(), inputs);
+    byte[] second = Files.readAllBytes(snapshot);
+    assertFalse(Arrays.equals(first, second));
+
+    Files.setLastModifiedTime(
+        input, FileTime.fromMillis(Files.getLastModifiedTime(input).toMillis() + 10_000));
+    compile(state, AndroidApiLevel.B, new StringBuilder(), inputs);
+    byte[] third = Files.readAllBytes(snapshot);
+    assertFalse(Arrays.equals(second, third));
+  }
+
+  @Test
+  public void testInMemoryInputsAreNotCached() throws Exception {
+    Path state = temp.newFolder().toPath();
+    for (int i = 0; i < 2; i++) {
+      Map<Integer, byte[]> outputs = new TreeMap<>();
+      R8Command.Builder builder =
+          createBuilder(
+              state,
+              AndroidApiLevel.B,
+              new StringBuilder(),
+              new DiagnosticsHandler() {},
+              Main.class,
+              ImmutableList.of(),
+              outputs);
+      // Class data passed in memory is read once by the compiler and never by the cache.
+      for (Class<?> clazz : ImmutableList.of(Main.class, A.class)) {
+        builder.addClassProgramData(ToolHelper.getClassAsBytes(clazz), Origin.unknown());
+      }
+      R8.run(builder.build());
+      assertTrue(outputs.containsKey(0));
+      assertEquals(0, countFiles(state));
+    }
+  }
+
+  @Test
+  public void testChangedSystemPropertiesRecompile() throws Exception {
+    Path state = temp.newFolder().toPath();
+    Path snapshot = state.resolve("snapshot.r8state");
+    compile(state, AndroidApiLevel.B, new StringBuilder(), Main.class, A.class);
+    byte[] first = Files.readAllBytes(snapshot);
+
+    String property = "com.android.tools.r8.outputReplayCacheTestProperty";
+    System.setProperty(property, "1");
+    try {
+      compile(state, AndroidApiLevel.B, new StringBuilder(), Main.class, A.class);
+    } finally {
+      System.clearProperty(property);
+    }
+    byte[] second = Files.readAllBytes(snapshot);
+    assertFalse(Arrays.equals(first, second));
+  }
+
+  @Test
+  public void testCompilationWithDiagnosticsIsNotRecorded() throws Exception {
+    Path state = temp.newFolder().toPath();
+    for (int i = 0; i < 2; i++) {
+      List<Diagnostic> warnings = new ArrayList<>();
+      compile(
+          state,
+          AndroidApiLevel.B,
+          new StringBuilder(),
+          new DiagnosticsHandler() {
+            @Override
+            public void warning(Diagnostic warning) {
+              warnings.add(warning);
+            }
+          },
+          MainWithMissingClass.class,
+          ImmutableList.of("-ignorewarnings"),
+          MainWithMissingClass.class);
+      // The warning about the missing class is reported by every compilation.
+      assertFalse(warnings.isEmpty());
+      assertEquals(0, countFiles(state));
+    }
+  }
+
+  private Map<Integer, byte[]> compile(
+      Path state, AndroidApiLevel minApi, StringBuilder proguardMap, Class<?>... classes)
+      throws Exception {
+    return compile(
+        state,
+        minApi,
+        proguardMap,
+        new DiagnosticsHandler() {},
+        Main.class,
+        ImmutableList.of(),
+        classes);
+  }
+
+  private Map<Integer, byte[]> compile(
+      Path state, AndroidApiLevel minApi, StringBuilder proguardMap, List<Path> inputs)
+      throws Exception {
+    Map<Integer, byte[]> outputs = new TreeMap<>();
+    R8.run(
+        createBuilder(
+                state,
+                minApi,
+                proguardMap,
+                new DiagnosticsHandler() {},
+                Main.class,
+                ImmutableList.of(),
+                outputs)
+            .addProgramFiles(inputs)
+            .build());
+    assertTrue(outputs.containsKey(0));
+    return outputs;
+  }
+
+  private Map<Integer, byte[]> compile(
+      Path state,
+      AndroidApiLevel minApi,
+      StringBuilder proguardMap,
+      DiagnosticsHandler diagnosticsHandler,
+      Class<?> mainClass,
+      List<String> rules,
+      Class<?>... classes)
+      throws Exception {
+    Map<Integer, byte[]> outputs = new TreeMap<>();
+    R8Command.Builder builder =
+        createBuilder(state, minApi, proguardMap, diagnosticsHandler, mainClass, rules, outputs);
+    for (Class<?> clazz : classes) {
+      builder.addProgramFiles(ToolHelper.getClassFileForTestClass(clazz));
+    }
+    R8.run(builder.build());
+    assertTrue(outputs.containsKey(0));
+    return outputs;
+  }
+
+  private R8Command.Builder createBuilder(
+      Path state,
+      AndroidApiLevel minApi,
+      StringBuilder proguardMap,
+      DiagnosticsHandler diagnosticsHandler,
+      Class<?> mainClass,
+      List<String> rules,
+      Map<Integer, byte[]> outputs) {
+    return R8Command.builder(diagnosticsHandler)
+        .setMinApiLevel(minApi.getLevel())
+        .setOutputReplayCacheDirectory(state)
+        .addLibraryFiles(ToolHelper.getAndroidJar(minApi))
+        .addProguardConfiguration(
+            ImmutableList.of(keepMainProguardConfiguration(mainClass, rules)), Origin.unknown())
+        .setProguardMapConsumer((string, handler) -> proguardMap.append(string))
+        .setProgramConsumer(
+            new DexIndexedConsumer.ForwardingConsumer(null) {
+              @Override
+              public synchronized void accept(
+                  int fileIndex,
+                  ByteDataView data,
+                  Set<String> descriptors,
+                  DiagnosticsHandler handler) {
+                outputs.put(fileIndex, data.copyByteData());
+              }
+            });
+  }
+
+  private static Object getFileKey(Path path) throws Exception {
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    return attributes.fileKey() != null ? attributes.fileKey() : attributes.lastModifiedTime();
+  }
+
+  private static long countFiles(Path directory) throws Exception {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  static class Main {
+    public static void main(String[] args) {
+      System.out.println(new A().toString());
+    }
+  }
+
+  static class A {
+    @Override
+    public String toString() {
+      return "A";
+    }
+  }
+
+  static class B {}
+
+  static class MainWithMissingClass {
+    public static void main(String[] args) {
+      System.out.println(new B().toString());
+    }
+  }
+}
@@ -0,0 +1,196 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.d8;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexFilePerClassFileConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.StringConsumer;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.DescriptorUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class PerClassDexCacheTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public PerClassDexCacheTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testWarmCacheProducesIdenticalOutput() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    Map<String, byte[]> cold = compile(cache, AndroidApiLevel.B, A.class, B.class);
+    assertEquals(2, cold.size());
+    assertEquals(2, countEntries(cache));
+
+    Map<String, byte[]> warm = compile(cache, AndroidApiLevel.B, A.class, B.class);
+    assertEquals(cold.keySet(), warm.keySet());
+    for (String descriptor : cold.keySet()) {
+      assertArrayEquals(cold.get(descriptor), warm.get(descriptor));
+    }
+    assertEquals(2, countEntries(cache));
+  }
+
+  @Test
+  public void testOptionsArePartOfKey() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    compile(cache, AndroidApiLevel.B, A.class);
+    assertEquals(1, countEntries(cache));
+    compile(cache, AndroidApiLevel.N, A.class);
+    assertEquals(2, countEntries(cache));
+    compile(cache, AndroidApiLevel.N, A.class, B.class);
+    assertEquals(3, countEntries(cache));
+  }
+
+  @Test
+  public void testCacheIsBypassedWithDesugaredLibraryKeepRuleConsumer() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    compile(cache, AndroidApiLevel.B, StringConsumer.emptyConsumer(), A.class, B.class);
+    assertEquals(0, countEntries(cache));
+  }
+
+  @Test
+  public void testChangedClassSeesCachedSupertypes() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    compile(cache, AndroidApiLevel.B, I.class, C.class);
+    // The interface is a cache hit, and D implements it, so D needs a forwarding method for the
+    // default method of the interface, as in a compilation without the cache.
+    Map<String, byte[]> cached = compile(cache, AndroidApiLevel.B, I.class, D.class);
+    Map<String, byte[]> uncached = compile(null, AndroidApiLevel.B, I.class, D.class);
+    assertEquals(3, countEntries(cache));
+    assertEquals(uncached.keySet(), cached.keySet());
+    for (String descriptor : uncached.keySet()) {
+      assertArrayEquals(uncached.get(descriptor), cached.get(descriptor));
+    }
+  }
+
+  @Test
+  public void testLibraryIsPartOfKey() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    compile(cache, AndroidApiLevel.B, null, ToolHelper.getAndroidJar(AndroidApiLevel.B), A.class);
+    assertEquals(1, countEntries(cache));
+    compile(cache, AndroidApiLevel.B, null, ToolHelper.getAndroidJar(AndroidApiLevel.B), A.class);
+    assertEquals(1, countEntries(cache));
+    compile(cache, AndroidApiLevel.B, null, ToolHelper.getAndroidJar(AndroidApiLevel.P), A.class);
+    assertEquals(2, countEntries(cache));
+  }
+
+  @Test
+  public void testSystemPropertiesArePartOfKey() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    compile(cache, AndroidApiLevel.B, A.class);
+    assertEquals(1, countEntries(cache));
+    String property = "com.android.tools.r8.perClassDexCacheTestProperty";
+    System.setProperty(property, "true");
+    try {
+      compile(cache, AndroidApiLevel.B, A.class);
+    } finally {
+      System.clearProperty(property);
+    }
+    assertEquals(2, countEntries(cache));
+  }
+
+  private static Map<String, byte[]> compile(
+      Path cache, AndroidApiLevel minApi, Class<?>... classes) throws Exception {
+    return compile(cache, minApi, null, classes);
+  }
+
+  private static Map<String, byte[]> compile(
+      Path cache,
+      AndroidApiLevel minApi,
+      StringConsumer desugaredLibraryKeepRuleConsumer,
+      Class<?>... classes)
+      throws Exception {
+    return compile(cache, minApi, desugaredLibraryKeepRuleConsumer, null, classes);
+  }
+
+  private static Map<String, byte[]> compile(
+      Path cache,
+      AndroidApiLevel minApi,
+      StringConsumer desugaredLibraryKeepRuleConsumer,
+      Path library,
+      Class<?>... classes)
+      throws Exception {
+    Map<String, byte[]> outputs = new TreeMap<>();
+    D8Command.Builder builder =
+        D8Command.builder()
+            .setMinApiLevel(minApi.getLevel())
+            .setDesugaredLibraryKeepRuleConsumer(desugaredLibraryKeepRuleConsumer)
+            .setPerClassDexCacheDirectory(cache)
+            .setProgramConsumer(
+                new DexFilePerClassFileConsumer.ForwardingConsumer(null) {
+                  @Override
+                  public synchronized void accept(
+                      String primaryClassDescriptor,
+                      ByteDataView data,
+                      Set<String> descriptors,
+                      DiagnosticsHandler handler) {
+                    outputs.put(primaryClassDescriptor, data.copyByteData());
+                  }
+                });
+    if (library != null) {
+      builder.addLibraryFiles(library);
+    }
+    for (Class<?> clazz : classes) {
+      builder.addClassProgramData(ToolHelper.getClassAsBytes(clazz), Origin.unknown());
+    }
+    D8.run(builder.build());
+    for (Class<?> clazz : classes) {
+      assertTrue(outputs.containsKey(DescriptorUtils.javaTypeToDescriptor(clazz.getTypeName())));
+    }
+    return outputs;
+  }
+
+  private static long countEntries(Path cache) throws IOException {
+    try (Stream<Path> files = Files.walk(cache)) {
+      return files.filter(file -> file.toString().endsWith(".dexcache")).count();
+    }
+  }
+
+  static class A {
+    public static void main(String[] args) {
+      Runnable r = () -> System.out.println("A");
+      r.run();
+    }
+  }
+
+  static class B extends A {}
+
+  interface I {
+    default void m() {
+      System.out.println("I");
+    }
+  }
+
+  static class C implements I {}
+
+  static class D implements I {}
+}
@@ -0,0 +1,122 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.cf.bootstrap.BootstrapCurrentEqualityTest;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class ArchiveReadByteBudgetTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public ArchiveReadByteBudgetTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testOutputIsIdentical() throws Exception {
+    Path archive = jarTestClasses(A.class, B.class, Main.class);
+    Path unbounded = compile(archive, 0);
+    // A budget of a single byte only allows one class file to be read ahead of the parsing.
+    Path bounded = compile(archive, 1);
+    assertTrue(BootstrapCurrentEqualityTest.filesAreEqual(unbounded, bounded));
+  }
+
+  @Test
+  public void testBytesInFlightAreBounded() throws Exception {
+    List<Class<?>> classes = ImmutableList.of(A.class, B.class, C.class, D.class, Main.class);
+    long largestClassFile = 0;
+    for (Class<?> clazz : classes) {
+      largestClassFile =
+          Math.max(largestClassFile, Files.size(ToolHelper.getClassFileForTestClass(clazz)));
+    }
+    Path archive = jarTestClasses(classes);
+    // A budget that fits the largest class file bounds the bytes in flight by the budget.
+    int budget = (int) largestClassFile;
+    List<Long> bytesInFlight = Collections.synchronizedList(new ArrayList<>());
+    compile(archive, budget, bytesInFlight);
+    assertEquals(classes.size(), bytesInFlight.size());
+    assertTrue(Collections.max(bytesInFlight) <= budget);
+    // A budget of a single byte only allows one class file in flight.
+    bytesInFlight.clear();
+    compile(archive, 1, bytesInFlight);
+    assertEquals(classes.size(), bytesInFlight.size());
+    assertTrue(Collections.max(bytesInFlight) <= largestClassFile);
+  }
+
+  @Test
+  public void testNegativeBudgetIsUnbounded() throws Exception {
+    Path archive = jarTestClasses(A.class, B.class, Main.class);
+    Path unbounded = compile(archive, 0);
+    Path negative = compile(archive, -1);
+    assertTrue(BootstrapCurrentEqualityTest.filesAreEqual(unbounded, negative));
+  }
+
+  private Path compile(Path archive, int budget) throws Exception {
+    return compile(archive, budget, null);
+  }
+
+  private Path compile(Path archive, int budget, List<Long> bytesInFlight) throws Exception {
+    return testForD8()
+        .addProgramFiles(archive)
+        .addOptionsModification(
+            options -> {
+              options.programResourceReadByteBudget = budget;
+              if (bytesInFlight != null) {
+                options.testing.readBytesInFlightConsumer = bytesInFlight::add;
+              }
+            })
+        .setMinApi(AndroidApiLevel.B)
+        .compile()
+        .writeToZip();
+  }
+
+  static class A {
+    void m() {
+      System.out.println("A.m");
+    }
+  }
+
+  static class B extends A {}
+
+  static class C extends A {
+    @Override
+    void m() {
+      System.out.println("C.m");
+    }
+  }
+
+  static class D extends C {
+    void n() {
+      System.out.println("D.n");
+    }
+  }
+
+  static class Main {
+    public static void main(String[] args) {
+      new B().m();
+    }
+  }
+}
@@ -0,0 +1,111 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.cf.bootstrap.BootstrapCurrentEqualityTest;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class StreamingDexOutputTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public StreamingDexOutputTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testOutputIsIdentical() throws Exception {
+    Path parallel = compile(false);
+    Path streaming = compile(true);
+    assertTrue(BootstrapCurrentEqualityTest.filesAreEqual(parallel, streaming));
+  }
+
+  @Test
+  public void testFilesAreWrittenOneAtATime() throws Exception {
+    List<Integer> fileIndices = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    AtomicInteger filesInProgress = new AtomicInteger();
+    testForD8()
+        .addInnerClasses(StreamingDexOutputTest.class)
+        .addMainDexKeepClassRules(Main.class)
+        .addOptionsModification(
+            options -> {
+              options.minimalMainDex = true;
+              options.enableStreamingDexOutput = true;
+            })
+        .setMinApi(AndroidApiLevel.K)
+        .setProgramConsumer(
+            new DexIndexedConsumer.ForwardingConsumer(null) {
+              @Override
+              public void accept(
+                  int fileIndex,
+                  ByteDataView data,
+                  Set<String> descriptors,
+                  DiagnosticsHandler handler) {
+                assertEquals(1, filesInProgress.incrementAndGet());
+                synchronized (fileIndices) {
+                  fileIndices.add(fileIndex);
+                  threads.add(Thread.currentThread());
+                }
+                assertEquals(0, filesInProgress.decrementAndGet());
+              }
+            })
+        .compile();
+    // The files are passed to the consumer in order and from the thread that writes them.
+    assertTrue(fileIndices.size() > 1);
+    for (int i = 0; i < fileIndices.size(); i++) {
+      assertEquals(i, (int) fileIndices.get(i));
+      assertEquals(threads.get(0), threads.get(i));
+    }
+  }
+
+  private Path compile(boolean enableStreamingDexOutput) throws Exception {
+    // Use a minimal main dex to get more than one dex file.
+    return testForD8()
+        .addInnerClasses(StreamingDexOutputTest.class)
+        .addMainDexKeepClassRules(Main.class)
+        .addOptionsModification(
+            options -> {
+              options.minimalMainDex = true;
+              options.enableStreamingDexOutput = enableStreamingDexOutput;
+            })
+        .setMinApi(AndroidApiLevel.K)
+        .compile()
+        .writeToZip();
+  }
+
+  static class A {
+    void m() {
+      System.out.println("A.m");
+    }
+  }
+
+  static class Main {
+    public static void main(String[] args) {
+      new A().m();
+    }
+  }
+}
@@ -0,0 +1,69 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class DexItemInternTableTest {
+
+  private static final int NUMBER_OF_ITEMS = 10000;
+  private static final int NUMBER_OF_THREADS = 8;
+
+  @Test
+  public void testIntern() {
+    DexItemInternTable<DexString, DexString> table = DexItemInternTable.create();
+    for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+      DexString string = new DexString("s" + i);
+      assertSame(string, table.intern(string));
+      assertSame(string, table.intern(new DexString("s" + i)));
+      assertSame(string, table.get(new DexString("s" + i)));
+    }
+    assertNull(table.get(new DexString("t")));
+    assertEquals(NUMBER_OF_ITEMS, table.size());
+    int[] count = {0};
+    table.forEach(string -> count[0]++);
+    assertEquals(NUMBER_OF_ITEMS, count[0]);
+  }
+
+  @Test
+  public void testConcurrentComputeIfAbsent() throws Exception {
+    DexItemInternTable<DexString, DexType> table =
+        DexItemInternTable.createWithKey(type -> type.descriptor);
+    ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+    try {
+      List<Future<DexType[]>> futures = new ArrayList<>();
+      for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  DexType[] types = new DexType[NUMBER_OF_ITEMS];
+                  for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+                    types[i] =
+                        table.computeIfAbsent(new DexString("LA" + i + ";"), DexType::new);
+                  }
+                  return types;
+                }));
+      }
+      DexType[] expected = futures.get(0).get();
+      for (Future<DexType[]> future : futures) {
+        DexType[] types = future.get();
+        for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+          assertSame(expected[i], types[i]);
+        }
+      }
+      assertEquals(NUMBER_OF_ITEMS, table.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
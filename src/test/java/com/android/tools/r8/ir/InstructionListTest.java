@@ -0,0 +1,100 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.ir.code.Goto;
+import com.android.tools.r8.ir.code.Instruction;
+import com.android.tools.r8.ir.code.InstructionList;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.Random;
+import org.junit.Test;
+
+public class InstructionListTest extends TestBase {
+
+  @Test
+  public void testDequeOperations() {
+    InstructionList list = new InstructionList();
+    Instruction a = new Goto();
+    Instruction b = new Goto();
+    Instruction c = new Goto();
+    list.addLast(b);
+    list.addFirst(a);
+    list.add(c);
+    assertEquals(3, list.size());
+    assertSame(a, list.getFirst());
+    assertSame(c, list.getLast());
+    assertSame(b, list.get(1));
+    assertSame(c, list.removeLast());
+    assertSame(a, list.removeFirst());
+    list.removeInstruction(b);
+    assertEquals(0, list.size());
+    // Removed instructions can be added again.
+    list.add(c);
+    list.add(b);
+    list.add(a);
+    assertSame(b, list.get(1));
+    list.clear();
+    list.add(a);
+    assertEquals(1, list.size());
+  }
+
+  @Test
+  public void testListIteratorAgainstLinkedList() {
+    Random random = new Random(0);
+    InstructionList list = new InstructionList();
+    LinkedList<Instruction> expected = new LinkedList<>();
+    for (int round = 0; round < 100; round++) {
+      ListIterator<Instruction> it = list.listIterator(random.nextInt(list.size() + 1));
+      ListIterator<Instruction> expectedIt =
+          expected.listIterator(it.nextIndex());
+      boolean canModifyLastReturned = false;
+      for (int step = 0; step < 50; step++) {
+        switch (random.nextInt(6)) {
+          case 0:
+            if (expectedIt.hasNext()) {
+              assertSame(expectedIt.next(), it.next());
+              canModifyLastReturned = true;
+            }
+            break;
+          case 1:
+            if (expectedIt.hasPrevious()) {
+              assertSame(expectedIt.previous(), it.previous());
+              canModifyLastReturned = true;
+            }
+            break;
+          case 2:
+            if (canModifyLastReturned) {
+              expectedIt.remove();
+              it.remove();
+              canModifyLastReturned = false;
+            }
+            break;
+          case 3:
+            if (canModifyLastReturned) {
+              Instruction instruction = new Goto();
+              expectedIt.set(instruction);
+              it.set(instruction);
+            }
+            break;
+          default:
+            Instruction instruction = new Goto();
+            expectedIt.add(instruction);
+            it.add(instruction);
+            canModifyLastReturned = false;
+            break;
+        }
+        assertEquals(expectedIt.nextIndex(), it.nextIndex());
+        assertEquals(expectedIt.hasNext(), it.hasNext());
+        assertEquals(expectedIt.hasPrevious(), it.hasPrevious());
+      }
+      assertEquals(expected, list);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.code;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+public class UseListTest {
+
+  private static List<Object> newUsers(int count) {
+    List<Object> users = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      users.add(new Object());
+    }
+    return users;
+  }
+
+  @Test
+  public void testDuplicates() {
+    List<Object> users = newUsers(3);
+    UseList<Object> useList = new UseList<>();
+    useList.add(users.get(0));
+    useList.add(users.get(1));
+    useList.add(users.get(0));
+    useList.add(users.get(2));
+    assertEquals(4, useList.size());
+    assertEquals(3, useList.uniqueSize());
+    assertEquals(users, ImmutableList.copyOf(useList.uniqueSet()));
+    assertFalse(useList.hasSingleUniqueUser());
+
+    useList.remove(users.get(0));
+    assertEquals(ImmutableList.of(users.get(1), users.get(0), users.get(2)), iterate(useList));
+    useList.removeAll(users.get(1));
+    useList.removeAll(users.get(2));
+    assertTrue(useList.hasSingleUniqueUser());
+    assertSame(users.get(0), useList.first());
+  }
+
+  @Test
+  public void testSnapshot() {
+    for (int count : new int[] {1, 5, 20}) {
+      List<Object> users = newUsers(count);
+      UseList<Object> useList = new UseList<>();
+      users.forEach(useList::add);
+      users.forEach(useList::add);
+      Set<Object> snapshot = useList.uniqueSet();
+      assertSame(snapshot, useList.uniqueSet());
+      assertEquals(count, useList.uniqueSize());
+      // The snapshot is not affected by changes to the list.
+      useList.clear();
+      assertTrue(useList.isEmpty());
+      assertEquals(0, useList.uniqueSet().size());
+      assertEquals(users, ImmutableList.copyOf(snapshot));
+      for (Object user : users) {
+        assertTrue(snapshot.contains(user));
+      }
+      assertFalse(snapshot.contains(new Object()));
+    }
+  }
+
+  private static List<Object> iterate(UseList<Object> useList) {
+    return Lists.newArrayList(useList);
+  }
+}
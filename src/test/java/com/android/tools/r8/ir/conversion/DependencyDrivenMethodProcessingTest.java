@@ -0,0 +1,210 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.conversion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.TestRuntime;
+import com.android.tools.r8.cf.bootstrap.BootstrapCurrentEqualityTest;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.ProgramMethod;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.Timing;
+import com.google.common.collect.ImmutableSet;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class DependencyDrivenMethodProcessingTest extends TestBase {
+
+  private static final String EXPECTED =
+      StringUtils.lines("C.leaf0", "C.leaf1", "C.leaf2", "C.leaf2C.leaf1", "4");
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public DependencyDrivenMethodProcessingTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testDependenciesAreProcessedFirst() throws Exception {
+    ProgramMethod[] methods = getProgramMethods(6);
+    //   0   1 -> 0   2 -> 0   3 -> 1, 2   4   5 -> 3, 4
+    int[][] dependencies = {{}, {0}, {0}, {1, 2}, {}, {3, 4}};
+    DependencyDrivenMethodScheduler scheduler =
+        DependencyDrivenMethodScheduler.createForTesting(methods, dependencies);
+    assertNotNull(scheduler);
+    Set<ProgramMethod> done = ConcurrentHashMap.newKeySet();
+    List<ProgramMethod> order = Collections.synchronizedList(new ArrayList<>());
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      scheduler.processMethods(
+          method -> {
+            int index = Arrays.asList(methods).indexOf(method);
+            for (int i = 0; i < methods.length; i++) {
+              boolean isTransitiveDependency = isTransitiveDependency(dependencies, index, i);
+              // All dependencies have been processed before the method is dispatched.
+              assertTrue(!isTransitiveDependency || done.contains(methods[i]));
+              // Only the transitive dependencies are visible as processed.
+              assertEquals(
+                  i == index || !isTransitiveDependency,
+                  scheduler.mayBeProcessedConcurrently(methods[i]));
+            }
+            order.add(method);
+            return Timing.empty();
+          },
+          done::add,
+          executorService);
+    } finally {
+      executorService.shutdown();
+    }
+    assertEquals(methods.length, order.size());
+    assertEquals(ImmutableSet.copyOf(methods), done);
+  }
+
+  @Test
+  public void testCycleFallsBackToWaves() throws Exception {
+    ProgramMethod[] methods = getProgramMethods(3);
+    int[][] dependencies = {{2}, {0}, {1}};
+    assertNull(DependencyDrivenMethodScheduler.createForTesting(methods, dependencies));
+  }
+
+  @Test
+  public void testOutput() throws Exception {
+    testForR8(Backend.CF)
+        .addInnerClasses(DependencyDrivenMethodProcessingTest.class)
+        .addKeepMainRule(Main.class)
+        .addOptionsModification(
+            options -> {
+              options.enableDependencyDrivenMethodProcessing = true;
+              options.threadCount = 4;
+            })
+        .run(TestRuntime.getDefaultJavaRuntime(), Main.class)
+        .assertSuccessWithOutput(EXPECTED);
+  }
+
+  private static boolean isTransitiveDependency(int[][] dependencies, int method, int candidate) {
+    for (int dependency : dependencies[method]) {
+      if (dependency == candidate || isTransitiveDependency(dependencies, dependency, candidate)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ProgramMethod[] getProgramMethods(int count) throws Exception {
+    AppView<AppInfo> appView = computeAppView(readClasses(A.class, B.class, C.class, D.class));
+    List<ProgramMethod> methods = new ArrayList<>();
+    for (DexProgramClass clazz : appView.appInfo().classes()) {
+      clazz.forEachProgramMethod(methods::add);
+    }
+    methods.sort(Comparator.comparing(method -> method.getReference().toSourceString()));
+    assertTrue(methods.size() >= count);
+    return methods.subList(0, count).toArray(new ProgramMethod[0]);
+  }
+
+  @Test
+  public void testOutputIsDeterministic() throws Exception {
+    Path first = compile(true);
+    for (int i = 0; i < 5; i++) {
+      BootstrapCurrentEqualityTest.assertProgramsEqual(first, compile(true));
+    }
+  }
+
+  private Path compile(boolean enableDependencyDrivenMethodProcessing) throws Exception {
+    return testForR8(Backend.CF)
+        .addInnerClasses(DependencyDrivenMethodProcessingTest.class)
+        .addKeepMainRule(Main.class)
+        .addOptionsModification(
+            options -> {
+              options.enableDependencyDrivenMethodProcessing =
+                  enableDependencyDrivenMethodProcessing;
+              options.threadCount = 4;
+            })
+        .compile()
+        .writeToZip();
+  }
+
+  static class Config {
+    static String prefix;
+
+    static void init(String value) {
+      prefix = value;
+    }
+  }
+
+  static class A {
+    String m(int i) {
+      if (i > 2) {
+        return new B().m(i - 1) + Config.prefix;
+      }
+      return C.leaf(i);
+    }
+  }
+
+  static class B {
+    String m(int i) {
+      return C.leaf(i) + C.other(i);
+    }
+  }
+
+  static class C {
+    static String leaf(int i) {
+      return "C.leaf" + i;
+    }
+
+    static String other(int i) {
+      if (i == 0) {
+        return "zero";
+      }
+      return leaf(i - 1);
+    }
+  }
+
+  static class D {
+    static int count;
+
+    static void increment() {
+      count++;
+    }
+
+    static int get() {
+      return count;
+    }
+  }
+
+  static class Main {
+    public static void main(String[] args) {
+      Config.init(args.length > 0 ? args[0] : "");
+      for (int i = 0; i < args.length + 4; i++) {
+        D.increment();
+        System.out.println(new A().m(i));
+      }
+      System.out.println(D.get());
+    }
+  }
+}
@@ -0,0 +1,61 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir.optimize.peepholes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.ir.analysis.type.TypeElement;
+import com.android.tools.r8.ir.code.BasicBlock;
+import com.android.tools.r8.ir.code.ConstNumber;
+import com.android.tools.r8.ir.code.IRMetadata;
+import com.android.tools.r8.ir.code.Instruction;
+import com.android.tools.r8.ir.code.InstructionListIterator;
+import com.android.tools.r8.ir.code.Move;
+import com.android.tools.r8.ir.code.Position;
+import com.android.tools.r8.ir.code.Return;
+import com.android.tools.r8.ir.code.Value;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import org.junit.Test;
+
+public class PeepholeHelperTest extends TestBase {
+
+  private static Instruction add(BasicBlock block, Instruction instruction) {
+    instruction.setPosition(Position.testingPosition());
+    block.add(instruction, IRMetadata.unknown());
+    return instruction;
+  }
+
+  @Test
+  public void testMoveInstructionsUpToCurrentPosition() {
+    BasicBlock block = new BasicBlock();
+    block.setNumber(0);
+    Value v0 = new Value(0, TypeElement.getInt(), null);
+    Value v1 = new Value(1, TypeElement.getInt(), null);
+    Value v2 = new Value(2, TypeElement.getInt(), null);
+    Value v3 = new Value(3, TypeElement.getInt(), null);
+    Instruction c0 = add(block, new ConstNumber(v0, 0));
+    Instruction c1 = add(block, new ConstNumber(v1, 1));
+    Instruction c2 = add(block, new ConstNumber(v2, 2));
+    Instruction move = add(block, new Move(v3, v0));
+    Instruction ret = add(block, new Return());
+    block.setFilledForTesting();
+    assertEquals(1, v0.numberOfUsers());
+
+    InstructionListIterator it = block.listIterator(IRMetadata.unknown());
+    assertSame(c0, it.next());
+    PeepholeHelper.moveInstructionsUpToCurrentPosition(it, ImmutableList.of(c2, move));
+
+    // The iterator is positioned after the moved instructions.
+    assertSame(c1, it.next());
+    assertEquals(
+        ImmutableList.of(c0, c2, move, c1, ret), new ArrayList<>(block.getInstructions()));
+    assertSame(block, move.getBlock());
+    assertEquals(1, v0.numberOfUsers());
+    assertSame(move, v0.singleUniqueUser());
+  }
+}
@@ -0,0 +1,76 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir.optimize.peepholes;
+
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.cf.code.CfStackInstruction;
+import com.android.tools.r8.utils.codeinspector.MethodSubject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/** Test that the dups matched by StoreLoadToDupStorePeephole are moved up to the store. */
+@RunWith(Parameterized.class)
+public class StoreLoadToDupStorePeepholeTest extends TestBase {
+
+  private final TestParameters parameters;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withCfRuntimes().build();
+  }
+
+  public StoreLoadToDupStorePeepholeTest(TestParameters parameters) {
+    this.parameters = parameters;
+  }
+
+  @Test
+  public void test() throws Exception {
+    testForR8(parameters.getBackend())
+        .addInnerClasses(StoreLoadToDupStorePeepholeTest.class)
+        .addKeepMainRule(TestClass.class)
+        .enableInliningAnnotations()
+        .compile()
+        .inspect(
+            inspector -> {
+              MethodSubject compute =
+                  inspector.clazz(TestClass.class).uniqueMethodWithName("compute");
+              // The repeated loads of a are rewritten to dups before the store to a.
+              assertTrue(
+                  compute
+                      .streamInstructions()
+                      .anyMatch(
+                          instruction ->
+                              instruction
+                                  .asCfInstruction()
+                                  .isStackInstruction(CfStackInstruction.Opcode.Dup)));
+            })
+        .run(parameters.getRuntime(), TestClass.class)
+        .assertSuccessWithOutputLines("36");
+  }
+
+  static class TestClass {
+
+    @NeverInline
+    static int add(int x, int y, int z) {
+      return x + y + z;
+    }
+
+    @NeverInline
+    static int compute(int i) {
+      int a = i * 3;
+      return add(a, a, a) + a;
+    }
+
+    public static void main(String[] args) {
+      System.out.println(compute(args.length + 3));
+    }
+  }
+}
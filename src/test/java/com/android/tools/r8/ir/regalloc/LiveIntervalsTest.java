@@ -0,0 +1,87 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.regalloc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ir.analysis.type.TypeElement;
+import com.android.tools.r8.ir.code.Value;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.junit.Test;
+
+public class LiveIntervalsTest {
+
+  private static LiveIntervals createIntervals(int... ranges) {
+    LiveIntervals intervals = new LiveIntervals(new Value(0, TypeElement.getInt(), null));
+    for (int i = 0; i < ranges.length; i += 2) {
+      intervals.addRange(ranges[i], ranges[i + 1]);
+    }
+    return intervals;
+  }
+
+  private static List<LiveRange> ranges(int... ranges) {
+    ImmutableList.Builder<LiveRange> builder = ImmutableList.builder();
+    for (int i = 0; i < ranges.length; i += 2) {
+      builder.add(new LiveRange(ranges[i], ranges[i + 1]));
+    }
+    return builder.build();
+  }
+
+  private static void assertRanges(List<LiveRange> expected, LiveIntervals intervals) {
+    assertEquals(expected.toString(), intervals.getRanges().toString());
+  }
+
+  @Test
+  public void testAddRangeMergesAdjacentRanges() {
+    // The gap position 9 belongs to the instruction at position 10, so the first two ranges are
+    // merged, while the gap position 21 belongs to the next instruction.
+    LiveIntervals intervals = createIntervals(0, 10, 9, 20, 21, 30);
+    assertRanges(ranges(0, 20, 21, 30), intervals);
+    assertEquals(0, intervals.getStart());
+    assertEquals(30, intervals.getEnd());
+  }
+
+  @Test
+  public void testOverlaps() {
+    LiveIntervals intervals = createIntervals(0, 10, 20, 30, 40, 50);
+    assertTrue(intervals.overlapsPosition(24));
+    assertFalse(intervals.overlapsPosition(10));
+    assertFalse(intervals.overlapsPosition(34));
+    LiveIntervals other = createIntervals(12, 16, 28, 60);
+    assertTrue(intervals.overlaps(other));
+    assertEquals(28, intervals.nextOverlap(other));
+  }
+
+  @Test
+  public void testSplitInsideRange() {
+    LiveIntervals intervals = createIntervals(0, 10, 20, 30, 40, 50);
+    LiveIntervals child = intervals.splitBefore(24);
+    // Splits happen at the gap before the instruction.
+    assertRanges(ranges(0, 10, 20, 23), intervals);
+    assertRanges(ranges(23, 30, 40, 50), child);
+  }
+
+  @Test
+  public void testSplitInHole() {
+    LiveIntervals intervals = createIntervals(0, 10, 20, 30, 40, 50);
+    LiveIntervals child = intervals.splitBefore(34);
+    assertRanges(ranges(0, 10, 20, 30), intervals);
+    assertRanges(ranges(40, 50), child);
+    // The split child can grow independently of its parent.
+    child.addRange(60, 70);
+    assertRanges(ranges(40, 50, 60, 70), child);
+    assertRanges(ranges(0, 10, 20, 30), intervals);
+  }
+
+  @Test
+  public void testUndoSplits() {
+    LiveIntervals intervals = createIntervals(0, 10, 20, 30, 40, 50);
+    intervals.splitBefore(34).splitBefore(44);
+    intervals.undoSplits();
+    assertRanges(ranges(0, 10, 20, 30, 40, 50), intervals);
+  }
+}
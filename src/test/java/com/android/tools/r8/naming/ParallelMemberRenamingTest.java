@@ -0,0 +1,273 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import static com.android.tools.r8.utils.codeinspector.Matchers.isPresentAndRenamed;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test that renaming the members of independent class hierarchies in parallel gives the same names
+ * as renaming them on a single thread.
+ */
+@RunWith(Parameterized.class)
+public class ParallelMemberRenamingTest extends TestBase {
+
+  private static final List<Class<?>> HIERARCHY_ROOTS =
+      ImmutableList.of(A.class, B.class, C.class, D.class, E.class, F.class);
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public ParallelMemberRenamingTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  private String compile(int threadCount, List<CodeInspector> inspectors) throws Exception {
+    return testForR8(Backend.DEX)
+        .addInnerClasses(ParallelMemberRenamingTest.class)
+        .addKeepMainRule(Main.class)
+        .addKeepRules(
+            "-keep,allowobfuscation class "
+                + ParallelMemberRenamingTest.class.getTypeName()
+                + "$* { *; }")
+        .addOptionsModification(options -> options.threadCount = threadCount)
+        .setMinApi(AndroidApiLevel.B)
+        .compile()
+        .inspect(inspectors::add)
+        .getProguardMap();
+  }
+
+  @Test
+  public void testParallelRenamingIsIdenticalToSerialRenaming() throws Exception {
+    List<CodeInspector> inspectors = new ArrayList<>();
+    String serial = compile(1, inspectors);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(serial, compile(4, inspectors));
+    }
+    // Each hierarchy is a separate program root of the renaming, and its members are renamed.
+    for (CodeInspector inspector : inspectors) {
+      for (Class<?> root : HIERARCHY_ROOTS) {
+        ClassSubject rootSubject = inspector.clazz(root);
+        assertThat(rootSubject, isPresentAndRenamed());
+        assertThat(rootSubject.uniqueFieldWithName("value"), isPresentAndRenamed());
+        assertThat(rootSubject.uniqueMethodWithName("compute"), isPresentAndRenamed());
+      }
+    }
+  }
+
+  static class A {
+    int value;
+    int other;
+
+    int compute() {
+      return value;
+    }
+
+    int add(int x) {
+      return value + x;
+    }
+
+    int combine(A a) {
+      return compute() + a.add(other);
+    }
+  }
+
+  static class A1 extends A {
+    int sub;
+
+    @Override
+    int compute() {
+      return sub;
+    }
+
+    int extra() {
+      return sub + other;
+    }
+  }
+
+  static class A2 extends A1 {
+    int subSub;
+
+    @Override
+    int extra() {
+      return subSub;
+    }
+
+    int more() {
+      return add(subSub);
+    }
+  }
+
+  static class B {
+    String value;
+
+    String compute() {
+      return value;
+    }
+
+    String describe(int x) {
+      return value + x;
+    }
+  }
+
+  static class B1 extends B {
+    String suffix;
+
+    @Override
+    String compute() {
+      return value + suffix;
+    }
+
+    String suffix() {
+      return suffix;
+    }
+  }
+
+  static class B2 extends B {
+    long count;
+
+    @Override
+    String describe(int x) {
+      return count + ":" + x;
+    }
+  }
+
+  static class C {
+    long value;
+
+    long compute() {
+      return value;
+    }
+
+    long scale(long factor) {
+      return value * factor;
+    }
+  }
+
+  static class C1 extends C {
+    long offset;
+
+    @Override
+    long scale(long factor) {
+      return super.scale(factor) + offset;
+    }
+
+    long offset() {
+      return offset;
+    }
+  }
+
+  static class D {
+    double value;
+    double weight;
+
+    double compute() {
+      return value * weight;
+    }
+  }
+
+  static class D1 extends D {
+    double bias;
+
+    @Override
+    double compute() {
+      return super.compute() + bias;
+    }
+
+    double bias() {
+      return bias;
+    }
+  }
+
+  static class D2 extends D1 {
+    double extraBias;
+
+    @Override
+    double bias() {
+      return bias + extraBias;
+    }
+  }
+
+  static class E {
+    boolean value;
+
+    boolean compute() {
+      return value;
+    }
+
+    boolean and(boolean other) {
+      return value && other;
+    }
+  }
+
+  static class E1 extends E {
+    boolean flag;
+
+    @Override
+    boolean and(boolean other) {
+      return flag && other;
+    }
+  }
+
+  static class F {
+    char value;
+
+    char compute() {
+      return value;
+    }
+
+    char next() {
+      return (char) (value + 1);
+    }
+  }
+
+  static class F1 extends F {
+    char previous;
+
+    @Override
+    char next() {
+      return previous;
+    }
+
+    char previous() {
+      return previous;
+    }
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      A2 a = new A2();
+      System.out.println(a.combine(a) + a.extra() + a.more());
+      B1 b1 = new B1();
+      B2 b2 = new B2();
+      System.out.println(b1.compute() + b1.suffix() + b2.describe(1));
+      C1 c = new C1();
+      System.out.println(c.compute() + c.scale(2) + c.offset());
+      D2 d = new D2();
+      System.out.println(d.compute() + d.bias());
+      E1 e = new E1();
+      System.out.println(e.compute() && e.and(true));
+      F1 f = new F1();
+      System.out.println(f.compute() + f.next() + f.previous());
+    }
+  }
+}
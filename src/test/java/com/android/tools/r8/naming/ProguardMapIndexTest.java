@@ -0,0 +1,290 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.R8Command;
+import com.android.tools.r8.StringConsumer;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.references.Reference;
+import com.android.tools.r8.retrace.ProguardMapProducer;
+import com.android.tools.r8.retrace.Retracer;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.Box;
+import com.android.tools.r8.utils.StringUtils;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class ProguardMapIndexTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public ProguardMapIndexTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testIndexWrittenNextToMap() throws Exception {
+    Path mappingFile = temp.newFolder().toPath().resolve("mapping.txt");
+    R8Command.Builder builder =
+        R8Command.builder()
+            .setMinApiLevel(AndroidApiLevel.B.getLevel())
+            .addLibraryFiles(ToolHelper.getAndroidJar(AndroidApiLevel.B))
+            .addProguardConfiguration(
+                Arrays.asList(
+                    keepMainProguardConfiguration(Main.class), "-keepattributes LineNumberTable"),
+                Origin.unknown())
+            .setProguardMapOutputPath(mappingFile)
+            .setProgramConsumer(DexIndexedConsumer.emptyConsumer());
+    for (Class<?> clazz : new Class<?>[] {Main.class, A.class, B.class}) {
+      builder.addClassProgramData(ToolHelper.getClassAsBytes(clazz), Origin.unknown());
+    }
+    Path indexPath = ProguardMapIndex.getIndexPath(mappingFile);
+    ToolHelper.runR8(
+        builder.build(),
+        options -> options.proguardMapIndexConsumer = ProguardMapIndex.fileConsumer(indexPath));
+
+    byte[] mapping = Files.readAllBytes(mappingFile);
+    ProguardMapIndex index = ProguardMapIndex.fromFile(indexPath);
+    assertNotNull(index);
+    assertEquals(
+        ProguardMapIndex.computeMappingHeaderHash(mappingFile), index.getMappingHeaderHash());
+    ClassNameMapper mapper = ClassNameMapper.mapperFromFile(mappingFile);
+    checkIndex(mapper, mapping, index);
+
+    // The retracer finds the classes through the index.
+    Retracer retracer =
+        Retracer.createDefault(
+            ProguardMapProducer.fromPath(mappingFile), new DiagnosticsHandler() {});
+    for (ClassNamingForNameMapper classNaming : mapper.getClassNameMappings().values()) {
+      assertEquals(
+          classNaming.originalName,
+          retracer
+              .retraceClass(Reference.classFromTypeName(classNaming.renamedName))
+              .stream()
+              .findFirst()
+              .get()
+              .getRetracedClass()
+              .getTypeName());
+    }
+  }
+
+  @Test
+  public void testIndexOfMappingPassedToAnotherConsumer() throws Exception {
+    StringBuilder mappingBuilder = new StringBuilder();
+    Box<byte[]> indexBytes = new Box<>();
+    R8Command.Builder builder =
+        R8Command.builder()
+            .setMinApiLevel(AndroidApiLevel.B.getLevel())
+            .addLibraryFiles(ToolHelper.getAndroidJar(AndroidApiLevel.B))
+            .addProguardConfiguration(
+                Arrays.asList(keepMainProguardConfiguration(Main.class)), Origin.unknown())
+            .setProguardMapConsumer(
+                new StringConsumer.ForwardingConsumer(null) {
+                  @Override
+                  public void accept(String string, DiagnosticsHandler handler) {
+                    mappingBuilder.append(string);
+                  }
+                })
+            .setProgramConsumer(DexIndexedConsumer.emptyConsumer());
+    for (Class<?> clazz : new Class<?>[] {Main.class, A.class, B.class}) {
+      builder.addClassProgramData(ToolHelper.getClassAsBytes(clazz), Origin.unknown());
+    }
+    // The index is built from the mapping passed to the mapping consumer, whatever its type.
+    ToolHelper.runR8(
+        builder.build(),
+        options -> options.proguardMapIndexConsumer = (index, handler) -> indexBytes.set(index));
+
+    String mapping = mappingBuilder.toString();
+    ProguardMapIndex index = ProguardMapIndex.fromBuffer(ByteBuffer.wrap(indexBytes.get()));
+    assertNotNull(index);
+    checkIndex(
+        ClassNameMapper.mapperFromString(mapping),
+        mapping.getBytes(StandardCharsets.UTF_8),
+        index);
+  }
+
+  private static void checkIndex(ClassNameMapper mapper, byte[] mapping, ProguardMapIndex index)
+      throws Exception {
+    assertEquals(mapping.length, index.getMappingSize());
+    assertEquals(mapper.getClassNameMappings().size(), index.getNumberOfClasses());
+    for (ClassNamingForNameMapper classNaming : mapper.getClassNameMappings().values()) {
+      int classIndex = index.lookup(classNaming.renamedName);
+      assertTrue(classIndex >= 0);
+      String section =
+          new String(
+              mapping,
+              (int) index.getStart(classIndex),
+              (int) (index.getEnd(classIndex) - index.getStart(classIndex)),
+              StandardCharsets.UTF_8);
+      assertTrue(section.startsWith(classNaming.originalName + " -> " + classNaming.renamedName));
+      ClassNameMapper sectionMapper = ClassNameMapper.mapperFromString(section);
+      assertEquals(classNaming, sectionMapper.getClassNaming(classNaming.renamedName));
+    }
+    assertEquals(-1, index.lookup("not.a.Class"));
+  }
+
+  @Test
+  public void testIndexOfText() {
+    String mapping =
+        StringUtils.lines(
+            "# compiler: R8",
+            "a.é -> a:",
+            "    int f -> a",
+            "b.😀 -> é:",
+            "# {\"id\":\"sourceFile\",\"fileName\":\"B.java\"}",
+            "    void m() -> a");
+    ProguardMapIndex.Builder builder = ProguardMapIndex.builder();
+    // Pass the text in pieces to check that lines split over several strings are indexed.
+    for (int i = 0; i < mapping.length(); i += 5) {
+      builder.accept(mapping.substring(i, Math.min(mapping.length(), i + 5)));
+    }
+    byte[] bytes = mapping.getBytes(StandardCharsets.UTF_8);
+    ProguardMapIndex index = ProguardMapIndex.fromBuffer(ByteBuffer.wrap(builder.build()));
+    assertEquals(bytes.length, index.getMappingSize());
+    // The mapping is shorter than the hashed header.
+    assertEquals(crc32(bytes), index.getMappingHeaderHash());
+    assertEquals(2, index.getNumberOfClasses());
+    int second = index.lookup("é");
+    assertEquals(1, second);
+    assertEquals(
+        StringUtils.lines(
+            "b.😀 -> é:",
+            "# {\"id\":\"sourceFile\",\"fileName\":\"B.java\"}",
+            "    void m() -> a"),
+        new String(
+            bytes,
+            (int) index.getStart(second),
+            (int) (index.getEnd(second) - index.getStart(second)),
+            StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testHeaderHashOfLongText() {
+    StringBuilder mapping = new StringBuilder("# compiler: R8\n");
+    for (int i = 0; mapping.length() <= 2 * ProguardMapIndex.HASHED_HEADER_SIZE; i++) {
+      mapping.append("x.Clazz").append(i).append("😀 -> a").append(i).append(":\n");
+    }
+    byte[] bytes = mapping.toString().getBytes(StandardCharsets.UTF_8);
+    ProguardMapIndex.Builder builder = ProguardMapIndex.builder();
+    for (int i = 0; i < mapping.length(); i += 7) {
+      builder.accept(mapping.substring(i, Math.min(mapping.length(), i + 7)));
+    }
+    ProguardMapIndex index = ProguardMapIndex.fromBuffer(ByteBuffer.wrap(builder.build()));
+    assertEquals(bytes.length, index.getMappingSize());
+    // Only the header of the mapping is hashed.
+    assertEquals(
+        crc32(Arrays.copyOf(bytes, ProguardMapIndex.HASHED_HEADER_SIZE)),
+        index.getMappingHeaderHash());
+  }
+
+  @Test
+  public void testIndexOfChangedMappingIsNotUsed() throws Exception {
+    // The mappings have the same size, but the class mapping of b starts at another offset.
+    String indexedMapping = StringUtils.lines("x.Aa -> a:", "x.B -> b:");
+    String changedMapping = StringUtils.lines("x.A -> a:", "x.Bb -> b:");
+    assertEquals(indexedMapping.length(), changedMapping.length());
+    Path mappingFile = temp.newFolder().toPath().resolve("mapping.txt");
+    Files.write(mappingFile, changedMapping.getBytes(StandardCharsets.UTF_8));
+    Files.write(ProguardMapIndex.getIndexPath(mappingFile), buildIndex(indexedMapping));
+    assertEquals("x.Bb", retraceClassName(mappingFile, "b"));
+  }
+
+  @Test
+  public void testCorruptIndexIsNotUsed() throws Exception {
+    String mapping = StringUtils.lines("x.A -> a:", "    int f -> a", "x.B -> b:");
+    byte[] index = buildIndex(mapping);
+    assertNotNull(ProguardMapIndex.fromBuffer(ByteBuffer.wrap(index)));
+    // Truncated.
+    assertNull(ProguardMapIndex.fromBuffer(ByteBuffer.wrap(Arrays.copyOf(index, 40))));
+    // Number of slots that is zero, not a power of two, too large, or leaves no empty slot.
+    for (int slotCount : new int[] {0, 3, -4, Integer.MIN_VALUE, 1 << 30, 2}) {
+      assertNull(ProguardMapIndex.fromBuffer(corrupt(index, 28, slotCount)));
+    }
+    // Number of classes that does not fit in the buffer.
+    assertNull(ProguardMapIndex.fromBuffer(corrupt(index, 24, 3)));
+    // Hash table slot that refers to a class that does not exist.
+    assertNull(ProguardMapIndex.fromBuffer(corrupt(index, 32, 3)));
+    // Name of the first class that is outside the names.
+    int entriesOffset = 32 + 4 * ByteBuffer.wrap(index).getInt(28);
+    assertNull(ProguardMapIndex.fromBuffer(corrupt(index, entriesOffset + 8, 1000)));
+    assertNull(ProguardMapIndex.fromBuffer(corrupt(index, entriesOffset + 12, -1)));
+
+    // A corrupt index next to the mapping file is ignored.
+    Path mappingFile = temp.newFolder().toPath().resolve("mapping.txt");
+    Files.write(mappingFile, mapping.getBytes(StandardCharsets.UTF_8));
+    Files.write(ProguardMapIndex.getIndexPath(mappingFile), corrupt(index, 28, 3).array());
+    assertEquals("x.B", retraceClassName(mappingFile, "b"));
+  }
+
+  private static byte[] buildIndex(String mapping) {
+    ProguardMapIndex.Builder builder = ProguardMapIndex.builder();
+    builder.accept(mapping);
+    return builder.build();
+  }
+
+  private static ByteBuffer corrupt(byte[] index, int offset, int value) {
+    ByteBuffer buffer = ByteBuffer.wrap(index.clone());
+    buffer.putInt(offset, value);
+    return buffer;
+  }
+
+  private static long crc32(byte[] bytes) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, bytes.length);
+    return crc.getValue();
+  }
+
+  private static String retraceClassName(Path mappingFile, String obfuscatedName) {
+    return Retracer.createDefault(
+            ProguardMapProducer.fromPath(mappingFile), new DiagnosticsHandler() {})
+        .retraceClass(Reference.classFromTypeName(obfuscatedName))
+        .stream()
+        .findFirst()
+        .get()
+        .getRetracedClass()
+        .getTypeName();
+  }
+
+  static class A {
+    void m() {
+      System.out.println("A.m");
+    }
+  }
+
+  static class B extends A {
+    @Override
+    void m() {
+      System.out.println("B.m");
+    }
+  }
+
+  static class Main {
+    public static void main(String[] args) {
+      (args.length == 0 ? new A() : new B()).m();
+    }
+  }
+}
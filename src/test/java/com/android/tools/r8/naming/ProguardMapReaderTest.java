@@ -10,18 +10,26 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
+import com.android.tools.r8.Diagnostic;
+import com.android.tools.r8.DiagnosticsHandler;
 import com.android.tools.r8.TestBase;
 import com.android.tools.r8.TestDiagnosticMessagesImpl;
 import com.android.tools.r8.ToolHelper;
 import com.android.tools.r8.naming.ProguardMapReader.ParseException;
 import com.android.tools.r8.position.Position;
+import com.android.tools.r8.utils.AbortException;
+import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharSource;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -263,4 +271,143 @@ public class ProguardMapReaderTest extends TestBase {
             diagnosticMessage(
                 containsString("Could not find a handler for some.final.namespace.thing"))));
   }
+
+  @Test
+  public void testLineTerminators() throws IOException {
+    ClassNameMapper mapper = ClassNameMapper.mapperFromFile(Paths.get(ROOT, EXAMPLE_MAP));
+    String mapping = mapper.toString();
+    assertEquals(mapper, ClassNameMapper.mapperFromString(mapping.replace("\n", "\r\n")));
+    assertEquals(mapper, ClassNameMapper.mapperFromString(mapping.replace("\n", "\r")));
+  }
+
+  private static String createMappingWithManyClasses() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      builder.append("foo.bar.Class").append(i).append(" -> a").append(i).append(":\n");
+      builder.append("# {'id':'sourceFile','fileName':'Class.kt'}\n");
+      builder.append("    int field -> a\n");
+      builder.append("\n");
+      builder.append("    1:3:void inlinee():10:12 -> b\n");
+      builder.append("    1:3:void method(foo.bar.Class").append(i).append("[]):20 -> b\n");
+      builder.append("    # comment\n");
+      builder.append("    4:4:void other():30:30 -> c\n");
+    }
+    return builder.toString();
+  }
+
+  private static ClassNameMapper parseInParallel(String mapping, ExecutorService executor)
+      throws IOException {
+    return ClassNameMapper.mapperFromBufferedReader(
+        CharSource.wrap(mapping).openBufferedStream(), null, false, executor);
+  }
+
+  @Test
+  public void testParallelParse() throws IOException {
+    String mapping = createMappingWithManyClasses();
+    ExecutorService executor = ThreadUtils.getExecutorService(4);
+    try {
+      assertEquals(ClassNameMapper.mapperFromString(mapping), parseInParallel(mapping, executor));
+      String exampleMapping =
+          ClassNameMapper.mapperFromFile(Paths.get(ROOT, EXAMPLE_MAP)).toString();
+      assertEquals(
+          ClassNameMapper.mapperFromString(exampleMapping),
+          parseInParallel(StringUtils.BOM + exampleMapping.replace("\n", "\r\n"), executor));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testParallelParseError() throws IOException {
+    String mapping = createMappingWithManyClasses();
+    // An error in the member mappings of a class is reported before a later error in a class line.
+    String invalidMapping =
+        mapping.replace("void method(foo.bar.Class5000[])", "void method(foo.bar.Class5000[]")
+            + "foo.bar.Invalid -> a\n";
+    ExecutorService executor = ThreadUtils.getExecutorService(4);
+    try {
+      for (String input : ImmutableList.of(invalidMapping, mapping + "foo.bar.Invalid -> a\n")) {
+        String expected = null;
+        try {
+          ClassNameMapper.mapperFromString(input);
+        } catch (ParseException e) {
+          expected = e.toString();
+        }
+        try {
+          parseInParallel(input, executor);
+          Assert.fail();
+        } catch (ParseException e) {
+          assertEquals(expected, e.toString());
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testParallelParseDiagnostics() throws IOException {
+    // The mapping is about 4.5M chars, so it is parsed in several batches.
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 40000; i++) {
+      // Duplicate classes are reported on the thread that reads the class lines, and the other
+      // diagnostics on the threads that parse the member mappings.
+      int originalIndex = i % 1000 == 999 ? i - 1 : i;
+      builder.append("foo.bar.Class").append(originalIndex);
+      builder.append(" -> a").append(i).append(":\n");
+      builder.append("    1:3:void method(foo.bar.Class").append(i).append("[]):20 -> b\n");
+      if (i % 700 == 3) {
+        builder.append("    int field -> a\n");
+        builder.append("    int otherField -> c\n");
+        builder.append("    int field -> b\n");
+      }
+      if (i % 900 == 5) {
+        builder.append("# {'id':'unknown.namespace").append(i).append("'}\n");
+      }
+      builder.append("    4:4:void other():30:30 -> c\n");
+      if (i % 1100 == 7) {
+        builder.append("    void other() -> d\n");
+      }
+    }
+    Path mapping = writeTextToTempFile(builder.toString());
+    List<String> expected = parseSeedMapperDiagnostics(mapping, null);
+    assertEquals(40 + 58 + 45 + 37, expected.size());
+    ExecutorService executor = ThreadUtils.getExecutorService(4);
+    try {
+      for (int i = 0; i < 5; i++) {
+        assertEquals(expected, parseSeedMapperDiagnostics(mapping, executor));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static List<String> parseSeedMapperDiagnostics(Path mapping, ExecutorService executor)
+      throws IOException {
+    List<String> diagnostics = new ArrayList<>();
+    Reporter reporter =
+        new Reporter(
+            new DiagnosticsHandler() {
+              @Override
+              public void error(Diagnostic error) {
+                diagnostics.add("error: " + error.getDiagnosticMessage());
+              }
+
+              @Override
+              public void info(Diagnostic info) {
+                diagnostics.add("info: " + info.getDiagnosticMessage());
+              }
+            });
+    try {
+      if (executor == null) {
+        SeedMapper.seedMapperFromFile(reporter, mapping);
+      } else {
+        SeedMapper.seedMapperFromFile(reporter, mapping, executor);
+      }
+      Assert.fail();
+    } catch (AbortException e) {
+      // Expected.
+    }
+    return diagnostics;
+  }
 }
@@ -0,0 +1,113 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace;
+
+import static com.android.tools.r8.retrace.internal.StackTraceRegularExpressionParser.DEFAULT_REGULAR_EXPRESSION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.retrace.internal.DefaultStackTraceLineParser;
+import com.android.tools.r8.retrace.internal.StackTraceElementStringProxy;
+import com.android.tools.r8.retrace.internal.StackTraceRegularExpressionParser;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class DefaultStackTraceLineParserTest extends TestBase {
+
+  private static final List<String> LINES =
+      ImmutableList.of(
+          "    at a.b.c(SourceFile:1)",
+          "\tat com.example.Main.main(Main.java:20)",
+          "at a.b(Native Method)",
+          "at a.b(Unknown Source)",
+          "  at a.<init>(:3)",
+          "  at a.<clinit>(Foo.java:)",
+          "  at Suppressed.x(a:1)",
+          "  at a.b(F.java:1) ~[foo)]",
+          "  at a.b(a::12)",
+          "  at a.b(a:b:1)",
+          "  at a.b (x)  ",
+          "  at 1a.b(x)",
+          "  at classloader/module@1/a.b.c(SourceFile:1)",
+          "10-16 12:00:00.000  1234  1234 E AndroidRuntime: \tat a.b.c(SourceFile:12)",
+          "flat a.b(c:1)",
+          "x:at a.b(c:1)",
+          "Caused by: java.lang.RuntimeException: boom",
+          "java.lang.Foo",
+          "java.lang.Foo: msg: with: colons",
+          "Exception in thread \"main\" java.lang.Error: x",
+          "Suppressed: a.b.C",
+          "Suppressed: Suppressed",
+          "Suppressed",
+          "  ... 12 more",
+          "a.b: ",
+          "a: b.c. d",
+          "é.a: b",
+          "",
+          "   ");
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public DefaultStackTraceLineParserTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testDefaultParserIsUsedForDefaultExpression() {
+    assertTrue(
+        StackTraceLineParser.createRegularExpressionParser(DEFAULT_REGULAR_EXPRESSION)
+            instanceof DefaultStackTraceLineParser);
+    assertTrue(
+        StackTraceLineParser.createRegularExpressionParser("%c")
+            instanceof StackTraceRegularExpressionParser);
+  }
+
+  @Test
+  public void testSameAsRegularExpression() {
+    StackTraceRegularExpressionParser expected =
+        new StackTraceRegularExpressionParser(DEFAULT_REGULAR_EXPRESSION);
+    DefaultStackTraceLineParser actual = new DefaultStackTraceLineParser();
+    for (String line : LINES) {
+      assertEquals(line, describe(expected.parse(line)), describe(actual.parse(line)));
+    }
+    // Random lines from the tokens of stack trace lines.
+    String[] tokens = {
+      "at ", "a", "b", ".", " ", ":", "(", ")", "\"", "1", "<init>", "Caused by: ", "Suppressed",
+      "\t", "~[x]", "$", ":1", "java.lang.X", "Foo.java", "::", "x9"
+    };
+    Random random = new Random(0);
+    for (int i = 0; i < 100000; i++) {
+      StringBuilder builder = new StringBuilder();
+      int length = random.nextInt(12);
+      for (int j = 0; j < length; j++) {
+        builder.append(tokens[random.nextInt(tokens.length)]);
+      }
+      String line = builder.toString();
+      assertEquals(line, describe(expected.parse(line)), describe(actual.parse(line)));
+    }
+  }
+
+  private static String describe(StackTraceElementStringProxy proxy) {
+    return (proxy.hasClassName() ? proxy.getClassReference().getTypeName() : "-")
+        + "|"
+        + (proxy.hasMethodName() ? proxy.getMethodName() : "-")
+        + "|"
+        + (proxy.hasFileName() ? proxy.getFileName() : "-")
+        + "|"
+        + (proxy.hasLineNumber() ? proxy.lineNumberAsString() : "-");
+  }
+}
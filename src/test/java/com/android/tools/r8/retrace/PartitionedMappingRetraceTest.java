@@ -0,0 +1,158 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.naming.ClassNamingForNameMapper;
+import com.android.tools.r8.references.Reference;
+import com.android.tools.r8.retrace.internal.PartitionedClassNameMapper;
+import com.android.tools.r8.utils.StringUtils;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class PartitionedMappingRetraceTest extends TestBase {
+
+  private static final String MAPPING =
+      StringUtils.lines(
+          "# compiler: R8",
+          "# {\"id\":\"com.android.tools.r8.mapping\",\"version\":\"1.0\"}",
+          "com.example.Main -> a:",
+          "# {\"id\":\"sourceFile\",\"fileName\":\"Main.java\"}",
+          "    1:1:void inlinee():10:10 -> a",
+          "    1:1:void main(java.lang.String[]):20 -> a",
+          "    2:2:void main(java.lang.String[]):21:21 -> a",
+          "com.example.Other -> b:",
+          "    int field -> a",
+          "    1:3:void other():5:7 -> b",
+          "com.example.Broken -> c:",
+          "    this is not a member mapping");
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public PartitionedMappingRetraceTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testSameResultAsFullParse() throws Exception {
+    Path mappingFile = temp.newFile("mapping.txt").toPath();
+    Files.write(mappingFile, MAPPING.getBytes());
+    Retracer partitioned =
+        Retracer.createDefault(
+            ProguardMapProducer.fromPath(mappingFile), new DiagnosticsHandler() {});
+    // The full parse fails on the broken class, so only the valid classes are compared.
+    String validMapping = MAPPING.substring(0, MAPPING.indexOf("com.example.Broken"));
+    Retracer full =
+        Retracer.createDefault(
+            ProguardMapProducer.fromReader(new StringReader(validMapping)),
+            new DiagnosticsHandler() {});
+    for (String frame : new String[] {"a.a:1", "a.a:2", "b.b:2", "d.a:1"}) {
+      assertEquals(retraceFrame(full, frame), retraceFrame(partitioned, frame));
+    }
+    assertEquals(
+        "com.example.Other",
+        partitioned
+            .retraceClass(Reference.classFromTypeName("b"))
+            .stream()
+            .findFirst()
+            .get()
+            .getRetracedClass()
+            .getTypeName());
+    assertFalse(
+        partitioned.retraceClass(Reference.classFromTypeName("d")).hasRetraceResult());
+  }
+
+  @Test
+  public void testInvalidClassIsOnlyParsedWhenRetraced() throws Exception {
+    Path mappingFile = temp.newFile("mapping.txt").toPath();
+    Files.write(mappingFile, MAPPING.getBytes());
+    Retracer retracer =
+        Retracer.createDefault(
+            ProguardMapProducer.fromPath(mappingFile), new DiagnosticsHandler() {});
+    assertEquals(
+        StringUtils.lines("com.example.Main.main:21"), retraceFrame(retracer, "a.a:2"));
+    assertThrows(
+        InvalidMappingFileException.class,
+        () -> retracer.retraceClass(Reference.classFromTypeName("c")));
+  }
+
+  @Test
+  public void testInvalidClassLine() throws Exception {
+    Path mappingFile = temp.newFile("mapping.txt").toPath();
+    Files.write(mappingFile, "foo.bar.baz <- is invalid mapping".getBytes());
+    assertThrows(
+        InvalidMappingFileException.class,
+        () ->
+            Retracer.createDefault(
+                ProguardMapProducer.fromPath(mappingFile), new DiagnosticsHandler() {}));
+  }
+
+  @Test
+  public void testCachedClassesAreEvicted() throws Exception {
+    Path mappingFile = temp.newFile("mapping.txt").toPath();
+    Files.write(mappingFile, MAPPING.getBytes());
+    PartitionedClassNameMapper mapper =
+        PartitionedClassNameMapper.create(mappingFile, new DiagnosticsHandler() {}, true, 1);
+    ClassNamingForNameMapper main = mapper.getClassNaming("a");
+    assertSame(main, mapper.getClassNaming("a"));
+    ClassNamingForNameMapper other = mapper.getClassNaming("b");
+    assertEquals("com.example.Other", other.originalName);
+    // Looking up b evicted a, which is parsed again.
+    ClassNamingForNameMapper reparsedMain = mapper.getClassNaming("a");
+    assertNotSame(main, reparsedMain);
+    assertEquals(main.originalName, reparsedMain.originalName);
+    assertNull(mapper.getClassNaming("d"));
+  }
+
+  private static String retraceFrame(Retracer retracer, String frame) {
+    int dot = frame.indexOf('.');
+    int colon = frame.indexOf(':');
+    String holder = frame.substring(0, dot);
+    String method = frame.substring(dot + 1, colon);
+    int position = Integer.parseInt(frame.substring(colon + 1));
+    List<String> frames = new ArrayList<>();
+    retracer
+        .retraceClass(Reference.classFromTypeName(holder))
+        .lookupFrame(method, position)
+        .forEach(
+            element ->
+                element.visitFrames(
+                    (retracedMethod, index) ->
+                        frames.add(
+                            (retracedMethod.isKnown()
+                                    ? retracedMethod
+                                            .asKnown()
+                                            .getMethodReference()
+                                            .getHolderClass()
+                                            .getTypeName()
+                                        + "."
+                                    : "")
+                                + retracedMethod.getMethodName()
+                                + ":"
+                                + retracedMethod.getOriginalPositionOrDefault(position))));
+    return StringUtils.lines(frames);
+  }
+}
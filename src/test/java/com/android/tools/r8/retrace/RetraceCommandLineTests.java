@@ -83,6 +83,18 @@ public class RetraceCommandLineTests {
     runAbortTest(containsString("Could not find mapping file 'foo.txt'"), "foo.txt");
   }
 
+  @Test
+  public void testUnreadableMappingFile() throws IOException {
+    // A directory exists, but cannot be read as a mapping file.
+    Path mappingFile = folder.newFolder("mapping").toPath();
+    Path stackTraceFile = folder.newFile("stacktrace.txt").toPath();
+    Files.write(stackTraceFile, new byte[0]);
+    runAbortTest(
+        containsString("Could not open mapping file '" + mappingFile + "'."),
+        mappingFile.toString(),
+        stackTraceFile.toString());
+  }
+
   @Test
   public void testInvalidMappingFile() throws IOException {
     Path mappingFile = folder.newFile("mapping.txt").toPath();
@@ -0,0 +1,103 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.references.Reference;
+import com.android.tools.r8.retrace.internal.CachingRetracer;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.google.common.collect.ImmutableList;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class StringRetraceBatchTest extends TestBase {
+
+  private static final String MAPPING =
+      StringUtils.lines(
+          "com.example.Main -> a:",
+          "    1:1:void inlinee():10:10 -> a",
+          "    1:1:void main(java.lang.String[]):20 -> a",
+          "    2:2:void main(java.lang.String[]):21:21 -> a",
+          "com.example.Other -> b:",
+          "    1:3:void other():5:7 -> b",
+          "    4:4:void ambiguous():8:8 -> c",
+          "    4:4:void otherAmbiguous():9:9 -> c");
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public StringRetraceBatchTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  private static StringRetrace createRetrace(int resultCacheSize) {
+    return StringRetrace.create(
+        RetraceOptions.builder()
+            .setProguardMapProducer(ProguardMapProducer.fromReader(new StringReader(MAPPING)))
+            .setResultCacheSize(resultCacheSize)
+            .build());
+  }
+
+  private static List<List<String>> createStackTraces() {
+    List<List<String>> stackTraces = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      stackTraces.add(
+          ImmutableList.of(
+              "java.lang.RuntimeException: Report " + i,
+              "    at a.a(SourceFile:" + (1 + i % 2) + ")",
+              "    at b.b(SourceFile:" + (1 + i % 3) + ")",
+              "    at b.c(SourceFile:4)",
+              "    at c.d(SourceFile:" + i + ")"));
+    }
+    return stackTraces;
+  }
+
+  @Test
+  public void testBatchIsEqualToSequential() throws Exception {
+    List<List<String>> stackTraces = createStackTraces();
+    StringRetrace sequentialRetrace = createRetrace(0);
+    List<List<String>> expected = new ArrayList<>();
+    for (List<String> stackTrace : stackTraces) {
+      expected.add(sequentialRetrace.retrace(stackTrace));
+    }
+    ExecutorService executor = ThreadUtils.getExecutorService(4);
+    try {
+      // A small cache to also test eviction.
+      assertEquals(expected, createRetrace(4).retraceAll(stackTraces, executor));
+      assertEquals(expected, createRetrace(0).retraceAll(stackTraces, executor));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testCachedResults() {
+    Retracer retracer =
+        new CachingRetracer(
+            Retracer.createDefault(
+                ProguardMapProducer.fromReader(new StringReader(MAPPING)),
+                new DiagnosticsHandler() {}),
+            16);
+    RetraceClassResult classResult = retracer.retraceClass(Reference.classFromTypeName("b"));
+    assertSame(classResult, retracer.retraceClass(Reference.classFromTypeName("b")));
+    assertSame(classResult.lookupFrame("b", 2), classResult.lookupFrame("b", 2));
+  }
+}
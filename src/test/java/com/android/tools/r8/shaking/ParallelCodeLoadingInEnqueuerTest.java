@@ -0,0 +1,119 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.cf.bootstrap.BootstrapCurrentEqualityTest;
+import com.android.tools.r8.graph.DexProgramClass;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class ParallelCodeLoadingInEnqueuerTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public ParallelCodeLoadingInEnqueuerTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testOutputIsIdentical() throws Exception {
+    Path serial = compile(false);
+    Path parallel = compile(true);
+    BootstrapCurrentEqualityTest.assertProgramsEqual(serial, parallel);
+  }
+
+  @Test
+  public void testCodeOfSeveralClassesIsLoadedTogether() throws Exception {
+    List<Integer> batchSizes = new ArrayList<>();
+    compile(true, classes -> batchSizes.add(classes.size()));
+    // The methods of A, D and E become live before any of them is traced, so the code of these
+    // classes is loaded on the executor in one batch.
+    assertTrue(batchSizes.stream().anyMatch(size -> size > 1));
+
+    batchSizes.clear();
+    compile(false, classes -> batchSizes.add(classes.size()));
+    assertTrue(batchSizes.isEmpty());
+  }
+
+  private Path compile(boolean enableParallelCodeLoading) throws Exception {
+    return compile(enableParallelCodeLoading, null);
+  }
+
+  private Path compile(
+      boolean enableParallelCodeLoading, Consumer<Collection<DexProgramClass>> inspector)
+      throws Exception {
+    return testForR8(Backend.CF)
+        .addInnerClasses(ParallelCodeLoadingInEnqueuerTest.class)
+        .addKeepMainRule(Main.class)
+        .addOptionsModification(
+            options -> {
+              options.enableParallelCodeLoadingInEnqueuer = enableParallelCodeLoading;
+              options.testing.enqueuerCodeLoadingInspector = inspector;
+            })
+        .compile()
+        .writeToZip();
+  }
+
+  static class A {
+    void m() {
+      System.out.println("A.m");
+      new B().m();
+    }
+  }
+
+  static class B {
+    void m() {
+      System.out.println("B.m");
+      C.m();
+    }
+  }
+
+  static class C {
+    static void m() {
+      System.out.println("C.m");
+    }
+  }
+
+  static class D {
+    static void m() {
+      System.out.println("D.m");
+    }
+  }
+
+  static class E {
+    static void m() {
+      System.out.println("E.m");
+    }
+  }
+
+  static class Unused {
+    void m() {
+      System.out.println("Unused.m");
+    }
+  }
+
+  static class Main {
+    public static void main(String[] args) {
+      new A().m();
+      D.m();
+      E.m();
+    }
+  }
+}
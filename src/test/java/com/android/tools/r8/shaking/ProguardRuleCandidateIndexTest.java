@@ -0,0 +1,82 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import static com.android.tools.r8.utils.codeinspector.Matchers.isPresent;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class ProguardRuleCandidateIndexTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public ProguardRuleCandidateIndexTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void test() throws Exception {
+    String outer = ProguardRuleCandidateIndexTest.class.getTypeName();
+    testForR8(Backend.DEX)
+        .addProgramClasses(
+            KeepMe.class,
+            PrefixA.class,
+            PrefixB.class,
+            Annotated.class,
+            NegatedKept.class,
+            NegatedRemoved.class,
+            Other.class)
+        .addKeepRules(
+            // Literal prefix, uses the name index.
+            "-keep class " + outer + "$Prefix*",
+            // Specific class annotation, uses the annotation index.
+            "-keep @" + KeepMe.class.getTypeName() + " class *",
+            // Both, where the annotation is the best filter.
+            "-keep @" + KeepMe.class.getTypeName() + " class " + outer + "$*",
+            // Negated names are not indexed.
+            "-keep class !**$NegatedRemoved,**$Negated*")
+        .compile()
+        .inspect(this::inspect);
+  }
+
+  private void inspect(CodeInspector inspector) {
+    assertThat(inspector.clazz(PrefixA.class), isPresent());
+    assertThat(inspector.clazz(PrefixB.class), isPresent());
+    assertThat(inspector.clazz(Annotated.class), isPresent());
+    assertThat(inspector.clazz(NegatedKept.class), isPresent());
+    assertThat(inspector.clazz(NegatedRemoved.class), not(isPresent()));
+    assertThat(inspector.clazz(Other.class), not(isPresent()));
+  }
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface KeepMe {}
+
+  static class PrefixA {}
+
+  static class PrefixB {}
+
+  @KeepMe
+  static class Annotated {}
+
+  static class NegatedKept {}
+
+  static class NegatedRemoved {}
+
+  static class Other {}
+}
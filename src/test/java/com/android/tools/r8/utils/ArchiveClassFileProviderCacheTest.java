@@ -0,0 +1,104 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.android.tools.r8.ClassFileResourceProvider;
+import com.android.tools.r8.errors.CompilationError;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArchiveClassFileProviderCacheTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private static void writeArchive(Path archive, String... names) throws Exception {
+    try (OutputStream stream = Files.newOutputStream(archive);
+        ZipOutputStream out = new ZipOutputStream(stream)) {
+      for (String name : names) {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(name.getBytes());
+        out.closeEntry();
+      }
+    }
+  }
+
+  @Test
+  public void testReuseAndInvalidation() throws Exception {
+    Path archive = temp.getRoot().toPath().resolve("lib.jar");
+    writeArchive(archive, "a/A.class", "a/B.class", "META-INF/MANIFEST.MF");
+    ArchiveClassFileProviderCache cache = new ArchiveClassFileProviderCache();
+
+    ClassFileResourceProvider provider = cache.getProvider(archive);
+    assertEquals(ImmutableSet.of("La/A;", "La/B;"), provider.getClassDescriptors());
+    assertArrayEquals("a/A.class".getBytes(), provider.getProgramResource("La/A;").getBytes());
+    assertSame(provider.getProgramResource("La/A;"), provider.getProgramResource("La/A;"));
+    assertNull(provider.getProgramResource("La/C;"));
+    assertSame(provider, cache.getProvider(archive));
+
+    writeArchive(archive, "a/C.class");
+    Files.setLastModifiedTime(archive, FileTime.fromMillis(0));
+    ClassFileResourceProvider newProvider = cache.getProvider(archive);
+    assertNotSame(provider, newProvider);
+    assertEquals(ImmutableSet.of("La/C;"), newProvider.getClassDescriptors());
+    cache.clear();
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    Path first = temp.getRoot().toPath().resolve("first.jar");
+    Path second = temp.getRoot().toPath().resolve("second.jar");
+    writeArchive(first, "a/A.class");
+    writeArchive(second, "b/B.class");
+    // Only allow the bytes of a single class to be retained.
+    ArchiveClassFileProviderCache cache =
+        new ArchiveClassFileProviderCache("a/A.class".getBytes().length);
+
+    ClassFileResourceProvider firstProvider = cache.getProvider(first);
+    firstProvider.getProgramResource("La/A;");
+    assertSame(firstProvider, cache.getProvider(first));
+    ClassFileResourceProvider secondProvider = cache.getProvider(second);
+    secondProvider.getProgramResource("Lb/B;");
+    // The most recently requested archive is kept, the other one is evicted.
+    assertSame(secondProvider, cache.getProvider(second));
+    ClassFileResourceProvider newFirstProvider = cache.getProvider(first);
+    assertNotSame(firstProvider, newFirstProvider);
+    // An evicted provider can still read the archive.
+    assertArrayEquals("a/A.class".getBytes(), firstProvider.getProgramResource("La/A;").getBytes());
+    cache.clear();
+  }
+
+  @Test
+  public void testReadError() throws Exception {
+    Path archive = temp.getRoot().toPath().resolve("lib.jar");
+    writeArchive(archive, "a/A.class");
+    ArchiveClassFileProviderCache cache = new ArchiveClassFileProviderCache();
+    ClassFileResourceProvider provider = cache.getProvider(archive);
+    cache.clear();
+    Files.delete(archive);
+    try {
+      provider.getProgramResource("La/A;");
+      fail();
+    } catch (CompilationError e) {
+      assertEquals("Failed to read 'La/A;'", e.getMessage());
+      assertTrue(e.getCause() instanceof IOException);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.android.tools.r8.ResourceException;
+import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.shaking.FilteredClassPath;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedZipFileTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private static byte[] content(int seed, int size) {
+    byte[] bytes = new byte[size];
+    Random random = new Random(seed);
+    // Use a small alphabet such that deflating actually compresses the content.
+    for (int i = 0; i < size; i++) {
+      bytes[i] = (byte) ('a' + random.nextInt(4));
+    }
+    return bytes;
+  }
+
+  private static void addEntry(ZipOutputStream out, String name, byte[] bytes, boolean stored)
+      throws Exception {
+    ZipEntry entry = new ZipEntry(name);
+    if (stored) {
+      CRC32 crc = new CRC32();
+      crc.update(bytes);
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(bytes.length);
+      entry.setCompressedSize(bytes.length);
+      entry.setCrc(crc.getValue());
+    }
+    out.putNextEntry(entry);
+    out.write(bytes);
+    out.closeEntry();
+  }
+
+  @Test
+  public void testStoredAndDeflatedEntries() throws Exception {
+    Path archive = temp.getRoot().toPath().resolve("archive.zip");
+    byte[] stored = content(0, 10000);
+    byte[] deflated = content(1, 100000);
+    try (OutputStream stream = Files.newOutputStream(archive);
+        ZipOutputStream out = new ZipOutputStream(stream)) {
+      out.setComment("comment");
+      out.putNextEntry(new ZipEntry("dir/"));
+      out.closeEntry();
+      addEntry(out, "dir/stored.dex", stored, true);
+      addEntry(out, "dir/deflated.class", deflated, false);
+      addEntry(out, "empty", new byte[0], true);
+    }
+
+    MappedZipFile zipFile = MappedZipFile.open(archive);
+    assertNotNull(zipFile);
+    List<MappedZipFile.Entry> entries = zipFile.getEntries();
+    assertEquals(4, entries.size());
+    assertEquals("dir/", entries.get(0).getName());
+    assertTrue(entries.get(0).isDirectory());
+
+    MappedZipFile.Entry storedEntry = entries.get(1);
+    assertEquals("dir/stored.dex", storedEntry.getName());
+    assertTrue(storedEntry.isStored());
+    ByteBuffer buffer = zipFile.getStoredContent(storedEntry);
+    assertTrue(buffer.isReadOnly());
+    assertEquals(stored.length, buffer.remaining());
+    assertEquals(stored[42], buffer.get(42));
+    assertArrayEquals(stored, zipFile.getBytes(storedEntry));
+
+    MappedZipFile.Entry deflatedEntry = entries.get(2);
+    assertEquals("dir/deflated.class", deflatedEntry.getName());
+    assertFalse(deflatedEntry.isStored());
+    assertArrayEquals(deflated, zipFile.getBytes(deflatedEntry));
+
+    assertArrayEquals(new byte[0], zipFile.getBytes(entries.get(3)));
+  }
+
+  @Test
+  public void testCorruptArchive() throws Exception {
+    Path archive = temp.getRoot().toPath().resolve("corrupt.zip");
+    Files.write(archive, content(2, 1000));
+    // The archive is reported in the same way with and without memory mapping.
+    for (boolean memoryMapArchive : new boolean[] {false, true}) {
+      ArchiveResourceProvider provider =
+          new ArchiveResourceProvider(
+              FilteredClassPath.unfiltered(archive), false, memoryMapArchive);
+      try {
+        provider.getProgramResources();
+        fail();
+      } catch (CompilationError e) {
+        assertTrue(e.getMessage().startsWith("Zip error while reading"));
+      } catch (ResourceException e) {
+        fail(e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,86 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ByteBufferProvider;
+import com.android.tools.r8.DexIndexedConsumer;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+public class PoolingByteBufferProviderTest {
+
+  @Test
+  public void testReuse() {
+    PoolingByteBufferProvider provider = new PoolingByteBufferProvider(1 << 20);
+    ByteBuffer buffer = provider.acquireByteBuffer(100000);
+    assertEquals(1 << 17, buffer.capacity());
+    assertEquals(0, buffer.position());
+    buffer.put((byte) 42);
+    provider.releaseByteBuffer(buffer);
+
+    // A request in the same size class gets the released buffer, cleared and zeroed.
+    ByteBuffer reused = provider.acquireByteBuffer(70000);
+    assertSame(buffer, reused);
+    assertEquals(0, reused.position());
+    assertEquals(0, reused.get(0));
+
+    // Requests in other size classes get new buffers.
+    provider.releaseByteBuffer(reused);
+    assertEquals(1 << 16, provider.acquireByteBuffer(10).capacity());
+    assertEquals(1 << 18, provider.acquireByteBuffer((1 << 17) + 1).capacity());
+  }
+
+  @Test
+  public void testBound() {
+    PoolingByteBufferProvider provider = new PoolingByteBufferProvider(1 << 16);
+    ByteBuffer first = provider.acquireByteBuffer(1 << 16);
+    ByteBuffer second = provider.acquireByteBuffer(1 << 16);
+    provider.releaseByteBuffer(first);
+    // The pool is full, so the second buffer is dropped.
+    provider.releaseByteBuffer(second);
+    assertSame(first, provider.acquireByteBuffer(1 << 16));
+    assertNotSame(second, provider.acquireByteBuffer(1 << 16));
+  }
+
+  @Test
+  public void testClear() {
+    PoolingByteBufferProvider provider = new PoolingByteBufferProvider(1 << 16);
+    ByteBuffer buffer = provider.acquireByteBuffer(1 << 16);
+    provider.releaseByteBuffer(buffer);
+    provider.clear();
+    assertNotSame(buffer, provider.acquireByteBuffer(1 << 16));
+    // The pool accepts buffers up to its bound again after clearing.
+    provider.releaseByteBuffer(buffer);
+    assertSame(buffer, provider.acquireByteBuffer(1 << 16));
+  }
+
+  @Test
+  public void testForeignBuffersAreNotPooled() {
+    PoolingByteBufferProvider provider = new PoolingByteBufferProvider(1 << 20);
+    ByteBuffer foreign = ByteBuffer.allocate(100000);
+    provider.releaseByteBuffer(foreign);
+    assertNotSame(foreign, provider.acquireByteBuffer(100000));
+  }
+
+  @Test
+  public void testUsesDefaultAllocation() {
+    assertTrue(PoolingByteBufferProvider.usesDefaultAllocation(new ByteBufferProvider() {}));
+    assertTrue(
+        PoolingByteBufferProvider.usesDefaultAllocation(DexIndexedConsumer.emptyConsumer()));
+    assertFalse(
+        PoolingByteBufferProvider.usesDefaultAllocation(
+            new ByteBufferProvider() {
+              @Override
+              public ByteBuffer acquireByteBuffer(int capacity) {
+                return ByteBuffer.allocate(capacity);
+              }
+            }));
+  }
+}
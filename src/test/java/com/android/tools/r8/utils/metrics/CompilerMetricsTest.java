@@ -0,0 +1,108 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Reporter;
+import com.android.tools.r8.utils.Timing;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompilerMetricsTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private static JsonObject find(JsonObject summary, String category, String name) {
+    JsonArray metrics = summary.getAsJsonArray("metrics");
+    for (int i = 0; i < metrics.size(); i++) {
+      JsonObject metric = metrics.get(i).getAsJsonObject();
+      if (metric.get("category").getAsString().equals(category)
+          && metric.get("name").getAsString().equals(name)) {
+        return metric;
+      }
+    }
+    throw new AssertionError("No metric " + category + "/" + name + " in " + summary);
+  }
+
+  @Test
+  public void testDisabled() {
+    CompilerMetrics metrics = CompilerMetrics.empty();
+    assertFalse(metrics.isEnabled());
+    metrics.begin(CompilerMetrics.CATEGORY_PHASE, "phase").setCount(2).end();
+    metrics.event(CompilerMetrics.CATEGORY_INLINER, "inlined");
+  }
+
+  @Test
+  public void testAggregation() {
+    JsonMetricsConsumer consumer = new JsonMetricsConsumer(temp.getRoot().toPath());
+    CompilerMetrics metrics = CompilerMetrics.create(consumer);
+    assertTrue(metrics.isEnabled());
+    for (int i = 0; i < 3; i++) {
+      metrics.beginParallel(CompilerMetrics.CATEGORY_WAVE, "wave", 4).setCount(10).end();
+    }
+    metrics.event(CompilerMetrics.CATEGORY_INLINER, "inlined");
+    metrics.event(CompilerMetrics.CATEGORY_INLINER, "inlined");
+
+    JsonObject summary = consumer.buildSummary("R8");
+    assertEquals("R8", summary.get("tool").getAsString());
+    JsonObject wave = find(summary, CompilerMetrics.CATEGORY_WAVE, "wave");
+    assertEquals(3, wave.get("occurrences").getAsInt());
+    assertEquals(30, wave.get("count").getAsInt());
+    assertEquals(4, wave.get("maxThreads").getAsInt());
+    assertEquals(
+        2, find(summary, CompilerMetrics.CATEGORY_INLINER, "inlined").get("count").getAsInt());
+
+    // The aggregates are reset for the next compilation.
+    assertEquals(0, consumer.buildSummary("R8").getAsJsonArray("metrics").size());
+  }
+
+  @Test
+  public void testTimingScopes() throws Exception {
+    Path output = temp.getRoot().toPath().resolve("metrics.json");
+    InternalOptions options = new InternalOptions();
+    options.setMetrics(CompilerMetrics.create(new JsonMetricsConsumer(output)));
+    Timing timing = Timing.create("R8", options);
+    for (int i = 0; i < 2; i++) {
+      timing.begin("outer");
+      timing.begin("inner");
+      timing.end();
+      timing.end();
+    }
+    options.getMetrics().finished("R8", new Reporter());
+    options.getMetrics().finished("D8", new Reporter());
+
+    // Each compilation appends a line.
+    List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+    assertEquals(2, lines.size());
+    JsonObject summary = new JsonParser().parse(lines.get(0)).getAsJsonObject();
+    assertEquals(
+        2, find(summary, CompilerMetrics.CATEGORY_PHASE, "outer").get("occurrences").getAsInt());
+    assertEquals(
+        2,
+        find(summary, CompilerMetrics.CATEGORY_PHASE, "outer > inner")
+            .get("occurrences")
+            .getAsInt());
+    assertEquals(
+        "D8", new JsonParser().parse(lines.get(1)).getAsJsonObject().get("tool").getAsString());
+  }
+
+  @Test
+  public void testJfrEventTypesAreRegisteredOnce() {
+    // Creating metrics for each compilation reuses the consumer and its registered event types.
+    assertSame(JfrMetricsConsumer.createIfAvailable(), JfrMetricsConsumer.createIfAvailable());
+  }
+}